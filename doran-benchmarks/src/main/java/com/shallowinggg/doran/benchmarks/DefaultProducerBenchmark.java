@@ -0,0 +1,85 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.codahale.metrics.Counter;
+import com.shallowinggg.doran.client.DefaultProducer;
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.producer.BuiltInProducer;
+import com.shallowinggg.doran.common.MQConfig;
+import com.shallowinggg.doran.common.RabbitMQConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark for {@link DefaultProducer#sendMessage(Message)} fan-out
+ * through its {@link com.shallowinggg.doran.common.util.concurrent.DoranEventExecutorGroup}
+ * to stub {@link BuiltInProducer}s.
+ * <p>
+ * Every invocation sends {@link #BATCH} messages and waits until all
+ * of them are handled by producers, so the result is end-to-end time
+ * per message and executor queues won't grow without bound.
+ * <p>
+ * Run with {@code -prof gc} and {@code encode=false} to check that
+ * the dispatch path doesn't allocate in steady state, i.e.
+ * {@code gc.alloc.rate.norm} is close to zero.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultProducerBenchmark {
+    private static final int BATCH = 1024;
+
+    @Param({"1", "4"})
+    private int threadNum;
+
+    @Param({"true", "false"})
+    private boolean encode;
+
+    private final LongAdder sent = new LongAdder();
+    private DefaultProducer producer;
+    private Message message;
+    private long expected;
+
+    @Setup
+    public void setup() {
+        RabbitMQConfig config = new RabbitMQConfig();
+        config.setName("benchmark");
+        config.setUri("amqp://localhost");
+        config.setExchangeName("benchmark");
+        config.setRoutingKey("benchmark");
+        config.setQueueName("benchmark");
+        config.setThreadNum(threadNum);
+
+        producer = new DefaultProducer("benchmark", config.getName(), new Counter()) {
+            @Override
+            protected BuiltInProducer createProducer(MQConfig config) {
+                return new StubBuiltInProducer(sent, encode);
+            }
+        };
+        producer.setMqConfig(config);
+        message = Message.createMessage("benchmark message");
+    }
+
+    @TearDown
+    public void tearDown() {
+        producer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void sendMessage() {
+        for (int i = 0; i < BATCH; ++i) {
+            producer.sendMessage(message);
+        }
+        expected += BATCH;
+        while (sent.sum() < expected) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.transport.protocol.DoranSerializable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link DoranSerializable#mapSerialize(Map)} and
+ * {@link DoranSerializable#mapDeserialize(byte[])}.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapSerializeBenchmark {
+
+    @Param({"4", "32"})
+    private int size;
+
+    private Map<String, String> map;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; ++i) {
+            map.put("key-" + i, "value-" + i);
+        }
+        serialized = DoranSerializable.mapSerialize(map);
+    }
+
+    @Benchmark
+    public byte[] mapSerialize() {
+        return DoranSerializable.mapSerialize(map);
+    }
+
+    @Benchmark
+    public Map<String, String> mapDeserialize() {
+        return DoranSerializable.mapDeserialize(serialized);
+    }
+}
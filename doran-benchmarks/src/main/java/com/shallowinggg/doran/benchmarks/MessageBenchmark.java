@@ -0,0 +1,73 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.client.common.Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link Message} encoding and decoding.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+    private static final ByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+
+    @Param({"0", "8"})
+    private int propertyNum;
+
+    @Param({"128", "4096"})
+    private int bodySize;
+
+    private Message message;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        Map<String, String> properties = new HashMap<>(propertyNum * 2);
+        for (int i = 0; i < propertyNum; ++i) {
+            properties.put("property-key-" + i, "property-value-" + i);
+        }
+        message = Message.createMessage(properties, new byte[bodySize]);
+        encoded = message.encode();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return message.encode();
+    }
+
+    @Benchmark
+    public int encodePooled() {
+        ByteBuf buf = message.encode(ALLOCATOR);
+        int length = buf.readableBytes();
+        buf.release();
+        return length;
+    }
+
+    @Benchmark
+    public Message decode() {
+        return Message.decode(encoded);
+    }
+
+    @Benchmark
+    public String decodeAndGetProperty() {
+        return Message.decode(encoded).getProperty("property-key-0");
+    }
+
+    @Benchmark
+    public Map<String, String> decodeAndGetProperties() {
+        return Message.decode(encoded).getProperties();
+    }
+}
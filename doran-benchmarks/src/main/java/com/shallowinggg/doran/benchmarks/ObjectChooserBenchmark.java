@@ -0,0 +1,48 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.client.chooser.DefaultObjectChooserFactory;
+import com.shallowinggg.doran.client.chooser.ObjectChooser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for choosers created by {@link DefaultObjectChooserFactory}.
+ * Power of two size uses mask chooser, the others use generic one.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectChooserBenchmark {
+
+    @Param({"4", "6"})
+    private int size;
+
+    private ObjectChooser<Integer> chooser;
+
+    @Setup
+    public void setup() {
+        Integer[] objects = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            objects[i] = i;
+        }
+        chooser = new DefaultObjectChooserFactory<Integer>().newChooser(objects);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer next() {
+        return chooser.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer nextContended() {
+        return chooser.next();
+    }
+}
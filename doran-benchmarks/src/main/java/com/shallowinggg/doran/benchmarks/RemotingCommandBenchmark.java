@@ -0,0 +1,99 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.common.RequestCode;
+import com.shallowinggg.doran.common.RequestMQConfigRequestHeader;
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import com.shallowinggg.doran.transport.protocol.SerializeType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link RemotingCommand} encoding and decoding
+ * with custom header.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemotingCommandBenchmark {
+
+    @Param({"JSON", "DORAN"})
+    private SerializeType serializeType;
+
+    private byte[] body;
+    private ByteBuffer frame;
+    private ByteBuf out;
+    private ByteBuf frameBuf;
+
+    @Setup
+    public void setup() {
+        body = new byte[256];
+        RemotingCommand command = newCommand();
+        ByteBuffer encoded = command.encode();
+        // frame decoder strips total length
+        encoded.position(4);
+        frame = encoded.slice();
+        out = PooledByteBufAllocator.DEFAULT.directBuffer(1024);
+        frameBuf = PooledByteBufAllocator.DEFAULT.directBuffer(frame.remaining());
+        frameBuf.writeBytes(frame.duplicate());
+    }
+
+    @TearDown
+    public void tearDown() {
+        out.release();
+        frameBuf.release();
+    }
+
+    private RemotingCommand newCommand() {
+        RequestMQConfigRequestHeader header = new RequestMQConfigRequestHeader();
+        header.setConfigName("benchmark-config");
+        RemotingCommand command = RemotingCommand.createRequestCommand(RequestCode.REQUEST_CONFIG, header);
+        command.setSerializeTypeCurrentRPC(serializeType);
+        command.setBody(body);
+        return command;
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return newCommand().encode();
+    }
+
+    /**
+     * Encode header into a reused buffer like {@code NettyEncoder} does,
+     * body is attached by encoder.
+     */
+    @Benchmark
+    public int encodeHeaderToByteBuf() {
+        out.clear();
+        newCommand().encodeHeader(out, body.length);
+        return out.writerIndex();
+    }
+
+    @Benchmark
+    public RequestMQConfigRequestHeader decode() throws Exception {
+        RemotingCommand command = RemotingCommand.decode(frame.duplicate());
+        return command.decodeCommandCustomHeader(RequestMQConfigRequestHeader.class);
+    }
+
+    /**
+     * Decode request from pooled frame like {@code NettyDecoder} does,
+     * header is parsed in place and body is a slice of frame.
+     */
+    @Benchmark
+    public RequestMQConfigRequestHeader decodeFrame() throws Exception {
+        RemotingCommand command = RemotingCommand.decode(frameBuf);
+        try {
+            return command.decodeCommandCustomHeader(RequestMQConfigRequestHeader.class);
+        } finally {
+            command.release();
+        }
+    }
+}
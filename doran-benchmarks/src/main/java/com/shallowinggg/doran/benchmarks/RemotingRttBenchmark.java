@@ -0,0 +1,87 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.common.RequestCode;
+import com.shallowinggg.doran.common.RequestMQConfigRequestHeader;
+import com.shallowinggg.doran.transport.netty.*;
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for round trip time of {@link NettyRemotingClient#invokeSync}
+ * over loopback, with nio and native transports. Native transport falls
+ * back to nio if it is unavailable, check the transport logged by client.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dtls.server.mode=disabled")
+public class RemotingRttBenchmark {
+
+    @Param({"NIO", "NATIVE"})
+    private String transport;
+
+    @Param({"false", "true"})
+    private boolean tcpQuickAck;
+
+    private NettyRemotingServer server;
+    private NettyRemotingClient client;
+    private ExecutorService serverExecutor;
+    private String addr;
+    private RequestMQConfigRequestHeader header;
+
+    @Setup
+    public void setup() {
+        final boolean useNative = "NATIVE".equals(transport);
+        NettyServerConfig serverConfig = new NettyServerConfig();
+        serverConfig.setListenPort(0);
+        serverConfig.setUseEpollNativeSelector(useNative);
+        server = new NettyRemotingServer(serverConfig);
+        serverExecutor = Executors.newSingleThreadExecutor();
+        final byte[] body = new byte[128];
+        server.registerProcessor(RequestCode.REQUEST_CONFIG, new NettyRequestProcessor() {
+            @Override
+            public RemotingCommand processRequest(io.netty.channel.ChannelHandlerContext ctx, RemotingCommand request) {
+                RemotingCommand response = RemotingCommand.createResponseCommand(0, null);
+                response.setBody(body);
+                return response;
+            }
+
+            @Override
+            public boolean rejectRequest() {
+                return false;
+            }
+        }, serverExecutor);
+        server.start();
+
+        NettyClientConfig clientConfig = new NettyClientConfig();
+        clientConfig.setUseNativeTransport(useNative);
+        clientConfig.setClientTcpQuickAck(tcpQuickAck);
+        client = new NettyRemotingClient(clientConfig);
+        client.start();
+        addr = "127.0.0.1:" + server.localListenPort();
+
+        header = new RequestMQConfigRequestHeader();
+        header.setConfigName("benchmark-config");
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.shutdown();
+        server.shutdown();
+        serverExecutor.shutdown();
+    }
+
+    @Benchmark
+    public RemotingCommand invokeSync() throws Exception {
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.REQUEST_CONFIG, header);
+        return client.invokeSync(addr, request, 3000);
+    }
+}
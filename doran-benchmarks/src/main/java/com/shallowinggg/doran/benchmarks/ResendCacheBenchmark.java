@@ -0,0 +1,77 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.common.util.LongRingBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for resend cache put and ack. Producer resend caches
+ * use {@link LongRingBuffer}, {@link ConcurrentSkipListMap} is the
+ * structure they used before and is kept as baseline.
+ * <p>
+ * Every invocation puts {@link #WINDOW} messages and acks them,
+ * either one by one or by a {@code multiple=true} ack.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResendCacheBenchmark {
+    private static final int WINDOW = 256;
+    private static final Object MESSAGE = new Object();
+
+    private final LongRingBuffer<Object> ringBuffer = new LongRingBuffer<>();
+    private final ConcurrentSkipListMap<Long, Object> skipList = new ConcurrentSkipListMap<>();
+    private long deliveryTag;
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public int ringBufferSingleAck() {
+        final long first = deliveryTag;
+        for (int i = 0; i < WINDOW; ++i) {
+            ringBuffer.add(deliveryTag++, MESSAGE);
+        }
+        for (long tag = first; tag < deliveryTag; ++tag) {
+            ringBuffer.remove(tag);
+        }
+        return ringBuffer.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public int ringBufferMultipleAck() {
+        for (int i = 0; i < WINDOW; ++i) {
+            ringBuffer.add(deliveryTag++, MESSAGE);
+        }
+        return ringBuffer.removeUntil(deliveryTag - 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public int skipListSingleAck() {
+        final long first = deliveryTag;
+        for (int i = 0; i < WINDOW; ++i) {
+            skipList.put(deliveryTag++, MESSAGE);
+        }
+        for (long tag = first; tag < deliveryTag; ++tag) {
+            skipList.remove(tag);
+        }
+        return skipList.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public int skipListMultipleAck() {
+        for (int i = 0; i < WINDOW; ++i) {
+            skipList.put(deliveryTag++, MESSAGE);
+        }
+        skipList.headMap(deliveryTag).clear();
+        return skipList.size();
+    }
+}
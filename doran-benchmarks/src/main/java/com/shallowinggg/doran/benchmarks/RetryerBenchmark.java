@@ -0,0 +1,90 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.common.util.retry.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for retryers whose first attempt succeeds, which
+ * is the case of almost all message sends.
+ * <p>
+ * {@code slowPath} retryers are built by public constructors,
+ * so they always build {@link Attempt}s, others are built by
+ * {@link RetryerBuilder} and take the fast path. Run with
+ * {@code -prof gc} to compare allocation rates.
+ *
+ * @author shallowinggg
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryerBenchmark {
+    private final Retryer<Object> slowPathRetryer = new Retryer<>(AttemptTimeLimiters.noTimeLimit(),
+            StopStrategies.stopAfterAttempt(3), WaitStrategies.noWait(), BlockStrategies.threadSleepStrategy(),
+            Attempt::hasException, Collections.emptyList());
+    private final Retryer<Object> fastPathRetryer = RetryerBuilder.newBuilder()
+            .retryIfException()
+            .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+            .build();
+    private final AsyncRetryer<Object> slowPathAsyncRetryer = new AsyncRetryer<>(
+            StopStrategies.stopAfterAttempt(3), WaitStrategies.noWait(),
+            Attempt::hasException, Collections.emptyList());
+    private final AsyncRetryer<Object> fastPathAsyncRetryer = RetryerBuilder.newBuilder()
+            .retryIfException()
+            .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+            .buildAsync();
+
+    private final Object message = new Object();
+    private final Callable<Object> callable = () -> message;
+    private final AsyncRetryer.AttemptFunction<Object, Object> function = arg -> arg;
+    private Blackhole blackhole;
+    private AsyncRetryer.Callback<Object, Object> callback;
+    private ScheduledExecutorService executor;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        this.callback = (arg, result, cause) -> this.blackhole.consume(result);
+        // retries never happen, executor is only passed to retryers
+        this.executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object slowPathRetryer() throws Exception {
+        return slowPathRetryer.call(callable);
+    }
+
+    @Benchmark
+    public Object fastPathRetryer() throws Exception {
+        return fastPathRetryer.call(callable);
+    }
+
+    @Benchmark
+    public Object slowPathAsyncRetryer() {
+        return slowPathAsyncRetryer.call(callable, executor);
+    }
+
+    @Benchmark
+    public Object fastPathAsyncRetryer() {
+        return fastPathAsyncRetryer.call(callable, executor);
+    }
+
+    @Benchmark
+    public void fastPathAsyncRetryerFunction() {
+        fastPathAsyncRetryer.call(function, message, executor, callback);
+    }
+}
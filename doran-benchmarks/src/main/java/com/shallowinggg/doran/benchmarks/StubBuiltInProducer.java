@@ -0,0 +1,58 @@
+package com.shallowinggg.doran.benchmarks;
+
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.SendResult;
+import com.shallowinggg.doran.client.producer.AbstractBuiltInProducer;
+import com.shallowinggg.doran.client.producer.BuiltInProducer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-JVM {@link BuiltInProducer} which only encodes messages
+ * and counts them, so benchmarks can run without broker.
+ * Encoding can be disabled to measure dispatch cost only.
+ *
+ * @author shallowinggg
+ */
+public class StubBuiltInProducer extends AbstractBuiltInProducer {
+    private final LongAdder sent;
+    private final boolean encode;
+
+    public StubBuiltInProducer(LongAdder sent) {
+        this(sent, true);
+    }
+
+    public StubBuiltInProducer(LongAdder sent, boolean encode) {
+        this.sent = sent;
+        this.encode = encode;
+    }
+
+    @Override
+    protected void sendMessageInner(Message message, CompletableFuture<SendResult> promise) {
+        if (encode) {
+            message.encode();
+        }
+        sent.increment();
+        if (promise != null) {
+            long now = System.currentTimeMillis();
+            promise.complete(new SendResult(message, now, now));
+        }
+        releaseInFlight(1);
+    }
+
+    @Override
+    protected void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                    CompletableFuture<SendResult> promise) {
+        sendMessageInner(message, promise);
+    }
+
+    @Override
+    protected void resendNackMessages() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
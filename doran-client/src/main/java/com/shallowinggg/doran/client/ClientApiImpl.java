@@ -7,20 +7,31 @@ import com.shallowinggg.doran.common.*;
 import com.shallowinggg.doran.common.exception.ConfigNotExistException;
 import com.shallowinggg.doran.common.exception.UnexpectedResponseException;
 import com.shallowinggg.doran.common.util.Assert;
-import com.shallowinggg.doran.common.util.PojoHeaderConverter;
+import com.shallowinggg.doran.common.util.MQConfigCodec;
+import com.shallowinggg.doran.common.util.MetricDataCodec;
 import com.shallowinggg.doran.common.util.retry.*;
+import com.shallowinggg.doran.transport.ChannelEventListener;
+import com.shallowinggg.doran.transport.CommandCustomHeader;
 import com.shallowinggg.doran.transport.RemotingClient;
+import com.shallowinggg.doran.transport.exception.RemotingCommandException;
+import com.shallowinggg.doran.transport.exception.RemotingSendRequestException;
+import com.shallowinggg.doran.transport.exception.RemotingTimeoutException;
 import com.shallowinggg.doran.transport.netty.NettyClientConfig;
 import com.shallowinggg.doran.transport.netty.NettyRemotingClient;
 import com.shallowinggg.doran.transport.protocol.RemotingCommand;
-import com.shallowinggg.doran.transport.protocol.RemotingSerializable;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -32,17 +43,18 @@ public class ClientApiImpl {
     private final RemotingClient client;
     private final InetAddressChecker nameResolver;
     private ExecutorService clientOuterExecutor;
+
+    /**
+     * Schedule retries of requests, so no thread sleeps
+     * between attempts.
+     */
+    private ScheduledExecutorService retryExecutor;
     private String serverAddr;
-    private static final Supplier<Retryer<Object>> RETRY_TASK = () -> RetryerBuilder.newBuilder()
-            .retryIfException()
-            .withWaitStrategy(WaitStrategies.fibonacciWait(10L, TimeUnit.SECONDS))
-            .withStopStrategy(StopStrategies.stopAfterAttempt(5))
-            .build();
 
     public ClientApiImpl(final ClientController controller,
                          final NettyClientConfig nettyClientConfig) {
         this.controller = controller;
-        this.client = new NettyRemotingClient(nettyClientConfig);
+        this.client = new NettyRemotingClient(nettyClientConfig, new ServerChannelListener());
         this.nameResolver = new DefaultInetAddressChecker();
     }
 
@@ -51,6 +63,8 @@ public class ClientApiImpl {
         this.clientOuterExecutor = new ThreadPoolExecutor(2, 2,
                 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(32),
                 new ThreadFactoryImpl("clientApi_"));
+        this.retryExecutor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryImpl("clientApiRetry_", true));
     }
 
     public void start() {
@@ -59,6 +73,9 @@ public class ClientApiImpl {
 
     public void shutdown() {
         this.client.shutdown();
+        if (this.retryExecutor != null) {
+            this.retryExecutor.shutdownNow();
+        }
     }
 
     public void registerProcessor() {
@@ -89,55 +106,83 @@ public class ClientApiImpl {
      * @param timeoutMillis transport timeout millis
      */
     public void registerClient(final String clientId, final String clientName, int timeoutMillis) {
+        join(registerClientAsync(clientId, clientName, timeoutMillis));
+    }
+
+    /**
+     * Asynchronous version of {@link #registerClient(String, String, int)}.
+     *
+     * @param clientId      client's id to be registered
+     * @param clientName    client' name to be registered
+     * @param timeoutMillis transport timeout millis
+     * @return the future which fails with {@link UnexpectedResponseException}
+     * or {@link RetryCountExhaustedException}
+     */
+    public CompletableFuture<Void> registerClientAsync(final String clientId, final String clientName,
+                                                       int timeoutMillis) {
         final String serverAddr = this.serverAddr;
         final RegisterClientRequestHeader header = new RegisterClientRequestHeader();
         header.setClientId(clientId);
         header.setClientName(clientName);
 
-        try {
-            RETRY_TASK.get().call(() -> {
-                RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.REGISTER_CLIENT, header);
-                RemotingCommand response = this.client.invokeSync(null, request, timeoutMillis);
-                switch (response.getCode()) {
-                    case ResponseCode.SUCCESS:
-                        RegisterClientResponseHeader responseHeader = response.decodeCommandCustomHeader(RegisterClientResponseHeader.class);
-                        if (LOGGER.isInfoEnabled()) {
-                            LOGGER.info("Register client {} to server {} success", clientId, serverAddr);
-                        }
-
-                        int configNums = responseHeader.getHoldingMqConfigNums();
-                        if (configNums != 0) {
-                            List<MQConfig> configs = RemotingSerializable.decodeArray(response.getBody());
-                            this.controller.getConfigManager().registerMqConfigs(configs);
-                        }
-                        return null;
-                    default:
-                        throw new UnexpectedResponseException(response.getCode(), "REGISTER_CLIENT");
-                }
-            });
-        } catch (ExecutionException e) {
-            // handle RuntimeException for UnexpectedResponseException
-            RuntimeException cause = (RuntimeException) e.getCause();
-            if (LOGGER.isErrorEnabled()) {
-                LOGGER.error("Register client {} to server {} fail", clientId, serverAddr, cause);
+        final Supplier<RemotingCommand> requestSupplier =
+                () -> RemotingCommand.createRequestCommand(RequestCode.REGISTER_CLIENT, header);
+        return this.<Void>invokeWithRetry(requestSupplier, timeoutMillis, response -> {
+            switch (response.getCode()) {
+                case ResponseCode.SUCCESS:
+                    RegisterClientResponseHeader responseHeader = decodeHeader(response, RegisterClientResponseHeader.class);
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("Register client {} to server {} success", clientId, serverAddr);
+                    }
+
+                    int configNums = responseHeader.getHoldingMqConfigNums();
+                    if (configNums != 0) {
+                        List<MQConfig> configs = MQConfigCodec.decodeList(response.getBody());
+                        this.controller.getConfigManager().registerMqConfigs(configs);
+                    }
+                    return null;
+                default:
+                    throw new UnexpectedResponseException(response.getCode(), "REGISTER_CLIENT");
             }
-            throw cause;
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
-            if (LOGGER.isErrorEnabled()) {
-                LOGGER.error("Register client {} to server {} fail, retry count {} has exhausted",
-                        clientId, serverAddr, attempt.getAttemptNumber(), attempt.getExceptionCause());
+        }).whenComplete((v, cause) -> {
+            if (cause != null && LOGGER.isErrorEnabled()) {
+                LOGGER.error("Register client {} to server {} fail", clientId, serverAddr, cause);
             }
-            throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
-        }
+        });
     }
 
-    public void sendHeartBeat() {
-        // 发送本机ip以及pid，以便失联以后server能够报错定位
-
+    /**
+     * Send heartbeat with metrics of configs since last heartbeat to
+     * server {@link #serverAddr}. Heartbeat is sent oneway and never
+     * retried, metrics are totals as well as increments, so the next
+     * heartbeat covers a lost one.
+     *
+     * @param clientId       the id of this client
+     * @param intervalMillis the interval since last heartbeat
+     * @param metrics        the metrics of configs
+     * @param timeoutMillis  timeout for network communication
+     */
+    public void sendHeartBeat(String clientId, long intervalMillis, @NotNull List<MetricData> metrics,
+                              int timeoutMillis) {
+        Assert.hasText(clientId);
+        Assert.notNull(metrics, "'metrics' must not be null");
+        final HeartBeatRequestHeader header = new HeartBeatRequestHeader();
+        header.setClientId(clientId);
+        header.setIntervalMillis(intervalMillis);
+        final RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.HEART_BEAT, header);
+        request.setBody(MetricDataCodec.encode(metrics));
+        try {
+            this.client.invokeOneway(null, request, timeoutMillis);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Send heartbeat to server {}, metrics {}", serverAddr, metrics);
+            }
+        } catch (Exception e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Send heartbeat to server {} fail", serverAddr, e);
+            }
+        }
     }
 
-
     /**
      * Request MQ config with server {@link #serverAddr}. If appear network
      * problems like timeout, data corruption etc., this method will
@@ -152,43 +197,207 @@ public class ClientApiImpl {
      */
     public MQConfig requestConfig(String configName, int timeoutMillis)
             throws ConfigNotExistException, UnexpectedResponseException, RetryCountExhaustedException {
+        return join(requestConfigAsync(configName, timeoutMillis));
+    }
+
+    /**
+     * Asynchronous version of {@link #requestConfig(String, int)}.
+     *
+     * @param configName    the name of request config
+     * @param timeoutMillis timeout for per network communication
+     * @return the future which fails with {@link ConfigNotExistException},
+     * {@link UnexpectedResponseException} or {@link RetryCountExhaustedException}
+     */
+    public CompletableFuture<MQConfig> requestConfigAsync(String configName, int timeoutMillis) {
         final RequestMQConfigRequestHeader header = new RequestMQConfigRequestHeader();
         header.setConfigName(configName);
 
+        final Supplier<RemotingCommand> requestSupplier =
+                () -> RemotingCommand.createRequestCommand(RequestCode.REQUEST_CONFIG, header);
+        return this.<MQConfig>invokeWithRetry(requestSupplier, timeoutMillis, response -> {
+            switch (response.getCode()) {
+                case ResponseCode.SUCCESS:
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Request MQ Config {} success", configName);
+                    }
+
+                    return MQConfigCodec.decode(response.getBody());
+                case ResponseCode.CONFIG_NOT_EXIST:
+                    throw new ConfigNotExistException(configName);
+                default:
+                    throw new UnexpectedResponseException(response.getCode(), "REQUEST_CONFIG");
+            }
+        }).whenComplete((config, cause) -> {
+            if (cause != null && LOGGER.isErrorEnabled()) {
+                LOGGER.error("Request config {} fail", configName, cause);
+            }
+        });
+    }
+
+    /**
+     * Request many MQ configs with server {@link #serverAddr} in one round
+     * trip. If appear network problems like timeout, data corruption etc.,
+     * this method will retry at most 5 times.
+     *
+     * @param configNames   the names of request configs
+     * @param timeoutMillis timeout for per network communication
+     * @return configName -> MQ Config, configs that are not exist are
+     * represented by {@link EmptyMQConfig}
+     * @throws UnexpectedResponseException  if the response of server incorrectly
+     * @throws RetryCountExhaustedException if retry count has exhausted
+     */
+    public Map<String, MQConfig> requestConfigs(Collection<String> configNames, int timeoutMillis)
+            throws UnexpectedResponseException, RetryCountExhaustedException {
+        return join(requestConfigsAsync(configNames, timeoutMillis));
+    }
+
+    /**
+     * Asynchronous version of {@link #requestConfigs(Collection, int)}.
+     *
+     * @param configNames   the names of request configs
+     * @param timeoutMillis timeout for per network communication
+     * @return the future which fails with {@link UnexpectedResponseException}
+     * or {@link RetryCountExhaustedException}
+     */
+    public CompletableFuture<Map<String, MQConfig>> requestConfigsAsync(Collection<String> configNames,
+                                                                        int timeoutMillis) {
+        final byte[] body = MQConfigCodec.encodeNames(configNames);
+
+        return this.<Map<String, MQConfig>>invokeWithRetry(() -> {
+            RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.REQUEST_CONFIGS, null);
+            request.setBody(body);
+            return request;
+        }, timeoutMillis, response -> {
+            switch (response.getCode()) {
+                case ResponseCode.SUCCESS:
+                    ByteBuf in = response.getBodyBuf();
+                    List<MQConfig> configs = MQConfigCodec.decodeList(in);
+                    List<String> absentNames = MQConfigCodec.decodeNames(in);
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Request MQ Configs {} success, absent configs: {}", configNames, absentNames);
+                    }
+
+                    Map<String, MQConfig> result = new HashMap<>(configNames.size() * 2);
+                    for (MQConfig config : configs) {
+                        result.put(config.getName(), config);
+                    }
+                    for (String name : absentNames) {
+                        result.put(name, new EmptyMQConfig());
+                    }
+                    return result;
+                default:
+                    throw new UnexpectedResponseException(response.getCode(), "REQUEST_CONFIGS");
+            }
+        }).whenComplete((configs, cause) -> {
+            if (cause != null && LOGGER.isErrorEnabled()) {
+                LOGGER.error("Request configs {} fail", configNames, cause);
+            }
+        });
+    }
+
+    /**
+     * Invoke request created by the given supplier and decode its
+     * response, retry at most 5 times if any of them fails. Attempts
+     * are scheduled on {@link #retryExecutor} instead of sleeping.
+     * <p>
+     * The returned future fails with the exception thrown by
+     * the last attempt if it is not retryable, or
+     * {@link RetryCountExhaustedException} if retry count has
+     * exhausted.
+     */
+    private <T> CompletableFuture<T> invokeWithRetry(Supplier<RemotingCommand> requestSupplier, int timeoutMillis,
+                                                     Function<RemotingCommand, T> decoder) {
+        final AsyncRetryer<T> retryer = RetryerBuilder.<T>newBuilder()
+                .retryIfException()
+                .withWaitStrategy(WaitStrategies.fibonacciWait(10L, TimeUnit.SECONDS))
+                .withStopStrategy(StopStrategies.stopAfterAttempt(5))
+                .buildAsync();
+        final CompletableFuture<T> promise = new CompletableFuture<>();
+        retryer.callAsync(() -> invokeAsync(requestSupplier.get(), timeoutMillis).thenApply(decoder), retryExecutor)
+                .whenComplete((result, cause) -> {
+                    if (cause == null) {
+                        promise.complete(result);
+                    } else if (cause instanceof RetryException) {
+                        Attempt<?> attempt = ((RetryException) cause).getLastFailedAttempt();
+                        promise.completeExceptionally(new RetryCountExhaustedException(
+                                (int) attempt.getAttemptNumber(), attempt.getExceptionCause()));
+                    } else {
+                        // ExecutionException
+                        promise.completeExceptionally(cause.getCause());
+                    }
+                });
+        return promise;
+    }
+
+    private CompletableFuture<RemotingCommand> invokeAsync(RemotingCommand request, int timeoutMillis)
+            throws Exception {
+        final CompletableFuture<RemotingCommand> future = new CompletableFuture<>();
+        this.client.invokeAsync(null, request, timeoutMillis, responseFuture -> {
+            RemotingCommand response = responseFuture.getResponseCommand();
+            if (response != null) {
+                future.complete(response);
+            } else if (responseFuture.isSendRequestOK()) {
+                future.completeExceptionally(new RemotingTimeoutException(serverAddr, timeoutMillis,
+                        responseFuture.getCause()));
+            } else {
+                future.completeExceptionally(new RemotingSendRequestException(serverAddr, responseFuture.getCause()));
+            }
+        });
+        return future;
+    }
+
+    private static <T extends CommandCustomHeader> T decodeHeader(RemotingCommand response, Class<T> headerClass) {
         try {
-            return (MQConfig) RETRY_TASK.get().call(() -> {
-                RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.REQUEST_CONFIG, header);
-                RemotingCommand response = this.client.invokeSync(null, request, timeoutMillis);
-
-                switch (response.getCode()) {
-                    case ResponseCode.SUCCESS:
-                        RequestMQConfigResponseHeader responseHeader = response.decodeCommandCustomHeader(RequestMQConfigResponseHeader.class);
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("Request MQ Config {} success", configName);
-                        }
-
-                        return PojoHeaderConverter.responseHeader2MQConfig(responseHeader);
-                    case ResponseCode.CONFIG_NOT_EXIST:
-                        throw new ConfigNotExistException(configName);
-                    default:
-                        throw new UnexpectedResponseException(response.getCode(), "REQUEST_CONFIG");
-                }
-            });
+            return response.decodeCommandCustomHeader(headerClass);
+        } catch (RemotingCommandException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Wait for the result of given future, exceptions are rethrown
+     * as they are.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new IllegalStateException("Interrupted while waiting for response", e);
         } catch (ExecutionException e) {
-            // handle RuntimeException for ConfigNotExistException and UnexpectedResponseException
-            RuntimeException cause = (RuntimeException) e.getCause();
-            if (LOGGER.isErrorEnabled()) {
-                LOGGER.error("Request config {} fail", configName, cause);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
-            throw cause;
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
-            if (LOGGER.isErrorEnabled()) {
-                LOGGER.error("Request config {} fail, retry count {} has exhausted",
-                        configName, attempt.getAttemptNumber(), attempt.getExceptionCause());
+            if (cause instanceof Error) {
+                throw (Error) cause;
             }
-            throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
+            throw new IllegalStateException(cause);
         }
     }
 
+    /**
+     * Tell controller that connection with server is lost, pushes
+     * of server are dropped until client registers again.
+     */
+    private class ServerChannelListener implements ChannelEventListener {
+        @Override
+        public void onChannelConnect(String remoteAddr, Channel channel) {
+        }
+
+        @Override
+        public void onChannelClose(String remoteAddr, Channel channel) {
+            controller.onServerDisconnect();
+        }
+
+        @Override
+        public void onChannelException(String remoteAddr, Channel channel) {
+            controller.onServerDisconnect();
+        }
+
+        @Override
+        public void onChannelIdle(String remoteAddr, Channel channel) {
+        }
+    }
 }
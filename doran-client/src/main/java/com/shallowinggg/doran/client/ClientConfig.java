@@ -1,9 +1,12 @@
 package com.shallowinggg.doran.client;
 
+import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.common.util.SystemUtils;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author shallowinggg
@@ -44,6 +47,13 @@ public class ClientConfig {
 
     private int retryTimesWhenNetworkFluctuation = 3;
 
+    /**
+     * Names of MQ Configs that will be used, they are requested
+     * in parallel batches when client starts, so that creating
+     * producers and consumers needn't wait for server.
+     */
+    private List<String> prefetchConfigNames = Collections.emptyList();
+
     private static String localHostName() {
         try {
             return InetAddress.getLocalHost().getHostName();
@@ -148,4 +158,13 @@ public class ClientConfig {
     public void setClientId(String clientId) {
         this.clientId = clientId;
     }
+
+    public List<String> getPrefetchConfigNames() {
+        return prefetchConfigNames;
+    }
+
+    public void setPrefetchConfigNames(List<String> prefetchConfigNames) {
+        Assert.notNull(prefetchConfigNames);
+        this.prefetchConfigNames = prefetchConfigNames;
+    }
 }
@@ -1,8 +1,7 @@
 package com.shallowinggg.doran.client;
 
-import com.codahale.metrics.Counter;
-import com.codahale.metrics.MetricRegistry;
 import com.shallowinggg.doran.common.MQConfig;
+import com.shallowinggg.doran.common.MetricData;
 import com.shallowinggg.doran.common.ThreadFactoryImpl;
 import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.transport.netty.NettyClientConfig;
@@ -10,7 +9,7 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.SortedMap;
+import java.util.List;
 import java.util.concurrent.*;
 
 /**
@@ -21,11 +20,22 @@ public class ClientController {
 
     private final ConfigManager configManager;
     private final ClientApiImpl clientApiImpl;
-    private final MetricRegistry producerMetricRegistry;
-    private final MetricRegistry consumerMetricRegistry;
+    private final ClientManager clientManager;
     private ScheduledExecutorService heartBeatExecutor;
     private final ClientConfig clientConfig;
 
+    /**
+     * The time that last heartbeat is sent, only accessed
+     * by heartbeat thread.
+     */
+    private long lastHeartBeatTimestamp;
+
+    /**
+     * Whether client has registered to server with its current
+     * connection, reset when connection is lost.
+     */
+    private volatile boolean registered;
+
     /**
      * This executor is provided to handle async tasks,
      * like register client, request MQ config etc.
@@ -38,8 +48,7 @@ public class ClientController {
     public ClientController(final NettyClientConfig config, final ClientConfig clientConfig) {
         this.configManager = new ConfigManager(this);
         this.clientApiImpl = new ClientApiImpl(this, config);
-        this.producerMetricRegistry = new MetricRegistry();
-        this.consumerMetricRegistry = new MetricRegistry();
+        this.clientManager = new ClientManager(this);
         this.clientConfig = clientConfig;
     }
 
@@ -56,6 +65,10 @@ public class ClientController {
     public void start() {
         this.clientApiImpl.start();
         this.asyncExecutor.execute(this::registerClient);
+        if (!clientConfig.getPrefetchConfigNames().isEmpty()) {
+            this.configManager.prefetchConfigs(clientConfig.getPrefetchConfigNames(),
+                    clientConfig.getTimeoutMillis(), this.asyncExecutor);
+        }
         this.heartBeatExecutor.scheduleAtFixedRate(() -> {
             try {
                 this.sendHeartBeat();
@@ -71,13 +84,48 @@ public class ClientController {
         this.clientApiImpl.registerClient(clientConfig.getClientId(),
                 clientConfig.getClientName(),
                 clientConfig.getTimeoutMillis());
+        this.registered = true;
     }
 
-    private void sendHeartBeat() {
-        // 发送已开启的生产者，消费者信息，以及其发送消费消息的数量
-        SortedMap<String, Counter> producerCounters = producerMetricRegistry.getCounters();
-        SortedMap<String, Counter> consumerCounters = consumerMetricRegistry.getCounters();
+    /**
+     * Register client to server again, and request configs held,
+     * since pushes of server are dropped when client is disconnected
+     * and server that restarts doesn't know configs client holds.
+     */
+    private void registerClientAgain() {
+        this.clientApiImpl.registerClient(clientConfig.getClientId(),
+                clientConfig.getClientName(),
+                clientConfig.getTimeoutMillis());
+        this.configManager.syncConfigs(clientConfig.getTimeoutMillis());
+        this.registered = true;
+    }
 
+    /**
+     * Invoked when connection with server is lost, client will
+     * register again before the next heartbeat.
+     */
+    void onServerDisconnect() {
+        this.registered = false;
+        this.configManager.resetDataVersion();
+    }
+
+    private void sendHeartBeat() {
+        if (!this.registered) {
+            try {
+                this.registerClientAgain();
+            } catch (Exception e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Register client again fail, retry before next heartbeat", e);
+                }
+            }
+        }
+        final long now = System.currentTimeMillis();
+        final long intervalMillis = lastHeartBeatTimestamp == 0 ?
+                clientConfig.getHeartBeatServerInterval() : now - lastHeartBeatTimestamp;
+        this.lastHeartBeatTimestamp = now;
+        final List<MetricData> metrics = this.clientManager.collectMetrics();
+        this.clientApiImpl.sendHeartBeat(clientConfig.getClientId(), intervalMillis, metrics,
+                clientConfig.getTimeoutMillis());
     }
 
     public MQConfig getMqConfig(String configName) {
@@ -97,7 +145,7 @@ public class ClientController {
 
     public DefaultProducer createProducer(String configName, boolean async) {
         Assert.hasText(configName);
-        return null;
+        return this.clientManager.createProducer(configName, clientConfig.getTimeoutMillis());
     }
 
     @NotNull
@@ -105,8 +153,23 @@ public class ClientController {
         return clientApiImpl;
     }
 
+    @NotNull
+    public ClientManager getClientManager() {
+        return clientManager;
+    }
+
     @NotNull
     public ConfigManager getConfigManager() {
         return configManager;
     }
+
+    @NotNull
+    public ClientConfig getClientConfig() {
+        return clientConfig;
+    }
+
+    @NotNull
+    public ExecutorService getAsyncExecutor() {
+        return asyncExecutor;
+    }
 }
@@ -1,10 +1,17 @@
 package com.shallowinggg.doran.client;
 
+import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.RequestCode;
+import com.shallowinggg.doran.common.ResponseCode;
+import com.shallowinggg.doran.common.UpdateMQConfigRequestHeader;
+import com.shallowinggg.doran.common.util.MQConfigCodec;
+import com.shallowinggg.doran.transport.exception.RemotingCommandException;
 import com.shallowinggg.doran.transport.netty.NettyRequestProcessor;
 import com.shallowinggg.doran.transport.protocol.RemotingCommand;
 import io.netty.channel.ChannelHandlerContext;
 
+import java.util.List;
+
 /**
  * @author shallowinggg
  */
@@ -19,6 +26,7 @@ public class ClientManageProcessor implements NettyRequestProcessor {
     public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) throws Exception {
         switch (request.getCode()) {
             case RequestCode.UPDATE_MQ_CONFIG:
+                return updateMqConfig(request);
             case RequestCode.HEART_BEAT:
             default:
         }
@@ -30,4 +38,25 @@ public class ClientManageProcessor implements NettyRequestProcessor {
     public boolean rejectRequest() {
         return false;
     }
+
+    /**
+     * Handle server's request {@link RequestCode#UPDATE_MQ_CONFIG}.
+     * Rebuilding producers and consumers may take a long time, so
+     * configs are applied asynchronously and this method responds
+     * as soon as they are decoded.
+     *
+     * @param request request to handle
+     * @return handle result
+     * @throws RemotingCommandException if read request's header fail
+     */
+    public RemotingCommand updateMqConfig(final RemotingCommand request) throws RemotingCommandException {
+        final UpdateMQConfigRequestHeader requestHeader = request.decodeCommandCustomHeader(UpdateMQConfigRequestHeader.class);
+        final List<MQConfig> configs = MQConfigCodec.decodeList(request.getBodyBuf());
+        final long dataVersion = requestHeader.getDataVersion();
+        final int timeoutMillis = this.controller.getClientConfig().getTimeoutMillis();
+
+        this.controller.getAsyncExecutor().execute(() ->
+                this.controller.getConfigManager().updateMqConfigs(dataVersion, configs, timeoutMillis));
+        return RemotingCommand.createResponseCommand(ResponseCode.SUCCESS, null);
+    }
 }
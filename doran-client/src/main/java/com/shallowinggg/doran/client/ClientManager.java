@@ -1,33 +1,51 @@
 package com.shallowinggg.doran.client;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.shallowinggg.doran.client.consumer.MessageListener;
-import com.shallowinggg.doran.common.EmptyMQConfig;
+import com.shallowinggg.doran.client.producer.InFlightWindow;
+import com.shallowinggg.doran.client.producer.LatencyRecorder;
 import com.shallowinggg.doran.common.MQConfig;
-import com.shallowinggg.doran.common.exception.ConfigNotExistException;
+import com.shallowinggg.doran.common.MetricData;
 import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.common.util.CollectionUtils;
+import com.shallowinggg.doran.common.util.concurrent.AsyncLoadingCache;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author shallowinggg
  */
-public class ClientManager {
+public class ClientManager implements MqConfigUpdateListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientManager.class);
-    private static final MQConfig NON_EXIST_CONFIG = new EmptyMQConfig();
     private static final String PRODUCER_METER_SUFFIX = ".producer";
     private static final String CONSUMER_METER_SUFFIX = ".consumer";
+    private static final String IN_FLIGHT_METER_SUFFIX = ".inFlight";
+    private static final String IN_FLIGHT_USAGE_METER_SUFFIX = ".inFlightUsage";
 
-    private final ConcurrentMap<String, DefaultProducer> producers = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, DefaultConsumer> consumers = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, MQConfig> configs = new ConcurrentHashMap<>();
+    private final AsyncLoadingCache<String, DefaultProducer> producers = new AsyncLoadingCache<>();
+    private final AsyncLoadingCache<String, DefaultConsumer> consumers = new AsyncLoadingCache<>();
+
+    /**
+     * Names of configs that this manager has listened to
+     */
+    private final Set<String> listeningConfigs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * configName -> counts reported by last heartbeat, only
+     * accessed by heartbeat thread
+     */
+    private final Map<String, long[]> lastCounts = new HashMap<>();
 
     private final MetricRegistry producerMetricRegistry;
     private final MetricRegistry consumerMetricRegistry;
@@ -41,104 +59,107 @@ public class ClientManager {
 
     public DefaultProducer createProducer(String configName, int timeoutMillis) {
         Assert.hasText(configName);
-        if (producers.containsKey(configName)) {
-            return producers.get(configName);
-        }
-        synchronized (configName.intern()) {
-            if (producers.containsKey(configName)) {
-                return producers.get(configName);
-            }
-            String name = configName + PRODUCER_METER_SUFFIX;
-            final Counter counter = consumerMetricRegistry.counter(name);
-            final DefaultProducer producer = new DefaultProducer(name, configName, counter);
-            final MQConfig config = getConfig(configName, timeoutMillis);
+        return producers.get(configName, k -> {
+            String name = k + PRODUCER_METER_SUFFIX;
+            final Counter counter = producerMetricRegistry.counter(name);
+            final DefaultProducer producer = new DefaultProducer(name, k, counter);
+            final MQConfig config = getConfig(k, timeoutMillis);
             producer.setMqConfig(config);
-            producers.putIfAbsent(configName, producer);
+            final InFlightWindow window = producer.getInFlightWindow();
+            producerMetricRegistry.register(name + IN_FLIGHT_METER_SUFFIX, (Gauge<Integer>) window::inFlight);
+            producerMetricRegistry.register(name + IN_FLIGHT_USAGE_METER_SUFFIX, (Gauge<Double>) window::usage);
             return producer;
-        }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
     }
 
     public DefaultConsumer createConsumer(String configName, int timeoutMillis) {
         Assert.hasText(configName);
-        if (consumers.containsKey(configName)) {
-            return consumers.get(configName);
-        }
-        synchronized (configName.intern()) {
-            if (consumers.containsKey(configName)) {
-                return consumers.get(configName);
-            }
-            String name = configName + PRODUCER_METER_SUFFIX;
+        return consumers.get(configName, k -> {
+            String name = k + CONSUMER_METER_SUFFIX;
             final Counter counter = consumerMetricRegistry.counter(name);
             final DefaultConsumer consumer = new DefaultConsumer(name, counter);
-            final MQConfig config = getConfig(configName, timeoutMillis);
+            final MQConfig config = getConfig(k, timeoutMillis);
             consumer.setMqConfig(config);
-            consumers.put(configName, consumer);
             return consumer;
-        }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
     }
 
     public DefaultConsumer createConsumer(String configName, List<MessageListener> listeners, int timeoutMillis) {
         Assert.hasText(configName);
         Assert.isTrue(CollectionUtils.isNotEmpty(listeners), "'listeners' must not be empty");
-        if (consumers.containsKey(configName)) {
-            return consumers.get(configName);
-        }
-        synchronized (configName.intern()) {
-            if (consumers.containsKey(configName)) {
-                return consumers.get(configName);
-            }
-            String name = configName + PRODUCER_METER_SUFFIX;
+        return consumers.get(configName, k -> {
+            String name = k + CONSUMER_METER_SUFFIX;
             final Counter counter = consumerMetricRegistry.counter(name);
             final DefaultConsumer consumer = new DefaultConsumer(name, counter, listeners);
-            final MQConfig config = getConfig(configName, timeoutMillis);
+            final MQConfig config = getConfig(k, timeoutMillis);
             consumer.setMqConfig(config);
-            consumers.put(configName, consumer);
             return consumer;
-        }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
     }
 
     @NotNull
     public MQConfig getConfig(String configName, int timeoutMillis) {
-        if (configs.containsKey(configName)) {
-            MQConfig config = configs.get(configName);
-            if (config == NON_EXIST_CONFIG) {
-                throw new ConfigNotExistException(configName);
-            }
-            return config;
+        if (listeningConfigs.add(configName)) {
+            controller.getConfigManager().addListener(configName, this);
         }
+        return controller.getConfigManager().getConfig(configName, timeoutMillis);
+    }
 
-        // for hotspot jdk8, this is safe
-        // TODO: use more compatibility way
-        synchronized (configName.intern()) {
-            if (configs.containsKey(configName)) {
-                MQConfig config = configs.get(configName);
-                if (config == NON_EXIST_CONFIG) {
-                    throw new ConfigNotExistException(configName);
-                }
-                return config;
-            }
-
-            MQConfig config;
-            try {
-                config = controller.getClientApiImpl().requestConfig(configName, timeoutMillis);
-                configs.put(configName, config);
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Register MQ Config {}", config);
-                }
-            } catch (ConfigNotExistException e) {
-                configs.put(configName, NON_EXIST_CONFIG);
-                throw e;
-            }
-            return config;
-        }
+    /**
+     * Collect metrics of every config used by producers and
+     * consumers since last invocation. It should be invoked
+     * by heartbeat thread only.
+     *
+     * @return metrics of configs
+     */
+    public List<MetricData> collectMetrics() {
+        Map<String, MetricData> metrics = new HashMap<>(producers.size() + consumers.size());
+        producers.forEach((configName, producer) -> {
+            final MetricData metric = metrics.computeIfAbsent(configName, ClientManager::newMetricData);
+            final long sendCount = producer.getCounter().getCount();
+            final long[] last = lastCounts.computeIfAbsent(configName, k -> new long[2]);
+            metric.setSendCount(sendCount);
+            metric.setSendInc(sendCount - last[0]);
+            last[0] = sendCount;
+
+            final LatencyRecorder.Snapshot snapshot = producer.getLatencyRecorder().snapshotAndReset();
+            metric.setSendLatencyP50(snapshot.getP50());
+            metric.setSendLatencyP99(snapshot.getP99());
+            metric.setSendLatencyMax(snapshot.getMax());
+        });
+        consumers.forEach((configName, consumer) -> {
+            final MetricData metric = metrics.computeIfAbsent(configName, ClientManager::newMetricData);
+            final long receiveCount = consumer.getCounter().getCount();
+            final long[] last = lastCounts.computeIfAbsent(configName, k -> new long[2]);
+            metric.setReceiveCount(receiveCount);
+            metric.setReceiveInc(receiveCount - last[1]);
+            last[1] = receiveCount;
+        });
+        return new ArrayList<>(metrics.values());
     }
 
-    public void registerMqConfigs(List<MQConfig> mqConfigs) {
-        for (MQConfig config : mqConfigs) {
-            this.configs.putIfAbsent(config.getName(), config);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Register MQ Config {}", config);
-            }
+    private static MetricData newMetricData(String configName) {
+        MetricData metric = new MetricData();
+        metric.setConfigName(configName);
+        return metric;
+    }
+
+    /**
+     * Apply the updated config to the producer and consumer
+     * which use it.
+     *
+     * @param newConfig config that has updated
+     */
+    @Override
+    public void onMqConfigUpdate(@NotNull MQConfig newConfig) {
+        final String configName = newConfig.getName();
+        DefaultProducer producer = producers.getIfPresent(configName);
+        if (producer != null) {
+            producer.setMqConfig(newConfig);
+        }
+        DefaultConsumer consumer = consumers.getIfPresent(configName);
+        if (consumer != null) {
+            consumer.setMqConfig(newConfig);
         }
     }
 }
@@ -2,14 +2,15 @@ package com.shallowinggg.doran.client;
 
 import com.shallowinggg.doran.common.EmptyMQConfig;
 import com.shallowinggg.doran.common.MQConfig;
+import com.shallowinggg.doran.common.MQType;
 import com.shallowinggg.doran.common.exception.ConfigNotExistException;
+import com.shallowinggg.doran.common.util.concurrent.AsyncLoadingCache;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Manager {@link MQConfig}s for one client.
@@ -20,62 +21,249 @@ public class ConfigManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigManager.class);
     private static final MQConfig NON_EXIST_CONFIG = new EmptyMQConfig();
 
+    /**
+     * Max number of configs requested in one {@link com.shallowinggg.doran.common.RequestCode#REQUEST_CONFIGS}
+     * when prefetch, batches are requested in parallel.
+     */
+    private static final int PREFETCH_BATCH_SIZE = 16;
+
     private final ClientController controller;
 
     /**
      * configName -> MQConfig
      */
-    private final Map<String, MQConfig> configMap;
+    private final AsyncLoadingCache<String, MQConfig> configMap;
+
+    /**
+     * configName -> prefetch task that will load it
+     */
+    private final Map<String, CompletableFuture<Void>> prefetchTasks;
 
+    /**
+     * configName -> listeners that will be notified when config is updated
+     */
+    private final Map<String, List<MqConfigUpdateListener>> listeners;
 
+    /**
+     * configName -> lock that serializes updates of the config
+     */
+    private final Map<String, Object> updateLocks;
 
+    /**
+     * Counter of data version of the last update pushed by server
+     */
+    private long dataVersion;
 
     public ConfigManager(final ClientController controller) {
         this.controller = controller;
-        this.configMap = new ConcurrentHashMap<>(16);
+        this.configMap = new AsyncLoadingCache<>(16);
+        this.prefetchTasks = new ConcurrentHashMap<>(16);
+        this.listeners = new ConcurrentHashMap<>(16);
+        this.updateLocks = new ConcurrentHashMap<>(16);
     }
 
     @NotNull
     public MQConfig getConfig(String configName, int timeoutMillis) {
-        if (configMap.containsKey(configName)) {
-            MQConfig config = configMap.get(configName);
-            if (config == NON_EXIST_CONFIG) {
-                throw new ConfigNotExistException(configName);
+        MQConfig config = configMap.getIfPresent(configName);
+        if (config == null) {
+            // wait for prefetch instead of requesting it again
+            CompletableFuture<Void> prefetchTask = prefetchTasks.get(configName);
+            if (prefetchTask != null) {
+                try {
+                    prefetchTask.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | TimeoutException e) {
+                    // request it alone
+                }
+            }
+
+            // concurrent callers share one request
+            config = configMap.get(configName, name -> {
+                try {
+                    return controller.getClientApiImpl().requestConfig(name, timeoutMillis);
+                } catch (ConfigNotExistException e) {
+                    return NON_EXIST_CONFIG;
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        if (config == NON_EXIST_CONFIG) {
+            throw new ConfigNotExistException(configName);
+        }
+        return config;
+    }
+
+    /**
+     * Request the given configs in parallel batches with
+     * {@link ClientApiImpl#requestConfigs(Collection, int)}, and
+     * cache them for later {@link #getConfig(String, int)}.
+     * Configs that fail to prefetch will be requested alone
+     * when they are used.
+     *
+     * @param configNames   the names of configs to prefetch
+     * @param timeoutMillis timeout for per network communication
+     * @param executor      the executor to send requests
+     * @return future that completes when all batches are finished
+     */
+    public CompletableFuture<Void> prefetchConfigs(Collection<String> configNames, int timeoutMillis,
+                                                   Executor executor) {
+        List<String> names = new ArrayList<>(configNames.size());
+        for (String name : new LinkedHashSet<>(configNames)) {
+            if (!configMap.containsKey(name)) {
+                names.add(name);
             }
-            return config;
         }
 
-        // for hotspot jdk8, this is safe
-        // TODO: use more compatibility way
-        synchronized (configName.intern()) {
-            if (configMap.containsKey(configName)) {
-                MQConfig config = configMap.get(configName);
-                if (config == NON_EXIST_CONFIG) {
-                    throw new ConfigNotExistException(configName);
+        int batchNum = (names.size() + PREFETCH_BATCH_SIZE - 1) / PREFETCH_BATCH_SIZE;
+        CompletableFuture<?>[] tasks = new CompletableFuture[batchNum];
+        for (int i = 0; i < batchNum; ++i) {
+            List<String> batch = names.subList(i * PREFETCH_BATCH_SIZE,
+                    Math.min(names.size(), (i + 1) * PREFETCH_BATCH_SIZE));
+            CompletableFuture<Void> task = CompletableFuture.runAsync(() -> {
+                Map<String, MQConfig> configs = controller.getClientApiImpl().requestConfigs(batch, timeoutMillis);
+                for (Map.Entry<String, MQConfig> entry : configs.entrySet()) {
+                    MQConfig config = entry.getValue();
+                    configMap.putIfAbsent(entry.getKey(), config.getType() == MQType.UNKNOWN ? NON_EXIST_CONFIG : config);
                 }
-                return config;
+            }, executor);
+            for (String name : batch) {
+                prefetchTasks.put(name, task);
             }
+            task.whenComplete((v, t) -> {
+                for (String name : batch) {
+                    prefetchTasks.remove(name, task);
+                }
+                if (t != null && LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Prefetch MQ Configs {} fail", batch, t);
+                }
+            });
+            tasks[i] = task;
+        }
+        return CompletableFuture.allOf(tasks);
+    }
 
-            MQConfig config;
-            try {
-                config = controller.getClientApiImpl().requestConfig(configName, timeoutMillis);
-                configMap.put(configName, config);
-            } catch (ConfigNotExistException e) {
-                configMap.put(configName, NON_EXIST_CONFIG);
-                throw e;
+    /**
+     * Add listener that will be notified when the config with
+     * the given name is updated.
+     *
+     * @param configName the name of config
+     * @param listener   the listener to add
+     */
+    public void addListener(String configName, MqConfigUpdateListener listener) {
+        listeners.computeIfAbsent(configName, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Apply configs pushed by server with {@link com.shallowinggg.doran.common.RequestCode#UPDATE_MQ_CONFIG}.
+     * Configs that are not newer than the ones held are ignored, so
+     * pushes that arrive out of order can't roll configs back.
+     * <p>
+     * If some pushes are lost, which is found by a gap of data version,
+     * all configs held are requested again, see {@link #syncConfigs(int)}.
+     *
+     * @param dataVersion   the data version of this push
+     * @param configs       the configs that have updated
+     * @param timeoutMillis timeout for per network communication
+     */
+    public void updateMqConfigs(long dataVersion, List<MQConfig> configs, int timeoutMillis) {
+        boolean lost = false;
+        synchronized (this) {
+            // pushes are applied concurrently, an older one that
+            // comes late must not move version back
+            if (dataVersion > this.dataVersion) {
+                lost = this.dataVersion != 0 && dataVersion > this.dataVersion + 1;
+                this.dataVersion = dataVersion;
+            }
+        }
+        for (MQConfig config : configs) {
+            updateMqConfig(config);
+        }
+
+        if (lost) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Config updates before version {} are lost, request all configs again", dataVersion);
             }
-            return config;
+            syncConfigs(timeoutMillis);
         }
     }
 
-    public void registerMqConfigs(List<MQConfig> mqConfigs) {
-        for (MQConfig config : mqConfigs) {
-            this.configMap.putIfAbsent(config.getName(), config);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Register MQ Config {}", config);
+    /**
+     * Request the latest version of configs held, which are the ones
+     * used by producers and consumers (have listeners) and the ones
+     * loaded, and apply the newer ones. It is invoked when pushes of
+     * server may be lost, like a gap of data version or reconnect.
+     *
+     * @param timeoutMillis timeout for per network communication
+     */
+    public void syncConfigs(int timeoutMillis) {
+        final Set<String> configNames = new HashSet<>(listeners.keySet());
+        configMap.forEach((configName, config) -> {
+            if (config != NON_EXIST_CONFIG) {
+                configNames.add(configName);
+            }
+        });
+        if (configNames.isEmpty()) {
+            return;
+        }
+        Map<String, MQConfig> latest = controller.getClientApiImpl().requestConfigs(configNames, timeoutMillis);
+        for (MQConfig config : latest.values()) {
+            if (config.getType() != MQType.UNKNOWN) {
+                updateMqConfig(config);
             }
         }
     }
 
+    /**
+     * Data version is restarted by server if it restarts, which
+     * is found by reconnect, and configs are requested again then.
+     */
+    public synchronized void resetDataVersion() {
+        this.dataVersion = 0;
+    }
+
+    /**
+     * Apply the given config if it is newer than the one held. Listeners
+     * are notified under the lock of config too, so that they never see
+     * an older config after a newer one when updates of the same config
+     * are applied concurrently.
+     */
+    private void updateMqConfig(MQConfig config) {
+        final String configName = config.getName();
+        synchronized (updateLocks.computeIfAbsent(configName, k -> new Object())) {
+            MQConfig oldConfig = configMap.getIfPresent(configName);
+            if (oldConfig != null && oldConfig != NON_EXIST_CONFIG &&
+                    oldConfig.getTimestamp() >= config.getTimestamp()) {
+                return;
+            }
+            configMap.put(configName, config);
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("Update MQ Config {}", config);
+            }
 
+            List<MqConfigUpdateListener> configListeners = listeners.get(configName);
+            if (configListeners != null) {
+                for (MqConfigUpdateListener listener : configListeners) {
+                    try {
+                        listener.onMqConfigUpdate(config);
+                    } catch (Throwable t) {
+                        if (LOGGER.isErrorEnabled()) {
+                            LOGGER.error("Notify update of MQ Config {} fail", configName, t);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply configs returned by server when client registers, they
+     * may be newer than the ones held if client has reconnected.
+     *
+     * @param mqConfigs the configs that client holds on server
+     */
+    public void registerMqConfigs(List<MQConfig> mqConfigs) {
+        for (MQConfig config : mqConfigs) {
+            updateMqConfig(config);
+        }
+    }
 }
@@ -6,9 +6,11 @@ import com.shallowinggg.doran.client.common.MqConfigBean;
 import com.shallowinggg.doran.client.common.NameGeneratorFactory;
 import com.shallowinggg.doran.client.consumer.ActiveMQConsumer;
 import com.shallowinggg.doran.client.consumer.BuiltInConsumer;
+import com.shallowinggg.doran.client.consumer.InMemoryConsumer;
 import com.shallowinggg.doran.client.consumer.MessageListener;
 import com.shallowinggg.doran.client.consumer.RabbitMQConsumer;
 import com.shallowinggg.doran.common.ActiveMQConfig;
+import com.shallowinggg.doran.common.InMemoryConfig;
 import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.RabbitMQConfig;
 import com.shallowinggg.doran.common.ThreadFactoryImpl;
@@ -95,9 +97,19 @@ public class DefaultConsumer implements MqConfigBean {
             executor.setCorePoolSize(num);
             executor.setMaximumPoolSize(num);
         } else {
+            final BuiltInConsumer oldConsumer = this.consumer;
+            final ThreadPoolExecutor oldExecutor = this.executor;
             executor = new ThreadPoolExecutor(num, num, 0, TimeUnit.MILLISECONDS,
                     new LinkedBlockingQueue<>(BLOCKING_QUEUE_SIZE), new ThreadFactoryImpl(configName + "-consumer-"));
             consumer = createConsumer(newConfig);
+
+            // release deprecated resources, received messages will still be handled
+            if (oldConsumer != null) {
+                oldConsumer.close();
+            }
+            if (oldExecutor != null) {
+                oldExecutor.shutdown();
+            }
         }
 
         this.config = newConfig;
@@ -136,6 +148,10 @@ public class DefaultConsumer implements MqConfigBean {
                 ActiveMQConfig activeMQConfig = (ActiveMQConfig) config;
                 name = NameGeneratorFactory.getInstance().consumerNameGenerator(config).generateName();
                 return new ActiveMQConsumer(name, activeMQConfig, executor, listeners);
+            case InMemory:
+                InMemoryConfig inMemoryConfig = (InMemoryConfig) config;
+                name = NameGeneratorFactory.getInstance().consumerNameGenerator(config).generateName();
+                return new InMemoryConsumer(name, inMemoryConfig, executor, listeners);
             case UNKNOWN:
             default:
                 throw new IllegalArgumentException("Invalid config: " + config);
@@ -4,27 +4,38 @@ import com.codahale.metrics.Counter;
 import com.shallowinggg.doran.client.chooser.BuiltInProducerChooserFactory;
 import com.shallowinggg.doran.client.chooser.ObjectChooser;
 import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
 import com.shallowinggg.doran.client.common.MqConfigBean;
 import com.shallowinggg.doran.client.common.NameGenerator;
 import com.shallowinggg.doran.client.common.NameGeneratorFactory;
+import com.shallowinggg.doran.client.common.SendResult;
 import com.shallowinggg.doran.client.producer.ActiveMQProducer;
 import com.shallowinggg.doran.client.producer.BuiltInProducer;
+import com.shallowinggg.doran.client.producer.InFlightWindow;
+import com.shallowinggg.doran.client.producer.LatencyRecorder;
+import com.shallowinggg.doran.client.producer.InMemoryProducer;
 import com.shallowinggg.doran.client.producer.RabbitMQProducer;
 import com.shallowinggg.doran.common.ActiveMQConfig;
+import com.shallowinggg.doran.common.InMemoryConfig;
 import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.RabbitMQConfig;
 import com.shallowinggg.doran.common.ThreadFactoryImpl;
 import com.shallowinggg.doran.common.util.Assert;
-import com.shallowinggg.doran.common.util.concurrent.DoranEventExecutor;
 import com.shallowinggg.doran.common.util.concurrent.DoranEventExecutorGroup;
 import com.shallowinggg.doran.common.util.concurrent.ReInputEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -42,6 +53,18 @@ public class DefaultProducer implements MqConfigBean {
     private final String name;
     private final ReInputEventExecutorGroup reInputExecutor;
 
+    /**
+     * Shared by all producers of this instance, and resized
+     * when config is updated.
+     */
+    private final InFlightWindow inFlightWindow = new InFlightWindow(0);
+
+    /**
+     * Shared by all producers of this instance, reported and
+     * reset by heartbeats.
+     */
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+
     private volatile MQConfig config;
     private BuiltInProducer[] producers;
     private ObjectChooser<BuiltInProducer> producerChooser;
@@ -73,31 +96,196 @@ public class DefaultProducer implements MqConfigBean {
     }
 
     public void sendMessage(Message msg) {
-        final int state = this.state;
-        if (state == SHUTDOWN) {
-            throw new IllegalStateException("Producer " + name + " has closed");
+        send(msg, 0, null, null);
+    }
+
+    public void sendMessage(Message msg, long delay, TimeUnit unit) {
+        Assert.notNull(unit, "'unit' must not be null");
+        send(msg, delay, unit, null);
+    }
+
+    /**
+     * Send message asynchronously. The returned future is completed
+     * when the message is confirmed by broker, or completed exceptionally
+     * with {@link MessageSendException} if it can't be sent, including
+     * in-flight window is full and {@link MQConfig#getBackpressurePolicy()}
+     * doesn't allow to wait.
+     * <p>
+     * The future is completed in producer's executor, dependent
+     * actions that don't specify executor shouldn't block.
+     *
+     * @param msg the message to send
+     * @return future of send result
+     */
+    public CompletableFuture<SendResult> sendAsync(Message msg) {
+        final CompletableFuture<SendResult> promise = new CompletableFuture<>();
+        try {
+            send(msg, 0, null, promise);
+        } catch (MessageSendException e) {
+            promise.completeExceptionally(e);
         }
-        if (!isRunning(state)) {
-            throw new IllegalStateException("Producer " + name + " has not initialized");
+        return promise;
+    }
+
+    /**
+     * Send delay message asynchronously.
+     *
+     * @param msg   the message to send
+     * @param delay the delay of message
+     * @param unit  the time unit of delay
+     * @return future of send result
+     * @see #sendAsync(Message)
+     */
+    public CompletableFuture<SendResult> sendAsync(Message msg, long delay, TimeUnit unit) {
+        Assert.notNull(unit, "'unit' must not be null");
+        final CompletableFuture<SendResult> promise = new CompletableFuture<>();
+        try {
+            send(msg, delay, unit, promise);
+        } catch (MessageSendException e) {
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    private void send(Message msg, long delay, @Nullable TimeUnit unit,
+                      @Nullable CompletableFuture<SendResult> promise) {
+        final int state = checkRunning();
+        final boolean callerRuns = acquireInFlight();
+        try {
+            if (isRebuilding(state)) {
+                reInputExecutor.execute(() -> {
+                    try {
+                        dispatch(producerChooser.next(), msg, delay, unit, promise);
+                    } catch (RuntimeException e) {
+                        // caller has returned, failure can only be reported by promise
+                        inFlightWindow.release(1);
+                        if (promise != null) {
+                            promise.completeExceptionally(e);
+                        } else if (LOGGER.isWarnEnabled()) {
+                            LOGGER.warn("Producer {} send message {} fail", name, msg, e);
+                        }
+                    }
+                });
+            } else if (callerRuns) {
+                runInCaller(msg, delay, unit, promise);
+            } else {
+                // producer hands message to its executor itself
+                dispatch(producerChooser.next(), msg, delay, unit, promise);
+            }
+        } catch (RuntimeException e) {
+            inFlightWindow.release(1);
+            if (promise != null) {
+                promise.completeExceptionally(e);
+            }
+            throw e;
         }
-        if (isRebuilding(state)) {
-            reInputExecutor.submit(() -> {
-                BuiltInProducer producer = producerChooser.next();
-                EventExecutor executor = producer.executor();
-                if (executor.inEventLoop()) {
-                    producer.sendMessage(msg);
-                } else {
-                    executor.submit(() -> producer.sendMessage(msg));
+        counter.inc();
+    }
+
+    /**
+     * Send message in caller-runs mode. Caller in a producer's executor
+     * sends it with that producer at once, other callers wait until the
+     * executor has published it, at most {@link MQConfig#getBlockTimeoutMillis()}.
+     *
+     * @throws MessageSendException if executor doesn't start to publish
+     *                              it in time, message won't be sent
+     */
+    private void runInCaller(Message msg, long delay, @Nullable TimeUnit unit,
+                             @Nullable CompletableFuture<SendResult> promise) {
+        final BuiltInProducer local = producerInCurrentThread();
+        if (local != null) {
+            dispatch(local, msg, delay, unit, promise);
+            return;
+        }
+        final BuiltInProducer producer = producerChooser.next();
+        final long timeoutMillis = config.getBlockTimeoutMillis();
+        final Future<?> future = producer.executor().submit(() -> dispatch(producer, msg, delay, unit, promise));
+        if (!future.awaitUninterruptibly(timeoutMillis, TimeUnit.MILLISECONDS) && future.cancel(false)) {
+            throw new MessageSendException("Producer " + name + " executor doesn't publish message in "
+                    + timeoutMillis + " ms, in-flight limit: " + inFlightWindow.getLimit());
+        }
+        // rethrow failure of dispatch
+        future.syncUninterruptibly();
+    }
+
+    /**
+     * Return the producer whose executor is the current thread, or
+     * {@code null} if caller is not in any executor of this producer.
+     */
+    @Nullable
+    private BuiltInProducer producerInCurrentThread() {
+        final BuiltInProducer[] producers = this.producers;
+        if (producers != null) {
+            for (BuiltInProducer producer : producers) {
+                if (producer.executor().inEventLoop()) {
+                    return producer;
                 }
-            });
+            }
+        }
+        return null;
+    }
+
+    private static void dispatch(BuiltInProducer producer, Message msg, long delay, @Nullable TimeUnit unit,
+                                 @Nullable CompletableFuture<SendResult> promise) {
+        if (unit == null) {
+            if (promise == null) {
+                producer.sendMessage(msg);
+            } else {
+                producer.sendMessage(msg, promise);
+            }
         } else {
-            BuiltInProducer producer = producerChooser.next();
-            producer.executor().submit(() -> producer.sendMessage(msg));
+            if (promise == null) {
+                producer.sendMessage(msg, delay, unit);
+            } else {
+                producer.sendMessage(msg, delay, unit, promise);
+            }
         }
-        counter.inc();
     }
 
-    public void sendMessage(Message msg, long delay, TimeUnit unit) {
+    /**
+     * Acquire a permit from in-flight window, follow
+     * {@link MQConfig#getBackpressurePolicy()} if window is full.
+     *
+     * @return {@code true} if message should be sent in caller-runs mode
+     * @throws MessageSendException if permit can't be acquired
+     */
+    private boolean acquireInFlight() {
+        final InFlightWindow window = this.inFlightWindow;
+        if (window.tryAcquire()) {
+            return false;
+        }
+        final MQConfig config = this.config;
+        switch (config.getBackpressurePolicy()) {
+            case FAIL_FAST:
+                throw new MessageSendException("Producer " + name + " in-flight window is full, limit: "
+                        + window.getLimit());
+            case CALLER_RUNS:
+                window.forceAcquire();
+                return true;
+            case BLOCK:
+            default:
+                if (producerInCurrentThread() != null) {
+                    // permits are released by confirms handled in this thread,
+                    // blocking it would never get one
+                    throw new MessageSendException("Producer " + name + " in-flight window is full, limit: "
+                            + window.getLimit() + ", can't block in producer executor");
+                }
+                boolean acquired;
+                try {
+                    acquired = window.tryAcquire(config.getBlockTimeoutMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MessageSendException("Producer " + name + " is interrupted when waiting for in-flight window", e);
+                }
+                if (!acquired) {
+                    throw new MessageSendException("Producer " + name + " in-flight window is full for "
+                            + config.getBlockTimeoutMillis() + " ms, limit: " + window.getLimit());
+                }
+                return false;
+        }
+    }
+
+    private int checkRunning() {
         final int state = this.state;
         if (state == SHUTDOWN) {
             throw new IllegalStateException("Producer " + name + " has closed");
@@ -105,21 +293,7 @@ public class DefaultProducer implements MqConfigBean {
         if (!isRunning(state)) {
             throw new IllegalStateException("Producer " + name + " has not initialized");
         }
-        if (isRebuilding(state)) {
-            reInputExecutor.submit(() -> {
-                BuiltInProducer producer = producerChooser.next();
-                EventExecutor executor = producer.executor();
-                if (executor.inEventLoop()) {
-                    producer.sendMessage(msg, delay, unit);
-                } else {
-                    executor.submit(() -> producer.sendMessage(msg, delay, unit));
-                }
-            });
-        } else {
-            BuiltInProducer producer = producerChooser.next();
-            producer.executor().submit(() -> producer.sendMessage(msg));
-        }
-        counter.inc();
+        return state;
     }
 
     @Override
@@ -134,64 +308,66 @@ public class DefaultProducer implements MqConfigBean {
         final String configName = newConfig.getName();
         BuiltInProducer[] deprecateProducers = null;
 
-        // build new resources
-        EventExecutorGroup sendExecutor = new DoranEventExecutorGroup(num,
-                new ThreadFactoryImpl(configName + "ProducerExecutor_"));
+        // build new resources, every producer is bound to its own executor
+        final ThreadFactoryImpl threadFactory = new ThreadFactoryImpl(configName + "ProducerExecutor_");
+        final EventExecutorGroup sendExecutor;
         BuiltInProducer[] newProducers = new BuiltInProducer[num];
         ObjectChooser<BuiltInProducer> producerChooser;
+        int kept = 0;
         if (oldConfig != null && onlyThreadNumChanged(oldConfig, newConfig)) {
-            final int oldNum = oldConfig.getThreadNum();
-            // enlarge
-            if (oldNum < num) {
-                System.arraycopy(this.producers, 0, newProducers, 0, oldNum);
-                for (int i = oldNum; i < num; ++i) {
-                    newProducers[i] = createProducer(newConfig);
-                }
-            } else {
-                System.arraycopy(this.producers, 0, newProducers, 0, num);
-
-                int deprecateNum = oldNum - num;
-                deprecateProducers = new BuiltInProducer[deprecateNum];
-                System.arraycopy(this.producers, num, deprecateProducers, 0, deprecateNum);
+            // surviving producers stay in their executors, so their
+            // resend caches and resend tasks are never touched by
+            // two threads
+            kept = Math.min(oldConfig.getThreadNum(), num);
+            List<EventExecutor> keptExecutors = new ArrayList<>(kept);
+            for (int i = 0; i < kept; ++i) {
+                newProducers[i] = this.producers[i];
+                keptExecutors.add(this.producers[i].executor());
             }
-
-            for (int i = 0; i < num; ++i) {
-                newProducers[i].register(sendExecutor.next());
-                newProducers[i].startResendTask();
+            sendExecutor = new DoranEventExecutorGroup(num, threadFactory, keptExecutors);
+            if (this.producers.length > kept) {
+                deprecateProducers = Arrays.copyOfRange(this.producers, kept, this.producers.length);
             }
         } else {
             this.nameGenerator = NameGeneratorFactory.getInstance().producerNameGenerator(newConfig);
-            for (int i = 0; i < num; ++i) {
+            sendExecutor = new DoranEventExecutorGroup(num, threadFactory);
+            deprecateProducers = this.producers;
+        }
+        int index = 0;
+        for (EventExecutor executor : sendExecutor) {
+            if (index >= kept) {
                 BuiltInProducer producer = createProducer(newConfig);
-                producer.register(sendExecutor.next());
+                producer.setInFlightWindow(inFlightWindow);
+                producer.setLatencyRecorder(latencyRecorder);
+                producer.register(executor);
                 producer.startResendTask();
-                newProducers[i] = producer;
+                newProducers[index] = producer;
             }
-            deprecateProducers = this.producers;
+            ++index;
         }
         producerChooser = BuiltInProducerChooserFactory.INSTANCE.newChooser(newProducers);
 
-        // transfer old uncompleted tasks to new executor
+        // tasks queued in old executors are not transferred, sends of
+        // deprecated producers still run in their own executors before
+        // they are closed, then executors which are not kept shut down
+        if (deprecateProducers != null) {
+            for (BuiltInProducer producer : deprecateProducers) {
+                closeInExecutor(producer);
+            }
+        }
         if (this.sendExecutor != null) {
             for (EventExecutor executor : this.sendExecutor) {
-                DoranEventExecutor doranEventExecutor = (DoranEventExecutor) executor;
-                List<Runnable> tasks = doranEventExecutor.drainQueue();
-                for (Runnable task : tasks) {
-                    sendExecutor.execute(task);
+                if (!isKept(executor, newProducers, kept)) {
+                    executor.shutdownGracefully();
                 }
             }
-            this.sendExecutor.shutdownGracefully();
-        }
-        if(deprecateProducers != null) {
-            for(BuiltInProducer producer : deprecateProducers) {
-                producer.close();
-            }
         }
 
         this.sendExecutor = sendExecutor;
         this.producers = newProducers;
         this.producerChooser = producerChooser;
         this.reInputExecutor.setTransferGroup(sendExecutor);
+        this.inFlightWindow.setLimit(newConfig.getMaxInFlightMessages());
         this.config = newConfig;
         this.state = RUNNING;
 
@@ -204,6 +380,32 @@ public class DefaultProducer implements MqConfigBean {
         }
     }
 
+    private static boolean isKept(EventExecutor executor, BuiltInProducer[] producers, int kept) {
+        for (int i = 0; i < kept; ++i) {
+            if (producers[i].executor() == executor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Close the given producer in its executor after the tasks
+     * queued ahead, so that messages handed to it are sent first.
+     */
+    private static void closeInExecutor(BuiltInProducer producer) {
+        final EventExecutor executor = producer.executor();
+        if (executor == null || executor.inEventLoop()) {
+            producer.close();
+            return;
+        }
+        try {
+            executor.execute(producer::close);
+        } catch (RejectedExecutionException e) {
+            producer.close();
+        }
+    }
+
     @Override
     public MQConfig getMqConfig() {
         return config;
@@ -225,7 +427,36 @@ public class DefaultProducer implements MqConfigBean {
         return this.counter;
     }
 
-    private BuiltInProducer createProducer(final MQConfig config) {
+    /**
+     * Return the in-flight window of this producer, it can be
+     * used to report window usage.
+     *
+     * @return in-flight window
+     */
+    @NotNull
+    public InFlightWindow getInFlightWindow() {
+        return this.inFlightWindow;
+    }
+
+    /**
+     * Return the recorder of confirm latencies of this producer.
+     *
+     * @return latency recorder
+     */
+    @NotNull
+    public LatencyRecorder getLatencyRecorder() {
+        return this.latencyRecorder;
+    }
+
+    /**
+     * Create {@link BuiltInProducer} for the given config. Subclasses
+     * can override it to provide other implementations, e.g. stub
+     * producers for benchmarks.
+     *
+     * @param config the config of producer
+     * @return new producer
+     */
+    protected BuiltInProducer createProducer(final MQConfig config) {
         String name;
         switch (config.getType()) {
             case RabbitMQ:
@@ -236,6 +467,10 @@ public class DefaultProducer implements MqConfigBean {
                 ActiveMQConfig activeMQConfig = (ActiveMQConfig) config;
                 name = nameGenerator.generateName();
                 return new ActiveMQProducer(name, activeMQConfig);
+            case InMemory:
+                InMemoryConfig inMemoryConfig = (InMemoryConfig) config;
+                name = nameGenerator.generateName();
+                return new InMemoryProducer(name, inMemoryConfig);
             case UNKNOWN:
             default:
                 throw new IllegalArgumentException("Invalid config " + config);
@@ -7,200 +7,311 @@ import com.shallowinggg.doran.common.ActiveMQConfig;
 import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.common.util.StringUtils;
+import com.shallowinggg.doran.common.util.concurrent.AsyncLoadingCache;
 import com.shallowinggg.doran.common.util.retry.*;
+import io.netty.util.internal.SystemPropertyUtil;
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jms.JMSException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Cache of connection factories and pools of connections.
+ * <p>
+ * Connections are pooled by broker uri and credentials rather than
+ * config name, every pool holds at most {@link #POOL_SIZE} connections,
+ * so configs which point at the same broker share a few sockets and
+ * heartbeats. ActiveMQ connections with client id can't be shared,
+ * they are pooled by client id too with only one connection.
+ *
  * @author shallowinggg
+ * @see ConnectionPool
  */
 public class ConnectionFactoryCache {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionFactoryCache.class);
     private static final ConnectionFactoryCache INSTANCE = new ConnectionFactoryCache();
+    private static final int BUILD_CONNECTION_TIMEOUT_MILLIS = 3000;
+    private static final int POOL_SIZE =
+            Math.max(1, SystemPropertyUtil.getInt("com.shallowinggg.client.connectionPoolSize", 2));
 
     /**
      * uri -> ConnectionFactory
      */
-    private final Map<String, com.rabbitmq.client.ConnectionFactory> rabbitMQConnectionFactories
-            = new ConcurrentHashMap<>();
+    private final AsyncLoadingCache<String, com.rabbitmq.client.ConnectionFactory> rabbitMQConnectionFactories
+            = new AsyncLoadingCache<>();
     /**
-     * config name -> Connection
+     * uri -> connection pool, credentials are part of rabbitmq uri
      */
-    private final Map<String, com.rabbitmq.client.Connection> rabbitMQCache = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionPool<com.rabbitmq.client.Connection>> rabbitMQPools
+            = new ConcurrentHashMap<>();
 
     /**
      * uri -> ConnectionFactory
      */
-    private final Map<String, javax.jms.ConnectionFactory> activeMQConnectionFactories
-            = new ConcurrentHashMap<>();
+    private final AsyncLoadingCache<String, javax.jms.ConnectionFactory> activeMQConnectionFactories
+            = new AsyncLoadingCache<>();
     /**
-     * config name -> Connection
+     * uri, credentials and client id -> connection pool
      */
-    private final Map<String, javax.jms.Connection> activeMQCache = new ConcurrentHashMap<>();
+    private final Map<ActiveMQPoolKey, ConnectionPool<javax.jms.Connection>> activeMQPools
+            = new ConcurrentHashMap<>();
 
-    private final Retryer<Void> buildConnectionRetryer = RetryerBuilder.<Void>newBuilder()
-            .retryIfException()
-            .withAttemptTimeLimiter(AttemptTimeLimiters.fixedTimeLimit(3, TimeUnit.SECONDS))
-            .withStopStrategy(StopStrategies.stopAfterAttempt(3))
-            .withWaitStrategy(WaitStrategies.fibonacciWait())
-            .build();
+    /**
+     * Connection builds are interrupted by a shared timer when they
+     * exceed the limit, so concurrent builds, e.g. during a broker
+     * failover, don't need a blocked thread each.
+     */
+    private final Retryer<com.rabbitmq.client.Connection> buildRabbitMQConnectionRetryer = newBuildConnectionRetryer();
+    private final Retryer<javax.jms.Connection> buildActiveMQConnectionRetryer = newBuildConnectionRetryer();
 
     public static ConnectionFactoryCache getInstance() {
         return INSTANCE;
     }
 
+    private static <C> Retryer<C> newBuildConnectionRetryer() {
+        return RetryerBuilder.<C>newBuilder()
+                .retryIfException()
+                .withAttemptTimeLimiter(AttemptTimeLimiters.timerTimeLimit(
+                        BUILD_CONNECTION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+                .withWaitStrategy(WaitStrategies.fibonacciWait())
+                .build();
+    }
+
     public com.rabbitmq.client.ConnectionFactory getRabbitMQConnectionFactory(String uri) {
         Assert.isTrue(StringUtils.hasText(uri), "'uri' must has text");
-        if (rabbitMQConnectionFactories.containsKey(uri)) {
-            return rabbitMQConnectionFactories.get(uri);
-        }
-        synchronized (uri.intern()) {
-            if (rabbitMQConnectionFactories.containsKey(uri)) {
-                return rabbitMQConnectionFactories.get(uri);
-            }
-
+        return rabbitMQConnectionFactories.get(uri, k -> {
             try {
                 com.rabbitmq.client.ConnectionFactory connectionFactory = new com.rabbitmq.client.ConnectionFactory();
-                connectionFactory.setUri(uri);
+                connectionFactory.setUri(k);
                 connectionFactory.setAutomaticRecoveryEnabled(true);
                 // TODO: 可配置
                 connectionFactory.setNetworkRecoveryInterval(1000);
                 connectionFactory.setRequestedHeartbeat(3);
-                rabbitMQConnectionFactories.put(uri, connectionFactory);
+                // socket connect can't be interrupted by time limiter
+                connectionFactory.setConnectionTimeout(BUILD_CONNECTION_TIMEOUT_MILLIS);
                 return connectionFactory;
             } catch (NoSuchAlgorithmException | KeyManagementException | URISyntaxException e) {
-                throw new IllegalConnectionUriException(uri, e);
+                throw new IllegalConnectionUriException(k, e);
             }
-        }
+        });
     }
 
-    public com.rabbitmq.client.Connection getRabbitMQConnection(MQConfig config) {
-        String name = config.getName();
-        if (rabbitMQCache.containsKey(name)) {
-            return rabbitMQCache.get(name);
-        }
+    /**
+     * Acquire a lease of pooled connection to the broker of the given
+     * config, caller should open one channel on it and release the
+     * lease after the channel is closed.
+     *
+     * @param config the config
+     * @return lease of connection
+     * @throws RetryCountExhaustedException if fail to build connection
+     */
+    public ConnectionPool.Lease<com.rabbitmq.client.Connection> acquireRabbitMQConnection(MQConfig config) {
+        final String uri = config.getUri();
+        final ConnectionPool<com.rabbitmq.client.Connection> pool = rabbitMQPools.computeIfAbsent(uri,
+                k -> new ConnectionPool<>(maskUri(k), POOL_SIZE, p -> buildRabbitMQConnection(k, p),
+                        com.rabbitmq.client.Connection::close, com.rabbitmq.client.Connection::isOpen));
+        return acquire(pool);
+    }
 
-        synchronized (config.getName().intern()) {
-            if (rabbitMQCache.containsKey(name)) {
-                return rabbitMQCache.get(name);
-            }
-            final String uri = config.getUri();
-            com.rabbitmq.client.ConnectionFactory connectionFactory = getRabbitMQConnectionFactory(uri);
-            try {
-                buildConnectionRetryer.call(() -> {
-                    com.rabbitmq.client.Connection connection = connectionFactory.newConnection();
-                    AutorecoveringConnection recoverConnection = (AutorecoveringConnection) connection;
-                    recoverConnection.addRecoveryListener(new RecoveryListener() {
-                        @Override
-                        public void handleRecovery(Recoverable recoverable) {
-                            if (LOGGER.isErrorEnabled()) {
-                                LOGGER.error("Connection {} lost connection", recoverable);
-                            }
-                        }
-
-                        @Override
-                        public void handleRecoveryStarted(Recoverable recoverable) {
-                            if (LOGGER.isInfoEnabled()) {
-                                LOGGER.info("Connection {} recover success", recoverable);
-                            }
-                        }
-                    });
-                    rabbitMQCache.put(name, connection);
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Create rabbitmq connection success, uri: {}", uri);
+    private com.rabbitmq.client.Connection buildRabbitMQConnection(
+            String uri, ConnectionPool<com.rabbitmq.client.Connection> pool) throws RetryException, ExecutionException {
+        com.rabbitmq.client.ConnectionFactory connectionFactory = getRabbitMQConnectionFactory(uri);
+        return buildRabbitMQConnectionRetryer.call(() -> {
+            com.rabbitmq.client.Connection connection = connectionFactory.newConnection();
+            AutorecoveringConnection recoverConnection = (AutorecoveringConnection) connection;
+            recoverConnection.addRecoveryListener(new RecoveryListener() {
+                @Override
+                public void handleRecovery(Recoverable recoverable) {
+                    // new leases go to this connection again since
+                    // it has fewer channels than the others
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("Connection {} recover success, pool: {}", recoverable, pool);
+                    }
+                }
+
+                @Override
+                public void handleRecoveryStarted(Recoverable recoverable) {
+                    if (LOGGER.isErrorEnabled()) {
+                        LOGGER.error("Connection {} lost connection, start recovering", recoverable);
                     }
-                    return null;
-                });
-            } catch (ExecutionException e) {
-                // won't goto this branch
-                assert false;
-            } catch (RetryException e) {
-                Attempt<?> attempt = e.getLastFailedAttempt();
-                if (LOGGER.isErrorEnabled()) {
-                    LOGGER.error("Create rabbitmq connection fail, uri: {}, retry count {} has exhausted",
-                            uri, attempt.getAttemptNumber(), attempt.getExceptionCause());
                 }
-                throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
+            });
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Create rabbitmq connection success, uri: {}", pool.getName());
             }
-        }
-        return rabbitMQCache.get(name);
+            return connection;
+        });
     }
 
     public javax.jms.ConnectionFactory getActiveMQConnectionFactory(String uri) {
         Assert.isTrue(StringUtils.hasText(uri), "'uri' must has text");
-        if (activeMQConnectionFactories.containsKey(uri)) {
-            return activeMQConnectionFactories.get(uri);
-        }
-        synchronized (uri.intern()) {
-            if (activeMQConnectionFactories.containsKey(uri)) {
-                return activeMQConnectionFactories.get(uri);
+        return activeMQConnectionFactories.get(uri, k -> {
+            try {
+                return new ActiveMQConnectionFactory(k);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalConnectionUriException(k, e.getCause());
             }
+        });
+    }
+
+    /**
+     * Acquire a lease of pooled connection to the broker of the given
+     * config, caller should open one session on it and release the
+     * lease after the session is closed.
+     *
+     * @param config   the config
+     * @param clientId the client id of connection, connections with
+     *                 client id are not shared with other ids
+     * @return lease of connection
+     * @throws RetryCountExhaustedException if fail to build connection
+     */
+    public ConnectionPool.Lease<javax.jms.Connection> acquireActiveMQConnection(ActiveMQConfig config,
+                                                                                @Nullable String clientId) {
+        final ActiveMQPoolKey key = new ActiveMQPoolKey(config.getUri(), config.getUsername(),
+                config.getPassword(), clientId);
+        final ConnectionPool<javax.jms.Connection> pool = activeMQPools.computeIfAbsent(key,
+                k -> new ConnectionPool<>(k.toString(), k.clientId == null ? POOL_SIZE : 1,
+                        p -> buildActiveMQConnection(k, p), javax.jms.Connection::close, c -> true));
+        return acquire(pool);
+    }
 
+    private javax.jms.Connection buildActiveMQConnection(ActiveMQPoolKey key,
+                                                         ConnectionPool<javax.jms.Connection> pool)
+            throws RetryException, ExecutionException {
+        javax.jms.ConnectionFactory factory = getActiveMQConnectionFactory(key.uri);
+        return buildActiveMQConnectionRetryer.call(() -> {
+            javax.jms.Connection connection = factory.createConnection(key.username, key.password);
             try {
-                javax.jms.ConnectionFactory connectionFactory = new ActiveMQConnectionFactory(uri);
-                activeMQConnectionFactories.put(uri, connectionFactory);
-                return connectionFactory;
-            } catch (IllegalArgumentException e) {
-                throw new IllegalConnectionUriException(uri, e.getCause());
+                if (key.clientId != null) {
+                    connection.setClientID(key.clientId);
+                }
+                connection.start();
+            } catch (JMSException e) {
+                connection.close();
+                throw e;
+            }
+            connection.setExceptionListener(e -> {
+                if (LOGGER.isErrorEnabled()) {
+                    LOGGER.error("ActiveMQ connection fail, pool: {}", pool, e);
+                }
+                // sessions on it are broken too, close it and build
+                // a new one for next lease
+                pool.invalidate(connection);
+            });
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Create activemq connection success, pool: {}", pool.getName());
             }
+            return connection;
+        });
+    }
+
+    private static <C> ConnectionPool.Lease<C> acquire(ConnectionPool<C> pool) {
+        try {
+            return pool.acquire();
+        } catch (RetryException e) {
+            Attempt<?> attempt = e.getLastFailedAttempt();
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error("Create connection fail, pool: {}, retry count {} has exhausted",
+                        pool.getName(), attempt.getAttemptNumber(), attempt.getExceptionCause());
+            }
+            throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
+        } catch (ExecutionException e) {
+            // won't goto this branch
+            throw new IllegalStateException(e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
         }
     }
 
-    public javax.jms.Connection getActiveMQConnection(ActiveMQConfig config, @Nullable String clientId) {
-        final String name = config.getName();
-        if (activeMQCache.containsKey(name)) {
-            return activeMQCache.get(name);
+    /**
+     * Return rabbitmq connection pools for metrics.
+     *
+     * @return connection pools
+     */
+    public Collection<ConnectionPool<com.rabbitmq.client.Connection>> getRabbitMQConnectionPools() {
+        return Collections.unmodifiableCollection(rabbitMQPools.values());
+    }
+
+    /**
+     * Return activemq connection pools for metrics.
+     *
+     * @return connection pools
+     */
+    public Collection<ConnectionPool<javax.jms.Connection>> getActiveMQConnectionPools() {
+        return Collections.unmodifiableCollection(activeMQPools.values());
+    }
+
+    /**
+     * Remove credentials from uri so that it can be logged.
+     */
+    private static String maskUri(String uri) {
+        try {
+            URI u = new URI(uri);
+            if (u.getUserInfo() == null) {
+                return uri;
+            }
+            return new URI(u.getScheme(), null, u.getHost(), u.getPort(), u.getPath(),
+                    u.getQuery(), u.getFragment()).toString();
+        } catch (URISyntaxException e) {
+            return uri;
         }
+    }
 
-        final String uri = config.getUri();
-        javax.jms.ConnectionFactory factory = getActiveMQConnectionFactory(uri);
-        synchronized (name.intern()) {
-            if (activeMQCache.containsKey(name)) {
-                return activeMQCache.get(name);
+    private static final class ActiveMQPoolKey {
+        private final String uri;
+        private final String username;
+        private final String password;
+        private final String clientId;
+
+        ActiveMQPoolKey(String uri, String username, String password, String clientId) {
+            this.uri = uri;
+            this.username = username;
+            this.password = password;
+            this.clientId = clientId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
-            try {
-                buildConnectionRetryer.call(() -> {
-                    String username = config.getUsername();
-                    String password = config.getPassword();
-                    javax.jms.Connection connection = factory.createConnection(username, password);
-                    if(clientId != null) {
-                        connection.setClientID(clientId);
-                    }
-                    connection.start();
-                    connection.setExceptionListener(e -> {
-                        if (LOGGER.isErrorEnabled()) {
-                            LOGGER.error("ActiveMQ connection fail", e);
-                        }
-                    });
-                    activeMQCache.put(name, connection);
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Create activemq connection success, uri: {}", uri);
-                    }
-                    return null;
-                });
-            } catch (ExecutionException e) {
-                // won't goto this branch
-                assert false;
-                return null;
-            } catch (RetryException e) {
-                Attempt<?> attempt = e.getLastFailedAttempt();
-                if (LOGGER.isErrorEnabled()) {
-                    LOGGER.error("Create activemq connection fail, uri: {}, retry count {} has exhausted",
-                            uri, attempt.getAttemptNumber(), attempt.getExceptionCause());
-                }
-                throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
+            if (o == null || getClass() != o.getClass()) {
+                return false;
             }
+            ActiveMQPoolKey that = (ActiveMQPoolKey) o;
+            return uri.equals(that.uri) &&
+                    Objects.equals(username, that.username) &&
+                    Objects.equals(password, that.password) &&
+                    Objects.equals(clientId, that.clientId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, username, password, clientId);
+        }
+
+        /**
+         * Password is omitted.
+         */
+        @Override
+        public String toString() {
+            return uri + "?user=" + username + (clientId == null ? "" : "&clientId=" + clientId);
         }
-        return activeMQCache.get(name);
     }
 }
@@ -0,0 +1,294 @@
+package com.shallowinggg.doran.client.common;
+
+import com.shallowinggg.doran.common.util.Assert;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * A fixed size pool of connections to one broker, shared by all
+ * configs that use the same broker and credentials. Producers and
+ * consumers {@link #acquire()} a {@link Lease} of a connection,
+ * open one channel or session on it, and release the lease when
+ * they close.
+ * <p>
+ * Connections are built lazily. A lease goes to the available
+ * connection with the fewest leases, ties are broken round-robin,
+ * and empty slots count as no lease so the pool grows to its size
+ * before connections are shared. Connections that are recovering
+ * are skipped, so new leases move to the other connections and come
+ * back once they have recovered. Broken connections are discarded and
+ * closed by {@link #invalidate(Object)} and rebuilt by the next acquire.
+ * Leases are counted per connection, so leases of a discarded connection
+ * don't count against the one rebuilt in its slot.
+ *
+ * @param <C> the type of connection
+ * @author shallowinggg
+ */
+public class ConnectionPool<C> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final String name;
+    private final Slot<C>[] slots;
+    private final ConnectionBuilder<C> builder;
+    private final ConnectionCloser<C> closer;
+    private final Predicate<C> availability;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Create a pool.
+     *
+     * @param name         the name used in logs and metrics, must not contain credentials
+     * @param size         the max number of connections
+     * @param builder      builder of connections
+     * @param closer       closer of discarded connections
+     * @param availability the predicate which tests if connection can open channels
+     */
+    @SuppressWarnings("unchecked")
+    public ConnectionPool(@NotNull String name, int size, @NotNull ConnectionBuilder<C> builder,
+                          @NotNull ConnectionCloser<C> closer, @NotNull Predicate<C> availability) {
+        Assert.hasText(name, "'name' must has text");
+        Assert.isTrue(size > 0, "'size' must be positive");
+        Assert.notNull(builder, "'builder' must not be null");
+        Assert.notNull(closer, "'closer' must not be null");
+        Assert.notNull(availability, "'availability' must not be null");
+        this.name = name;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; ++i) {
+            this.slots[i] = new Slot<>(i);
+        }
+        this.builder = builder;
+        this.closer = closer;
+        this.availability = availability;
+    }
+
+    /**
+     * Acquire a lease of the least loaded connection, build
+     * it first if it doesn't exist.
+     *
+     * @return the lease
+     * @throws Exception if fail to build connection
+     */
+    public Lease<C> acquire() throws Exception {
+        final int size = slots.length;
+        final int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        Slot<C> chosen = null;
+        int minLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < size; ++i) {
+            Slot<C> slot = slots[(start + i) % size];
+            Pooled<C> pooled = slot.pooled;
+            if (pooled != null && !availability.test(pooled.connection)) {
+                continue;
+            }
+            int load = pooled == null ? 0 : pooled.load.get();
+            if (load < minLoad) {
+                minLoad = load;
+                chosen = slot;
+            }
+        }
+        if (chosen == null) {
+            // all connections are recovering, wait on any of them
+            chosen = slots[start % size];
+        }
+        final Pooled<C> pooled = pooled(chosen);
+        pooled.load.incrementAndGet();
+        return new Lease<>(pooled);
+    }
+
+    private Pooled<C> pooled(Slot<C> slot) throws Exception {
+        Pooled<C> pooled = slot.pooled;
+        if (pooled != null) {
+            return pooled;
+        }
+        synchronized (slot) {
+            pooled = slot.pooled;
+            if (pooled == null) {
+                pooled = new Pooled<>(builder.build(this));
+                slot.pooled = pooled;
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Pool {} build connection {}", name, slot.index);
+                }
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * Discard and close the given broken connection, the next
+     * lease of its slot will build a new one. Leases of it don't
+     * count against the new connection.
+     *
+     * @param connection the broken connection
+     */
+    public void invalidate(C connection) {
+        for (Slot<C> slot : slots) {
+            synchronized (slot) {
+                Pooled<C> pooled = slot.pooled;
+                if (pooled == null || pooled.connection != connection) {
+                    continue;
+                }
+                slot.pooled = null;
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Pool {} discard broken connection {}", name, slot.index);
+                }
+            }
+            try {
+                closer.close(connection);
+            } catch (Exception e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Pool {} close broken connection {} fail", name, slot.index, e);
+                }
+            }
+            return;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the max number of connections.
+     *
+     * @return pool size
+     */
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * Return the number of connections that have been built
+     * and are available.
+     *
+     * @return available connections
+     */
+    public int availableConnections() {
+        int count = 0;
+        for (Slot<C> slot : slots) {
+            Pooled<C> pooled = slot.pooled;
+            if (pooled != null && availability.test(pooled.connection)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of leases of the connection in every slot,
+     * empty slot has no lease.
+     *
+     * @return leases indexed by slot
+     */
+    public int[] loads() {
+        int[] loads = new int[slots.length];
+        for (int i = 0; i < slots.length; ++i) {
+            Pooled<C> pooled = slots[i].pooled;
+            loads[i] = pooled == null ? 0 : pooled.load.get();
+        }
+        return loads;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ConnectionPool{name='").append(name)
+                .append("', available=").append(availableConnections())
+                .append(", size=").append(slots.length)
+                .append(", loads=[");
+        int[] loads = loads();
+        for (int i = 0; i < loads.length; ++i) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append(loads[i]);
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Builder of pooled connections.
+     *
+     * @param <C> the type of connection
+     */
+    @FunctionalInterface
+    public interface ConnectionBuilder<C> {
+        /**
+         * Build a new connection.
+         *
+         * @param pool the pool which the connection belongs to,
+         *             broken connections should be invalidated by it
+         * @return new connection
+         * @throws Exception if fail to build
+         */
+        C build(ConnectionPool<C> pool) throws Exception;
+    }
+
+    /**
+     * Closer of discarded connections.
+     *
+     * @param <C> the type of connection
+     */
+    @FunctionalInterface
+    public interface ConnectionCloser<C> {
+        /**
+         * Close the connection, channels or sessions on it
+         * are closed too.
+         *
+         * @param connection the connection to close
+         * @throws Exception if fail to close
+         */
+        void close(C connection) throws Exception;
+    }
+
+    private static final class Slot<C> {
+        private final int index;
+        private volatile Pooled<C> pooled;
+
+        Slot(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * A built connection and the number of its leases.
+     */
+    private static final class Pooled<C> {
+        private final C connection;
+        private final AtomicInteger load = new AtomicInteger();
+
+        Pooled(C connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * A lease of pooled connection, it must be released
+     * when the channel or session opened on it is closed.
+     *
+     * @param <C> the type of connection
+     */
+    public static final class Lease<C> {
+        private final Pooled<C> pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(Pooled<C> pooled) {
+            this.pooled = pooled;
+        }
+
+        public C connection() {
+            return pooled.connection;
+        }
+
+        /**
+         * Release this lease, it is safe to invoke more than once.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                pooled.load.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.shallowinggg.doran.client.common;
+
+import com.shallowinggg.doran.transport.protocol.DoranSerializable;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Flyweight view of properties encoded by
+ * {@link DoranSerializable#mapSerialize(Map, ByteBuf)}.
+ * <p>
+ * It keeps the encoded bytes and builds a small open-addressed
+ * index of key hashes and offsets on the first lookup, so
+ * {@link #get(String)} only decodes the matched value instead of
+ * materializing the whole map. Keys are hashed over their UTF-8
+ * bytes, the lookup key is hashed in the same way without encoding
+ * it into a new array.
+ * <p>
+ * The index and the decoded map are immutable once built and are
+ * published through volatile fields, so a decoded message can be
+ * shared by threads. Threads that race on the first lookup may build
+ * the index more than once, which is harmless.
+ *
+ * @author shallowinggg
+ */
+final class EncodedProperties {
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+
+    /**
+     * Every entry uses 4 ints: key hash, key offset,
+     * key length and value offset
+     */
+    private static final int ENTRY_STRIDE = 4;
+
+    private final ByteBuf encoded;
+
+    private volatile Index index;
+    private volatile Map<String, String> decoded;
+
+    EncodedProperties(@NotNull ByteBuf encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * Return the value of the given key without decoding other
+     * properties.
+     *
+     * @param key property key
+     * @return the value, or {@code null} if key is not exist
+     */
+    @Nullable
+    String get(@NotNull String key) {
+        final Map<String, String> decoded = this.decoded;
+        if (decoded != null) {
+            return decoded.get(key);
+        }
+        Index index = this.index;
+        if (index == null) {
+            index = buildIndex();
+            this.index = index;
+        }
+
+        final int[] table = index.table;
+        final int[] entries = index.entries;
+        final int mask = table.length - 1;
+        final int hash = utf8Hash(key);
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == 0) {
+                return null;
+            }
+            int entry = (slot - 1) * ENTRY_STRIDE;
+            if (entries[entry] == hash && keyEquals(entries[entry + 1], entries[entry + 2], key)) {
+                int valueOffset = entries[entry + 3];
+                int valueLen = encoded.getInt(valueOffset - 4);
+                return encoded.toString(valueOffset, valueLen, UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Decode all properties, the result will be cached.
+     *
+     * @return decoded properties
+     */
+    Map<String, String> toMap() {
+        Map<String, String> decoded = this.decoded;
+        if (decoded == null) {
+            decoded = DoranSerializable.mapDeserialize(encoded);
+            this.decoded = decoded;
+        }
+        return decoded;
+    }
+
+    int encodedLength() {
+        return encoded.readableBytes();
+    }
+
+    void writeTo(ByteBuf out) {
+        out.writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+    }
+
+    private Index buildIndex() {
+        final ByteBuf buf = this.encoded;
+        final int end = buf.writerIndex();
+        int[] entries = new int[ENTRY_STRIDE * 4];
+        int count = 0;
+        int index = buf.readerIndex();
+        while (index < end) {
+            int keyLen = buf.getShort(index);
+            int keyOffset = index + 2;
+            int valueOffset = keyOffset + keyLen + 4;
+            index = valueOffset + buf.getInt(valueOffset - 4);
+
+            if ((count + 1) * ENTRY_STRIDE > entries.length) {
+                int[] newEntries = new int[entries.length << 1];
+                System.arraycopy(entries, 0, newEntries, 0, entries.length);
+                entries = newEntries;
+            }
+            int entry = count * ENTRY_STRIDE;
+            entries[entry] = utf8Hash(buf, keyOffset, keyLen);
+            entries[entry + 1] = keyOffset;
+            entries[entry + 2] = keyLen;
+            entries[entry + 3] = valueOffset;
+            ++count;
+        }
+
+        // load factor is at most 0.5
+        int[] table = new int[Math.max(4, Integer.highestOneBit(Math.max(1, count)) << 2)];
+        final int mask = table.length - 1;
+        for (int n = 0; n < count; ++n) {
+            int entry = n * ENTRY_STRIDE;
+            int hash = entries[entry];
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                int slot = table[i];
+                if (slot == 0) {
+                    table[i] = n + 1;
+                    break;
+                }
+                // same key appears again, the later one wins like map
+                int other = (slot - 1) * ENTRY_STRIDE;
+                if (entries[other] == hash && entries[other + 2] == entries[entry + 2] &&
+                        ByteBufUtil.equals(buf, entries[other + 1], buf, entries[entry + 1], entries[entry + 2])) {
+                    table[i] = n + 1;
+                    break;
+                }
+            }
+        }
+        return new Index(table, entries);
+    }
+
+    private boolean keyEquals(int keyOffset, int keyLen, String key) {
+        final int length = key.length();
+        if (keyLen < length) {
+            return false;
+        }
+        // fast path for ascii key
+        if (keyLen == length) {
+            int i = 0;
+            for (; i < length; ++i) {
+                char c = key.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                if (encoded.getByte(keyOffset + i) != c) {
+                    return false;
+                }
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return encoded.toString(keyOffset, keyLen, UTF_8).equals(key);
+    }
+
+    private static int utf8Hash(ByteBuf buf, int offset, int length) {
+        int h = 0;
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            h = 31 * h + buf.getByte(i);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Hash the UTF-8 bytes of the given string, encoded in the same
+     * way as {@link ByteBufUtil#writeUtf8(ByteBuf, CharSequence)}.
+     */
+    private static int utf8Hash(String s) {
+        int h = 0;
+        for (int i = 0, len = s.length(); i < len; ++i) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                h = 31 * h + (byte) c;
+            } else if (c < 0x800) {
+                h = 31 * h + (byte) (0xc0 | (c >> 6));
+                h = 31 * h + (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                char next;
+                if (Character.isHighSurrogate(c) && i + 1 < len &&
+                        Character.isLowSurrogate(next = s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, next);
+                    ++i;
+                    h = 31 * h + (byte) (0xf0 | (codePoint >> 18));
+                    h = 31 * h + (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    h = 31 * h + (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    h = 31 * h + (byte) (0x80 | (codePoint & 0x3f));
+                } else {
+                    // unpaired surrogate is replaced with '?'
+                    h = 31 * h + (byte) '?';
+                }
+            } else {
+                h = 31 * h + (byte) (0xe0 | (c >> 12));
+                h = 31 * h + (byte) (0x80 | ((c >> 6) & 0x3f));
+                h = 31 * h + (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Index {
+        /**
+         * Open-addressed table, slot stores entry number + 1,
+         * 0 means empty slot
+         */
+        final int[] table;
+        final int[] entries;
+
+        Index(int[] table, int[] entries) {
+            this.table = table;
+            this.entries = entries;
+        }
+    }
+}
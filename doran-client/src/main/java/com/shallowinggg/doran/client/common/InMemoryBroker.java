@@ -0,0 +1,56 @@
+package com.shallowinggg.doran.client.common;
+
+import com.shallowinggg.doran.common.InMemoryConfig;
+import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.common.util.concurrent.BoundedMpmcQueue;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process loopback broker which holds bounded lock-free queues
+ * for {@link InMemoryConfig}. Queues store encoded messages, so
+ * producers and consumers still go through message codecs like
+ * real brokers.
+ *
+ * @author shallowinggg
+ */
+public class InMemoryBroker {
+    private static final InMemoryBroker INSTANCE = new InMemoryBroker();
+
+    /**
+     * queue name -> queue
+     */
+    private final Map<String, BoundedMpmcQueue<byte[]>> queues = new ConcurrentHashMap<>();
+
+    private InMemoryBroker() {
+    }
+
+    public static InMemoryBroker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Return the queue of the given config, create it if absent.
+     * Queue capacity is decided by the config that creates it.
+     *
+     * @param config in-memory config
+     * @return queue
+     */
+    public BoundedMpmcQueue<byte[]> getQueue(@NotNull InMemoryConfig config) {
+        Assert.notNull(config, "'config' must not be null");
+        Assert.hasText(config.getQueueName(), "'queueName' must has text");
+        return queues.computeIfAbsent(config.getQueueName(),
+                k -> new BoundedMpmcQueue<>(config.getQueueCapacity()));
+    }
+
+    /**
+     * Remove the queue with the given name and drop its messages.
+     *
+     * @param queueName the name of queue
+     */
+    public void deleteQueue(String queueName) {
+        queues.remove(queueName);
+    }
+}
@@ -3,11 +3,14 @@ package com.shallowinggg.doran.client.common;
 import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.common.util.CollectionUtils;
 import com.shallowinggg.doran.transport.protocol.DoranSerializable;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Serializable;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
@@ -27,6 +30,12 @@ import java.util.function.Supplier;
  * <p>
  * Besides, this object can be serialized by invoking its method
  * {@link #encode()} and deserialize by {@link #decode(byte[])}.
+ * If you want to avoid intermediate copies, you can use
+ * {@link #encode(ByteBuf)} or {@link #encode(ByteBufAllocator)}
+ * to write message into a caller-supplied or pooled buffer
+ * directly, and {@link #decode(ByteBuf)} to read message whose
+ * body is a view of the given buffer and properties are decoded
+ * lazily.
  * Its transport structure is like this:
  * =================================================
  * \ properties len \ body len \ properties \ body \
@@ -49,6 +58,10 @@ public class Message implements Serializable {
     private static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
     private static final Map<String, String> EMPTY_PROPERTIES = Collections.emptyMap();
     private static final Supplier<Message> EMPTY_MESSAGE = () -> new Message(EMPTY_PROPERTIES, EMPTY_BYTE_ARRAY);
+    /**
+     * properties len + body len
+     */
+    private static final int HEADER_LENGTH = 8;
 
     private final Map<String, String> properties;
 
@@ -141,7 +154,7 @@ public class Message implements Serializable {
     @Nullable
     public String getProperty(@NotNull String key) {
         Assert.hasText(key);
-        final Map<String, String> properties = this.properties;
+        final Map<String, String> properties = getProperties();
         if (CollectionUtils.isNotEmpty(properties)) {
             return properties.get(key);
         }
@@ -156,49 +169,127 @@ public class Message implements Serializable {
         return this.properties;
     }
 
+    /**
+     * Return a read-only view of body, it won't copy body content.
+     *
+     * @return body view, or empty buffer if message has no body
+     */
+    public ByteBuf getBodyBuffer() {
+        final byte[] body = getBody();
+        if (body == null) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        return Unpooled.wrappedBuffer(body).asReadOnly();
+    }
+
+    /**
+     * Return the length of encoded message.
+     *
+     * @return encoded length
+     */
+    public int encodedLength() {
+        return HEADER_LENGTH + propertiesLength() + bodyLength();
+    }
+
     public byte[] encode() {
-        // properties and body length
-        int length = 8;
-        byte[] props;
-        byte[] body = this.body;
-        if (CollectionUtils.isNotEmpty(properties)) {
-            props = DoranSerializable.mapSerialize(properties);
-        } else {
-            props = EMPTY_BYTE_ARRAY;
+        final int propsLen = propertiesLength();
+        byte[] content = new byte[HEADER_LENGTH + propsLen + bodyLength()];
+        ByteBuf buf = Unpooled.wrappedBuffer(content);
+        buf.writerIndex(0);
+        encode(buf, propsLen);
+        return content;
+    }
+
+    /**
+     * Encode message into a buffer allocated by the given allocator.
+     * The caller is responsible for releasing the returned buffer.
+     *
+     * @param allocator the allocator, e.g. {@link io.netty.buffer.PooledByteBufAllocator}
+     * @return encoded message
+     */
+    public ByteBuf encode(@NotNull ByteBufAllocator allocator) {
+        Assert.notNull(allocator, "'allocator' must not be null");
+        final int propsLen = propertiesLength();
+        final int length = HEADER_LENGTH + propsLen + bodyLength();
+        ByteBuf buf = allocator.buffer(length, length);
+        try {
+            encode(buf, propsLen);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
         }
-        length += props.length;
-        length += body.length;
+        return buf;
+    }
 
-        ByteBuffer buffer = ByteBuffer.allocate(length);
-        buffer.putInt(props.length);
-        buffer.putInt(body.length);
-        buffer.put(props);
-        buffer.put(body);
+    /**
+     * Encode message into the given buffer directly.
+     *
+     * @param out the buffer to write
+     */
+    public void encode(@NotNull ByteBuf out) {
+        Assert.notNull(out, "'out' must not be null");
+        final int propsLen = propertiesLength();
+        out.ensureWritable(HEADER_LENGTH + propsLen + bodyLength());
+        encode(out, propsLen);
+    }
+
+    private void encode(ByteBuf out, int propsLen) {
+        out.writeInt(propsLen);
+        out.writeInt(bodyLength());
+        writeProperties(out);
+        writeBody(out);
+    }
 
-        return buffer.array();
+    int propertiesLength() {
+        return DoranSerializable.mapSerializedLength(properties);
+    }
+
+    void writeProperties(ByteBuf out) {
+        DoranSerializable.mapSerialize(properties, out);
+    }
+
+    int bodyLength() {
+        return body == null ? 0 : body.length;
+    }
+
+    void writeBody(ByteBuf out) {
+        if (body != null) {
+            out.writeBytes(body);
+        }
     }
 
     public static Message decode(@NotNull byte[] message) {
         Assert.notNull(message, "'message' must not be null");
-        ByteBuffer buffer = ByteBuffer.wrap(message);
-        int propsLen = buffer.getInt();
-        int bodyLen = buffer.getInt();
-        Map<String, String> props = null;
+        return decode(Unpooled.wrappedBuffer(message));
+    }
+
+    /**
+     * Decode message from the readable bytes of the given buffer,
+     * and advance its reader index. The returned message shares
+     * content with the buffer: body is a view of buffer and
+     * properties are decoded on first access, so the buffer must
+     * not be released or modified while the message is in use.
+     *
+     * @param buf the buffer to read
+     * @return message
+     */
+    public static Message decode(@NotNull ByteBuf buf) {
+        Assert.notNull(buf, "'buf' must not be null");
+        int propsLen = buf.readInt();
+        int bodyLen = buf.readInt();
+        ByteBuf props = null;
         if (propsLen != 0) {
-            byte[] propsData = new byte[propsLen];
-            buffer.get(propsData);
-            props = DoranSerializable.mapDeserialize(propsData);
+            props = buf.readSlice(propsLen);
         }
-        byte[] body = null;
+        ByteBuf body = null;
         if (bodyLen != 0) {
-            body = new byte[bodyLen];
-            buffer.get(body);
+            body = buf.readSlice(bodyLen);
         }
 
         if (props == null && body == null) {
             return createEmptyMessage();
         }
-        return new Message(props, body);
+        return new DecodedMessage(props, body);
     }
 
     private static void checkMap(Map<String, String> properties) {
@@ -213,8 +304,94 @@ public class Message implements Serializable {
     @Override
     public String toString() {
         return "Message{" +
-                "properties=" + properties +
-                ", body=" + new String(body) +
+                "properties=" + getProperties() +
+                ", body=" + new String(getBody()) +
                 '}';
     }
+
+    /**
+     * Message decoded from buffer, it keeps the encoded properties
+     * and body, and decodes them on demand. Single property lookup
+     * uses {@link EncodedProperties} so that other properties are
+     * never decoded.
+     * <p>
+     * The decoded body is published through a volatile field, so the
+     * message can be read by multiple threads, it may be decoded more
+     * than once in a race but the copies are equal.
+     */
+    private static final class DecodedMessage extends Message {
+        private final EncodedProperties encodedProperties;
+        private final ByteBuf encodedBody;
+        private volatile byte[] decodedBody;
+
+        DecodedMessage(@Nullable ByteBuf encodedProperties, @Nullable ByteBuf encodedBody) {
+            super(null, null);
+            this.encodedProperties = encodedProperties == null ? null : new EncodedProperties(encodedProperties);
+            this.encodedBody = encodedBody;
+        }
+
+        @Nullable
+        @Override
+        public String getProperty(@NotNull String key) {
+            Assert.hasText(key);
+            if (encodedProperties == null) {
+                return null;
+            }
+            return encodedProperties.get(key);
+        }
+
+        @Override
+        public Map<String, String> getProperties() {
+            if (encodedProperties == null) {
+                return null;
+            }
+            return encodedProperties.toMap();
+        }
+
+        @Override
+        public byte[] getBody() {
+            byte[] decodedBody = this.decodedBody;
+            if (decodedBody == null && encodedBody != null) {
+                decodedBody = ByteBufUtil.getBytes(encodedBody);
+                this.decodedBody = decodedBody;
+            }
+            return decodedBody;
+        }
+
+        @Override
+        public ByteBuf getBodyBuffer() {
+            if (encodedBody == null) {
+                return Unpooled.EMPTY_BUFFER;
+            }
+            return encodedBody.asReadOnly();
+        }
+
+        @Override
+        int propertiesLength() {
+            return encodedProperties == null ? 0 : encodedProperties.encodedLength();
+        }
+
+        @Override
+        void writeProperties(ByteBuf out) {
+            if (encodedProperties != null) {
+                encodedProperties.writeTo(out);
+            }
+        }
+
+        @Override
+        int bodyLength() {
+            return encodedBody == null ? 0 : encodedBody.readableBytes();
+        }
+
+        @Override
+        void writeBody(ByteBuf out) {
+            if (encodedBody != null) {
+                out.writeBytes(encodedBody, encodedBody.readerIndex(), encodedBody.readableBytes());
+            }
+        }
+
+        private Object writeReplace() {
+            return new Message(getProperties(), getBody());
+        }
+    }
 }
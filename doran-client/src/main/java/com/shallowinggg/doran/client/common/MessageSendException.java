@@ -0,0 +1,17 @@
+package com.shallowinggg.doran.client.common;
+
+/**
+ * Thrown when a message can't be sent, e.g. it is not confirmed
+ * by broker for too long, or its producer has closed.
+ *
+ * @author shallowinggg
+ */
+public class MessageSendException extends RuntimeException {
+    public MessageSendException(String message) {
+        super(message);
+    }
+
+    public MessageSendException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -28,6 +28,8 @@ public class NameGeneratorFactory {
                 return new RabbitMQProducerNameGenerator(name);
             case ActiveMQ:
                 return new ActiveMQProducerNameGenerator(name);
+            case InMemory:
+                return new InMemoryProducerNameGenerator(name);
             default:
                 throw new IllegalArgumentException("Invalid MQ config " + config);
         }
@@ -41,6 +43,8 @@ public class NameGeneratorFactory {
                 return new RabbitMQConsumerNameGenerator(name);
             case ActiveMQ:
                 return new ActiveMQConsuemrNameGenerator(name);
+            case InMemory:
+                return new InMemoryConsumerNameGenerator(name);
             default:
                 throw new IllegalArgumentException("Invalid MQ config " + config);
         }
@@ -105,4 +109,34 @@ public class NameGeneratorFactory {
             return prefix + Math.abs(idx.incrementAndGet());
         }
     }
+
+    @Immutable
+    private static class InMemoryProducerNameGenerator implements NameGenerator {
+        private final String prefix;
+        private final AtomicInteger idx = new AtomicInteger();
+
+        InMemoryProducerNameGenerator(String configName) {
+            this.prefix = "inmemory-producer-" + configName + "-";
+        }
+
+        @Override
+        public String generateName() {
+            return prefix + Math.abs(idx.incrementAndGet());
+        }
+    }
+
+    @Immutable
+    private static class InMemoryConsumerNameGenerator implements NameGenerator {
+        private final String prefix;
+        private final AtomicInteger idx = new AtomicInteger();
+
+        InMemoryConsumerNameGenerator(String configName) {
+            this.prefix = "inmemory-consumer-" + configName + "-";
+        }
+
+        @Override
+        public String generateName() {
+            return prefix + Math.abs(idx.incrementAndGet());
+        }
+    }
 }
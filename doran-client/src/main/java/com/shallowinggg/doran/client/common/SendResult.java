@@ -0,0 +1,59 @@
+package com.shallowinggg.doran.client.common;
+
+import com.shallowinggg.doran.common.util.Assert;
+
+/**
+ * Result of an asynchronous send, it is produced when the
+ * message is confirmed by broker.
+ *
+ * @author shallowinggg
+ */
+public class SendResult {
+    private final Message message;
+    private final long sendTime;
+    private final long confirmTime;
+
+    public SendResult(Message message, long sendTime, long confirmTime) {
+        Assert.notNull(message, "'message' must not be null");
+        this.message = message;
+        this.sendTime = sendTime;
+        this.confirmTime = confirmTime;
+    }
+
+    /**
+     * Return the message that has been sent.
+     *
+     * @return message
+     */
+    public Message getMessage() {
+        return message;
+    }
+
+    /**
+     * Return the time in millis when the message is sent at the
+     * first time, resending won't change it.
+     *
+     * @return first send time
+     */
+    public long getSendTime() {
+        return sendTime;
+    }
+
+    /**
+     * Return the time in millis when the message is confirmed.
+     *
+     * @return confirm time
+     */
+    public long getConfirmTime() {
+        return confirmTime;
+    }
+
+    @Override
+    public String toString() {
+        return "SendResult{" +
+                "message=" + message +
+                ", sendTime=" + sendTime +
+                ", confirmTime=" + confirmTime +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package com.shallowinggg.doran.client.consumer;
 
 import com.shallowinggg.doran.client.common.ConnectionFactoryCache;
+import com.shallowinggg.doran.client.common.ConnectionPool;
 import com.shallowinggg.doran.client.common.Message;
 import com.shallowinggg.doran.client.common.RetryCountExhaustedException;
 import com.shallowinggg.doran.common.ActiveMQConfig;
@@ -28,6 +29,7 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
     private static final Logger LOGGER = LoggerFactory.getLogger(ActiveMQConsumer.class);
     private final String name;
     private final Session session;
+    private final ConnectionPool.Lease<Connection> connectionLease;
     private MessageConsumer consumer;
     private final Charset UTF_8 = StandardCharsets.UTF_8;
 
@@ -39,13 +41,10 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
         Assert.notNull(config, "'config' must not be null");
         this.name = name;
 
-        Connection connection;
         String clientId = config.getClientId();
-        if (clientId != null) {
-            connection = ConnectionFactoryCache.getInstance().getActiveMQConnection(config, clientId);
-        } else {
-            connection = ConnectionFactoryCache.getInstance().getActiveMQConnection(config, null);
-        }
+        final ConnectionPool.Lease<Connection> connectionLease =
+                ConnectionFactoryCache.getInstance().acquireActiveMQConnection(config, clientId);
+        final Connection connection = connectionLease.connection();
 
         Retryer<Session> retryer = RetryerBuilder.<Session>newBuilder()
                 .retryIfException()
@@ -79,25 +78,24 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
 
                     if (CollectionUtils.isNotEmpty(getMessageListeners())) {
                         consumer.setMessageListener(msg -> executor().execute(() -> {
-                            if (msg instanceof TextMessage) {
-                                TextMessage textMessage = (TextMessage) msg;
-                                try {
-                                    String text = textMessage.getText();
-                                    Message message = Message.decode(text.getBytes(UTF_8));
-                                    for (MessageListener listener : getMessageListeners()) {
-                                        if(listener.accept(message)) {
-                                            listener.onMessage(message);
-                                        }
-                                    }
-                                    if (LOGGER.isDebugEnabled()) {
-                                        LOGGER.debug("ActiveMQ consumer '{}' consume message {} success",
-                                                name, message);
-                                    }
-                                } catch (JMSException e) {
-                                    if (LOGGER.isErrorEnabled()) {
-                                        LOGGER.error("Get message text fail, content: {}", textMessage, e);
+                            try {
+                                Message message = decodeMessage(msg);
+                                if (message == null) {
+                                    return;
+                                }
+                                for (MessageListener listener : getMessageListeners()) {
+                                    if(listener.accept(message)) {
+                                        listener.onMessage(message);
                                     }
                                 }
+                                if (LOGGER.isDebugEnabled()) {
+                                    LOGGER.debug("ActiveMQ consumer '{}' consume message {} success",
+                                            name, message);
+                                }
+                            } catch (JMSException e) {
+                                if (LOGGER.isErrorEnabled()) {
+                                    LOGGER.error("Get message content fail, content: {}", msg, e);
+                                }
                             }
                         }));
                     }
@@ -117,6 +115,7 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error("Create activemq consumer '{}' fail", name, cause);
             }
+            connectionLease.release();
             throw cause;
         } catch (RetryException e) {
             Attempt<?> attempt = e.getLastFailedAttempt();
@@ -124,9 +123,11 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
                 LOGGER.error("Create activemq session for consumer '{}' fail, retry count {} has exhausted",
                         name, attempt.getAttemptNumber(), attempt.getExceptionCause());
             }
+            connectionLease.release();
             throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
         }
         this.session = session;
+        this.connectionLease = connectionLease;
     }
 
     @Override
@@ -165,17 +166,38 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
     }
 
     private Message convertMessage(javax.jms.Message msg) {
-        if (msg instanceof TextMessage) {
-            TextMessage textMessage = (TextMessage) msg;
-            try {
-                String text = textMessage.getText();
-                return Message.decode(text.getBytes(UTF_8));
-            } catch (JMSException e) {
-                if (LOGGER.isErrorEnabled()) {
-                    LOGGER.error("Get message text fail, content: {}", textMessage, e);
-                }
-                throw new RuntimeException(e);
+        try {
+            return decodeMessage(msg);
+        } catch (JMSException e) {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error("Get message content fail, content: {}", msg, e);
             }
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decode message sent by {@link com.shallowinggg.doran.client.producer.ActiveMQProducer}.
+     * Producer sends {@link BytesMessage} now, {@link TextMessage}
+     * is still accepted for messages sent by old producers.
+     *
+     * @param msg the jms message
+     * @return decoded message, or {@code null} if message type is not supported
+     * @throws JMSException if fail to read message content
+     */
+    @Nullable
+    private Message decodeMessage(javax.jms.Message msg) throws JMSException {
+        if (msg instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) msg;
+            byte[] content = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(content);
+            return Message.decode(content);
+        } else if (msg instanceof TextMessage) {
+            String text = ((TextMessage) msg).getText();
+            return Message.decode(text.getBytes(UTF_8));
+        }
+        if (msg != null && LOGGER.isWarnEnabled()) {
+            LOGGER.warn("ActiveMQ consumer '{}' receive unsupported message {}", name, msg);
         }
         return null;
     }
@@ -190,6 +212,8 @@ public class ActiveMQConsumer extends AbstractBuiltInConsumer {
                 LOGGER.error("Close activemq consumer '{}' and related session fail", name);
             }
             return;
+        } finally {
+            connectionLease.release();
         }
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Close activemq consumer '{}' success", name);
@@ -0,0 +1,135 @@
+package com.shallowinggg.doran.client.consumer;
+
+import com.shallowinggg.doran.client.common.InMemoryBroker;
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.common.InMemoryConfig;
+import com.shallowinggg.doran.common.ThreadFactoryImpl;
+import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.common.util.CollectionUtils;
+import com.shallowinggg.doran.common.util.concurrent.BoundedMpmcQueue;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consumer for {@link InMemoryBroker}.
+ * <p>
+ * If listeners are configured, a dispatcher thread polls the queue
+ * and hands messages to {@link #executor()}, like the delivery
+ * thread of real brokers. Otherwise messages can be pulled by
+ * {@link #receive()} and {@link #receive(long, TimeUnit)}.
+ *
+ * @author shallowinggg
+ */
+public class InMemoryConsumer extends AbstractBuiltInConsumer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryConsumer.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final String name;
+    private final BoundedMpmcQueue<byte[]> queue;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    public InMemoryConsumer(String name, InMemoryConfig config,
+                            @Nullable ThreadPoolExecutor executor,
+                            @Nullable List<MessageListener> listeners) {
+        super(executor, listeners);
+        Assert.hasText(name, "'name' must has text");
+        Assert.notNull(config, "'config' must not be null");
+        this.name = name;
+        this.queue = InMemoryBroker.getInstance().getQueue(config);
+
+        if (CollectionUtils.isNotEmpty(getMessageListeners())) {
+            Assert.notNull(executor, "'executor' must not be null when listeners are configured");
+            this.dispatcher = new ThreadFactoryImpl(name + "-dispatcher-", true).newThread(this::dispatch);
+            this.dispatcher.start();
+        } else {
+            this.dispatcher = null;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("InMemory consumer '{}' build success, queue: {}", name, config.getQueueName());
+        }
+    }
+
+    private void dispatch() {
+        while (!closed) {
+            final byte[] content = queue.poll();
+            if (content == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            Runnable task = () -> {
+                Message message = Message.decode(content);
+                for (MessageListener listener : getMessageListeners()) {
+                    if (listener.accept(message)) {
+                        listener.onMessage(message);
+                    }
+                }
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("InMemory consumer '{}' consume message {} success", name, message);
+                }
+            };
+            for (; ; ) {
+                try {
+                    executor().execute(task);
+                    break;
+                } catch (RejectedExecutionException e) {
+                    if (closed || executor().isShutdown()) {
+                        if (LOGGER.isWarnEnabled()) {
+                            LOGGER.warn("InMemory consumer '{}' has closed, drop message", name);
+                        }
+                        return;
+                    }
+                    // executor queue is full, wait for it
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Message receive() {
+        if (dispatcher != null) {
+            throw new IllegalStateException("InMemory consumer '" + name + "' is configured as async mode");
+        }
+        byte[] content = queue.poll();
+        return content == null ? null : Message.decode(content);
+    }
+
+    @Override
+    public Message receive(long timeout, TimeUnit unit) throws InterruptedException {
+        if (dispatcher != null) {
+            throw new IllegalStateException("InMemory consumer '" + name + "' is configured as async mode");
+        }
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (; ; ) {
+            byte[] content = queue.poll();
+            if (content != null) {
+                return Message.decode(content);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            LockSupport.parkNanos(Math.min(remaining, IDLE_PARK_NANOS));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Close inmemory consumer '{}' success", name);
+        }
+    }
+}
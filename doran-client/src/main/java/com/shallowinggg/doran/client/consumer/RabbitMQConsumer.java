@@ -2,6 +2,7 @@ package com.shallowinggg.doran.client.consumer;
 
 import com.rabbitmq.client.*;
 import com.shallowinggg.doran.client.common.ConnectionFactoryCache;
+import com.shallowinggg.doran.client.common.ConnectionPool;
 import com.shallowinggg.doran.client.common.Message;
 import com.shallowinggg.doran.client.common.RetryCountExhaustedException;
 import com.shallowinggg.doran.common.RabbitMQConfig;
@@ -26,6 +27,7 @@ public class RabbitMQConsumer extends AbstractBuiltInConsumer {
     private static final Logger LOGGER = LoggerFactory.getLogger(RabbitMQConsumer.class);
     private final String name;
     private final Channel channel;
+    private final ConnectionPool.Lease<Connection> connectionLease;
     private DefaultConsumer consumer;
     private final String queueName;
     private final Retryer<Message> messageRetryer = RetryerBuilder.<Message>newBuilder()
@@ -42,7 +44,9 @@ public class RabbitMQConsumer extends AbstractBuiltInConsumer {
         this.queueName = config.getQueueName();
         this.name = name;
 
-        Connection connection = ConnectionFactoryCache.getInstance().getRabbitMQConnection(config);
+        final ConnectionPool.Lease<Connection> connectionLease =
+                ConnectionFactoryCache.getInstance().acquireRabbitMQConnection(config);
+        final Connection connection = connectionLease.connection();
         Retryer<Channel> retryer = RetryerBuilder.<Channel>newBuilder()
                 .retryIfException()
                 .withStopStrategy(StopStrategies.stopAfterAttempt(3))
@@ -117,10 +121,12 @@ public class RabbitMQConsumer extends AbstractBuiltInConsumer {
                 LOGGER.error("Create rabbitmq channel for consumer '{}' fail, retry count {} has exhausted",
                         name, attempt.getAttemptNumber(), attempt.getExceptionCause());
             }
+            connectionLease.release();
             throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
         }
 
         this.channel = channel;
+        this.connectionLease = connectionLease;
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("RabbitMQ consumer '{}' build success, queue: {}", name, queueName);
         }
@@ -169,6 +175,8 @@ public class RabbitMQConsumer extends AbstractBuiltInConsumer {
                         channel, name);
             }
             return;
+        } finally {
+            connectionLease.release();
         }
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Close consumer '{}' success", name);
@@ -1,14 +1,179 @@
 package com.shallowinggg.doran.client.producer;
 
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.SendResult;
 import com.shallowinggg.doran.common.util.Assert;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Base class of {@link BuiltInProducer}s which dispatches
+ * messages to {@link #executor()}.
+ * <p>
+ * If caller is in the executor, message is sent directly,
+ * otherwise it is handed over by a pooled {@link SendTask},
+ * so every send is at most one {@link EventExecutor#execute(Runnable)}
+ * without allocation.
+ *
  * @author shallowinggg
  */
 public abstract class AbstractBuiltInProducer implements BuiltInProducer {
-    private EventExecutor executor;
+    private volatile EventExecutor executor;
+    private volatile ScheduledFuture<?> resendFuture;
+    private volatile InFlightWindow inFlightWindow;
+    private volatile LatencyRecorder latencyRecorder;
+
+    @Override
+    public void sendMessage(Message message) {
+        dispatch(message, 0, null, null);
+    }
+
+    @Override
+    public void sendMessage(Message message, long delay, TimeUnit unit) {
+        Assert.notNull(unit, "'unit' must not be null");
+        dispatch(message, delay, unit, null);
+    }
+
+    @Override
+    public void sendMessage(Message message, @NotNull CompletableFuture<SendResult> promise) {
+        Assert.notNull(promise, "'promise' must not be null");
+        dispatch(message, 0, null, promise);
+    }
+
+    @Override
+    public void sendMessage(Message message, long delay, TimeUnit unit,
+                            @NotNull CompletableFuture<SendResult> promise) {
+        Assert.notNull(unit, "'unit' must not be null");
+        Assert.notNull(promise, "'promise' must not be null");
+        dispatch(message, delay, unit, promise);
+    }
+
+    private void dispatch(Message message, long delay, @Nullable TimeUnit unit,
+                          @Nullable CompletableFuture<SendResult> promise) {
+        final EventExecutor executor = this.executor;
+        if (executor == null) {
+            throw new IllegalStateException("Producer has not initialized success, executor is null");
+        }
+
+        if (executor.inEventLoop()) {
+            sendInExecutor(message, delay, unit, promise);
+        } else {
+            SendTask.execute(executor, SendTask.newInstance(this, message, delay, unit, promise));
+        }
+    }
+
+    final void sendInExecutor(Message message, long delay, @Nullable TimeUnit unit,
+                              @Nullable CompletableFuture<SendResult> promise) {
+        if (unit == null) {
+            sendMessageInner(message, promise);
+        } else {
+            sendMessageInner(message, delay, unit, promise);
+        }
+    }
+
+    /**
+     * Send normal message, it is always invoked in {@link #executor()}.
+     *
+     * @param message the message to send
+     * @param promise the promise to notify when message is confirmed, may be null
+     */
+    protected abstract void sendMessageInner(Message message, @Nullable CompletableFuture<SendResult> promise);
+
+    /**
+     * Send delay message, it is always invoked in {@link #executor()}.
+     *
+     * @param message the message to send
+     * @param delay   the delay of message
+     * @param unit    the time unit of delay
+     * @param promise the promise to notify when message is confirmed, may be null
+     */
+    protected abstract void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                             @Nullable CompletableFuture<SendResult> promise);
+
+    /**
+     * Resend unconfirmed messages and drop the expired ones, it is
+     * invoked in {@link #executor()} every {@link #WAIT_ACK_MILLIS}.
+     */
+    protected abstract void resendNackMessages();
+
+    /**
+     * Schedule {@link #resendNackMessages()} in {@link #executor()}.
+     * The task scheduled before is cancelled, so a producer never
+     * runs resend tasks in two executors.
+     */
+    @Override
+    public void startResendTask() {
+        final EventExecutor executor = this.executor;
+        if (executor == null) {
+            throw new IllegalStateException("Producer has not initialized success, executor is null");
+        }
+        stopResendTask();
+        this.resendFuture = executor.scheduleAtFixedRate(this::resendNackMessages,
+                WAIT_ACK_MILLIS, WAIT_ACK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancel the resend task, it should be invoked when producer
+     * is closed.
+     */
+    protected final void stopResendTask() {
+        final ScheduledFuture<?> future = this.resendFuture;
+        if (future != null) {
+            future.cancel(false);
+            this.resendFuture = null;
+        }
+    }
+
+    /**
+     * Record confirm latency and complete the given promise if present.
+     */
+    final void notifySuccess(@Nullable CompletableFuture<SendResult> promise, Message message,
+                             long sendTime, long confirmTime) {
+        final LatencyRecorder recorder = this.latencyRecorder;
+        if (recorder != null) {
+            recorder.record(confirmTime - sendTime);
+        }
+        if (promise != null) {
+            promise.complete(new SendResult(message, sendTime, confirmTime));
+        }
+    }
+
+    /**
+     * Complete the given promise exceptionally if present.
+     */
+    static void notifyFailure(@Nullable CompletableFuture<SendResult> promise, Throwable cause) {
+        if (promise != null) {
+            promise.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Release permits of in-flight window when messages leave this
+     * producer, i.e. they are confirmed, failed or dropped.
+     *
+     * @param permits the number of messages
+     */
+    protected final void releaseInFlight(int permits) {
+        final InFlightWindow window = this.inFlightWindow;
+        if (window != null) {
+            window.release(permits);
+        }
+    }
+
+    @Override
+    public void setInFlightWindow(@Nullable InFlightWindow window) {
+        this.inFlightWindow = window;
+    }
+
+    @Override
+    public void setLatencyRecorder(@Nullable LatencyRecorder recorder) {
+        this.latencyRecorder = recorder;
+    }
 
     @Override
     public void register(@NotNull EventExecutor executor) {
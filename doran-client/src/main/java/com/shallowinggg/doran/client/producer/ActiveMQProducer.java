@@ -1,47 +1,72 @@
 package com.shallowinggg.doran.client.producer;
 
 import com.shallowinggg.doran.client.common.ConnectionFactoryCache;
+import com.shallowinggg.doran.client.common.ConnectionPool;
 import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
 import com.shallowinggg.doran.client.common.RetryCountExhaustedException;
+import com.shallowinggg.doran.client.common.SendResult;
 import com.shallowinggg.doran.common.ActiveMQConfig;
 import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.common.util.LongRingBuffer;
 import com.shallowinggg.doran.common.util.retry.*;
+import io.netty.util.concurrent.EventExecutor;
 import org.apache.activemq.ScheduledMessage;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jms.*;
 import java.lang.IllegalStateException;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Default implementation for activemq producer.
+ * <p>
+ * Persistent messages are sent synchronously, so promises of
+ * asynchronous sends are completed as soon as
+ * {@link MessageProducer#send(javax.jms.Message)} returns.
+ *
  * @author shallowinggg
  */
 public class ActiveMQProducer extends AbstractBuiltInProducer {
     private static final Logger LOGGER = LoggerFactory.getLogger(ActiveMQProducer.class);
     private final String name;
     private final Session session;
+    private final ConnectionPool.Lease<Connection> connectionLease;
     private MessageProducer producer;
     private long seq = 0;
+    private volatile boolean closed;
     private final ResendCache resendCache = new ResendCache();
-    private final Retryer<Void> messageRetryer = RetryerBuilder.<Void>newBuilder()
+
+    /**
+     * Retry tool for network problems when send message.
+     * Attempts are scheduled on {@link #executor()} instead
+     * of blocking it, so messages behind a failed one are
+     * not stalled by its backoff.
+     */
+    private final AsyncRetryer<Void> messageRetryer = RetryerBuilder.<Void>newBuilder()
             .retryIfException()
             .withStopStrategy(StopStrategies.stopAfterAttempt(3))
-            .build();
-    private final Charset UTF_8 = StandardCharsets.UTF_8;
+            .withWaitStrategy(WaitStrategies.incrementingWait(10, TimeUnit.MILLISECONDS, 10, TimeUnit.MILLISECONDS))
+            .buildAsync();
+
+    /**
+     * Attempt and callback of {@link #messageRetryer}, kept here so
+     * that sending a message allocates nothing if it succeeds at once.
+     */
+    private final AsyncRetryer.AttemptFunction<ResendMessage, Void> sendAttempt = this::doSend;
+    private final AsyncRetryer.Callback<ResendMessage, Void> sendCallback = this::onSendComplete;
 
     public ActiveMQProducer(String name, ActiveMQConfig config) {
         Assert.hasText(name, "'name' must has text");
         Assert.notNull(config, "'config' must not be null");
-        Connection connection = ConnectionFactoryCache.getInstance().getActiveMQConnection(config, null);
+        final ConnectionPool.Lease<Connection> connectionLease =
+                ConnectionFactoryCache.getInstance().acquireActiveMQConnection(config, null);
+        final Connection connection = connectionLease.connection();
 
         Retryer<Session> retryer = RetryerBuilder.<Session>newBuilder()
                 .retryIfException()
@@ -82,6 +107,7 @@ public class ActiveMQProducer extends AbstractBuiltInProducer {
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error("Create activemq producer '{}' fail", name, cause);
             }
+            connectionLease.release();
             throw cause;
         } catch (RetryException e) {
             Attempt<?> attempt = e.getLastFailedAttempt();
@@ -89,11 +115,13 @@ public class ActiveMQProducer extends AbstractBuiltInProducer {
                 LOGGER.error("Create activemq producer '{}' fail, retry count {} has exhausted",
                         name, attempt.getAttemptNumber(), attempt.getExceptionCause());
             }
+            connectionLease.release();
             throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
         }
 
         this.name = name;
         this.session = session;
+        this.connectionLease = connectionLease;
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("ActiveMQ producer '{}' build success, {} name: {}",
                     name, config.getDestinationType(), config.getDestinationName());
@@ -101,135 +129,108 @@ public class ActiveMQProducer extends AbstractBuiltInProducer {
     }
 
     @Override
-    public void sendMessage(Message message) {
-        if (executor() == null) {
-            throw new IllegalStateException("Producer '" + name + "' has not initialized success, executor is null");
-        }
-
-        if (executor().inEventLoop()) {
-            sendMessageInner(message);
-        } else {
-            executor().submit(() -> sendMessageInner(message));
+    protected void sendMessageInner(Message message, @Nullable CompletableFuture<SendResult> promise) {
+        final long sendTime = System.currentTimeMillis();
+        BytesMessage msg;
+        try {
+            msg = createBytesMessage(message);
+        } catch (JMSException e) {
+            // BytesMessage won't be read-only, but session may be closed
+            handleCreateException(e, message, promise);
+            return;
         }
+        send(ResendMessage.create(message, msg, sendTime, promise));
     }
 
-    private void sendMessageInner(Message message) {
-        TextMessage msg = null;
+    @Override
+    protected void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                    @Nullable CompletableFuture<SendResult> promise) {
+        final long sendTime = System.currentTimeMillis();
+        final long time = unit.toMillis(delay);
+        BytesMessage msg;
         try {
-            String text = new String(message.encode(), UTF_8);
-            msg = session.createTextMessage(text);
-
-            TextMessage innerMsg = msg;
-            messageRetryer.call(() -> {
-                producer.send(innerMsg);
-                return null;
-            });
-            if(LOGGER.isDebugEnabled()) {
-                LOGGER.debug("'{}' send message {} success", name, msg);
-            }
+            msg = createBytesMessage(message);
+            msg.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, time);
         } catch (JMSException e) {
-            // won't goto this branch
-            // TextMessage won't be read-only
-            assert false;
-        } catch (ExecutionException e) {
-            // handle RuntimeException for producer#send(TextMessage)
-            throw (RuntimeException) e.getCause();
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
-            if (LOGGER.isWarnEnabled()) {
-                LOGGER.warn("'{}' send message fail, content: {}, retry count {} has exhausted, retry in the future",
-                        name, getText(msg), attempt.getAttemptNumber(), attempt.getExceptionCause());
-            }
-
-            // only resend when occur network problems, for producer is persistent
-            long deliveryTag = seq++;
-            resendCache.put(deliveryTag, msg);
+            // BytesMessage won't be read-only, but session may be closed
+            handleCreateException(e, message, promise);
+            return;
         }
+        send(ResendMessage.create(message, msg, time, sendTime, promise));
     }
 
-    @Override
-    public void sendMessage(Message message, long delay, TimeUnit unit) {
-        if (executor() == null) {
-            throw new IllegalStateException("Producer '" + name + "' has not initialized success, executor is null");
+    private void handleCreateException(JMSException e, Message message,
+                                       @Nullable CompletableFuture<SendResult> promise) {
+        if (LOGGER.isErrorEnabled()) {
+            LOGGER.error("'{}' create message fail, content: {}", name, message, e);
         }
+        notifyFailure(promise, e);
+        releaseInFlight(1);
+    }
 
-        if (executor().inEventLoop()) {
-            sendMessageInner(message, delay, unit);
-        } else {
-            executor().submit(() -> sendMessageInner(message, delay, unit));
-        }
+    /**
+     * Send the given message, failed attempts are retried on
+     * {@link #executor()} so that other messages won't wait
+     * for them. If all attempts fail, put it into resend cache.
+     */
+    private void send(ResendMessage message) {
+        messageRetryer.call(sendAttempt, message, executor(), sendCallback);
     }
 
-    private void sendMessageInner(Message message, long delay, TimeUnit unit) {
-        final long time = unit.toMillis(delay);
-        TextMessage msg = null;
-        try {
-            String text = new String(message.encode(), UTF_8);
-            msg = session.createTextMessage(text);
-            msg.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, time);
+    private Void doSend(ResendMessage message) throws JMSException {
+        producer.send(message.content);
+        return null;
+    }
 
-            TextMessage innerMsg = msg;
-            messageRetryer.call(() -> {
-                producer.send(innerMsg);
-                return null;
-            });
-            if(LOGGER.isDebugEnabled()) {
-                LOGGER.debug("'{}' send delay message {} success, delay: {} ms",
-                        name, msg, time);
+    private void onSendComplete(ResendMessage message, Void result, Throwable cause) {
+        final BytesMessage msg = message.content;
+        if (cause == null) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("'{}' send message {} success, delay: {} ms", name, msg, message.delay);
             }
-        } catch (JMSException e) {
-            // won't goto this branch
-            // TextMessage won't be read-only
-            assert false;
-        } catch (ExecutionException e) {
-            // handle RuntimeException for producer#send(TextMessage)
-            throw (RuntimeException) e.getCause();
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
+            notifySuccess(message.promise, message.origin, message.sendTime, System.currentTimeMillis());
+            releaseInFlight(1);
+        } else if (cause instanceof RetryException) {
+            Attempt<?> attempt = ((RetryException) cause).getLastFailedAttempt();
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("'{}' send message fail, content: {}, retry count {} has exhausted, retry in the future",
-                        name, getText(msg), attempt.getAttemptNumber(), attempt.getExceptionCause());
+                        name, msg, attempt.getAttemptNumber(), attempt.getExceptionCause());
             }
-
             // only resend when occur network problems, for producer is persistent
-            long deliveryTag = seq++;
-            resendCache.put(deliveryTag, msg, time);
+            cacheUnsentMessage(message);
+        } else {
+            // handle RuntimeException for producer#send(BytesMessage)
+            handleSendException(cause, message.promise);
         }
     }
 
-    private boolean reSendMessageInner(TextMessage message) {
-        try {
-            messageRetryer.call(() -> {
-                producer.send(message);
-                return null;
-            });
-            if(LOGGER.isDebugEnabled()) {
-                LOGGER.debug("'{}' resend message {} success", name, message);
-            }
-            return true;
-        } catch (ExecutionException e) {
-            // handle RuntimeException for producer#send(TextMessage)
-            throw (RuntimeException) e.getCause();
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
-            if (LOGGER.isWarnEnabled()) {
-                LOGGER.warn("'{}' send message fail, content: {}, retry count {} has exhausted, retry in the future",
-                        name, getText(message), attempt.getAttemptNumber(), attempt.getExceptionCause());
-            }
+    /**
+     * RuntimeException for producer#send(BytesMessage) won't be
+     * resolved by resending, so drop the message and report it.
+     */
+    private void handleSendException(Throwable e, @Nullable CompletableFuture<SendResult> promise) {
+        final Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+        if (LOGGER.isErrorEnabled()) {
+            LOGGER.error("'{}' send message fail, drop it", name, cause);
         }
-        return false;
+        notifyFailure(promise, cause);
+        releaseInFlight(1);
     }
 
-    @Override
-    public void startResendTask() {
-        if (executor() == null) {
-            throw new IllegalStateException("Producer '" + name + "' has not initialized success, executor is null");
+    private void cacheUnsentMessage(ResendMessage message) {
+        if (closed) {
+            // resend task won't run any more
+            notifyFailure(message.promise, new MessageSendException("Producer '" + name + "' has closed"));
+            releaseInFlight(1);
+            return;
         }
-        executor().scheduleAtFixedRate(this::resendNackMessages, WAIT_ACK_MILLIS, WAIT_ACK_MILLIS, TimeUnit.MILLISECONDS);
+        resendCache.put(seq++, message);
     }
 
     @Override
     public void close() {
+        stopResendTask();
+        closed = true;
         try {
             producer.close();
             session.close();
@@ -238,108 +239,137 @@ public class ActiveMQProducer extends AbstractBuiltInProducer {
                 LOGGER.warn("Close activemq producer '{}' and related session fail", name, e);
             }
             return;
+        } finally {
+            connectionLease.release();
+            failUnsentMessagesLater();
         }
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Close activemq producer '{}' success", name);
         }
     }
 
-    private void resendNackMessages() {
-        long now = System.currentTimeMillis();
-        Iterator<Map.Entry<Long, ResendMessage>> itr = resendCache.entrySet().iterator();
-        while (itr.hasNext()) {
-            Map.Entry<Long, ResendMessage> entry = itr.next();
-            ResendMessage message = entry.getValue();
-            final TextMessage msg = message.content;
-
-            // valid, resend
-            if (message.sendTime + WAIT_ACK_MILLIS > now) {
-                if (message.delay == 0) {
-                    executor().submit(() -> {
-                        if (reSendMessageInner(msg)) {
-                            resendCache.delete(entry.getKey());
-                        }
-                    });
-                } else {
-                    final long newDelay = Math.max(0, message.sendTime + message.delay - now);
-                    executor().submit(() -> {
-                        try {
-                            msg.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, newDelay);
-                        } catch (JMSException e) {
-                            // won't goto this branch
-                            // TextMessage won't be read-only
-                            assert false;
-                        }
-                        if (reSendMessageInner(msg)) {
-                            resendCache.delete(entry.getKey());
-                        }
-                    });
+    /**
+     * Producer is usually closed after its executor begins to shut
+     * down, which still accepts tasks, so fail promises of unsent
+     * messages in it.
+     */
+    private void failUnsentMessagesLater() {
+        final EventExecutor executor = executor();
+        if (executor == null) {
+            return;
+        }
+        if (executor.inEventLoop()) {
+            failUnsentMessages();
+        } else {
+            try {
+                executor.execute(this::failUnsentMessages);
+            } catch (RejectedExecutionException e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("'{}' executor has shutdown, can't notify unsent messages", name);
                 }
-            } else if (message.sendTime + INVALID_MILLIS > now) {
+            }
+        }
+    }
+
+    private void failUnsentMessages() {
+        final MessageSendException cause = new MessageSendException("Producer '" + name + "' has closed");
+        resendCache.forEach((id, message) -> {
+            resendCache.delete(id);
+            notifyFailure(message.promise, cause);
+            releaseInFlight(1);
+        });
+    }
+
+    @Override
+    protected void resendNackMessages() {
+        final long now = System.currentTimeMillis();
+        resendCache.forEach((id, message) -> {
+            final BytesMessage msg = message.content;
+            if (message.sendTime + INVALID_MILLIS <= now) {
                 // invalid, remove
-                itr.remove();
+                resendCache.delete(id);
                 if (LOGGER.isErrorEnabled()) {
                     LOGGER.error("Message {} send fail, remove it from resend cache, invalid millis: {}",
-                            getText(msg), INVALID_MILLIS);
+                            msg, INVALID_MILLIS);
                 }
+                notifyFailure(message.promise, new MessageSendException("Message can't be sent in "
+                        + INVALID_MILLIS + " ms"));
+                releaseInFlight(1);
+                return;
             }
-        }
+
+            // valid, resend
+            if (message.delay != 0) {
+                final long newDelay = Math.max(0, message.sendTime + message.delay - now);
+                try {
+                    msg.setLongProperty(ScheduledMessage.AMQ_SCHEDULED_DELAY, newDelay);
+                } catch (JMSException e) {
+                    // won't goto this branch
+                    // BytesMessage won't be read-only
+                    assert false;
+                }
+            }
+            // resending messages are removed from cache, so they won't
+            // be resent again before attempts finish
+            resendCache.delete(id);
+            send(message);
+        });
     }
 
-    private String getText(TextMessage msg) {
-        try {
-            return msg.getText();
-        } catch (JMSException e) {
-            // won't goto this branch
-            // msg#text must exist
-            assert false;
-        }
-        return null;
+    /**
+     * Build binary message with encoded content, this avoids
+     * charset coding and is lossless for arbitrary body.
+     */
+    private BytesMessage createBytesMessage(Message message) throws JMSException {
+        BytesMessage msg = session.createBytesMessage();
+        msg.writeBytes(message.encode());
+        return msg;
     }
 
     public static class ResendCache {
         /**
-         * Use sorted map to store unconfirmed messages.
-         * Whatever single or multiple ack, skip list can
-         * guarantee good performance.
-         * TODO: implement a normal skip list for single thread env.
+         * Use ring buffer indexed by sequence to store messages
+         * that send fail. It is only accessed in {@link #executor()}.
          */
-        private final SortedMap<Long, ResendMessage> unconfirmedMap = new ConcurrentSkipListMap<>();
-
-        void put(Long uniqueId, TextMessage message) {
-            unconfirmedMap.put(uniqueId, ResendMessage.create(message));
-        }
+        private final LongRingBuffer<ResendMessage> unsentMessages = new LongRingBuffer<>();
 
-        void put(Long uniqueId, TextMessage message, long delay) {
-            unconfirmedMap.put(uniqueId, ResendMessage.create(message, delay));
+        void put(long uniqueId, ResendMessage message) {
+            unsentMessages.add(uniqueId, message);
         }
 
         void delete(long uniqueId) {
-            unconfirmedMap.remove(uniqueId);
+            unsentMessages.remove(uniqueId);
         }
 
-        Set<Map.Entry<Long, ResendMessage>> entrySet() {
-            return unconfirmedMap.entrySet();
+        void forEach(LongRingBuffer.Visitor<ResendMessage> visitor) {
+            unsentMessages.forEach(visitor);
         }
     }
 
     private static class ResendMessage {
-        final TextMessage content;
+        final Message origin;
+        final BytesMessage content;
         final long delay;
         final long sendTime;
+        final CompletableFuture<SendResult> promise;
 
-        ResendMessage(final TextMessage content, final long delay) {
+        ResendMessage(final Message origin, final BytesMessage content, final long delay,
+                      final long sendTime, @Nullable final CompletableFuture<SendResult> promise) {
+            this.origin = origin;
             this.content = content;
             this.delay = delay;
-            this.sendTime = System.currentTimeMillis();
+            this.sendTime = sendTime;
+            this.promise = promise;
         }
 
-        static ResendMessage create(final TextMessage content) {
-            return new ResendMessage(content, 0);
+        static ResendMessage create(final Message origin, final BytesMessage content, final long sendTime,
+                                    @Nullable final CompletableFuture<SendResult> promise) {
+            return new ResendMessage(origin, content, 0, sendTime, promise);
         }
 
-        static ResendMessage create(final TextMessage content, final long delay) {
-            return new ResendMessage(content, delay);
+        static ResendMessage create(final Message origin, final BytesMessage content, final long delay,
+                                    final long sendTime, @Nullable final CompletableFuture<SendResult> promise) {
+            return new ResendMessage(origin, content, delay, sendTime, promise);
         }
     }
 }
@@ -1,10 +1,14 @@
 package com.shallowinggg.doran.client.producer;
 
 import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
+import com.shallowinggg.doran.client.common.SendResult;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.internal.SystemPropertyUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -77,6 +81,54 @@ public interface BuiltInProducer {
      */
     void sendMessage(Message message, long delay, TimeUnit unit);
 
+    /**
+     * Send normal message and notify the given promise when it
+     * is confirmed by broker.
+     * <p>
+     * Nack messages are resent like {@link #sendMessage(Message)},
+     * so promise is only completed exceptionally with
+     * {@link MessageSendException} when message is removed from
+     * resend cache after {@link #INVALID_MILLIS}, or producer is
+     * closed before it is confirmed.
+     * <p>
+     * Promise is completed in {@link #executor()}, dependent actions
+     * that don't specify executor shouldn't block.
+     *
+     * @param message the message to send
+     * @param promise the promise to notify
+     */
+    void sendMessage(Message message, CompletableFuture<SendResult> promise);
+
+    /**
+     * Send delay message and notify the given promise when it
+     * is confirmed by broker.
+     *
+     * @param message the message to send
+     * @param delay   the delay of message
+     * @param unit    the time unit of delay
+     * @param promise the promise to notify
+     * @see #sendMessage(Message, CompletableFuture)
+     */
+    void sendMessage(Message message, long delay, TimeUnit unit, CompletableFuture<SendResult> promise);
+
+    /**
+     * Set the in-flight window that messages sent by this producer
+     * acquire permits from. Producer must release one permit for
+     * every message when it leaves this producer, i.e. it is
+     * confirmed, failed or dropped.
+     *
+     * @param window the in-flight window, may be null
+     */
+    void setInFlightWindow(@Nullable InFlightWindow window);
+
+    /**
+     * Set the recorder that confirm latencies of messages sent
+     * by this producer are recorded into.
+     *
+     * @param recorder the latency recorder, may be null
+     */
+    void setLatencyRecorder(@Nullable LatencyRecorder recorder);
+
     /**
      * Register this producer to an {@link EventExecutor}.
      *
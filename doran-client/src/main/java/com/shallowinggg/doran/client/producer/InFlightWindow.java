@@ -0,0 +1,163 @@
+package com.shallowinggg.doran.client.producer;
+
+import com.shallowinggg.doran.common.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts in-flight messages of a producer, i.e. messages queued
+ * in executors and messages waiting for confirms in resend cache.
+ * <p>
+ * A permit is acquired before message is handed to {@link BuiltInProducer},
+ * and released by it when message leaves resend cache. Unlike
+ * {@link java.util.concurrent.Semaphore}, the limit can be changed
+ * when config is updated, and permits can be forced beyond the limit.
+ * <p>
+ * Acquiring is lock-free when window has space, only blocking
+ * callers wait on lock.
+ *
+ * @author shallowinggg
+ */
+public class InFlightWindow {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private volatile int waiters;
+    private volatile int limit;
+
+    /**
+     * Create window with the given limit.
+     *
+     * @param limit max number of in-flight messages, values less than
+     *              or equal to 0 mean unlimited
+     */
+    public InFlightWindow(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Acquire a permit if window has space.
+     *
+     * @return {@code true} if acquired
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            final int current = inFlight.get();
+            final int limit = this.limit;
+            if (limit > 0 && current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Acquire a permit, waiting up to the given time if window is full.
+     *
+     * @param timeout the max time to wait
+     * @param unit    the time unit of timeout
+     * @return {@code true} if acquired, {@code false} if timeout elapsed
+     * @throws InterruptedException if current thread is interrupted
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryAcquire()) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            ++waiters;
+            try {
+                // waiters must be published before retry, or
+                // release may miss this thread
+                while (!tryAcquire()) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                --waiters;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquire a permit even if window is full.
+     */
+    public void forceAcquire() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Release the given number of permits.
+     *
+     * @param permits the number of permits
+     */
+    public void release(int permits) {
+        Assert.isTrue(permits >= 0, "'permits' must not be negative");
+        if (permits == 0) {
+            return;
+        }
+        inFlight.addAndGet(-permits);
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Change the limit of window, waiters are woken up if it
+     * is enlarged.
+     *
+     * @param limit max number of in-flight messages, values less than
+     *              or equal to 0 mean unlimited
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Return the number of in-flight messages.
+     *
+     * @return in-flight messages
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Return window usage in [0, 1], or 0 if window is unlimited.
+     * It may exceed 1 if permits are forced.
+     *
+     * @return window usage
+     */
+    public double usage() {
+        final int limit = this.limit;
+        return limit <= 0 ? 0 : (double) inFlight.get() / limit;
+    }
+}
@@ -0,0 +1,204 @@
+package com.shallowinggg.doran.client.producer;
+
+import com.shallowinggg.doran.client.common.InMemoryBroker;
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
+import com.shallowinggg.doran.client.common.SendResult;
+import com.shallowinggg.doran.common.InMemoryConfig;
+import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.common.util.LongRingBuffer;
+import com.shallowinggg.doran.common.util.concurrent.BoundedMpmcQueue;
+import io.netty.util.concurrent.EventExecutor;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer for {@link InMemoryBroker}. It keeps the same resend
+ * machinery as real producers: every message waits for a simulated
+ * confirm in resend cache, and will be resent if it is nacked or
+ * fails to publish.
+ * <p>
+ * Confirms are delivered after {@link InMemoryConfig#getAckLatencyMicros()},
+ * a message is nacked with probability {@link InMemoryConfig#getNackRate()},
+ * or when the queue is full, and fails to publish with probability
+ * {@link InMemoryConfig#getFailureRate()}.
+ *
+ * @author shallowinggg
+ */
+public class InMemoryProducer extends AbstractBuiltInProducer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryProducer.class);
+    private final String name;
+    private final BoundedMpmcQueue<byte[]> queue;
+    private final long ackLatencyMicros;
+    private final double nackRate;
+    private final double failureRate;
+
+    /**
+     * Cache for resending unconfirmed messages, only
+     * accessed in {@link #executor()}
+     */
+    private final LongRingBuffer<ResendMessage> resendCache = new LongRingBuffer<>();
+    private long seq = 0;
+
+    public InMemoryProducer(String name, InMemoryConfig config) {
+        Assert.hasText(name, "'name' must has text");
+        Assert.notNull(config, "'config' must not be null");
+        this.name = name;
+        this.queue = InMemoryBroker.getInstance().getQueue(config);
+        this.ackLatencyMicros = config.getAckLatencyMicros();
+        this.nackRate = config.getNackRate();
+        this.failureRate = config.getFailureRate();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("InMemory producer '{}' build success, queue: {}", name, config.getQueueName());
+        }
+    }
+
+    @Override
+    protected void sendMessageInner(Message message, @Nullable CompletableFuture<SendResult> promise) {
+        byte[] content = message.encode();
+        doSendMessage(message, content, 0, System.currentTimeMillis(), promise);
+    }
+
+    @Override
+    protected void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                    @Nullable CompletableFuture<SendResult> promise) {
+        byte[] content = message.encode();
+        doSendMessage(message, content, unit.toMillis(delay), System.currentTimeMillis(), promise);
+    }
+
+    private void doSendMessage(Message msg, byte[] content, long delay, long sendTime,
+                               @Nullable CompletableFuture<SendResult> promise) {
+        final long id = seq++;
+        resendCache.add(id, new ResendMessage(msg, content, delay, sendTime, promise));
+
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("'{}' send message fail, content: {}, retry in the future", name, msg);
+            }
+            return;
+        }
+
+        boolean ack = nackRate == 0 || random.nextDouble() >= nackRate;
+        if (ack) {
+            if (delay > 0) {
+                // broker holds delay message and delivers it later
+                executor().schedule(() -> deliverDelayMessage(msg, content), delay, TimeUnit.MILLISECONDS);
+            } else {
+                ack = queue.offer(content);
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("'{}' send message {}, content: {}", name, id, msg);
+        }
+
+        if (ackLatencyMicros == 0) {
+            confirm(id, ack);
+        } else {
+            final boolean result = ack;
+            executor().schedule(() -> confirm(id, result), ackLatencyMicros, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void deliverDelayMessage(Message msg, byte[] content) {
+        if (!queue.offer(content) && LOGGER.isErrorEnabled()) {
+            LOGGER.error("'{}' deliver delay message fail, queue is full, content: {}", name, msg);
+        }
+    }
+
+    private void confirm(long id, boolean ack) {
+        if (ack) {
+            ResendMessage message = resendCache.remove(id);
+            if (message != null) {
+                notifySuccess(message.promise, message.origin, message.sendTime, System.currentTimeMillis());
+                releaseInFlight(1);
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("{} send message {} success", name, id);
+            }
+        } else {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("{} send message {} fail, server nack, wait for resend", name, id);
+            }
+        }
+    }
+
+    @Override
+    protected void resendNackMessages() {
+        final long now = System.currentTimeMillis();
+        resendCache.forEach((id, message) -> {
+            final long sendTime = message.sendTime;
+            if (sendTime + INVALID_MILLIS <= now) {
+                // invalid, remove
+                resendCache.remove(id);
+                if (LOGGER.isErrorEnabled()) {
+                    LOGGER.error("Message {} send fail, remove it from resend cache, invalid millis: {}",
+                            message.origin, INVALID_MILLIS);
+                }
+                notifyFailure(message.promise, new MessageSendException("Message is not confirmed in "
+                        + INVALID_MILLIS + " ms"));
+                releaseInFlight(1);
+            } else if (sendTime + WAIT_ACK_MILLIS <= now) {
+                // wait ack timeout, resend
+                resendCache.remove(id);
+                long delay = message.delay == 0 ? 0 : Math.max(0, sendTime + message.delay - now);
+                doSendMessage(message.origin, message.content, delay, sendTime, message.promise);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        stopResendTask();
+        final EventExecutor executor = executor();
+        if (executor != null) {
+            // executor still accepts tasks when it is shutting down
+            try {
+                executor.execute(this::failUnconfirmedMessages);
+            } catch (RejectedExecutionException e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("'{}' executor has shutdown, can't notify unconfirmed messages", name);
+                }
+            }
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Close producer '{}' success", name);
+        }
+    }
+
+    private void failUnconfirmedMessages() {
+        final MessageSendException cause = new MessageSendException("Producer '" + name + "' has closed");
+        int failed = 0;
+        for (ResendMessage message : resendCache.drain()) {
+            notifyFailure(message.promise, cause);
+            ++failed;
+        }
+        releaseInFlight(failed);
+    }
+
+    /**
+     * Resend structure
+     */
+    private static class ResendMessage {
+        private final Message origin;
+        private final byte[] content;
+        private final long delay;
+        private final long sendTime;
+        private final CompletableFuture<SendResult> promise;
+
+        ResendMessage(Message origin, byte[] content, long delay, long sendTime,
+                      @Nullable CompletableFuture<SendResult> promise) {
+            this.origin = origin;
+            this.content = content;
+            this.delay = delay;
+            this.sendTime = sendTime;
+            this.promise = promise;
+        }
+    }
+}
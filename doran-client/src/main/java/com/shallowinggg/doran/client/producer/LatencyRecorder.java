@@ -0,0 +1,128 @@
+package com.shallowinggg.doran.client.producer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records confirm latencies of a producer into a log-linear
+ * histogram, and reports percentiles of latencies recorded
+ * since last snapshot.
+ * <p>
+ * Latencies less than 16 are counted exactly, larger ones
+ * are counted in 8 sub buckets of every power of two, so
+ * reported percentiles are at most 12.5% larger than the
+ * real ones. Recording is lock-free and allocation-free.
+ *
+ * @author shallowinggg
+ */
+public class LatencyRecorder {
+    private static final int LINEAR_NUM = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_NUM = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BITS = 4;
+    private static final int MAX_BITS = 40;
+    private static final int BUCKET_NUM = LINEAR_NUM + (MAX_BITS - LINEAR_BITS) * SUB_BUCKET_NUM;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_NUM);
+
+    /**
+     * Record a latency.
+     *
+     * @param latency the latency, negative values are recorded as 0
+     */
+    public void record(long latency) {
+        buckets.incrementAndGet(bucketIndex(latency));
+    }
+
+    /**
+     * Return percentiles of latencies recorded since last snapshot,
+     * and clear them.
+     *
+     * @return snapshot
+     */
+    public Snapshot snapshotAndReset() {
+        final long[] counts = new long[BUCKET_NUM];
+        long total = 0;
+        for (int i = 0; i < BUCKET_NUM; ++i) {
+            counts[i] = buckets.getAndSet(i, 0);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0);
+        }
+
+        final long p50Rank = (long) Math.ceil(total * 0.5);
+        final long p99Rank = (long) Math.ceil(total * 0.99);
+        long p50 = 0;
+        long p99 = 0;
+        long max = 0;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_NUM; ++i) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            final long prev = seen;
+            seen += counts[i];
+            final long upper = bucketUpperBound(i);
+            if (prev < p50Rank && seen >= p50Rank) {
+                p50 = upper;
+            }
+            if (prev < p99Rank && seen >= p99Rank) {
+                p99 = upper;
+            }
+            max = upper;
+        }
+        return new Snapshot(total, p50, p99, max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_NUM) {
+            return value < 0 ? 0 : (int) value;
+        }
+        final int msb = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_BITS - 1);
+        final int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKET_NUM - 1);
+        return LINEAR_NUM + (msb - LINEAR_BITS) * SUB_BUCKET_NUM + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_NUM) {
+            return index;
+        }
+        final int msb = (index - LINEAR_NUM) / SUB_BUCKET_NUM + LINEAR_BITS;
+        final int sub = (index - LINEAR_NUM) % SUB_BUCKET_NUM;
+        final int shift = msb - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKET_NUM + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Percentiles of latencies in a period.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final long p50;
+        private final long p99;
+        private final long max;
+
+        Snapshot(long count, long p50, long p99, long max) {
+            this.count = count;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
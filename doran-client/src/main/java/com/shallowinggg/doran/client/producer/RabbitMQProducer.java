@@ -2,26 +2,50 @@ package com.shallowinggg.doran.client.producer;
 
 import com.rabbitmq.client.*;
 import com.shallowinggg.doran.client.common.ConnectionFactoryCache;
+import com.shallowinggg.doran.client.common.ConnectionPool;
 import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
 import com.shallowinggg.doran.client.common.RetryCountExhaustedException;
+import com.shallowinggg.doran.client.common.SendResult;
 import com.shallowinggg.doran.common.RabbitMQConfig;
 import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.common.util.LongRingBuffer;
 import com.shallowinggg.doran.common.util.retry.*;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
  * Default implementation for rabbitmq producer
+ * <p>
+ * If {@link RabbitMQConfig#getBatchSize()} is greater than 1,
+ * normal messages are collected in {@link #executor()} for up
+ * to {@link RabbitMQConfig#getBatchSize()} messages or
+ * {@link RabbitMQConfig#getBatchLingerMicros()} microseconds,
+ * then they are published back to back and their confirms are
+ * tracked as one batch. At most
+ * {@link RabbitMQConfig#getMaxInFlightBatches()} batches can wait
+ * for confirms at the same time, the rest messages are held until
+ * one of them is confirmed. Held messages keep their permits of
+ * {@link InFlightWindow}, so while confirms are stalled senders are
+ * blocked or failed by {@link com.shallowinggg.doran.common.BackpressurePolicy}.
+ * Delay messages are never batched. Messages of a batch that fail to
+ * publish are retried alone like normal messages.
+ * <p>
+ * Promises of asynchronous sends are kept with unconfirmed messages
+ * in resend cache, and completed when broker acks them, in bulk for
+ * acks with {@code multiple=true}.
  *
  * @author shallowinggg
  */
@@ -29,6 +53,7 @@ public class RabbitMQProducer extends AbstractBuiltInProducer {
     private static final Logger LOGGER = LoggerFactory.getLogger(RabbitMQProducer.class);
     private final String name;
     private final Channel channel;
+    private final ConnectionPool.Lease<Connection> connectionLease;
     private final String exchangeName;
     private final String routingKey;
 
@@ -37,70 +62,138 @@ public class RabbitMQProducer extends AbstractBuiltInProducer {
      */
     private final ResendCache resendCache = new ResendCache();
 
+    /**
+     * Messages whose publishes fail after all attempts, they
+     * will be resent by resend task. Only accessed in {@link #executor()}.
+     */
+    private final Queue<ResendMessage> unsentMessages = new ArrayDeque<>();
+
     /**
      * Retry tool for network problems when send message.
      * Retry for at most two times, then it will be resent
      * in the future, this can decrease time cost for one
-     * message.
+     * message. Attempts are scheduled on {@link #executor()}
+     * instead of blocking it, so messages behind a failed
+     * one are not stalled by its backoff.
      */
-    private final Retryer<Void> messageRetryer = RetryerBuilder.<Void>newBuilder()
+    private final AsyncRetryer<Void> messageRetryer = RetryerBuilder.<Void>newBuilder()
             .retryIfException()
             .withStopStrategy(StopStrategies.stopAfterAttempt(2))
-            .build();
+            .withWaitStrategy(WaitStrategies.fixedWait(10, TimeUnit.MILLISECONDS))
+            .buildAsync();
+
+    /**
+     * Attempt and callback of {@link #messageRetryer}, kept here so
+     * that publishing a message allocates nothing if it succeeds at once.
+     */
+    private final AsyncRetryer.AttemptFunction<ResendMessage, Void> publishAttempt = this::doPublish;
+    private final AsyncRetryer.Callback<ResendMessage, Void> publishCallback = this::onPublishComplete;
+
+    private volatile boolean closed;
+
+    private final int batchSize;
+    private final long batchLingerMicros;
+    private final int maxInFlightBatches;
+
+    /**
+     * Messages waiting to be published in batch mode,
+     * only accessed in {@link #executor()}.
+     */
+    private final Queue<PendingMessage> pendingMessages;
+
+    /**
+     * Published batches waiting for confirms, ordered by
+     * their last delivery tag. Only accessed in {@link #executor()}.
+     */
+    private final Queue<Batch> inFlightBatches;
+
+    /**
+     * Task to publish pending messages when linger time
+     * has elapsed.
+     */
+    private ScheduledFuture<?> lingerFuture;
 
     public RabbitMQProducer(String name, RabbitMQConfig config) {
+        this(name, config, acquireConnection(name, config));
+    }
+
+    private RabbitMQProducer(String name, RabbitMQConfig config, ConnectionPool.Lease<Connection> connectionLease) {
+        this(name, config, createChannel(name, connectionLease), connectionLease);
+    }
+
+    /**
+     * Build producer with the given channel, which must have been
+     * put into confirm mode.
+     *
+     * @param name            the name of producer
+     * @param config          the config of producer
+     * @param channel         the channel to publish messages
+     * @param connectionLease lease of connection that channel belongs to,
+     *                        it will be released when producer is closed
+     */
+    RabbitMQProducer(String name, RabbitMQConfig config, Channel channel,
+                     @Nullable ConnectionPool.Lease<Connection> connectionLease) {
         Assert.hasText(name, "'name' must has text");
         Assert.notNull(config, "'config' must not be null");
+        Assert.notNull(channel, "'channel' must not be null");
+        channel.addConfirmListener(new ConfirmListener() {
+            @Override
+            public void handleAck(long deliveryTag, boolean multiple) {
+                runInExecutor(() -> onAck(deliveryTag, multiple));
+            }
 
-        Connection connection = ConnectionFactoryCache.getInstance().getRabbitMQConnection(config);
+            @Override
+            public void handleNack(long deliveryTag, boolean multiple) {
+                runInExecutor(() -> onNack(deliveryTag, multiple));
+            }
+        });
+        channel.addReturnListener(r -> {
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error("{} send message {} fail, message can't be routed, exchange: {}, routingKey: {}",
+                        name, r.getBody(), r.getExchange(), r.getRoutingKey());
+            }
+        });
+
+        this.name = name;
+        this.exchangeName = config.getExchangeName();
+        this.routingKey = config.getRoutingKey();
+        this.channel = channel;
+        this.connectionLease = connectionLease;
+        this.batchSize = config.getBatchSize();
+        this.batchLingerMicros = config.getBatchLingerMicros();
+        this.maxInFlightBatches = config.getMaxInFlightBatches();
+        if (isBatchEnabled()) {
+            this.pendingMessages = new ArrayDeque<>(batchSize);
+            this.inFlightBatches = new ArrayDeque<>();
+        } else {
+            this.pendingMessages = null;
+            this.inFlightBatches = null;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("RabbitMQ producer {} build success, exchange: {}, routing key: {}, batch size: {}",
+                    name, exchangeName, routingKey, batchSize);
+        }
+    }
+
+    private static ConnectionPool.Lease<Connection> acquireConnection(String name, RabbitMQConfig config) {
+        Assert.hasText(name, "'name' must has text");
+        Assert.notNull(config, "'config' must not be null");
+        return ConnectionFactoryCache.getInstance().acquireRabbitMQConnection(config);
+    }
+
+    private static Channel createChannel(String name, ConnectionPool.Lease<Connection> connectionLease) {
+        final Connection connection = connectionLease.connection();
         Retryer<Channel> retryer = RetryerBuilder.<Channel>newBuilder()
                 .retryIfException()
                 .withStopStrategy(StopStrategies.stopAfterAttempt(3))
                 .withWaitStrategy(WaitStrategies.fibonacciWait())
                 .build();
-        Channel channel = null;
         try {
-            channel = retryer.call(() -> {
+            return retryer.call(() -> {
                 Channel innerChannel = null;
                 try {
                     innerChannel = connection.createChannel();
                     innerChannel.confirmSelect();
-                    innerChannel.addConfirmListener(new ConfirmListener() {
-                        @Override
-                        public void handleAck(long deliveryTag, boolean multiple) {
-                            if (!multiple) {
-                                // TODO: use executor() to handle it when thread unsafe skip list can use
-                                resendCache.delete(deliveryTag);
-                                if (LOGGER.isDebugEnabled()) {
-                                    LOGGER.debug("{} send message {} success", name, deliveryTag);
-                                }
-                            } else {
-                                resendCache.delete(deliveryTag, true);
-                                if (LOGGER.isDebugEnabled()) {
-                                    LOGGER.debug("{} send message {} and earlier success", name, deliveryTag);
-                                }
-                            }
-                        }
-
-                        @Override
-                        public void handleNack(long deliveryTag, boolean multiple) {
-                            if (!multiple) {
-                                if (LOGGER.isWarnEnabled()) {
-                                    LOGGER.warn("{} send message {} fail, server nack, wait for resend", name, deliveryTag);
-                                }
-                            } else {
-                                if (LOGGER.isWarnEnabled()) {
-                                    LOGGER.warn("{} send message {} and earlier, server nack, wait for resend", name, deliveryTag);
-                                }
-                            }
-                        }
-                    });
-                    innerChannel.addReturnListener(r -> {
-                        if (LOGGER.isErrorEnabled()) {
-                            LOGGER.error("{} send message {} fail, message can't be routed, exchange: {}, routingKey: {}",
-                                    name, r.getBody(), r.getExchange(), r.getRoutingKey());
-                        }
-                    });
                     return innerChannel;
                 } catch (IOException e) {
                     if (innerChannel != null) {
@@ -112,108 +205,338 @@ public class RabbitMQProducer extends AbstractBuiltInProducer {
             });
         } catch (ExecutionException e) {
             // won't goto this branch
-            assert false;
+            throw new AssertionError(e);
         } catch (RetryException e) {
             Attempt<?> attempt = e.getLastFailedAttempt();
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error("Create rabbitmq channel for producer {} fail, retry count {} has exhausted",
                         name, attempt.getAttemptNumber(), attempt.getExceptionCause());
             }
+            connectionLease.release();
             throw new RetryCountExhaustedException((int) attempt.getAttemptNumber(), attempt.getExceptionCause());
         }
+    }
 
-        this.name = name;
-        this.exchangeName = config.getExchangeName();
-        this.routingKey = config.getRoutingKey();
-        this.channel = channel;
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("RabbitMQ producer {} build success, exchange: {}, routing key: {}",
-                    name, exchangeName, routingKey);
+    @Override
+    protected void sendMessageInner(Message message, @Nullable CompletableFuture<SendResult> promise) {
+        if (isBatchEnabled()) {
+            pendingMessages.add(new PendingMessage(message, promise));
+            if (pendingMessages.size() >= batchSize) {
+                publishBatches();
+            } else if (lingerFuture == null || lingerFuture.isDone()) {
+                lingerFuture = executor().schedule(this::onLingerTimeout, batchLingerMicros, TimeUnit.MICROSECONDS);
+            }
+            return;
         }
+        byte[] content = message.encode();
+        doSendMessage(message, content, 0, promise);
     }
 
     @Override
-    public void sendMessage(Message message) {
-        if (executor() == null) {
-            throw new IllegalStateException("Producer '" + name + "' has not initialized success, executor is null");
+    protected void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                    @Nullable CompletableFuture<SendResult> promise) {
+        if (isBatchEnabled()) {
+            // keep order with messages sent before
+            publishAllPending();
         }
+        long delayMillis = TimeUnit.MILLISECONDS.convert(delay, unit);
+        byte[] content = message.encode();
+        doSendMessage(message, content, delayMillis, promise);
+    }
 
-        if (executor().inEventLoop()) {
-            sendMessageInner(message);
-        } else {
-            executor().submit(() -> sendMessageInner(message));
-        }
+    private void doSendMessage(Message msg, byte[] content, long delay,
+                               @Nullable CompletableFuture<SendResult> promise) {
+        publish(ResendMessage.create(msg, content, delay, promise));
     }
 
-    private void sendMessageInner(Message message) {
-        byte[] content = message.encode();
-        doSendMessage(message, content, 0);
+    /**
+     * Publish the given message, failed attempts are retried on
+     * {@link #executor()} so that other messages won't wait for
+     * them. Message is put into resend cache with its delivery tag
+     * once it is published, or into {@link #unsentMessages} if all
+     * attempts fail.
+     */
+    private void publish(ResendMessage message) {
+        messageRetryer.call(publishAttempt, message, executor(), publishCallback);
     }
 
-    @Override
-    public void sendMessage(Message message, long delay, TimeUnit unit) {
-        if (executor() == null) {
-            throw new IllegalStateException("Producer '" + name + "' has not initialized success, executor is null");
+    private Void doPublish(ResendMessage message) throws IOException {
+        final AMQP.BasicProperties properties = properties(resendDelay(message, System.currentTimeMillis()));
+        final long id = nextPublishSeqNo();
+        // IOException will be retried
+        channel.basicPublish(exchangeName, routingKey, properties, message.content);
+        // confirms are handled in executor() too, so they can't come before this
+        resendCache.put(id, message);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("'{}' send message {}, content: {}", name, id, message.origin);
         }
+        return null;
+    }
 
-        if (executor().inEventLoop()) {
-            sendMessageInner(message, delay, unit);
-        } else {
-            executor().submit(() -> sendMessageInner(message, delay, unit));
+    private void onPublishComplete(ResendMessage message, Void result, Throwable cause) {
+        if (cause != null) {
+            handlePublishFailure(message, cause);
         }
     }
 
-    private void sendMessageInner(Message message, long delay, TimeUnit unit) {
-        long delayMillis = TimeUnit.MILLISECONDS.convert(delay, unit);
-        byte[] content = message.encode();
-        doSendMessage(message, content, delayMillis);
+    private void handlePublishFailure(ResendMessage message, Throwable cause) {
+        if (closed) {
+            notifyFailure(message.promise, new MessageSendException("Producer '" + name + "' has closed"));
+            releaseInFlight(1);
+        } else if (cause instanceof RetryException) {
+            Attempt<?> attempt = ((RetryException) cause).getLastFailedAttempt();
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("'{}' send message fail, content: {}, retry count {} has exhausted, retry in the future",
+                        name, message.origin, attempt.getAttemptNumber(), attempt.getExceptionCause());
+            }
+            unsentMessages.add(message);
+        } else {
+            // executor rejects retries
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error("'{}' send message fail, drop it, content: {}", name, message.origin, cause.getCause());
+            }
+            notifyFailure(message.promise, cause.getCause());
+            releaseInFlight(1);
+        }
     }
 
-    private void doSendMessage(Message msg, byte[] content, long delay) {
-        AMQP.BasicProperties properties;
+    private static AMQP.BasicProperties properties(long delay) {
         if (delay == 0) {
-            properties = MessageProperties.PERSISTENT_TEXT_PLAIN;
+            return MessageProperties.PERSISTENT_TEXT_PLAIN;
+        }
+        return new AMQP.BasicProperties.Builder()
+                .contentType("text/plain")
+                .deliveryMode(2)
+                .expiration(String.valueOf(delay))
+                .build();
+    }
+
+    /**
+     * Confirm callbacks are invoked in connection thread, move
+     * them to {@link #executor()} so that resend cache and
+     * in-flight batches are only accessed in one thread.
+     */
+    private void runInExecutor(Runnable task) {
+        final EventExecutor executor = executor();
+        if (executor == null || executor.isShuttingDown()) {
+            // unconfirmed messages will be resent by resend task
+            return;
+        }
+        if (executor.inEventLoop()) {
+            task.run();
         } else {
-            properties = new AMQP.BasicProperties.Builder()
-                    .contentType("text/plain")
-                    .deliveryMode(2)
-                    .expiration(String.valueOf(delay))
-                    .build();
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("{} executor has shutdown, ignore confirm", name);
+                }
+            }
         }
+    }
 
-        long id = channel.getNextPublishSeqNo();
-        resendCache.put(id, msg, content, delay);
-        try {
-            messageRetryer.call(() -> {
-                // IOException will be handled in RetryException catch block
-                channel.basicPublish(exchangeName, routingKey, properties, content);
-                return null;
-            });
-            if(LOGGER.isDebugEnabled()) {
-                LOGGER.debug("'{}' send message {}, content: {}", name, id, msg);
+    private void onAck(long deliveryTag, boolean multiple) {
+        final long now = System.currentTimeMillis();
+        if (!multiple) {
+            ResendMessage message = resendCache.delete(deliveryTag);
+            if (message != null) {
+                notifySuccess(message.promise, message.origin, message.sendTime, now);
+                releaseInFlight(1);
             }
-        } catch (ExecutionException e) {
-            // won't goto this branch
-            assert false;
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("{} send message {} success", name, deliveryTag);
+            }
+        } else {
+            int acked = resendCache.deleteUntil(deliveryTag, (id, message) ->
+                    notifySuccess(message.promise, message.origin, message.sendTime, now));
+            releaseInFlight(acked);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("{} send message {} and earlier success", name, deliveryTag);
+            }
+        }
+        confirmBatches(deliveryTag, multiple);
+    }
+
+    private void onNack(long deliveryTag, boolean multiple) {
+        if (!multiple) {
             if (LOGGER.isWarnEnabled()) {
-                LOGGER.warn("'{}' send message fail, content: {}, retry count {} has exhausted, retry in the future",
-                        name, msg, attempt.getAttemptNumber(), attempt.getExceptionCause());
+                LOGGER.warn("{} send message {} fail, server nack, wait for resend", name, deliveryTag);
+            }
+        } else {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("{} send message {} and earlier, server nack, wait for resend", name, deliveryTag);
             }
         }
+        // nack messages still stay in resend cache, so batch is done
+        confirmBatches(deliveryTag, multiple);
     }
 
-    @Override
-    public void startResendTask() {
-        if (executor() == null) {
-            throw new IllegalStateException("Producer '" + name + "' has not initialized success, executor is null");
+    /**
+     * Return the delivery tag of next publish. Delivery tags restart
+     * when channel is recovered, and confirms for tags before will
+     * never come, so these messages are resent at once.
+     */
+    private long nextPublishSeqNo() {
+        final long id = channel.getNextPublishSeqNo();
+        if (id < resendCache.nextId()) {
+            List<ResendMessage> orphans = resendCache.drain();
+            if (isBatchEnabled()) {
+                inFlightBatches.clear();
+            }
+            if (!orphans.isEmpty()) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("'{}' channel has been recovered, resend {} unconfirmed messages",
+                            name, orphans.size());
+                }
+                executor().execute(() -> {
+                    for (ResendMessage message : orphans) {
+                        publish(message);
+                    }
+                });
+            }
+        }
+        return id;
+    }
+
+    private static long resendDelay(ResendMessage message, long now) {
+        if (message.delay == 0) {
+            return 0;
         }
-        executor().scheduleAtFixedRate(this::resendNackMessages, WAIT_ACK_MILLIS, WAIT_ACK_MILLIS, TimeUnit.MILLISECONDS);
+        return Math.max(0, message.sendTime + message.delay - now);
+    }
+
+    private boolean isBatchEnabled() {
+        return batchSize > 1;
+    }
+
+    private void onLingerTimeout() {
+        lingerFuture = null;
+        publishBatches();
+    }
+
+    /**
+     * Publish pending messages as batches as long as in-flight
+     * batch window allows. A partial batch is published only
+     * when its linger time has elapsed.
+     */
+    private void publishBatches() {
+        while (!pendingMessages.isEmpty() && hasInFlightCapacity()) {
+            if (pendingMessages.size() < batchSize && lingerFuture != null && !lingerFuture.isDone()) {
+                return;
+            }
+            publishBatch();
+        }
+        if (pendingMessages.isEmpty() && lingerFuture != null) {
+            lingerFuture.cancel(false);
+            lingerFuture = null;
+        }
+    }
+
+    /**
+     * Publish all pending messages regardless of in-flight
+     * batch window and linger time.
+     */
+    private void publishAllPending() {
+        while (!pendingMessages.isEmpty()) {
+            publishBatch();
+        }
+        if (lingerFuture != null) {
+            lingerFuture.cancel(false);
+            lingerFuture = null;
+        }
+    }
+
+    private boolean hasInFlightCapacity() {
+        return maxInFlightBatches <= 0 || inFlightBatches.size() < maxInFlightBatches;
+    }
+
+    private void publishBatch() {
+        final AMQP.BasicProperties properties = MessageProperties.PERSISTENT_TEXT_PLAIN;
+        final long sendTime = System.currentTimeMillis();
+        final long firstId = nextPublishSeqNo();
+        int count = 0;
+        int published = 0;
+        PendingMessage pending;
+        while (count < batchSize && (pending = pendingMessages.poll()) != null) {
+            final Message msg = pending.message;
+            final ResendMessage message = ResendMessage.create(msg, msg.encode(), 0, sendTime, pending.promise);
+            final long id = nextPublishSeqNo();
+            try {
+                channel.basicPublish(exchangeName, routingKey, properties, message.content);
+                resendCache.put(id, message);
+                ++published;
+            } catch (IOException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("'{}' send message in batch fail, content: {}, retry it alone", name, msg, e);
+                }
+                // same as normal messages, it will be put into
+                // unsentMessages if all attempts fail
+                publish(message);
+            }
+            ++count;
+        }
+        if (published == 0) {
+            return;
+        }
+        final long lastId = channel.getNextPublishSeqNo() - 1;
+        inFlightBatches.add(new Batch(lastId, sendTime));
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("'{}' send batch [{}, {}], size: {}", name, firstId, lastId, count);
+        }
+    }
+
+    /**
+     * Mark batches which have been confirmed by broker as completed,
+     * and publish held messages if in-flight batch window allows.
+     *
+     * @param deliveryTag the delivery tag broker confirmed
+     * @param multiple    if all messages up to and including delivery tag are confirmed
+     */
+    private void confirmBatches(long deliveryTag, boolean multiple) {
+        if (!isBatchEnabled()) {
+            return;
+        }
+        if (multiple) {
+            Batch batch;
+            while ((batch = inFlightBatches.peek()) != null && batch.lastId <= deliveryTag) {
+                inFlightBatches.poll();
+            }
+        } else {
+            Iterator<Batch> itr = inFlightBatches.iterator();
+            while (itr.hasNext()) {
+                long lastId = itr.next().lastId;
+                if (lastId == deliveryTag) {
+                    itr.remove();
+                    break;
+                } else if (lastId > deliveryTag) {
+                    break;
+                }
+            }
+        }
+        publishBatches();
+    }
+
+    /**
+     * Confirms for in-flight batches may be lost, e.g. channel
+     * is recovered, so expire them in case producer is blocked
+     * forever. Unconfirmed messages are still in resend cache.
+     */
+    private void expireInFlightBatches() {
+        final long now = System.currentTimeMillis();
+        Batch batch;
+        while ((batch = inFlightBatches.peek()) != null && batch.sendTime + WAIT_ACK_MILLIS <= now) {
+            inFlightBatches.poll();
+        }
+        publishBatches();
     }
 
     @Override
     public void close() {
+        stopResendTask();
+        closed = true;
+        if (isBatchEnabled()) {
+            flushPendingMessages();
+        }
         try {
             this.channel.close();
         } catch (IOException | TimeoutException e) {
@@ -221,134 +544,165 @@ public class RabbitMQProducer extends AbstractBuiltInProducer {
                 LOGGER.warn("Close channel {} fail", channel);
             }
             return;
+        } finally {
+            if (connectionLease != null) {
+                connectionLease.release();
+            }
+            failUnconfirmedMessagesLater();
         }
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Close producer '{}' success", name);
         }
     }
 
-    private void resendNackMessages() {
-        long now = System.currentTimeMillis();
-        Iterator<Map.Entry<Long, ResendMessage>> itr = resendCache.entrySet().iterator();
-        while (itr.hasNext()) {
-            Map.Entry<Long, ResendMessage> entry = itr.next();
-            ResendMessage message = entry.getValue();
+    /**
+     * Publish pending messages before channel is closed. They are
+     * only accessed in {@link #executor()}, so wait for it to publish
+     * them if producer is closed in other thread.
+     */
+    private void flushPendingMessages() {
+        final EventExecutor executor = executor();
+        if (executor == null) {
+            return;
+        }
+        if (executor.inEventLoop()) {
+            publishAllPending();
+            return;
+        }
+        try {
+            if (!executor.submit(this::publishAllPending).awaitUninterruptibly(WAIT_ACK_MILLIS) &&
+                    LOGGER.isWarnEnabled()) {
+                LOGGER.warn("'{}' publish pending messages timeout, they will fail", name);
+            }
+        } catch (RejectedExecutionException e) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("{} executor has shutdown, can't publish pending messages", name);
+            }
+        }
+    }
 
-            final long id = entry.getKey();
-            final long sendTime = message.sendTime;
-            final long delay = message.delay;
-            final Message msg = message.origin;
-            final byte[] content = message.content;
-
-            // valid, resend
-            if (sendTime + WAIT_ACK_MILLIS > now) {
-                if (delay == 0) {
-                    executor().submit(() -> {
-                        // check again
-                        if (resendCache.needResend(id)) {
-                            doResendMessage(msg, content, delay, sendTime);
-                            resendCache.delete(id);
-                        }
-                    });
-                } else {
-                    final long newDelay = Math.max(0, sendTime + delay - now);
-                    executor().submit(() -> {
-                        // check again
-                        if (resendCache.needResend(id)) {
-                            doResendMessage(msg, content, newDelay, sendTime);
-                            resendCache.delete(id);
-                        }
-                    });
-                }
-            } else if (sendTime + INVALID_MILLIS > now) {
-                // invalid, remove
-                itr.remove();
-                if (LOGGER.isErrorEnabled()) {
-                    LOGGER.error("Message {} send fail, remove it from resend cache, invalid millis: {}",
-                            msg, INVALID_MILLIS);
+    /**
+     * Producer is usually closed after its executor begins to shut
+     * down, which still accepts tasks, so unlike {@link #runInExecutor(Runnable)}
+     * this doesn't check {@link EventExecutor#isShuttingDown()}.
+     */
+    private void failUnconfirmedMessagesLater() {
+        final EventExecutor executor = executor();
+        if (executor == null) {
+            return;
+        }
+        if (executor.inEventLoop()) {
+            failUnconfirmedMessages();
+        } else {
+            try {
+                executor.execute(this::failUnconfirmedMessages);
+            } catch (RejectedExecutionException e) {
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("{} executor has shutdown, can't notify unconfirmed messages", name);
                 }
             }
         }
     }
 
-    private void doResendMessage(Message msg, byte[] content, long delay, long sendTime) {
-        AMQP.BasicProperties properties;
-        if (delay == 0) {
-            properties = MessageProperties.PERSISTENT_TEXT_PLAIN;
-        } else {
-            properties = new AMQP.BasicProperties.Builder()
-                    .contentType("text/plain")
-                    .deliveryMode(2)
-                    .expiration(String.valueOf(delay))
-                    .build();
+    /**
+     * Confirms won't come after channel is closed, so fail
+     * promises of all unconfirmed and pending messages.
+     */
+    private void failUnconfirmedMessages() {
+        final MessageSendException cause = new MessageSendException("Producer '" + name + "' has closed");
+        int failed = 0;
+        for (ResendMessage message : resendCache.drain()) {
+            notifyFailure(message.promise, cause);
+            ++failed;
         }
+        ResendMessage unsent;
+        while ((unsent = unsentMessages.poll()) != null) {
+            notifyFailure(unsent.promise, cause);
+            ++failed;
+        }
+        if (isBatchEnabled()) {
+            PendingMessage pending;
+            while ((pending = pendingMessages.poll()) != null) {
+                notifyFailure(pending.promise, cause);
+                ++failed;
+            }
+            inFlightBatches.clear();
+        }
+        releaseInFlight(failed);
+    }
 
-        long id = channel.getNextPublishSeqNo();
-        resendCache.put(id, msg, content, delay, sendTime);
-        try {
-            messageRetryer.call(() -> {
-                // IOException will be handled in RetryException catch block
-                channel.basicPublish(exchangeName, routingKey, properties, content);
-                return null;
-            });
-            if(LOGGER.isDebugEnabled()) {
-                LOGGER.debug("'{}' send message {}, content: {}", name, id, msg);
+    @Override
+    protected void resendNackMessages() {
+        if (isBatchEnabled()) {
+            expireInFlightBatches();
+        }
+        final long now = System.currentTimeMillis();
+        resendCache.forEach((id, message) -> {
+            final long sendTime = message.sendTime;
+            if (sendTime + INVALID_MILLIS <= now) {
+                // invalid, remove
+                resendCache.delete(id);
+                if (LOGGER.isErrorEnabled()) {
+                    LOGGER.error("Message {} send fail, remove it from resend cache, invalid millis: {}",
+                            message.origin, INVALID_MILLIS);
+                }
+                notifyFailure(message.promise, new MessageSendException("Message is not confirmed in "
+                        + INVALID_MILLIS + " ms"));
+                releaseInFlight(1);
+            } else if (sendTime + WAIT_ACK_MILLIS <= now) {
+                // wait ack timeout, resend
+                resendCache.delete(id);
+                publish(message);
             }
-        } catch (ExecutionException e) {
-            // won't goto this branch
-            assert false;
-        } catch (RetryException e) {
-            Attempt<?> attempt = e.getLastFailedAttempt();
-            if (LOGGER.isWarnEnabled()) {
-                LOGGER.warn("'{}' resend message fail, content: {}, retry count {} has exhausted, retry in the future",
-                        name, msg, attempt.getAttemptNumber(), attempt.getExceptionCause());
+        });
+        // messages failed later are kept for next round
+        for (int i = unsentMessages.size(); i > 0; --i) {
+            final ResendMessage message = unsentMessages.poll();
+            if (message.sendTime + INVALID_MILLIS <= now) {
+                if (LOGGER.isErrorEnabled()) {
+                    LOGGER.error("Message {} send fail, drop it, invalid millis: {}",
+                            message.origin, INVALID_MILLIS);
+                }
+                notifyFailure(message.promise, new MessageSendException("Message can't be sent in "
+                        + INVALID_MILLIS + " ms"));
+                releaseInFlight(1);
+            } else {
+                publish(message);
             }
         }
     }
 
     private static class ResendCache {
         /**
-         * Use sorted map to store unconfirmed messages.
-         * Whatever single or multiple ack, skip list can
-         * guarantee good performance.
-         * TODO: implement a normal skip list for single thread env.
+         * Delivery tags are dense and increase monotonically
+         * per channel, so use ring buffer indexed by tag to
+         * store unconfirmed messages. It is only accessed in
+         * {@link #executor()}.
          */
-        private final SortedMap<Long, ResendMessage> unconfirmedMap = new ConcurrentSkipListMap<>();
+        private final LongRingBuffer<ResendMessage> unconfirmedMessages = new LongRingBuffer<>();
 
-        /**
-         * Resend task won't be executed immediately, during
-         * this time message may be ack, so it should be
-         * checked again.
-         *
-         * @param uniqueId id for last send
-         * @return {@code true} if message has been ack
-         */
-        boolean needResend(Long uniqueId) {
-            return unconfirmedMap.containsKey(uniqueId);
+        void put(long uniqueId, ResendMessage message) {
+            unconfirmedMessages.add(uniqueId, message);
         }
 
-        void put(Long uniqueId, Message message, byte[] content, long delay) {
-            unconfirmedMap.put(uniqueId, ResendMessage.create(message, content, delay));
+        ResendMessage delete(long uniqueId) {
+            return unconfirmedMessages.remove(uniqueId);
         }
 
-        void put(Long uniqueId, Message message, byte[] content, long delay, long sendTime) {
-            unconfirmedMap.put(uniqueId, ResendMessage.create(message, content, delay, sendTime));
+        int deleteUntil(long uniqueId, LongRingBuffer.Visitor<ResendMessage> visitor) {
+            return unconfirmedMessages.removeUntil(uniqueId, visitor);
         }
 
-        void delete(long uniqueId) {
-            delete(uniqueId, false);
+        long nextId() {
+            return unconfirmedMessages.nextKey();
         }
 
-        void delete(long uniqueId, boolean multiple) {
-            if (!multiple) {
-                unconfirmedMap.remove(uniqueId);
-            } else {
-                unconfirmedMap.headMap(uniqueId + 1).clear();
-            }
+        List<ResendMessage> drain() {
+            return unconfirmedMessages.drain();
         }
 
-        Set<Map.Entry<Long, ResendMessage>> entrySet() {
-            return unconfirmedMap.entrySet();
+        void forEach(LongRingBuffer.Visitor<ResendMessage> visitor) {
+            unconfirmedMessages.forEach(visitor);
         }
     }
 
@@ -378,18 +732,22 @@ public class RabbitMQProducer extends AbstractBuiltInProducer {
          */
         private final long sendTime;
 
+        /**
+         * Promise of asynchronous send, may be null
+         */
+        private final CompletableFuture<SendResult> promise;
+
         /**
          * Build resend structure for message that send fail at the first time.
          *
          * @param origin  concrete message
          * @param content byte representation for message content
          * @param delay   delay millis for message, if it isn't a delay message, this should be 0
+         * @param promise promise of asynchronous send, may be null
          */
-        ResendMessage(final Message origin, final byte[] content, final long delay) {
-            this.origin = origin;
-            this.content = content;
-            this.delay = delay;
-            this.sendTime = System.currentTimeMillis();
+        ResendMessage(final Message origin, final byte[] content, final long delay,
+                      @Nullable final CompletableFuture<SendResult> promise) {
+            this(origin, content, delay, System.currentTimeMillis(), promise);
         }
 
         /**
@@ -401,21 +759,58 @@ public class RabbitMQProducer extends AbstractBuiltInProducer {
          * @param content  byte representation for message content
          * @param delay    delay millis for message, if it isn't a delay message, this should be 0
          * @param sendTime first send time
+         * @param promise  promise of asynchronous send, may be null
          */
-        ResendMessage(final Message origin, final byte[] content, final long delay, final long sendTime) {
+        ResendMessage(final Message origin, final byte[] content, final long delay, final long sendTime,
+                      @Nullable final CompletableFuture<SendResult> promise) {
             this.origin = origin;
             this.content = content;
             this.delay = delay;
             this.sendTime = sendTime;
+            this.promise = promise;
         }
 
-        static ResendMessage create(final Message origin, final byte[] content, final long delay) {
-            return new ResendMessage(origin, content, delay);
+        static ResendMessage create(final Message origin, final byte[] content, final long delay,
+                                    @Nullable final CompletableFuture<SendResult> promise) {
+            return new ResendMessage(origin, content, delay, promise);
         }
 
         static ResendMessage create(final Message origin, final byte[] content, final long delay,
-                                    final long sendTime) {
-            return new ResendMessage(origin, content, delay, sendTime);
+                                    final long sendTime, @Nullable final CompletableFuture<SendResult> promise) {
+            return new ResendMessage(origin, content, delay, sendTime, promise);
+        }
+    }
+
+    /**
+     * Message waiting to be published in batch mode
+     */
+    private static class PendingMessage {
+        private final Message message;
+        private final CompletableFuture<SendResult> promise;
+
+        PendingMessage(Message message, @Nullable CompletableFuture<SendResult> promise) {
+            this.message = message;
+            this.promise = promise;
+        }
+    }
+
+    /**
+     * Published batch waiting for confirms
+     */
+    private static class Batch {
+        /**
+         * Delivery tag of the last message in this batch
+         */
+        private final long lastId;
+
+        /**
+         * Time when this batch is published
+         */
+        private final long sendTime;
+
+        Batch(long lastId, long sendTime) {
+            this.lastId = lastId;
+            this.sendTime = sendTime;
         }
     }
 }
@@ -0,0 +1,123 @@
+package com.shallowinggg.doran.client.producer;
+
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
+import com.shallowinggg.doran.client.common.SendResult;
+import io.netty.util.NettyRuntime;
+import io.netty.util.Recycler;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pooled task that hands a message to the executor of
+ * {@link AbstractBuiltInProducer}. Instances are recycled
+ * after run, so sending messages from other threads won't
+ * allocate a capturing lambda for every message.
+ * <p>
+ * If producer is registered to other executor while the task
+ * is queued, the task is handed over to the new one, so messages
+ * are always sent in the executor that producer is bound to.
+ *
+ * @author shallowinggg
+ */
+final class SendTask implements Runnable {
+    private static final int MAX_CAPACITY_PER_THREAD =
+            SystemPropertyUtil.getInt("com.shallowinggg.producer.sendTaskPoolCapacity", 4096);
+
+    /**
+     * Tasks are always recycled by executor threads rather than
+     * the threads obtain them, so keep every recycled task (ratio 0)
+     * instead of netty's default ratio which drops 7 of 8.
+     */
+    private static final Recycler<SendTask> RECYCLER = new Recycler<SendTask>(MAX_CAPACITY_PER_THREAD, 2, 0,
+            NettyRuntime.availableProcessors() * 2, 0) {
+        @Override
+        protected SendTask newObject(Handle<SendTask> handle) {
+            return new SendTask(handle);
+        }
+    };
+
+    private final Recycler.Handle<SendTask> handle;
+    private AbstractBuiltInProducer producer;
+    private Message message;
+    private long delay;
+    private TimeUnit unit;
+    private CompletableFuture<SendResult> promise;
+
+    private SendTask(Recycler.Handle<SendTask> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Obtain a task from pool.
+     *
+     * @param producer the producer to send message
+     * @param message  the message to send
+     * @param delay    the delay of message
+     * @param unit     the time unit of delay, {@code null} represents normal message
+     * @param promise  the promise to notify when message is confirmed, may be null
+     * @return task
+     */
+    static SendTask newInstance(AbstractBuiltInProducer producer, Message message,
+                                long delay, @Nullable TimeUnit unit,
+                                @Nullable CompletableFuture<SendResult> promise) {
+        SendTask task = RECYCLER.get();
+        task.producer = producer;
+        task.message = message;
+        task.delay = delay;
+        task.unit = unit;
+        task.promise = promise;
+        return task;
+    }
+
+    @Override
+    public void run() {
+        final AbstractBuiltInProducer producer = this.producer;
+        final EventExecutor executor = producer.executor();
+        if (!executor.inEventLoop()) {
+            // producer has been registered to other executor
+            execute(executor, this);
+            return;
+        }
+        final Message message = this.message;
+        final long delay = this.delay;
+        final TimeUnit unit = this.unit;
+        final CompletableFuture<SendResult> promise = this.promise;
+        recycle();
+        producer.sendInExecutor(message, delay, unit, promise);
+    }
+
+    /**
+     * Hand the task to the given executor. If executor has shutdown,
+     * the task is recycled and its message is failed, the permit of
+     * in-flight window is released.
+     *
+     * @param executor the executor of producer
+     * @param task     the task to execute
+     */
+    static void execute(EventExecutor executor, SendTask task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            final AbstractBuiltInProducer producer = task.producer;
+            final CompletableFuture<SendResult> promise = task.promise;
+            task.recycle();
+            AbstractBuiltInProducer.notifyFailure(promise, new MessageSendException("Producer executor has shutdown", e));
+            producer.releaseInFlight(1);
+        }
+    }
+
+    private void recycle() {
+        producer = null;
+        message = null;
+        delay = 0;
+        unit = null;
+        promise = null;
+        handle.recycle(this);
+    }
+}
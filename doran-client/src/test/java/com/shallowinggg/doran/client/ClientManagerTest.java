@@ -0,0 +1,68 @@
+package com.shallowinggg.doran.client;
+
+import com.shallowinggg.doran.common.InMemoryConfig;
+import com.shallowinggg.doran.common.MQConfig;
+import com.shallowinggg.doran.transport.netty.NettyClientConfig;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ClientManagerTest {
+
+    @Test
+    public void testPrefetchedConfigIsNotRequestedAgain() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        ClientController controller = new ClientController(new NettyClientConfig(), new ClientConfig()) {
+            private final ClientApiImpl clientApiImpl = new ClientApiImpl(this, new NettyClientConfig()) {
+                @Override
+                public MQConfig requestConfig(String configName, int timeoutMillis) {
+                    requests.incrementAndGet();
+                    return newConfig(configName, 10);
+                }
+
+                @Override
+                public Map<String, MQConfig> requestConfigs(Collection<String> configNames, int timeoutMillis) {
+                    requests.incrementAndGet();
+                    Map<String, MQConfig> configs = new HashMap<>();
+                    for (String configName : configNames) {
+                        configs.put(configName, newConfig(configName, 10));
+                    }
+                    return configs;
+                }
+            };
+
+            @Override
+            public ClientApiImpl getClientApiImpl() {
+                return clientApiImpl;
+            }
+        };
+        controller.getConfigManager().prefetchConfigs(Collections.singletonList("test"), 1000, Runnable::run).get();
+        assertEquals(1, requests.get());
+
+        ClientManager clientManager = controller.getClientManager();
+        MQConfig config = clientManager.getConfig("test", 1000);
+        assertSame(config, controller.getConfigManager().getConfig("test", 1000));
+        assertSame(config, clientManager.getConfig("test", 1000));
+        assertEquals(1, requests.get());
+
+        // updates are seen by client manager at once
+        MQConfig newConfig = newConfig("test", 20);
+        controller.getConfigManager().updateMqConfigs(1, Collections.singletonList(newConfig), 1000);
+        assertSame(newConfig, clientManager.getConfig("test", 1000));
+        assertEquals(1, requests.get());
+    }
+
+    private static MQConfig newConfig(String name, long timestamp) {
+        InMemoryConfig config = new InMemoryConfig();
+        config.setName(name);
+        config.setQueueName(name);
+        config.setTimestamp(timestamp);
+        return config;
+    }
+}
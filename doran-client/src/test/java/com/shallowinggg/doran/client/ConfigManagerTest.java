@@ -0,0 +1,160 @@
+package com.shallowinggg.doran.client;
+
+import com.shallowinggg.doran.common.InMemoryConfig;
+import com.shallowinggg.doran.common.MQConfig;
+import com.shallowinggg.doran.transport.netty.NettyClientConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConfigManagerTest {
+
+    @Test
+    public void testUpdateMqConfigs() {
+        ConfigManager configManager = new ConfigManager(new ClientController(new NettyClientConfig(), new ClientConfig()));
+        List<MQConfig> updated = new ArrayList<>();
+        configManager.registerMqConfigs(Collections.singletonList(newConfig("test", 10)));
+        configManager.addListener("test", updated::add);
+
+        // older config is ignored
+        configManager.updateMqConfigs(1, Collections.singletonList(newConfig("test", 5)), 1000);
+        assertTrue(updated.isEmpty());
+
+        MQConfig newConfig = newConfig("test", 20);
+        configManager.updateMqConfigs(2, Arrays.asList(newConfig, newConfig("other", 20)), 1000);
+        assertEquals(Collections.singletonList(newConfig), updated);
+        assertSame(newConfig, configManager.getConfig("test", 1000));
+        assertEquals(20, configManager.getConfig("other", 1000).getTimestamp());
+    }
+
+    @Test
+    public void testSyncConfigsAfterLostPushes() {
+        final List<Collection<String>> requests = new ArrayList<>();
+        final Map<String, MQConfig> serverConfigs = new HashMap<>();
+        ClientController controller = new ClientController(new NettyClientConfig(), new ClientConfig()) {
+            private final ClientApiImpl clientApiImpl = new ClientApiImpl(this, new NettyClientConfig()) {
+                @Override
+                public Map<String, MQConfig> requestConfigs(Collection<String> configNames, int timeoutMillis) {
+                    requests.add(new HashSet<>(configNames));
+                    Map<String, MQConfig> configs = new HashMap<>();
+                    for (String configName : configNames) {
+                        configs.put(configName, serverConfigs.get(configName));
+                    }
+                    return configs;
+                }
+            };
+
+            @Override
+            public ClientApiImpl getClientApiImpl() {
+                return clientApiImpl;
+            }
+        };
+        ConfigManager configManager = controller.getConfigManager();
+        List<MQConfig> updated = new ArrayList<>();
+        configManager.registerMqConfigs(Collections.singletonList(newConfig("test", 10)));
+        configManager.addListener("test", updated::add);
+
+        // newer config returned by register is applied
+        MQConfig registered = newConfig("test", 20);
+        configManager.registerMqConfigs(Collections.singletonList(registered));
+        assertEquals(Collections.singletonList(registered), updated);
+
+        configManager.updateMqConfigs(1, Collections.emptyList(), 1000);
+        assertTrue(requests.isEmpty());
+
+        // push of version 2 is lost
+        MQConfig lost = newConfig("test", 30);
+        serverConfigs.put("test", lost);
+        serverConfigs.put("other", newConfig("other", 30));
+        configManager.updateMqConfigs(3, Collections.singletonList(newConfig("other", 30)), 1000);
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList("test", "other"))), requests);
+        assertEquals(Arrays.asList(registered, lost), updated);
+        assertSame(lost, configManager.getConfig("test", 1000));
+    }
+
+    @Test
+    public void testConcurrentPushes() throws Exception {
+        ConfigManager configManager = new ConfigManager(new ClientController(new NettyClientConfig(), new ClientConfig()));
+        configManager.registerMqConfigs(Collections.singletonList(newConfig("test", 10)));
+        final MQConfig older = newConfig("test", 20);
+        final MQConfig newer = newConfig("test", 30);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<MQConfig> updated = new CopyOnWriteArrayList<>();
+        configManager.addListener("test", config -> {
+            if (config == older) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            updated.add(config);
+        });
+
+        Thread first = new Thread(() -> configManager.updateMqConfigs(1, Collections.singletonList(older), 1000));
+        first.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        // newer push is applied while listener still handles the older one
+        Thread second = new Thread(() -> configManager.updateMqConfigs(2, Collections.singletonList(newer), 1000));
+        second.start();
+        second.join(200);
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(Arrays.asList(older, newer), updated);
+        assertSame(newer, configManager.getConfig("test", 1000));
+    }
+
+    @Test
+    public void testLatePushKeepsDataVersion() {
+        final List<Collection<String>> requests = new ArrayList<>();
+        ClientController controller = new ClientController(new NettyClientConfig(), new ClientConfig()) {
+            private final ClientApiImpl clientApiImpl = new ClientApiImpl(this, new NettyClientConfig()) {
+                @Override
+                public Map<String, MQConfig> requestConfigs(Collection<String> configNames, int timeoutMillis) {
+                    requests.add(new HashSet<>(configNames));
+                    return Collections.emptyMap();
+                }
+            };
+
+            @Override
+            public ClientApiImpl getClientApiImpl() {
+                return clientApiImpl;
+            }
+        };
+        ConfigManager configManager = controller.getConfigManager();
+        configManager.addListener("test", config -> {
+        });
+        configManager.updateMqConfigs(1, Collections.emptyList(), 1000);
+        configManager.updateMqConfigs(3, Collections.emptyList(), 1000);
+        assertEquals(1, requests.size());
+
+        // push of version 2 comes late, version 4 follows version 3
+        configManager.updateMqConfigs(2, Collections.emptyList(), 1000);
+        configManager.updateMqConfigs(4, Collections.emptyList(), 1000);
+        assertEquals(1, requests.size());
+    }
+
+    private static MQConfig newConfig(String name, long timestamp) {
+        InMemoryConfig config = new InMemoryConfig();
+        config.setName(name);
+        config.setQueueName(name);
+        config.setTimestamp(timestamp);
+        return config;
+    }
+}
@@ -0,0 +1,234 @@
+package com.shallowinggg.doran.client;
+
+import com.codahale.metrics.Counter;
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
+import com.shallowinggg.doran.client.common.SendResult;
+import com.shallowinggg.doran.client.producer.AbstractBuiltInProducer;
+import com.shallowinggg.doran.client.producer.BuiltInProducer;
+import com.shallowinggg.doran.common.BackpressurePolicy;
+import com.shallowinggg.doran.common.InMemoryConfig;
+import com.shallowinggg.doran.common.MQConfig;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DefaultProducerTest {
+
+    @Test
+    public void testRebuildWhileSending() throws Exception {
+        final AtomicInteger violations = new AtomicInteger();
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter()) {
+            @Override
+            protected BuiltInProducer createProducer(MQConfig config) {
+                return new ConfinedProducer(violations);
+            }
+        };
+        producer.setMqConfig(newConfig(2, "queue_test"));
+
+        final List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        final Thread sender = new Thread(() -> {
+            for (int i = 0; i < 100000; ++i) {
+                futures.add(producer.sendAsync(Message.createMessage("test_" + i)));
+            }
+        });
+        sender.start();
+        // thread number changes keep surviving producers,
+        // queue name change rebuilds all of them
+        producer.setMqConfig(newConfig(4, "queue_test"));
+        producer.setMqConfig(newConfig(1, "queue_test"));
+        producer.setMqConfig(newConfig(3, "queue_other"));
+        producer.setMqConfig(newConfig(2, "queue_other"));
+        sender.join();
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(0, violations.get());
+        assertEquals(0, producer.getInFlightWindow().inFlight());
+        producer.close();
+    }
+
+    @Test
+    public void testThreadNumChangeKeepsExecutors() {
+        final List<BuiltInProducer> created = new ArrayList<>();
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter()) {
+            @Override
+            protected BuiltInProducer createProducer(MQConfig config) {
+                BuiltInProducer builtInProducer = new ConfinedProducer(new AtomicInteger());
+                created.add(builtInProducer);
+                return builtInProducer;
+            }
+        };
+        producer.setMqConfig(newConfig(2, "queue_test"));
+        EventExecutor first = created.get(0).executor();
+        EventExecutor second = created.get(1).executor();
+
+        producer.setMqConfig(newConfig(3, "queue_test"));
+        assertEquals(3, created.size());
+        assertSame(first, created.get(0).executor());
+        assertSame(second, created.get(1).executor());
+
+        producer.setMqConfig(newConfig(1, "queue_test"));
+        assertSame(first, created.get(0).executor());
+        assertFalse(first.isShuttingDown());
+        assertTrue(second.isShuttingDown());
+        assertTrue(created.get(2).executor().isShuttingDown());
+        producer.close();
+        assertTrue(first.isShuttingDown());
+    }
+
+    @Test
+    public void testCallerRunsTimeout() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final HoldingProducer builtInProducer = new HoldingProducer(gate);
+        DefaultProducer producer = newProducer(builtInProducer);
+        InMemoryConfig config = newConfig(1, "queue_test");
+        config.setMaxInFlightMessages(1);
+        config.setBackpressurePolicy(BackpressurePolicy.CALLER_RUNS);
+        config.setBlockTimeoutMillis(100);
+        producer.setMqConfig(config);
+
+        // executor is blocked by the first message
+        producer.sendMessage(Message.createMessage("test_0"));
+        try {
+            producer.sendMessage(Message.createMessage("test_1"));
+            fail();
+        } catch (MessageSendException e) {
+            // expected
+        }
+        assertEquals(1, producer.getInFlightWindow().inFlight());
+
+        gate.countDown();
+        // caller returns after executor has published it
+        producer.sendMessage(Message.createMessage("test_2"));
+        assertEquals(2, builtInProducer.sent.get());
+        assertEquals(2, producer.getInFlightWindow().inFlight());
+        producer.close();
+    }
+
+    @Test
+    public void testBlockFailsInExecutor() throws Exception {
+        final HoldingProducer builtInProducer = new HoldingProducer(new CountDownLatch(0));
+        DefaultProducer producer = newProducer(builtInProducer);
+        InMemoryConfig config = newConfig(1, "queue_test");
+        config.setMaxInFlightMessages(1);
+        config.setBackpressurePolicy(BackpressurePolicy.BLOCK);
+        config.setBlockTimeoutMillis(10_000);
+        producer.setMqConfig(config);
+
+        // send again from completion callback, which runs in executor
+        CompletableFuture<SendResult> chained = producer.sendAsync(Message.createMessage("test_0"))
+                .thenCompose(result -> producer.sendAsync(Message.createMessage("test_1")));
+        try {
+            chained.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MessageSendException);
+        }
+        assertEquals(1, builtInProducer.sent.get());
+        producer.close();
+    }
+
+    private static DefaultProducer newProducer(BuiltInProducer builtInProducer) {
+        return new DefaultProducer("test.producer", "test", new Counter()) {
+            @Override
+            protected BuiltInProducer createProducer(MQConfig config) {
+                return builtInProducer;
+            }
+        };
+    }
+
+    private static InMemoryConfig newConfig(int threadNum, String queueName) {
+        InMemoryConfig config = new InMemoryConfig();
+        config.setName("test");
+        config.setThreadNum(threadNum);
+        config.setTimestamp(System.currentTimeMillis());
+        config.setQueueName(queueName);
+        return config;
+    }
+
+    /**
+     * Producer that completes promises at once but never
+     * releases in-flight window, it waits for the gate
+     * before sending.
+     */
+    private static class HoldingProducer extends AbstractBuiltInProducer {
+        private final CountDownLatch gate;
+        private final AtomicInteger sent = new AtomicInteger();
+
+        HoldingProducer(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        protected void sendMessageInner(Message message, CompletableFuture<SendResult> promise) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.incrementAndGet();
+            if (promise != null) {
+                long now = System.currentTimeMillis();
+                promise.complete(new SendResult(message, now, now));
+            }
+        }
+
+        @Override
+        protected void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                        CompletableFuture<SendResult> promise) {
+            sendMessageInner(message, promise);
+        }
+
+        @Override
+        protected void resendNackMessages() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Producer that counts sends out of its executor.
+     */
+    private static class ConfinedProducer extends AbstractBuiltInProducer {
+        private final AtomicInteger violations;
+
+        ConfinedProducer(AtomicInteger violations) {
+            this.violations = violations;
+        }
+
+        @Override
+        protected void sendMessageInner(Message message, CompletableFuture<SendResult> promise) {
+            if (!executor().inEventLoop()) {
+                violations.incrementAndGet();
+            }
+            long now = System.currentTimeMillis();
+            promise.complete(new SendResult(message, now, now));
+            releaseInFlight(1);
+        }
+
+        @Override
+        protected void sendMessageInner(Message message, long delay, TimeUnit unit,
+                                        CompletableFuture<SendResult> promise) {
+            sendMessageInner(message, promise);
+        }
+
+        @Override
+        protected void resendNackMessages() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
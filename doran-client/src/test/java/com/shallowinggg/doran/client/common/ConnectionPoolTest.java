@@ -0,0 +1,60 @@
+package com.shallowinggg.doran.client.common;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConnectionPoolTest {
+
+    @Test
+    public void testLeastLoaded() throws Exception {
+        AtomicInteger built = new AtomicInteger();
+        ConnectionPool<AtomicBoolean> pool = new ConnectionPool<>("test", 2,
+                p -> {
+                    built.incrementAndGet();
+                    return new AtomicBoolean(true);
+                }, c -> c.set(false), AtomicBoolean::get);
+
+        ConnectionPool.Lease<AtomicBoolean> first = pool.acquire();
+        ConnectionPool.Lease<AtomicBoolean> second = pool.acquire();
+        // pool grows to its size before sharing connections
+        assertNotSame(first.connection(), second.connection());
+        assertEquals(2, built.get());
+        assertArrayEquals(new int[]{1, 1}, pool.loads());
+
+        first.release();
+        first.release();
+        ConnectionPool.Lease<AtomicBoolean> third = pool.acquire();
+        assertSame(first.connection(), third.connection());
+        assertEquals(2, built.get());
+
+        // recovering connection is skipped
+        second.connection().set(false);
+        ConnectionPool.Lease<AtomicBoolean> fourth = pool.acquire();
+        assertSame(third.connection(), fourth.connection());
+        assertEquals(1, pool.availableConnections());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        ConnectionPool<AtomicBoolean> pool = new ConnectionPool<>("test", 1, p -> new AtomicBoolean(true),
+                c -> c.set(false), c -> true);
+        ConnectionPool.Lease<AtomicBoolean> lease = pool.acquire();
+        pool.invalidate(lease.connection());
+        // discarded connection is closed
+        assertFalse(lease.connection().get());
+        assertEquals(0, pool.availableConnections());
+
+        // leases of discarded connection don't count against the new one
+        ConnectionPool.Lease<AtomicBoolean> rebuilt = pool.acquire();
+        assertNotSame(lease.connection(), rebuilt.connection());
+        assertArrayEquals(new int[]{1}, pool.loads());
+        lease.release();
+        assertArrayEquals(new int[]{1}, pool.loads());
+        rebuilt.release();
+        assertArrayEquals(new int[]{0}, pool.loads());
+    }
+}
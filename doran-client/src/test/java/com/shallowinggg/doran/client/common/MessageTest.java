@@ -0,0 +1,80 @@
+package com.shallowinggg.doran.client.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MessageTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("key", "value");
+        properties.put("中文", "属性");
+        Message message = Message.createMessage(properties, "hello world");
+
+        byte[] content = message.encode();
+        assertEquals(message.encodedLength(), content.length);
+
+        Message decoded = Message.decode(content);
+        assertEquals("value", decoded.getProperty("key"));
+        assertEquals("属性", decoded.getProperty("中文"));
+        assertEquals(properties, decoded.getProperties());
+        assertArrayEquals(message.getBody(), decoded.getBody());
+        assertArrayEquals(content, decoded.encode());
+    }
+
+    @Test
+    public void testEncodeToPooledBuffer() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("key", "value");
+        Message message = Message.createMessage(properties, "hello world");
+
+        ByteBuf buf = message.encode(PooledByteBufAllocator.DEFAULT);
+        try {
+            assertEquals(message.encodedLength(), buf.readableBytes());
+            Message decoded = Message.decode(buf);
+            assertFalse(buf.isReadable());
+            assertEquals("hello world", decoded.getBodyBuffer().toString(StandardCharsets.UTF_8));
+            assertEquals("value", decoded.getProperty("key"));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testLazyPropertyLookup() {
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < 20; ++i) {
+            properties.put("key" + i, "value" + i);
+        }
+        properties.put("中文", "属性");
+        properties.put("\uD83D\uDE00", "emoji");
+        Message decoded = Message.decode(Message.createMessage(properties, "body").encode());
+
+        for (int i = 0; i < 20; ++i) {
+            assertEquals("value" + i, decoded.getProperty("key" + i));
+        }
+        assertEquals("属性", decoded.getProperty("中文"));
+        assertEquals("emoji", decoded.getProperty("\uD83D\uDE00"));
+        assertNull(decoded.getProperty("key20"));
+        assertNull(decoded.getProperty("k"));
+        assertEquals(properties, decoded.getProperties());
+    }
+
+    @Test
+    public void testEmptyMessage() {
+        Message message = Message.createEmptyMessage();
+        byte[] content = message.encode();
+        assertEquals(8, content.length);
+        Message decoded = Message.decode(content);
+        assertNull(decoded.getProperty("key"));
+        assertEquals(0, decoded.getBody().length);
+    }
+}
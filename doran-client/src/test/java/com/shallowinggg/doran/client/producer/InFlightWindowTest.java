@@ -0,0 +1,56 @@
+package com.shallowinggg.doran.client.producer;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class InFlightWindowTest {
+
+    @Test
+    public void testLimit() throws InterruptedException {
+        InFlightWindow window = new InFlightWindow(2);
+        assertTrue(window.tryAcquire());
+        assertTrue(window.tryAcquire());
+        assertFalse(window.tryAcquire());
+        assertFalse(window.tryAcquire(10, TimeUnit.MILLISECONDS));
+        assertEquals(1.0, window.usage(), 0);
+
+        window.forceAcquire();
+        assertEquals(3, window.inFlight());
+        window.release(3);
+        assertEquals(0, window.inFlight());
+
+        window.setLimit(0);
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(window.tryAcquire());
+        }
+        assertEquals(0, window.usage(), 0);
+    }
+
+    @Test
+    public void testReleaseWakeUpWaiter() throws InterruptedException {
+        InFlightWindow window = new InFlightWindow(1);
+        assertTrue(window.tryAcquire());
+
+        AtomicBoolean acquired = new AtomicBoolean();
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                acquired.set(window.tryAcquire(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            latch.countDown();
+        });
+        waiter.start();
+        Thread.sleep(100);
+        assertFalse(acquired.get());
+        window.release(1);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(acquired.get());
+    }
+}
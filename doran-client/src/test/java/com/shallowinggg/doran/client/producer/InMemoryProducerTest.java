@@ -0,0 +1,237 @@
+package com.shallowinggg.doran.client.producer;
+
+import com.codahale.metrics.Counter;
+import com.shallowinggg.doran.client.DefaultConsumer;
+import com.shallowinggg.doran.client.DefaultProducer;
+import com.shallowinggg.doran.client.common.InMemoryBroker;
+import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
+import com.shallowinggg.doran.client.common.SendResult;
+import com.shallowinggg.doran.client.consumer.MessageListener;
+import com.shallowinggg.doran.common.BackpressurePolicy;
+import com.shallowinggg.doran.common.InMemoryConfig;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class InMemoryProducerTest {
+    private InMemoryConfig config;
+
+    @Before
+    public void before() {
+        config = new InMemoryConfig();
+        config.setName("test");
+        config.setThreadNum(2);
+        config.setTimestamp(System.currentTimeMillis());
+        config.setQueueName("queue_test");
+        config.setAckLatencyMicros(100);
+    }
+
+    @After
+    public void after() {
+        InMemoryBroker.getInstance().deleteQueue(config.getQueueName());
+    }
+
+    @Test
+    public void testSendAndReceive() throws InterruptedException {
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+        DefaultConsumer consumer = new DefaultConsumer("test.consumer", new Counter());
+        consumer.setMqConfig(config);
+
+        for (int i = 0; i < 1000; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            Message message = consumer.receive(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertTrue(new String(message.getBody()).startsWith("test_"));
+        }
+        assertNull(consumer.receive(100, TimeUnit.MILLISECONDS));
+        producer.close();
+        consumer.close();
+    }
+
+    @Test
+    public void testListener() throws InterruptedException {
+        final int num = 1000;
+        CountDownLatch latch = new CountDownLatch(num);
+        Set<String> received = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        MessageListener listener = new MessageListener() {
+            @Override
+            public void onMessage(Message message) {
+                if (received.add(new String(message.getBody()))) {
+                    latch.countDown();
+                }
+            }
+
+            @Override
+            public boolean accept(Message message) {
+                return true;
+            }
+        };
+        DefaultConsumer consumer = new DefaultConsumer("test.consumer", new Counter(),
+                Collections.singletonList(listener));
+        consumer.setMqConfig(config);
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+
+        for (int i = 0; i < num; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        producer.close();
+        consumer.close();
+    }
+
+    @Test
+    public void testRebuild() throws InterruptedException {
+        final int num = 10000;
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+        DefaultConsumer consumer = new DefaultConsumer("test.consumer", new Counter());
+        consumer.setMqConfig(config);
+
+        for (int i = 0; i < num; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+            if (i == num / 2) {
+                InMemoryConfig newConfig = new InMemoryConfig();
+                newConfig.setName(config.getName());
+                newConfig.setThreadNum(4);
+                newConfig.setTimestamp(System.currentTimeMillis());
+                newConfig.setQueueName(config.getQueueName());
+                producer.setMqConfig(newConfig);
+            }
+        }
+        for (int i = 0; i < num; ++i) {
+            assertNotNull(consumer.receive(5, TimeUnit.SECONDS));
+        }
+        producer.close();
+        consumer.close();
+    }
+
+    @Test
+    public void testSendAsync() throws Exception {
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            futures.add(producer.sendAsync(Message.createMessage("test_" + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 1000; ++i) {
+            SendResult result = futures.get(i).get();
+            assertEquals("test_" + i, new String(result.getMessage().getBody()));
+            assertTrue(result.getConfirmTime() >= result.getSendTime());
+        }
+        producer.close();
+    }
+
+    @Test
+    public void testSendAsyncFailOnClose() throws Exception {
+        config.setNackRate(1);
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+
+        CompletableFuture<SendResult> future = producer.sendAsync(Message.createMessage("test"));
+        Thread.sleep(200);
+        assertFalse(future.isDone());
+        producer.close();
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MessageSendException);
+        }
+    }
+
+    @Test
+    public void testInFlightWindow() throws Exception {
+        config.setNackRate(1);
+        config.setMaxInFlightMessages(10);
+        config.setBackpressurePolicy(BackpressurePolicy.FAIL_FAST);
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+
+        for (int i = 0; i < 10; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        CompletableFuture<SendResult> future = producer.sendAsync(Message.createMessage("test"));
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            producer.sendMessage(Message.createMessage("test"));
+            fail();
+        } catch (MessageSendException e) {
+            // expected
+        }
+        assertEquals(10, producer.getInFlightWindow().inFlight());
+        producer.close();
+    }
+
+    @Test
+    public void testInFlightWindowBlock() throws Exception {
+        config.setMaxInFlightMessages(10);
+        config.setBlockTimeoutMillis(5000);
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+
+        // confirms release window, so blocked senders go on
+        for (int i = 0; i < 1000; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+            assertTrue(producer.getInFlightWindow().inFlight() <= 10);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (producer.getInFlightWindow().inFlight() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, producer.getInFlightWindow().inFlight());
+        producer.close();
+    }
+
+    @Test
+    public void testNack() throws InterruptedException {
+        config.setNackRate(1);
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter());
+        producer.setMqConfig(config);
+        DefaultConsumer consumer = new DefaultConsumer("test.consumer", new Counter());
+        consumer.setMqConfig(config);
+
+        producer.sendMessage(Message.createMessage("test"));
+        assertNull(consumer.receive(500, TimeUnit.MILLISECONDS));
+        producer.close();
+        consumer.close();
+    }
+
+    @Test
+    public void testSendAfterExecutorShutdown() throws Exception {
+        InMemoryProducer producer = new InMemoryProducer("test.producer", config);
+        InFlightWindow window = new InFlightWindow(1);
+        producer.setInFlightWindow(window);
+        EventExecutor executor = new DefaultEventExecutor();
+        producer.register(executor);
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+
+        assertTrue(window.tryAcquire());
+        CompletableFuture<SendResult> promise = new CompletableFuture<>();
+        producer.sendMessage(Message.createMessage("test"), promise);
+        try {
+            promise.get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MessageSendException);
+        }
+        assertEquals(0, window.inFlight());
+        producer.close();
+    }
+}
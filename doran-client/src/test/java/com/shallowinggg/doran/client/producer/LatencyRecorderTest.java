@@ -0,0 +1,36 @@
+package com.shallowinggg.doran.client.producer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void testBucket() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 100, 1023, 1024, 123456789L}) {
+            int index = LatencyRecorder.bucketIndex(value);
+            long upper = LatencyRecorder.bucketUpperBound(index);
+            assertTrue(upper >= value);
+            assertTrue(upper <= value + value / 8);
+            if (index > 0) {
+                assertTrue(LatencyRecorder.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 100; ++i) {
+            recorder.record(i);
+        }
+        LatencyRecorder.Snapshot snapshot = recorder.snapshotAndReset();
+        assertEquals(100, snapshot.getCount());
+        assertTrue(snapshot.getP50() >= 50 && snapshot.getP50() <= 55);
+        assertTrue(snapshot.getP99() >= 99 && snapshot.getP99() <= 103);
+        assertTrue(snapshot.getMax() >= 100);
+
+        assertEquals(0, recorder.snapshotAndReset().getCount());
+    }
+}
@@ -2,13 +2,34 @@ package com.shallowinggg.doran.client.producer;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
 import com.shallowinggg.doran.client.DefaultProducer;
 import com.shallowinggg.doran.client.common.Message;
+import com.shallowinggg.doran.client.common.MessageSendException;
+import com.shallowinggg.doran.client.common.SendResult;
 import com.shallowinggg.doran.client.consumer.RabbitMQConsumerTest;
+import com.shallowinggg.doran.common.BackpressurePolicy;
+import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.RabbitMQConfig;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
 public class RabbitMQProducerTest {
     private RabbitMQConfig config;
 
@@ -56,4 +77,222 @@ public class RabbitMQProducerTest {
         producer.close();
     }
 
+    @Test
+    public void testBatchLinger() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        EventExecutor executor = new DefaultEventExecutor();
+        RabbitMQProducer producer = newBatchProducer(channel, 10, 50_000, 64, executor);
+
+        for (int i = 0; i < 3; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        sync(executor);
+        assertEquals(0, channel.published.size());
+        // partial batch is published when linger time elapsed
+        waitUntil(() -> channel.published.size() == 3);
+        producer.close();
+        executor.shutdownGracefully();
+    }
+
+    @Test
+    public void testBatchSizeTrigger() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        EventExecutor executor = new DefaultEventExecutor();
+        RabbitMQProducer producer = newBatchProducer(channel, 5, 10_000_000, 64, executor);
+
+        for (int i = 0; i < 6; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        sync(executor);
+        assertEquals(5, channel.published.size());
+        producer.close();
+        executor.shutdownGracefully();
+    }
+
+    @Test
+    public void testInFlightBatchCap() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        EventExecutor executor = new DefaultEventExecutor();
+        RabbitMQProducer producer = newBatchProducer(channel, 2, 10_000_000, 1, executor);
+
+        for (int i = 0; i < 4; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        sync(executor);
+        // the second batch waits for the first one
+        assertEquals(2, channel.published.size());
+
+        channel.confirmListener.handleAck(2, true);
+        sync(executor);
+        assertEquals(4, channel.published.size());
+
+        // cap holds while confirms are stalled
+        for (int i = 4; i < 10; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        sync(executor);
+        assertEquals(4, channel.published.size());
+        producer.close();
+        executor.shutdownGracefully();
+    }
+
+    @Test
+    public void testStalledConfirmsBackpressure() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        DefaultProducer producer = new DefaultProducer("test.producer", "test", new Counter()) {
+            @Override
+            protected BuiltInProducer createProducer(MQConfig config) {
+                return new RabbitMQProducer("test.producer", (RabbitMQConfig) config, channel.proxy, null);
+            }
+        };
+        config.setThreadNum(1);
+        config.setBatchSize(2);
+        config.setBatchLingerMicros(10_000_000);
+        config.setMaxInFlightBatches(1);
+        config.setMaxInFlightMessages(4);
+        config.setBackpressurePolicy(BackpressurePolicy.FAIL_FAST);
+        producer.setMqConfig(config);
+
+        // one batch is in flight and one is held, both keep their permits
+        for (int i = 0; i < 4; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        try {
+            producer.sendMessage(Message.createMessage("test_4"));
+            fail();
+        } catch (MessageSendException e) {
+            // expected
+        }
+        waitUntil(() -> channel.published.size() == 2);
+        assertEquals(4, producer.getInFlightWindow().inFlight());
+        producer.close();
+    }
+
+    @Test
+    public void testMultipleAck() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        EventExecutor executor = new DefaultEventExecutor();
+        RabbitMQProducer producer = newBatchProducer(channel, 3, 10_000_000, 64, executor);
+
+        List<CompletableFuture<SendResult>> promises = new ArrayList<>();
+        for (int i = 0; i < 6; ++i) {
+            CompletableFuture<SendResult> promise = new CompletableFuture<>();
+            producer.sendMessage(Message.createMessage("test_" + i), promise);
+            promises.add(promise);
+        }
+        sync(executor);
+        assertEquals(6, channel.published.size());
+
+        channel.confirmListener.handleAck(5, true);
+        sync(executor);
+        for (int i = 0; i < 5; ++i) {
+            assertTrue(promises.get(i).isDone());
+        }
+        assertFalse(promises.get(5).isDone());
+
+        channel.confirmListener.handleAck(6, false);
+        sync(executor);
+        assertEquals("test_5", new String(promises.get(5).get().getMessage().getBody()));
+        producer.close();
+        executor.shutdownGracefully();
+    }
+
+    @Test
+    public void testBatchPublishFailureIsRetried() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        channel.failures = 1;
+        EventExecutor executor = new DefaultEventExecutor();
+        RabbitMQProducer producer = newBatchProducer(channel, 2, 10_000_000, 64, executor);
+
+        CompletableFuture<SendResult> first = new CompletableFuture<>();
+        CompletableFuture<SendResult> second = new CompletableFuture<>();
+        producer.sendMessage(Message.createMessage("test_0"), first);
+        producer.sendMessage(Message.createMessage("test_1"), second);
+        waitUntil(() -> channel.published.size() == 2);
+
+        channel.confirmListener.handleAck(channel.nextSeqNo - 1, true);
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        producer.close();
+        executor.shutdownGracefully();
+    }
+
+    @Test
+    public void testCloseFlushesPending() throws Exception {
+        FakeChannel channel = new FakeChannel();
+        EventExecutor executor = new DefaultEventExecutor();
+        RabbitMQProducer producer = newBatchProducer(channel, 10, 10_000_000, 64, executor);
+
+        for (int i = 0; i < 3; ++i) {
+            producer.sendMessage(Message.createMessage("test_" + i));
+        }
+        producer.close();
+        assertEquals(3, channel.published.size());
+        executor.shutdownGracefully();
+    }
+
+    private RabbitMQProducer newBatchProducer(FakeChannel channel, int batchSize, long batchLingerMicros,
+                                              int maxInFlightBatches, EventExecutor executor) {
+        config.setBatchSize(batchSize);
+        config.setBatchLingerMicros(batchLingerMicros);
+        config.setMaxInFlightBatches(maxInFlightBatches);
+        RabbitMQProducer producer = new RabbitMQProducer("test.producer", config, channel.proxy, null);
+        producer.register(executor);
+        return producer;
+    }
+
+    private static void sync(EventExecutor executor) {
+        executor.submit(() -> {
+        }).syncUninterruptibly();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Channel in confirm mode that records published messages,
+     * every publish consumes a delivery tag even if it fails.
+     */
+    private static class FakeChannel implements InvocationHandler {
+        private final List<byte[]> published = new CopyOnWriteArrayList<>();
+        private final Channel proxy = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(),
+                new Class<?>[]{Channel.class}, this);
+        private volatile ConfirmListener confirmListener;
+        private volatile long nextSeqNo = 1;
+        private volatile int failures;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getNextPublishSeqNo":
+                    return nextSeqNo;
+                case "basicPublish":
+                    ++nextSeqNo;
+                    if (failures > 0) {
+                        --failures;
+                        throw new IOException("publish fail");
+                    }
+                    published.add((byte[]) args[args.length - 1]);
+                    return null;
+                case "addConfirmListener":
+                    confirmListener = (ConfirmListener) args[0];
+                    return null;
+                default:
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    } else if (type == int.class) {
+                        return 0;
+                    } else if (type == long.class) {
+                        return 0L;
+                    }
+                    return null;
+            }
+        }
+    }
 }
@@ -65,7 +65,8 @@ public class ActiveMQConfig extends MQConfig {
                 destinationName.equals(that.destinationName) &&
                 destinationType == that.destinationType &&
                 Objects.equals(clientId, that.clientId) &&
-                Objects.equals(selector, that.selector);
+                Objects.equals(selector, that.selector) &&
+                flowControlEquals(that);
     }
 
     public String getUsername() {
@@ -0,0 +1,33 @@
+package com.shallowinggg.doran.common;
+
+/**
+ * Behaviour of producers when their in-flight window is full,
+ * see {@link MQConfig#getMaxInFlightMessages()}.
+ *
+ * @author shallowinggg
+ */
+public enum BackpressurePolicy {
+    /**
+     * Block caller until window has space, or fail if
+     * {@link MQConfig#getBlockTimeoutMillis()} has elapsed.
+     * Callers in producer's executors, e.g. completion callbacks
+     * of asynchronous sends, fail at once instead, since confirms
+     * which release the window are handled in these threads.
+     */
+    BLOCK,
+    /**
+     * Fail at once
+     */
+    FAIL_FAST,
+    /**
+     * Send message anyway, but caller waits until producer's
+     * executor has published it, like
+     * {@link java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy},
+     * callers are slowed down to the speed of executors. Caller
+     * fails if executor doesn't start to publish it in
+     * {@link MQConfig#getBlockTimeoutMillis()}, and the message
+     * is not sent. Callers in producer's executors publish it
+     * themselves.
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,43 @@
+package com.shallowinggg.doran.common;
+
+import com.shallowinggg.doran.transport.CommandCustomHeader;
+import com.shallowinggg.doran.transport.annotation.CFNotNull;
+import com.shallowinggg.doran.transport.exception.RemotingCommandException;
+
+/**
+ * Header of {@link RequestCode#HEART_BEAT}, {@link MetricData}s
+ * are carried in the body of request.
+ *
+ * @author shallowinggg
+ */
+public class HeartBeatRequestHeader implements CommandCustomHeader {
+    @CFNotNull
+    private String clientId;
+
+    /**
+     * Time in milliseconds since last heartbeat, increments
+     * of metrics are measured in it.
+     */
+    @CFNotNull
+    private long intervalMillis;
+
+    @Override
+    public void checkFields() throws RemotingCommandException {
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+}
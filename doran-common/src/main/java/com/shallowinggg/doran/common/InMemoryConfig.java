@@ -0,0 +1,127 @@
+package com.shallowinggg.doran.common;
+
+import com.shallowinggg.doran.common.util.Assert;
+
+import java.util.Objects;
+
+/**
+ * Special config for in-process loopback broker. It doesn't
+ * need any real MQ server, producers and consumers with the
+ * same {@link #queueName} in one JVM share a bounded queue.
+ * <p>
+ * Broker behaviours can be simulated by {@link #ackLatencyMicros},
+ * {@link #nackRate} and {@link #failureRate}, so throughput,
+ * latency and rebuild tests can run entirely in-process.
+ *
+ * @author shallowinggg
+ */
+public class InMemoryConfig extends MQConfig {
+
+    /**
+     * The name of the in-memory queue
+     */
+    private String queueName;
+
+    /**
+     * Max number of messages that the queue can hold,
+     * it will be rounded up to power of two.
+     */
+    private int queueCapacity = 65536;
+
+    /**
+     * Delay in microseconds before broker confirms a
+     * published message.
+     */
+    private long ackLatencyMicros;
+
+    /**
+     * Probability in [0, 1] that broker nacks a published
+     * message, nack messages are not enqueued.
+     */
+    private double nackRate;
+
+    /**
+     * Probability in [0, 1] that publish fails like a
+     * network problem.
+     */
+    private double failureRate;
+
+    public InMemoryConfig() {
+        super(MQType.InMemory);
+    }
+
+    @Override
+    public boolean equalsIgnoreThreadNum(MQConfig other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        InMemoryConfig that = (InMemoryConfig) other;
+        return Objects.equals(getName(), that.getName()) &&
+                Objects.equals(getUri(), that.getUri()) &&
+                Objects.equals(queueName, that.queueName) &&
+                queueCapacity == that.queueCapacity &&
+                ackLatencyMicros == that.ackLatencyMicros &&
+                Double.compare(nackRate, that.nackRate) == 0 &&
+                Double.compare(failureRate, that.failureRate) == 0 &&
+                flowControlEquals(that);
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public void setQueueName(String queueName) {
+        Assert.notNull(queueName);
+        this.queueName = queueName;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        Assert.isTrue(queueCapacity > 0, "'queueCapacity' must be positive");
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getAckLatencyMicros() {
+        return ackLatencyMicros;
+    }
+
+    public void setAckLatencyMicros(long ackLatencyMicros) {
+        Assert.isTrue(ackLatencyMicros >= 0, "'ackLatencyMicros' must not be negative");
+        this.ackLatencyMicros = ackLatencyMicros;
+    }
+
+    public double getNackRate() {
+        return nackRate;
+    }
+
+    public void setNackRate(double nackRate) {
+        Assert.isTrue(nackRate >= 0 && nackRate <= 1, "'nackRate' must be in range [0, 1]");
+        this.nackRate = nackRate;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        Assert.isTrue(failureRate >= 0 && failureRate <= 1, "'failureRate' must be in range [0, 1]");
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryConfig{" +
+                "queueName='" + queueName + '\'' +
+                ", queueCapacity=" + queueCapacity +
+                ", ackLatencyMicros=" + ackLatencyMicros +
+                ", nackRate=" + nackRate +
+                ", failureRate=" + failureRate +
+                "} " + super.toString();
+    }
+}
@@ -51,6 +51,25 @@ public abstract class MQConfig implements Cloneable {
      */
     private long timestamp;
 
+    /**
+     * Max number of messages of a producer which are queued in its
+     * executors or waiting for confirms. When reached, new messages
+     * are handled by {@link #backpressurePolicy}. Values less than or
+     * equal to 0 mean unlimited.
+     */
+    private int maxInFlightMessages = 65536;
+
+    /**
+     * Behaviour of producer when {@link #maxInFlightMessages} is reached.
+     */
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+    /**
+     * Max time in millis that caller blocks for in-flight window if
+     * {@link #backpressurePolicy} is {@link BackpressurePolicy#BLOCK}.
+     */
+    private long blockTimeoutMillis = 3000;
+
     protected MQConfig(MQType type) {
         this.type = type;
     }
@@ -65,6 +84,19 @@ public abstract class MQConfig implements Cloneable {
      */
     public abstract boolean equalsIgnoreThreadNum(MQConfig other);
 
+    /**
+     * Compare flow control fields, used by {@link #equalsIgnoreThreadNum(MQConfig)}
+     * of subclasses.
+     *
+     * @param other the another config to compare
+     * @return {@code true} if flow control fields are equal
+     */
+    protected boolean flowControlEquals(MQConfig other) {
+        return maxInFlightMessages == other.maxInFlightMessages &&
+                backpressurePolicy == other.backpressurePolicy &&
+                blockTimeoutMillis == other.blockTimeoutMillis;
+    }
+
 
     public boolean isChanged(long other) {
         return this.timestamp != other;
@@ -114,6 +146,32 @@ public abstract class MQConfig implements Cloneable {
         return timestamp;
     }
 
+    public int getMaxInFlightMessages() {
+        return maxInFlightMessages;
+    }
+
+    public void setMaxInFlightMessages(int maxInFlightMessages) {
+        this.maxInFlightMessages = maxInFlightMessages;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy() {
+        return backpressurePolicy;
+    }
+
+    public void setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        Assert.notNull(backpressurePolicy);
+        this.backpressurePolicy = backpressurePolicy;
+    }
+
+    public long getBlockTimeoutMillis() {
+        return blockTimeoutMillis;
+    }
+
+    public void setBlockTimeoutMillis(long blockTimeoutMillis) {
+        Assert.isTrue(blockTimeoutMillis >= 0, "'blockTimeoutMillis' must not be negative");
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
     @Override
     public String toString() {
         return "MQConfig{" +
@@ -122,6 +180,9 @@ public abstract class MQConfig implements Cloneable {
                 ", uri='" + uri + '\'' +
                 ", threadNum=" + threadNum +
                 ", timestamp=" + timestamp +
+                ", maxInFlightMessages=" + maxInFlightMessages +
+                ", backpressurePolicy=" + backpressurePolicy +
+                ", blockTimeoutMillis=" + blockTimeoutMillis +
                 '}';
     }
 }
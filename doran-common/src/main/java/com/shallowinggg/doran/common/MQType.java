@@ -7,20 +7,44 @@ public enum MQType {
     /**
      * RabbitMQ
      */
-    RabbitMQ("RabbitMQ"),
+    RabbitMQ("RabbitMQ", (byte) 1),
     /**
      * ActiveMQ
      */
-    ActiveMQ("ActiveMQ"),
+    ActiveMQ("ActiveMQ", (byte) 2),
+    /**
+     * In-process loopback broker, used for tests and benchmarks
+     */
+    InMemory("InMemory", (byte) 3),
     /**
      * Unknown MQ type
      */
-    UNKNOWN("Unknown");
+    UNKNOWN("Unknown", (byte) 0);
 
     private final String type;
 
-    MQType(String type) {
+    /**
+     * Stable code used by binary encoding, it must not be
+     * changed once released
+     */
+    private final byte code;
+
+    MQType(String type, byte code) {
         this.type = type;
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static MQType valueOf(byte code) {
+        for (MQType type : MQType.values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return UNKNOWN;
     }
 
     public static MQType parse(String val) {
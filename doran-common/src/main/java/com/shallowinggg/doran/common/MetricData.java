@@ -1,16 +1,128 @@
 package com.shallowinggg.doran.common;
 
 /**
+ * Metrics of one MQ config in a client, carried by
+ * {@link RequestCode#HEART_BEAT}. Increments and latencies
+ * are measured since last heartbeat.
+ *
  * @author shallowinggg
  */
 public class MetricData {
     /**
-     * total amount for send or receive messages
+     * The name of MQ config
      */
-    private long count;
+    private String configName;
 
     /**
-     * inc amount from last heartbeat
+     * total amount of sent messages
      */
-    private int inc;
+    private long sendCount;
+
+    /**
+     * inc amount of sent messages from last heartbeat
+     */
+    private long sendInc;
+
+    /**
+     * total amount of received messages
+     */
+    private long receiveCount;
+
+    /**
+     * inc amount of received messages from last heartbeat
+     */
+    private long receiveInc;
+
+    /**
+     * Median of confirm latencies in milliseconds
+     */
+    private long sendLatencyP50;
+
+    /**
+     * 99th percentile of confirm latencies in milliseconds
+     */
+    private long sendLatencyP99;
+
+    /**
+     * Max confirm latency in milliseconds
+     */
+    private long sendLatencyMax;
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public void setConfigName(String configName) {
+        this.configName = configName;
+    }
+
+    public long getSendCount() {
+        return sendCount;
+    }
+
+    public void setSendCount(long sendCount) {
+        this.sendCount = sendCount;
+    }
+
+    public long getSendInc() {
+        return sendInc;
+    }
+
+    public void setSendInc(long sendInc) {
+        this.sendInc = sendInc;
+    }
+
+    public long getReceiveCount() {
+        return receiveCount;
+    }
+
+    public void setReceiveCount(long receiveCount) {
+        this.receiveCount = receiveCount;
+    }
+
+    public long getReceiveInc() {
+        return receiveInc;
+    }
+
+    public void setReceiveInc(long receiveInc) {
+        this.receiveInc = receiveInc;
+    }
+
+    public long getSendLatencyP50() {
+        return sendLatencyP50;
+    }
+
+    public void setSendLatencyP50(long sendLatencyP50) {
+        this.sendLatencyP50 = sendLatencyP50;
+    }
+
+    public long getSendLatencyP99() {
+        return sendLatencyP99;
+    }
+
+    public void setSendLatencyP99(long sendLatencyP99) {
+        this.sendLatencyP99 = sendLatencyP99;
+    }
+
+    public long getSendLatencyMax() {
+        return sendLatencyMax;
+    }
+
+    public void setSendLatencyMax(long sendLatencyMax) {
+        this.sendLatencyMax = sendLatencyMax;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricData{" +
+                "configName='" + configName + '\'' +
+                ", sendCount=" + sendCount +
+                ", sendInc=" + sendInc +
+                ", receiveCount=" + receiveCount +
+                ", receiveInc=" + receiveInc +
+                ", sendLatencyP50=" + sendLatencyP50 +
+                ", sendLatencyP99=" + sendLatencyP99 +
+                ", sendLatencyMax=" + sendLatencyMax +
+                '}';
+    }
 }
@@ -22,6 +22,28 @@ public class RabbitMQConfig extends MQConfig {
      */
     private String routingKey;
 
+    /**
+     * Max number of messages published back to back as one
+     * batch by a producer. Values less than or equal to 1
+     * disable batching, and every message is published
+     * as soon as it is sent.
+     */
+    private int batchSize = 1;
+
+    /**
+     * Max time in microseconds that a producer waits for a
+     * batch to fill up before it is published.
+     */
+    private long batchLingerMicros = 1000;
+
+    /**
+     * Max number of published batches which are waiting for
+     * confirms. When reached, new messages are held until one
+     * of the batches is confirmed. Values less than or equal
+     * to 0 mean unlimited.
+     */
+    private int maxInFlightBatches = 64;
+
     // consumer
 
     /**
@@ -53,7 +75,11 @@ public class RabbitMQConfig extends MQConfig {
                 Objects.equals(getUri(), that.getUri()) &&
                 exchangeName.equals(that.exchangeName) &&
                 queueName.equals(that.queueName) &&
-                routingKey.equals(that.routingKey);
+                routingKey.equals(that.routingKey) &&
+                batchSize == that.batchSize &&
+                batchLingerMicros == that.batchLingerMicros &&
+                maxInFlightBatches == that.maxInFlightBatches &&
+                flowControlEquals(that);
     }
 
     public String getExchangeName() {
@@ -83,12 +109,40 @@ public class RabbitMQConfig extends MQConfig {
         this.routingKey = routingKey;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchLingerMicros() {
+        return batchLingerMicros;
+    }
+
+    public void setBatchLingerMicros(long batchLingerMicros) {
+        Assert.isTrue(batchLingerMicros >= 0, "'batchLingerMicros' must not be negative");
+        this.batchLingerMicros = batchLingerMicros;
+    }
+
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
+    public void setMaxInFlightBatches(int maxInFlightBatches) {
+        this.maxInFlightBatches = maxInFlightBatches;
+    }
+
     @Override
     public String toString() {
         return "RabbitMQConfig{" +
                 "exchangeName='" + exchangeName + '\'' +
                 ", queueName='" + queueName + '\'' +
                 ", routingKey='" + routingKey + '\'' +
+                ", batchSize=" + batchSize +
+                ", batchLingerMicros=" + batchLingerMicros +
+                ", maxInFlightBatches=" + maxInFlightBatches +
                 "} " + super.toString();
     }
 }
@@ -9,6 +9,12 @@ public class RequestCode {
 
     public static final int REQUEST_CONFIG = 20;
 
+    /**
+     * Request many MQ configs in one round trip, names of configs
+     * are carried in the body of request.
+     */
+    public static final int REQUEST_CONFIGS = 21;
+
     public static final int HEART_BEAT = 30;
 
     public static final int UPDATE_MQ_CONFIG = 40;
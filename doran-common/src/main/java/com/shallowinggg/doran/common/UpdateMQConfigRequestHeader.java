@@ -5,99 +5,30 @@ import com.shallowinggg.doran.transport.annotation.CFNotNull;
 import com.shallowinggg.doran.transport.exception.RemotingCommandException;
 
 /**
+ * Header of {@link RequestCode#UPDATE_MQ_CONFIG}, updated configs
+ * are carried in the body of request.
+ *
  * @author shallowinggg
  */
 public class UpdateMQConfigRequestHeader implements CommandCustomHeader {
 
+    /**
+     * Counter of the {@link DataVersion} that server holds for the
+     * client, it increases by one for every push. Client can find
+     * lost pushes by it.
+     */
     @CFNotNull
-    private String name;
-
-    @CFNotNull
-    private String type;
-
-    @CFNotNull
-    private String uri;
-
-    @CFNotNull
-    private String username;
-
-    @CFNotNull
-    private String password;
-
-    @CFNotNull
-    private int threadNum;
-
-    @CFNotNull
-    private long timestamp;
-
-    @CFNotNull
-    private String extFieldsJson;
+    private long dataVersion;
 
     @Override
     public void checkFields() throws RemotingCommandException {
     }
 
-    public String getName() {
-        return name;
-    }
-
-    public void setName(String name) {
-        this.name = name;
-    }
-
-    public String getType() {
-        return type;
-    }
-
-    public void setType(String type) {
-        this.type = type;
-    }
-
-    public String getUri() {
-        return uri;
-    }
-
-    public void setUri(String uri) {
-        this.uri = uri;
-    }
-
-    public String getUsername() {
-        return username;
-    }
-
-    public void setUsername(String username) {
-        this.username = username;
-    }
-
-    public String getPassword() {
-        return password;
-    }
-
-    public void setPassword(String password) {
-        this.password = password;
-    }
-
-    public int getThreadNum() {
-        return threadNum;
-    }
-
-    public void setThreadNum(int threadNum) {
-        this.threadNum = threadNum;
-    }
-
-    public long getTimestamp() {
-        return timestamp;
-    }
-
-    public void setTimestamp(long timestamp) {
-        this.timestamp = timestamp;
-    }
-
-    public String getExtFieldsJson() {
-        return extFieldsJson;
+    public long getDataVersion() {
+        return dataVersion;
     }
 
-    public void setExtFieldsJson(String extFieldsJson) {
-        this.extFieldsJson = extFieldsJson;
+    public void setDataVersion(long dataVersion) {
+        this.dataVersion = dataVersion;
     }
 }
@@ -0,0 +1,264 @@
+package com.shallowinggg.doran.common.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ring buffer keyed by dense, monotonically increasing {@code long}
+ * sequences, e.g. rabbitmq delivery tags. Value for key {@code k} is
+ * stored in slot {@code k & mask}, so insert, lookup and remove are O(1)
+ * without boxing keys or allocating nodes. {@link #removeUntil(long)}
+ * advances the low watermark for acks like rabbitmq {@code multiple=true}.
+ * <p>
+ * Keys must be added in increasing order. The buffer grows when the
+ * distance between the lowest and highest live keys exceeds its capacity.
+ * <p>
+ * This class is not thread-safe, it should only be accessed in one
+ * thread, e.g. the {@link io.netty.util.concurrent.EventExecutor} that
+ * the owner binds to.
+ *
+ * @param <V> the type of values
+ * @author shallowinggg
+ */
+public class LongRingBuffer<V> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 64;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private Object[] slots;
+    private int mask;
+
+    /**
+     * The lowest key that may still be alive
+     */
+    private long base;
+
+    /**
+     * One past the highest key that has been added
+     */
+    private long tail;
+
+    private int size;
+
+    public LongRingBuffer() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public LongRingBuffer(int initialCapacity) {
+        Assert.isTrue(initialCapacity > 0 && initialCapacity <= MAX_CAPACITY,
+                "'initialCapacity' must be in range (0, " + MAX_CAPACITY + "]");
+        int capacity = tableSizeFor(initialCapacity);
+        this.slots = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Add the given value with the given key. The key must be greater
+     * than all keys added before unless this buffer is empty.
+     *
+     * @param key   the key
+     * @param value the value, must not be null
+     * @throws IllegalArgumentException if key is less than {@link #nextKey()}
+     *                                  and this buffer is not empty
+     */
+    public void add(long key, V value) {
+        Assert.notNull(value, "'value' must not be null");
+        if (size == 0) {
+            base = key;
+        } else if (key < tail) {
+            throw new IllegalArgumentException("key " + key + " must not be less than " + tail);
+        }
+        ensureCapacity(key);
+        slots[index(key)] = value;
+        tail = key + 1;
+        ++size;
+    }
+
+    /**
+     * Return the value with the given key, or {@code null} if absent.
+     *
+     * @param key the key
+     * @return the value
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key < base || key >= tail) {
+            return null;
+        }
+        return (V) slots[index(key)];
+    }
+
+    public boolean contains(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Remove the value with the given key.
+     *
+     * @param key the key
+     * @return the removed value, or {@code null} if absent
+     */
+    @Nullable
+    public V remove(long key) {
+        V value = get(key);
+        if (value == null) {
+            return null;
+        }
+        slots[index(key)] = null;
+        --size;
+        if (key == base) {
+            advanceBase();
+        }
+        return value;
+    }
+
+    /**
+     * Remove all values whose keys are less than or equal to the
+     * given key.
+     *
+     * @param key the key, inclusive
+     * @return the number of removed values
+     */
+    public int removeUntil(long key) {
+        return removeUntil(key, null);
+    }
+
+    /**
+     * Remove all values whose keys are less than or equal to the
+     * given key, and visit them in key order. Visitor must not
+     * modify this buffer.
+     *
+     * @param key     the key, inclusive
+     * @param visitor the visitor for removed values, may be null
+     * @return the number of removed values
+     */
+    @SuppressWarnings("unchecked")
+    public int removeUntil(long key, @Nullable Visitor<? super V> visitor) {
+        final long end = Math.min(key + 1, tail);
+        int removed = 0;
+        for (long k = base; k < end; ++k) {
+            int idx = index(k);
+            Object value = slots[idx];
+            if (value != null) {
+                slots[idx] = null;
+                ++removed;
+                if (visitor != null) {
+                    visitor.visit(k, (V) value);
+                }
+            }
+        }
+        size -= removed;
+        if (end > base) {
+            base = end;
+            advanceBase();
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all values and return them in key order.
+     *
+     * @return all values
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> drain() {
+        List<V> values = new ArrayList<>(size);
+        for (long k = base; k < tail; ++k) {
+            int idx = index(k);
+            if (slots[idx] != null) {
+                values.add((V) slots[idx]);
+                slots[idx] = null;
+            }
+        }
+        base = tail;
+        size = 0;
+        return values;
+    }
+
+    /**
+     * Visit all values in key order. Visitor can remove the key
+     * it is visiting or add new keys, added keys won't be visited.
+     *
+     * @param visitor the visitor
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        Assert.notNull(visitor, "'visitor' must not be null");
+        final long end = tail;
+        for (long k = base; k < end; ++k) {
+            Object value = slots[index(k)];
+            if (value != null) {
+                visitor.visit(k, (V) value);
+            }
+        }
+    }
+
+    /**
+     * Return the key that the next value should be added with at least.
+     *
+     * @return one past the highest key that has been added
+     */
+    public long nextKey() {
+        return tail;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int index(long key) {
+        return (int) (key & mask);
+    }
+
+    private void advanceBase() {
+        while (base < tail && slots[index(base)] == null) {
+            ++base;
+        }
+    }
+
+    private void ensureCapacity(long key) {
+        final long span = key - base + 1;
+        if (span <= slots.length) {
+            return;
+        }
+        if (span > MAX_CAPACITY) {
+            throw new IllegalStateException("Ring buffer is full, key span " + span +
+                    " exceeds max capacity " + MAX_CAPACITY);
+        }
+        int newCapacity = tableSizeFor((int) span);
+        Object[] newSlots = new Object[newCapacity];
+        int newMask = newCapacity - 1;
+        for (long k = base; k < tail; ++k) {
+            newSlots[(int) (k & newMask)] = slots[index(k)];
+        }
+        this.slots = newSlots;
+        this.mask = newMask;
+    }
+
+    private static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(cap - 1);
+        return (n < 0) ? 1 : (n >= MAX_CAPACITY) ? MAX_CAPACITY : n + 1;
+    }
+
+    /**
+     * Visitor for {@link #forEach(Visitor)}.
+     *
+     * @param <V> the type of values
+     */
+    @FunctionalInterface
+    public interface Visitor<V> {
+        /**
+         * Visit the value with its key.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        void visit(long key, V value);
+    }
+}
@@ -0,0 +1,406 @@
+package com.shallowinggg.doran.common.util;
+
+import com.shallowinggg.doran.common.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary codec for {@link MQConfig}s carried in the body of commands.
+ * <p>
+ * Every config is encoded as:
+ * <pre>
+ * | version(1) | type(1) | length(4) | common fields | type fields |
+ * </pre>
+ * {@code type} is {@link MQType#getCode()} and {@code length} is the
+ * number of bytes of the fields that follow. Strings are written as
+ * an int length, -1 for null, and utf8 bytes. Enums are written
+ * as their ordinals, -1 for null, so new constants must be appended.
+ * <p>
+ * New fields must be appended to the end of the fields of their type
+ * together with a new {@link #VERSION}. Decoder reads the fields it
+ * knows and skips the rest by {@code length}, so configs written by
+ * a newer peer can still be read. Configs of types that are unknown
+ * are decoded as {@link EmptyMQConfig}, and skipped in lists.
+ * <p>
+ * A list of configs is encoded as an int count followed by configs,
+ * and a list of names as an int count followed by strings.
+ *
+ * @author shallowinggg
+ */
+public final class MQConfigCodec {
+    public static final byte VERSION = 1;
+
+    private static final int NULL_LENGTH = -1;
+
+    private static final byte NULL_ENUM = -1;
+
+    private MQConfigCodec() {
+    }
+
+    /**
+     * Encode the given config into a new byte array.
+     *
+     * @param config the config to encode
+     * @return encoded bytes
+     */
+    public static byte[] encode(@NotNull MQConfig config) {
+        Assert.notNull(config, "'config' must not be null");
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            encode(config, buf);
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Encode the given configs into a new byte array.
+     *
+     * @param configs the configs to encode
+     * @return encoded bytes
+     */
+    public static byte[] encodeList(@NotNull Collection<? extends MQConfig> configs) {
+        Assert.notNull(configs, "'configs' must not be null");
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            buf.writeInt(configs.size());
+            for (MQConfig config : configs) {
+                encode(config, buf);
+            }
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Encode the given configs followed by the names of configs that
+     * are absent into a new byte array, it is the response body of
+     * {@link RequestCode#REQUEST_CONFIGS}.
+     *
+     * @param configs     the configs to encode
+     * @param absentNames the names of configs that don't exist
+     * @return encoded bytes
+     */
+    public static byte[] encodeList(@NotNull Collection<? extends MQConfig> configs,
+                                    @NotNull Collection<String> absentNames) {
+        Assert.notNull(configs, "'configs' must not be null");
+        Assert.notNull(absentNames, "'absentNames' must not be null");
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            buf.writeInt(configs.size());
+            for (MQConfig config : configs) {
+                encode(config, buf);
+            }
+            writeNames(buf, absentNames);
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Encode the given config names into a new byte array.
+     *
+     * @param names the names to encode
+     * @return encoded bytes
+     */
+    public static byte[] encodeNames(@NotNull Collection<String> names) {
+        Assert.notNull(names, "'names' must not be null");
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            writeNames(buf, names);
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Write the given config into buffer.
+     *
+     * @param config the config to encode
+     * @param out    the buffer to write
+     */
+    public static void encode(@NotNull MQConfig config, @NotNull ByteBuf out) {
+        final MQType type = config.getType();
+        out.writeByte(VERSION);
+        out.writeByte(type.getCode());
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+
+        writeString(out, config.getName());
+        writeString(out, config.getUri());
+        out.writeInt(config.getThreadNum());
+        out.writeLong(config.getTimestamp());
+        out.writeInt(config.getMaxInFlightMessages());
+        writeEnum(out, config.getBackpressurePolicy());
+        out.writeLong(config.getBlockTimeoutMillis());
+
+        switch (type) {
+            case RabbitMQ:
+                encodeRabbitMQConfig((RabbitMQConfig) config, out);
+                break;
+            case ActiveMQ:
+                encodeActiveMQConfig((ActiveMQConfig) config, out);
+                break;
+            case InMemory:
+                encodeInMemoryConfig((InMemoryConfig) config, out);
+                break;
+            default:
+        }
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    /**
+     * Decode a config from the given bytes.
+     *
+     * @param data the bytes to decode
+     * @return config, or {@link EmptyMQConfig} if its type is unknown
+     */
+    public static MQConfig decode(@NotNull byte[] data) {
+        Assert.notNull(data, "'data' must not be null");
+        return decode(Unpooled.wrappedBuffer(data));
+    }
+
+    /**
+     * Decode a config from the readable bytes of the given buffer.
+     *
+     * @param in the buffer to read
+     * @return config, or {@link EmptyMQConfig} if its type is unknown
+     */
+    public static MQConfig decode(@NotNull ByteBuf in) {
+        MQConfig config = decode0(in);
+        return config != null ? config : new EmptyMQConfig();
+    }
+
+    /**
+     * Decode configs from the given bytes.
+     *
+     * @param data the bytes to decode
+     * @return configs, configs whose type is unknown are skipped
+     */
+    public static List<MQConfig> decodeList(@NotNull byte[] data) {
+        Assert.notNull(data, "'data' must not be null");
+        return decodeList(Unpooled.wrappedBuffer(data));
+    }
+
+    /**
+     * Decode configs from the readable bytes of the given buffer.
+     *
+     * @param in the buffer to read
+     * @return configs, configs whose type is unknown are skipped
+     */
+    public static List<MQConfig> decodeList(@NotNull ByteBuf in) {
+        final int size = in.readInt();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<MQConfig> configs = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            MQConfig config = decode0(in);
+            if (config != null) {
+                configs.add(config);
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Decode config names from the readable bytes of the given buffer.
+     *
+     * @param in the buffer to read
+     * @return names
+     */
+    public static List<String> decodeNames(@NotNull ByteBuf in) {
+        final int size = in.readInt();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            names.add(readString(in));
+        }
+        return names;
+    }
+
+    private static MQConfig decode0(ByteBuf in) {
+        final byte version = in.readByte();
+        final MQType type = MQType.valueOf(in.readByte());
+        final int length = in.readInt();
+        final int end = in.readerIndex() + length;
+        if (version < 1) {
+            throw new IllegalArgumentException("Unsupported MQ config version " + version);
+        }
+
+        MQConfig config;
+        switch (type) {
+            case RabbitMQ:
+                config = new RabbitMQConfig();
+                break;
+            case ActiveMQ:
+                config = new ActiveMQConfig();
+                break;
+            case InMemory:
+                config = new InMemoryConfig();
+                break;
+            default:
+                in.readerIndex(end);
+                return null;
+        }
+
+        String name = readString(in);
+        if (name != null) {
+            config.setName(name);
+        }
+        String uri = readString(in);
+        if (uri != null) {
+            config.setUri(uri);
+        }
+        config.setThreadNum(in.readInt());
+        config.setTimestamp(in.readLong());
+        config.setMaxInFlightMessages(in.readInt());
+        BackpressurePolicy policy = readEnum(in, BackpressurePolicy.values());
+        if (policy != null) {
+            config.setBackpressurePolicy(policy);
+        }
+        config.setBlockTimeoutMillis(in.readLong());
+
+        switch (type) {
+            case RabbitMQ:
+                decodeRabbitMQConfig((RabbitMQConfig) config, in);
+                break;
+            case ActiveMQ:
+                decodeActiveMQConfig((ActiveMQConfig) config, in);
+                break;
+            default:
+                decodeInMemoryConfig((InMemoryConfig) config, in);
+        }
+        // skip fields appended by newer versions
+        in.readerIndex(end);
+        return config;
+    }
+
+    private static void encodeRabbitMQConfig(RabbitMQConfig config, ByteBuf out) {
+        writeString(out, config.getExchangeName());
+        writeString(out, config.getRoutingKey());
+        writeString(out, config.getQueueName());
+        out.writeInt(config.getBatchSize());
+        out.writeLong(config.getBatchLingerMicros());
+        out.writeInt(config.getMaxInFlightBatches());
+    }
+
+    private static void decodeRabbitMQConfig(RabbitMQConfig config, ByteBuf in) {
+        String exchangeName = readString(in);
+        if (exchangeName != null) {
+            config.setExchangeName(exchangeName);
+        }
+        String routingKey = readString(in);
+        if (routingKey != null) {
+            config.setRoutingKey(routingKey);
+        }
+        String queueName = readString(in);
+        if (queueName != null) {
+            config.setQueueName(queueName);
+        }
+        config.setBatchSize(in.readInt());
+        config.setBatchLingerMicros(in.readLong());
+        config.setMaxInFlightBatches(in.readInt());
+    }
+
+    private static void encodeActiveMQConfig(ActiveMQConfig config, ByteBuf out) {
+        writeString(out, config.getUsername());
+        writeString(out, config.getPassword());
+        writeString(out, config.getDestinationName());
+        writeEnum(out, config.getDestinationType());
+        writeString(out, config.getClientId());
+        writeString(out, config.getSelector());
+    }
+
+    private static void decodeActiveMQConfig(ActiveMQConfig config, ByteBuf in) {
+        config.setUsername(readString(in));
+        config.setPassword(readString(in));
+        String destinationName = readString(in);
+        if (destinationName != null) {
+            config.setDestinationName(destinationName);
+        }
+        ActiveMQConfig.DestinationType destinationType = readEnum(in, ActiveMQConfig.DestinationType.values());
+        if (destinationType != null) {
+            config.setDestinationType(destinationType);
+        }
+        config.setClientId(readString(in));
+        config.setSelector(readString(in));
+    }
+
+    private static void encodeInMemoryConfig(InMemoryConfig config, ByteBuf out) {
+        writeString(out, config.getQueueName());
+        out.writeInt(config.getQueueCapacity());
+        out.writeLong(config.getAckLatencyMicros());
+        out.writeDouble(config.getNackRate());
+        out.writeDouble(config.getFailureRate());
+    }
+
+    private static void decodeInMemoryConfig(InMemoryConfig config, ByteBuf in) {
+        String queueName = readString(in);
+        if (queueName != null) {
+            config.setQueueName(queueName);
+        }
+        config.setQueueCapacity(in.readInt());
+        config.setAckLatencyMicros(in.readLong());
+        config.setNackRate(in.readDouble());
+        config.setFailureRate(in.readDouble());
+    }
+
+    private static void writeNames(ByteBuf out, Collection<String> names) {
+        out.writeInt(names.size());
+        for (String name : names) {
+            writeString(out, name);
+        }
+    }
+
+    private static void writeString(ByteBuf out, String val) {
+        if (val == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        out.setInt(lengthIndex, ByteBufUtil.writeUtf8(out, val));
+    }
+
+    private static String readString(ByteBuf in) {
+        final int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        String val = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return val;
+    }
+
+    private static void writeEnum(ByteBuf out, Enum<?> val) {
+        out.writeByte(val == null ? NULL_ENUM : val.ordinal());
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuf in, E[] values) {
+        final byte ordinal = in.readByte();
+        if (ordinal == NULL_ENUM) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IllegalArgumentException("Unknown ordinal " + ordinal + " of " +
+                    values.getClass().getComponentType().getSimpleName());
+        }
+        return values[ordinal];
+    }
+}
@@ -0,0 +1,144 @@
+package com.shallowinggg.doran.common.util;
+
+import com.shallowinggg.doran.common.MetricData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary codec for {@link MetricData}s carried in the body of
+ * heartbeats.
+ * <p>
+ * Metrics are encoded as:
+ * <pre>
+ * | version(1) | count(varint) | metric* |
+ * metric: | length(varint) | configName | fields |
+ * </pre>
+ * Numbers are written as unsigned varints, most of them need only
+ * one or two bytes since they are increments in a heartbeat interval.
+ * {@code configName} is a varint length followed by utf8 bytes.
+ * <p>
+ * Like {@link MQConfigCodec}, new fields must be appended together
+ * with a new {@link #VERSION}, decoder skips fields it doesn't know
+ * by {@code length}.
+ *
+ * @author shallowinggg
+ */
+public final class MetricDataCodec {
+    public static final byte VERSION = 1;
+
+    private MetricDataCodec() {
+    }
+
+    /**
+     * Encode the given metrics into a new byte array.
+     *
+     * @param metrics the metrics to encode
+     * @return encoded bytes
+     */
+    public static byte[] encode(@NotNull Collection<MetricData> metrics) {
+        Assert.notNull(metrics, "'metrics' must not be null");
+        ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer();
+        ByteBuf entry = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            buf.writeByte(VERSION);
+            writeVarLong(buf, metrics.size());
+            for (MetricData metric : metrics) {
+                entry.clear();
+                byte[] name = metric.getConfigName().getBytes(StandardCharsets.UTF_8);
+                writeVarLong(entry, name.length);
+                entry.writeBytes(name);
+                writeVarLong(entry, metric.getSendCount());
+                writeVarLong(entry, metric.getSendInc());
+                writeVarLong(entry, metric.getReceiveCount());
+                writeVarLong(entry, metric.getReceiveInc());
+                writeVarLong(entry, metric.getSendLatencyP50());
+                writeVarLong(entry, metric.getSendLatencyP99());
+                writeVarLong(entry, metric.getSendLatencyMax());
+
+                writeVarLong(buf, entry.readableBytes());
+                buf.writeBytes(entry);
+            }
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+            entry.release();
+        }
+    }
+
+    /**
+     * Decode metrics from the given bytes.
+     *
+     * @param data the bytes to decode
+     * @return metrics
+     */
+    public static List<MetricData> decode(@NotNull byte[] data) {
+        Assert.notNull(data, "'data' must not be null");
+        return decode(Unpooled.wrappedBuffer(data));
+    }
+
+    /**
+     * Decode metrics from the readable bytes of the given buffer.
+     *
+     * @param in the buffer to read
+     * @return metrics
+     */
+    public static List<MetricData> decode(@NotNull ByteBuf in) {
+        final byte version = in.readByte();
+        if (version < 1) {
+            throw new IllegalArgumentException("Unsupported metric data version " + version);
+        }
+        final int size = (int) readVarLong(in);
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<MetricData> metrics = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final int length = (int) readVarLong(in);
+            final int end = in.readerIndex() + length;
+            MetricData metric = new MetricData();
+            final int nameLength = (int) readVarLong(in);
+            metric.setConfigName(in.toString(in.readerIndex(), nameLength, StandardCharsets.UTF_8));
+            in.skipBytes(nameLength);
+            metric.setSendCount(readVarLong(in));
+            metric.setSendInc(readVarLong(in));
+            metric.setReceiveCount(readVarLong(in));
+            metric.setReceiveInc(readVarLong(in));
+            metric.setSendLatencyP50(readVarLong(in));
+            metric.setSendLatencyP99(readVarLong(in));
+            metric.setSendLatencyMax(readVarLong(in));
+            // skip fields appended by newer versions
+            in.readerIndex(end);
+            metrics.add(metric);
+        }
+        return metrics;
+    }
+
+    private static void writeVarLong(ByteBuf out, long val) {
+        while ((val & ~0x7FL) != 0) {
+            out.writeByte((int) (val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+        out.writeByte((int) val);
+    }
+
+    private static long readVarLong(ByteBuf in) {
+        long val = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            val |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return val;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
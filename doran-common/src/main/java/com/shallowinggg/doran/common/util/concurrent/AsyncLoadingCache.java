@@ -0,0 +1,259 @@
+package com.shallowinggg.doran.common.util.concurrent;
+
+import com.shallowinggg.doran.common.util.Assert;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * A cache which holds the future of every value, so that callers
+ * that miss the same key wait for one in-flight load instead of
+ * locking on the key, and misses of different keys load in parallel.
+ * <p>
+ * Futures are installed with {@link ConcurrentHashMap#computeIfAbsent},
+ * which only locks one bin of the map for a moment, the loader itself
+ * runs outside of it. A load that fails or produces {@code null} is
+ * removed from the cache before its future completes, so it will be
+ * loaded again by the next caller. Loaders must not load the same key
+ * again, otherwise they will wait for themselves.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author shallowinggg
+ */
+public final class AsyncLoadingCache<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> map;
+
+    public AsyncLoadingCache() {
+        this(16);
+    }
+
+    public AsyncLoadingCache(int initialCapacity) {
+        this.map = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    /**
+     * Return the future of the value of the given key, start
+     * loading it with the given loader if it is absent.
+     *
+     * @param key    the key
+     * @param loader the loader to start loading
+     * @return the future of value
+     */
+    public CompletableFuture<V> getAsync(@NotNull K key, @NotNull AsyncLoader<? super K, ? extends V> loader) {
+        Assert.notNull(key, "'key' must not be null");
+        Assert.notNull(loader, "'loader' must not be null");
+        CompletableFuture<V> future = map.get(key);
+        if (future != null) {
+            return future;
+        }
+        final CompletableFuture<V> promise = new CompletableFuture<>();
+        future = map.computeIfAbsent(key, k -> promise);
+        if (future != promise) {
+            return future;
+        }
+
+        CompletionStage<? extends V> stage;
+        try {
+            stage = loader.load(key);
+            if (stage == null) {
+                throw new NullPointerException("loader returns null stage for key " + key);
+            }
+        } catch (Throwable t) {
+            fail(key, promise, t);
+            return promise;
+        }
+        stage.whenComplete((value, cause) -> {
+            if (cause != null) {
+                fail(key, promise, cause);
+            } else if (value == null) {
+                fail(key, promise, new NullPointerException("loader returns null value for key " + key));
+            } else {
+                promise.complete(value);
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * Return the value of the given key, load it in the calling
+     * thread with the given loader if it is absent, or wait for
+     * the load started by other thread.
+     *
+     * @param key    the key
+     * @param loader the loader
+     * @return the value
+     * @throws UncheckedExecutionException if loader throws checked exception,
+     *                                     unchecked ones are rethrown as they are
+     */
+    public V get(@NotNull K key, @NotNull Loader<? super K, ? extends V> loader) {
+        try {
+            return load(key, loader).join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * Return the value of the given key like {@link #get(Object, Loader)},
+     * but wait for the load started by other thread for at most the
+     * given time, since it may use a longer timeout.
+     *
+     * @param key     the key
+     * @param loader  the loader
+     * @param timeout the maximum time to wait for the load of other thread
+     * @param unit    the time unit of the timeout argument
+     * @return the value
+     * @throws UncheckedExecutionException if loader throws checked exception,
+     *                                     unchecked ones are rethrown as they are
+     * @throws UncheckedTimeoutException   if the wait timed out
+     */
+    public V get(@NotNull K key, @NotNull Loader<? super K, ? extends V> loader,
+                 long timeout, @NotNull TimeUnit unit) {
+        Assert.notNull(unit, "'unit' must not be null");
+        final CompletableFuture<V> future = load(key, loader);
+        try {
+            return Uninterruptibles.getUninterruptibly(future, timeout, unit);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (TimeoutException e) {
+            throw new UncheckedTimeoutException("Wait for load of key " + key + " timeout, timeout: "
+                    + timeout + " " + unit, e);
+        }
+    }
+
+    private CompletableFuture<V> load(@NotNull K key, @NotNull Loader<? super K, ? extends V> loader) {
+        CompletableFuture<V> future = map.get(key);
+        if (future == null) {
+            Assert.notNull(loader, "'loader' must not be null");
+            future = getAsync(key, k -> CompletableFuture.completedFuture(loader.load(k)));
+        }
+        return future;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new UncheckedExecutionException(cause);
+    }
+
+    /**
+     * Return the value of the given key if it has been loaded.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if it is absent or loading
+     */
+    @Nullable
+    public V getIfPresent(K key) {
+        CompletableFuture<V> future = map.get(key);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.getNow(null);
+    }
+
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Set the value of the given key, callers waiting for
+     * the load in progress still get the loaded value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(@NotNull K key, @NotNull V value) {
+        Assert.notNull(value, "'value' must not be null");
+        map.put(key, CompletableFuture.completedFuture(value));
+    }
+
+    public void putIfAbsent(@NotNull K key, @NotNull V value) {
+        Assert.notNull(value, "'value' must not be null");
+        map.putIfAbsent(key, CompletableFuture.completedFuture(value));
+    }
+
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * Return the keys that have been loaded or are loading.
+     *
+     * @return unmodifiable view of keys
+     */
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Perform the given action for every value that has
+     * been loaded, the ones in loading are skipped.
+     *
+     * @param action the action
+     */
+    public void forEach(@NotNull BiConsumer<? super K, ? super V> action) {
+        for (Map.Entry<K, CompletableFuture<V>> entry : map.entrySet()) {
+            CompletableFuture<V> future = entry.getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                action.accept(entry.getKey(), future.getNow(null));
+            }
+        }
+    }
+
+    private void fail(K key, CompletableFuture<V> promise, Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        // remove it first so that callers that retry on failure
+        // start a new load
+        map.remove(key, promise);
+        promise.completeExceptionally(cause);
+    }
+
+    /**
+     * Loader which loads value in the calling thread.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    /**
+     * Loader which starts an asynchronous load.
+     *
+     * @param <K> the type of keys
+     * @param <V> the type of values
+     */
+    @FunctionalInterface
+    public interface AsyncLoader<K, V> {
+        CompletionStage<V> load(K key) throws Exception;
+    }
+}
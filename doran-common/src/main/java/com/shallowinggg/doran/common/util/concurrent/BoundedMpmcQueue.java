@@ -0,0 +1,125 @@
+package com.shallowinggg.doran.common.util.concurrent;
+
+import com.shallowinggg.doran.common.util.Assert;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue based on
+ * Dmitry Vyukov's array queue. Every slot has a sequence which tells
+ * producers and consumers if the slot is ready for them, so both
+ * sides only need one CAS to claim a slot.
+ * <p>
+ * Capacity is rounded up to power of two. {@link #offer(Object)}
+ * returns {@code false} instead of blocking when queue is full.
+ *
+ * @param <E> the type of elements
+ * @author shallowinggg
+ */
+public class BoundedMpmcQueue<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new PaddedAtomicLong();
+    private final AtomicLong consumerIndex = new PaddedAtomicLong();
+
+    public BoundedMpmcQueue(int capacity) {
+        Assert.isTrue(capacity > 0 && capacity <= (1 << 30), "'capacity' must be in range (0, 2^30]");
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Insert the given element if queue is not full.
+     *
+     * @param e the element, must not be null
+     * @return {@code true} if inserted, {@code false} if queue is full
+     */
+    public boolean offer(E e) {
+        Assert.notNull(e, "'e' must not be null");
+        long index;
+        int slot;
+        for (; ; ) {
+            index = producerIndex.get();
+            slot = (int) (index & mask);
+            long diff = sequences.get(slot) - index;
+            if (diff == 0) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                // slot is not consumed yet, full
+                return false;
+            }
+        }
+        buffer.lazySet(slot, e);
+        sequences.set(slot, index + 1);
+        return true;
+    }
+
+    /**
+     * Retrieve and remove the head of queue.
+     *
+     * @return the head, or {@code null} if queue is empty
+     */
+    @Nullable
+    public E poll() {
+        long index;
+        int slot;
+        for (; ; ) {
+            index = consumerIndex.get();
+            slot = (int) (index & mask);
+            long diff = sequences.get(slot) - (index + 1);
+            if (diff == 0) {
+                if (consumerIndex.compareAndSet(index, index + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                // slot is not produced yet, empty
+                return null;
+            }
+        }
+        E e = buffer.get(slot);
+        buffer.lazySet(slot, null);
+        sequences.set(slot, index + mask + 1);
+        return e;
+    }
+
+    /**
+     * Return the approximate number of elements.
+     *
+     * @return size
+     */
+    public int size() {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Pad index to its own cache line, producer and consumer
+     * indexes are updated by different threads.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedAtomicLong extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
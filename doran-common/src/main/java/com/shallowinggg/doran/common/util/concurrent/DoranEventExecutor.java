@@ -4,23 +4,29 @@ import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.RejectedExecutionHandler;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 
 /**
+ * {@link SingleThreadEventExecutor} whose pending tasks can be
+ * drained and transferred to other executors.
+ * <p>
+ * Task queue is a multi-producer single-consumer array queue,
+ * so submitting tasks won't allocate queue nodes like
+ * {@link java.util.concurrent.LinkedBlockingQueue}.
+ *
  * @author shallowinggg
  */
 public class DoranEventExecutor extends SingleThreadEventExecutor {
     static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS =
             Math.max(1024, SystemPropertyUtil.getInt("com.shallowinggg.eventExecutor.maxPendingTasks", 2147483647));
-    private BlockingQueue<Runnable> workQueue;
+    private Queue<Runnable> workQueue;
 
     protected DoranEventExecutor(EventExecutorGroup parent, ThreadFactory threadFactory) {
         super(parent, threadFactory, true, DEFAULT_MAX_PENDING_EXECUTOR_TASKS, RejectedExecutionHandlers.reject());
@@ -39,27 +45,30 @@ public class DoranEventExecutor extends SingleThreadEventExecutor {
     @Override
     protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
         if (this.workQueue == null) {
-            this.workQueue = new LinkedBlockingQueue<>(maxPendingTasks);
+            this.workQueue = PlatformDependent.newMpscQueue(maxPendingTasks);
         }
         return this.workQueue;
     }
 
     /**
-     * Drains the task queue into a new list, normally using
-     * drainTo. But if the queue is a DelayQueue or any other kind of
-     * queue for which poll or drainTo may fail to remove some
-     * elements, it deletes them one by one.
+     * Drains the task queue into a new list. Task queue only
+     * supports single consumer, so it must be invoked in this
+     * executor.
+     *
+     * @throws IllegalStateException if caller is not in this executor
      */
     public List<Runnable> drainQueue() {
-        BlockingQueue<Runnable> q = workQueue;
-        ArrayList<Runnable> taskList = new ArrayList<>(q.size());
-        q.drainTo(taskList);
-        if (!q.isEmpty()) {
-            for (Runnable r : q.toArray(new Runnable[0])) {
-                if (q.remove(r)) {
-                    taskList.add(r);
-                }
-            }
+        if (!inEventLoop()) {
+            throw new IllegalStateException("Task queue can only be drained in executor " + this);
+        }
+        return drainQueue0();
+    }
+
+    private List<Runnable> drainQueue0() {
+        Queue<Runnable> q = workQueue;
+        List<Runnable> taskList = new ArrayList<>(q.size());
+        for (Runnable task = pollTaskFrom(q); task != null; task = pollTaskFrom(q)) {
+            taskList.add(task);
         }
         return taskList;
     }
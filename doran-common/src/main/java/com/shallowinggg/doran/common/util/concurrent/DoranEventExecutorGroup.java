@@ -1,7 +1,10 @@
 package com.shallowinggg.doran.common.util.concurrent;
 
+import com.shallowinggg.doran.common.util.Assert;
 import io.netty.util.concurrent.*;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -21,8 +24,40 @@ public class DoranEventExecutorGroup extends MultithreadEventExecutorGroup {
         super(nThreads, threadFactory, maxPendingTasks, rejectedHandler);
     }
 
+    /**
+     * Create a group which adopts the given executors as its first
+     * children and creates new ones for the rest, so that a group can
+     * be resized without moving tasks bound to the kept executors.
+     * <p>
+     * Adopted executors are shut down with this group, the group they
+     * come from should only shut down its other children.
+     *
+     * @param nThreads      the number of children
+     * @param threadFactory the thread factory of new children
+     * @param adopted       the executors to keep, must not be more than {@code nThreads}
+     */
+    public DoranEventExecutorGroup(int nThreads, ThreadFactory threadFactory,
+                                   Collection<? extends EventExecutor> adopted) {
+        super(nThreads, threadFactory, DoranEventExecutor.DEFAULT_MAX_PENDING_EXECUTOR_TASKS,
+                RejectedExecutionHandlers.reject(), checkAdopted(nThreads, adopted).iterator());
+    }
+
+    private static Collection<? extends EventExecutor> checkAdopted(int nThreads,
+                                                                    Collection<? extends EventExecutor> adopted) {
+        Assert.notNull(adopted, "'adopted' must not be null");
+        Assert.isTrue(adopted.size() <= nThreads, "can't adopt more than " + nThreads + " executors");
+        return adopted;
+    }
+
     @Override
     protected EventExecutor newChild(Executor executor, Object... objects) throws Exception {
+        if (objects.length > 2) {
+            @SuppressWarnings("unchecked")
+            Iterator<? extends EventExecutor> adopted = (Iterator<? extends EventExecutor>) objects[2];
+            if (adopted.hasNext()) {
+                return adopted.next();
+            }
+        }
         return new DoranEventExecutor(this, executor, (Integer)objects[0], (RejectedExecutionHandler)objects[1]);
     }
 }
@@ -0,0 +1,281 @@
+package com.shallowinggg.doran.common.util.retry;
+
+import com.shallowinggg.doran.common.util.Assert;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * A retryer that never blocks the calling thread. The first attempt
+ * runs in the calling thread, next attempts are scheduled on the given
+ * {@link ScheduledExecutorService} after the time computed by wait
+ * strategy, so an event loop can keep handling other tasks between
+ * attempts.
+ * <p>
+ * The returned future is completed with the same outcome as
+ * {@link Retryer#call(Callable)}: the result, an {@link ExecutionException}
+ * if the exception thrown by the call is accepted by rejection predicate,
+ * or a {@link RetryException} if stop strategy decides to stop. If the
+ * executor rejects the next attempt, the future is completed with an
+ * {@link ExecutionException} which wraps the {@link RejectedExecutionException}.
+ * <p>
+ * Like {@link Retryer#call(Callable)}, instances built by
+ * {@link RetryerBuilder#buildAsync()} without result predicate
+ * and listener skip building {@link Attempt} for a successful first
+ * attempt. {@link #call(AttemptFunction, Object, ScheduledExecutorService, Callback)}
+ * doesn't allocate at all in this case if the function and callback
+ * are kept by caller.
+ * <p>
+ * AsyncRetryer instances are better constructed with
+ * {@link RetryerBuilder#buildAsync()}. It is thread-safe, provided
+ * the strategies and listeners are thread-safe.
+ *
+ * @param <V> the type of the call return value
+ * @author shallowinggg
+ */
+public final class AsyncRetryer<V> {
+    private final StopStrategy stopStrategy;
+    private final WaitStrategy waitStrategy;
+    private final Predicate<Attempt<V>> rejectionPredicate;
+    private final Collection<RetryListener<V>> listeners;
+    private final boolean firstAttemptFastPath;
+
+    public AsyncRetryer(@NotNull StopStrategy stopStrategy,
+                        @NotNull WaitStrategy waitStrategy,
+                        @NotNull Predicate<Attempt<V>> rejectionPredicate,
+                        @NotNull Collection<RetryListener<V>> listeners) {
+        this(stopStrategy, waitStrategy, rejectionPredicate, listeners, false);
+    }
+
+    AsyncRetryer(StopStrategy stopStrategy,
+                 WaitStrategy waitStrategy,
+                 Predicate<Attempt<V>> rejectionPredicate,
+                 Collection<RetryListener<V>> listeners,
+                 boolean firstAttemptFastPath) {
+        Assert.notNull(stopStrategy, "stopStrategy may not be null");
+        Assert.notNull(waitStrategy, "waitStrategy may not be null");
+        Assert.notNull(rejectionPredicate, "rejectionPredicate may not be null");
+        Assert.notNull(listeners, "listeners may not null");
+
+        this.stopStrategy = stopStrategy;
+        this.waitStrategy = waitStrategy;
+        this.rejectionPredicate = rejectionPredicate;
+        this.listeners = listeners;
+        this.firstAttemptFastPath = firstAttemptFastPath;
+    }
+
+    /**
+     * Executes the given callable, retries on the given executor
+     * until the attempt is accepted or stop strategy decides to stop.
+     *
+     * @param callable the callable task to be executed
+     * @param executor the executor to run retries
+     * @return the future of the computed result
+     */
+    public CompletableFuture<V> call(@NotNull Callable<V> callable,
+                                     @NotNull ScheduledExecutorService executor) {
+        Assert.notNull(callable, "callable may not be null");
+        Assert.notNull(executor, "executor may not be null");
+        final RetryTask task;
+        if (firstAttemptFastPath) {
+            try {
+                return CompletableFuture.completedFuture(callable.call());
+            } catch (Throwable t) {
+                task = new RetryTask(() -> CompletableFuture.completedFuture(callable.call()), executor);
+                task.firstAttemptFailed(t);
+                return task.promise;
+            }
+        }
+        task = new RetryTask(() -> CompletableFuture.completedFuture(callable.call()), executor);
+        task.run();
+        return task.promise;
+    }
+
+    /**
+     * Executes the given function with the given argument, retries on
+     * the given executor until the attempt is accepted or stop strategy
+     * decides to stop, then notify the callback with the same outcome
+     * as the future returned by {@link #call(Callable, ScheduledExecutorService)}.
+     * <p>
+     * The function and callback should be kept by caller, e.g. in
+     * fields, so that nothing is allocated if first attempt succeeds.
+     * In this case the callback is invoked in the calling thread
+     * before this method returns.
+     *
+     * @param function the function to be executed
+     * @param arg      the argument of function
+     * @param executor the executor to run retries
+     * @param callback the callback to notify
+     * @param <T>      the type of argument
+     */
+    public <T> void call(@NotNull AttemptFunction<T, V> function, T arg,
+                         @NotNull ScheduledExecutorService executor,
+                         @NotNull Callback<T, V> callback) {
+        if (firstAttemptFastPath) {
+            final V result;
+            try {
+                result = function.apply(arg);
+            } catch (Throwable t) {
+                newTask(function, arg, executor, callback).firstAttemptFailed(t);
+                return;
+            }
+            callback.onComplete(arg, result, null);
+            return;
+        }
+        newTask(function, arg, executor, callback).run();
+    }
+
+    private <T> RetryTask newTask(AttemptFunction<T, V> function, T arg,
+                                  ScheduledExecutorService executor, Callback<T, V> callback) {
+        Assert.notNull(function, "function may not be null");
+        Assert.notNull(executor, "executor may not be null");
+        Assert.notNull(callback, "callback may not be null");
+        RetryTask task = new RetryTask(() -> CompletableFuture.completedFuture(function.apply(arg)), executor);
+        task.promise.whenComplete((result, cause) -> callback.onComplete(arg, result, cause));
+        return task;
+    }
+
+    /**
+     * Executes the given asynchronous callable, retries on the given
+     * executor until the attempt is accepted or stop strategy decides
+     * to stop. An attempt is finished when the returned stage completes,
+     * exceptions thrown by the callable and the stage are treated
+     * the same way.
+     *
+     * @param callable the callable which starts an asynchronous task
+     * @param executor the executor to run retries
+     * @return the future of the computed result
+     */
+    public CompletableFuture<V> callAsync(@NotNull Callable<? extends CompletionStage<V>> callable,
+                                          @NotNull ScheduledExecutorService executor) {
+        Assert.notNull(callable, "callable may not be null");
+        Assert.notNull(executor, "executor may not be null");
+        RetryTask task = new RetryTask(callable, executor);
+        task.run();
+        return task.promise;
+    }
+
+    private final class RetryTask implements Runnable, BiConsumer<V, Throwable> {
+        private final Callable<? extends CompletionStage<V>> callable;
+        private final ScheduledExecutorService executor;
+        private final CompletableFuture<V> promise = new CompletableFuture<>();
+        private final long startTime = System.nanoTime();
+        private int attemptNumber;
+
+        RetryTask(Callable<? extends CompletionStage<V>> callable, ScheduledExecutorService executor) {
+            this.callable = callable;
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            ++attemptNumber;
+            CompletionStage<V> stage;
+            try {
+                stage = callable.call();
+            } catch (Throwable t) {
+                accept(null, t);
+                return;
+            }
+            if (stage == null) {
+                accept(null, new NullPointerException("callable returns null stage"));
+                return;
+            }
+            stage.whenComplete(this);
+        }
+
+        /**
+         * Continue with the first attempt which has been made
+         * outside, delay since first attempt is measured from now.
+         */
+        void firstAttemptFailed(Throwable cause) {
+            attemptNumber = 1;
+            accept(null, cause);
+        }
+
+        @Override
+        public void accept(V result, Throwable cause) {
+            final long delay = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            Attempt<V> attempt;
+            if (cause == null) {
+                attempt = new Retryer.ResultAttempt<>(result, attemptNumber, delay);
+            } else {
+                if (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                attempt = new Retryer.ExceptionAttempt<>(cause, attemptNumber, delay);
+            }
+
+            try {
+                for (RetryListener<V> listener : listeners) {
+                    listener.onRetry(attempt);
+                }
+                if (!rejectionPredicate.test(attempt)) {
+                    if (cause == null) {
+                        promise.complete(result);
+                    } else {
+                        promise.completeExceptionally(new ExecutionException(cause));
+                    }
+                    return;
+                }
+                if (stopStrategy.shouldStop(attempt)) {
+                    promise.completeExceptionally(new RetryException(attemptNumber, attempt));
+                    return;
+                }
+                final long sleepTime = waitStrategy.computeSleepTime(attempt);
+                if (sleepTime <= 0) {
+                    executor.execute(this);
+                } else {
+                    executor.schedule(this, sleepTime, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                promise.completeExceptionally(new ExecutionException(e));
+            } catch (Throwable t) {
+                // strategies and listeners should not throw,
+                // fail the promise so that caller won't wait forever
+                promise.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * An attempt which takes an argument, so that it needn't
+     * capture anything.
+     *
+     * @param <T> the type of argument
+     * @param <V> the type of result
+     */
+    @FunctionalInterface
+    public interface AttemptFunction<T, V> {
+        V apply(T arg) throws Exception;
+    }
+
+    /**
+     * Callback notified when retries finish.
+     *
+     * @param <T> the type of argument
+     * @param <V> the type of result
+     */
+    @FunctionalInterface
+    public interface Callback<T, V> {
+        /**
+         * Notified with the result, or the cause which is an
+         * {@link ExecutionException} or a {@link RetryException}.
+         *
+         * @param arg    the argument of attempts
+         * @param result the result if succeeds
+         * @param cause  the cause if fails
+         */
+        void onComplete(T arg, V result, Throwable cause);
+    }
+}
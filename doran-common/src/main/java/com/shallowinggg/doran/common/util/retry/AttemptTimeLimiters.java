@@ -4,12 +4,19 @@ import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.common.util.concurrent.DirectExecutorService;
 import com.shallowinggg.doran.common.util.concurrent.SimpleTimeLimiter;
 import com.shallowinggg.doran.common.util.concurrent.TimeLimiter;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.concurrent.Immutable;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Factory class for instances of {@link AttemptTimeLimiter}
@@ -57,6 +64,48 @@ public class AttemptTimeLimiters {
         return new FixedAttemptTimeLimit<>(duration, timeUnit, executorService);
     }
 
+    /**
+     * Return an {@link AttemptTimeLimiter} which runs attempts in the calling
+     * thread and interrupts it when the time limit is exceeded. Deadlines are
+     * armed on a {@link HashedWheelTimer} shared by all such limiters, so
+     * unlike {@link #fixedTimeLimit(long, TimeUnit, ExecutorService)} no
+     * thread is parked per attempt.
+     * <p>
+     * See {@link #timerTimeLimit(long, TimeUnit, Timer)} for details.
+     *
+     * @param duration that an attempt may persist before being interrupted
+     * @param timeUnit of the 'duration' arg
+     * @param <V>      the type of the computation result
+     * @return an {@link AttemptTimeLimiter} with a fixed time limit for each attempt
+     */
+    public static <V> AttemptTimeLimiter<V> timerTimeLimit(long duration, @NotNull TimeUnit timeUnit) {
+        return timerTimeLimit(duration, timeUnit, SharedTimerHolder.TIMER);
+    }
+
+    /**
+     * Return an {@link AttemptTimeLimiter} which runs attempts in the calling
+     * thread and interrupts it when the time limit is exceeded.
+     * <p>
+     * If an interrupted attempt throws, a {@link TimeoutException} caused by
+     * it is thrown. If it returns a result even so, the result is kept since
+     * the work has been done. Interrupt status set by the limiter is cleared
+     * before return. Attempts blocked in uninterruptible operations, e.g.
+     * socket connect, should bound them by their own timeouts.
+     *
+     * @param duration that an attempt may persist before being interrupted
+     * @param timeUnit of the 'duration' arg
+     * @param timer    used to arm deadlines
+     * @param <V>      the type of the computation result
+     * @return an {@link AttemptTimeLimiter} with a fixed time limit for each attempt
+     */
+    public static <V> AttemptTimeLimiter<V> timerTimeLimit(long duration, @NotNull TimeUnit timeUnit,
+                                                           @NotNull Timer timer) {
+        Assert.notNull(timeUnit);
+        Assert.notNull(timer);
+        Assert.isTrue(duration > 0, "duration must be positive");
+        return new TimerAttemptTimeLimit<>(duration, timeUnit, timer);
+    }
+
     @Immutable
     private static final class NoAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
         @Override
@@ -93,4 +142,91 @@ public class AttemptTimeLimiters {
             return timeLimiter.callWithTimeout(callable, duration, timeUnit);
         }
     }
+
+    @Immutable
+    private static final class TimerAttemptTimeLimit<V> implements AttemptTimeLimiter<V> {
+        private final long duration;
+        private final TimeUnit timeUnit;
+        private final Timer timer;
+
+        TimerAttemptTimeLimit(long duration, TimeUnit timeUnit, Timer timer) {
+            this.duration = duration;
+            this.timeUnit = timeUnit;
+            this.timer = timer;
+        }
+
+        @Override
+        public V call(Callable<V> callable) throws Exception {
+            final Deadline deadline = new Deadline(Thread.currentThread());
+            final Timeout timeout = timer.newTimeout(deadline, duration, timeUnit);
+            final V result;
+            try {
+                result = callable.call();
+            } catch (Exception e) {
+                timeout.cancel();
+                if (deadline.finish()) {
+                    TimeoutException ex = new TimeoutException("Attempt timed out after " + duration + " " + timeUnit);
+                    ex.initCause(e);
+                    throw ex;
+                }
+                throw e;
+            } catch (Error e) {
+                timeout.cancel();
+                deadline.finish();
+                throw e;
+            }
+            timeout.cancel();
+            deadline.finish();
+            return result;
+        }
+    }
+
+    /**
+     * Interrupt the attempt thread if it is still running when
+     * fired. Attempt thread and timer race by CAS on state, so
+     * an attempt which has finished is never interrupted.
+     */
+    private static final class Deadline extends AtomicInteger implements TimerTask {
+        private static final int RUNNING = 0;
+        private static final int FINISHED = 1;
+        private static final int EXPIRED = 2;
+        private static final int INTERRUPTED = 3;
+
+        private final Thread thread;
+
+        Deadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (compareAndSet(RUNNING, EXPIRED)) {
+                thread.interrupt();
+                set(INTERRUPTED);
+            }
+        }
+
+        /**
+         * Mark the attempt finished, must be invoked in attempt
+         * thread once.
+         *
+         * @return {@code true} if the deadline has expired
+         */
+        boolean finish() {
+            if (compareAndSet(RUNNING, FINISHED)) {
+                return false;
+            }
+            // wait for the interrupt so that it won't leak to the caller
+            while (get() != INTERRUPTED) {
+                Thread.yield();
+            }
+            Thread.interrupted();
+            return true;
+        }
+    }
+
+    private static final class SharedTimerHolder {
+        static final Timer TIMER = new HashedWheelTimer(
+                new DefaultThreadFactory("AttemptTimeLimiterTimer", true), 10, TimeUnit.MILLISECONDS);
+    }
 }
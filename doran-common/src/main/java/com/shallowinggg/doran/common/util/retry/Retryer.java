@@ -34,6 +34,11 @@ public final class Retryer<V> {
     private final Predicate<Attempt<V>> rejectionPredicate;
     private final Collection<RetryListener<V>> listeners;
 
+    /**
+     * If the first attempt runs without {@link Attempt}, see {@link #call(Callable)}.
+     */
+    private final boolean firstAttemptFastPath;
+
     /**
      * Constructor
      *
@@ -104,6 +109,21 @@ public final class Retryer<V> {
                    @NotNull BlockStrategy blockStrategy,
                    @NotNull Predicate<Attempt<V>> rejectionPredicate,
                    @NotNull Collection<RetryListener<V>> listeners) {
+        this(attemptTimeLimiter, stopStrategy, waitStrategy, blockStrategy, rejectionPredicate, listeners, false);
+    }
+
+    /**
+     * Constructor used by {@link RetryerBuilder}, {@code firstAttemptFastPath}
+     * can only be true if there is no attempt time limiter, no listener and
+     * rejection predicate never rejects results.
+     */
+    Retryer(AttemptTimeLimiter<V> attemptTimeLimiter,
+            StopStrategy stopStrategy,
+            WaitStrategy waitStrategy,
+            BlockStrategy blockStrategy,
+            Predicate<Attempt<V>> rejectionPredicate,
+            Collection<RetryListener<V>> listeners,
+            boolean firstAttemptFastPath) {
         Assert.notNull(attemptTimeLimiter, "timeLimiter may not be null");
         Assert.notNull(stopStrategy, "stopStrategy may not be null");
         Assert.notNull(waitStrategy, "waitStrategy may not be null");
@@ -117,6 +137,7 @@ public final class Retryer<V> {
         this.blockStrategy = blockStrategy;
         this.rejectionPredicate = rejectionPredicate;
         this.listeners = listeners;
+        this.firstAttemptFastPath = firstAttemptFastPath;
     }
 
     /**
@@ -124,6 +145,12 @@ public final class Retryer<V> {
      * accepts the attempt, the stop strategy is used to decide if a new attempt
      * must be made. Then the wait strategy is used to decide how much time to sleep
      * and a new attempt is made.
+     * <p>
+     * For retryers built by {@link RetryerBuilder} without result predicate,
+     * listener and attempt time limiter, a successful first attempt returns
+     * at once without allocation or reading clock. {@link Attempt}s are built
+     * only after it fails, and delay since first attempt is measured from
+     * its failure.
      *
      * @param callable the callable task to be executed
      * @return the computed result of the given callable
@@ -135,14 +162,37 @@ public final class Retryer<V> {
      *                            this exception is thrown and the thread's interrupt status is set.
      */
     public V call(Callable<V> callable) throws ExecutionException, RetryException {
+        if (firstAttemptFastPath) {
+            final V result;
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                return retry(callable, t);
+            }
+            return result;
+        }
+        return retry(callable, null);
+    }
+
+    /**
+     * Make attempts until the rejection predicate accepts one, if
+     * {@code firstCause} is not null, it is the cause of first attempt
+     * which has been made.
+     */
+    private V retry(Callable<V> callable, Throwable firstCause) throws ExecutionException, RetryException {
         long startTime = System.nanoTime();
         for (int attemptNumber = 1; ; attemptNumber++) {
             Attempt<V> attempt;
-            try {
-                V result = attemptTimeLimiter.call(callable);
-                attempt = new ResultAttempt<>(result, attemptNumber, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
-            } catch (Throwable t) {
-                attempt = new ExceptionAttempt<>(t, attemptNumber, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            if (firstCause != null) {
+                attempt = new ExceptionAttempt<>(firstCause, attemptNumber, 0);
+                firstCause = null;
+            } else {
+                try {
+                    V result = attemptTimeLimiter.call(callable);
+                    attempt = new ResultAttempt<>(result, attemptNumber, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                } catch (Throwable t) {
+                    attempt = new ExceptionAttempt<>(t, attemptNumber, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                }
             }
 
             for (RetryListener<V> listener : listeners) {
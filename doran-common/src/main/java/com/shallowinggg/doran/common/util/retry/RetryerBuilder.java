@@ -9,7 +9,7 @@ import java.util.List;
 import java.util.function.Predicate;
 
 /**
- * A builder used to configure and create a {@link Retryer}.
+ * A builder used to configure and create a {@link Retryer} or an {@link AsyncRetryer}.
  *
  * @param <V> result of a {@link Retryer}'s call, the type of the call return value
  * @author JB
@@ -21,6 +21,7 @@ public class RetryerBuilder<V> {
     private WaitStrategy waitStrategy;
     private BlockStrategy blockStrategy;
     private Predicate<Attempt<V>> rejectionPredicate = Predicates.alwaysFalse();
+    private boolean rejectResult;
     private final List<RetryListener<V>> listeners = new ArrayList<>();
 
     private RetryerBuilder() {
@@ -163,6 +164,7 @@ public class RetryerBuilder<V> {
     public RetryerBuilder<V> retryIfResult(@NotNull Predicate<V> resultPredicate) {
         Assert.notNull(resultPredicate, "resultPredicate may not be null");
         rejectionPredicate = Predicates.or(rejectionPredicate, new ResultPredicate<>(resultPredicate));
+        rejectResult = true;
         return this;
     }
 
@@ -177,7 +179,35 @@ public class RetryerBuilder<V> {
         WaitStrategy theWaitStrategy = waitStrategy == null ? WaitStrategies.noWait() : waitStrategy;
         BlockStrategy theBlockStrategy = blockStrategy == null ? BlockStrategies.threadSleepStrategy() : blockStrategy;
 
-        return new Retryer<>(theAttemptTimeLimiter, theStopStrategy, theWaitStrategy, theBlockStrategy, rejectionPredicate, listeners);
+        return new Retryer<>(theAttemptTimeLimiter, theStopStrategy, theWaitStrategy, theBlockStrategy,
+                rejectionPredicate, new ArrayList<>(listeners), isFirstAttemptFastPath());
+    }
+
+    /**
+     * Builds the asynchronous retryer. Block strategy and attempt
+     * time limiter are not supported by {@link AsyncRetryer}, since
+     * it never blocks the calling thread.
+     *
+     * @return the built asynchronous retryer.
+     * @throws IllegalStateException if a block strategy or attempt time limiter has been set.
+     */
+    public AsyncRetryer<V> buildAsync() {
+        Assert.state(blockStrategy == null, "block strategy is not supported by AsyncRetryer");
+        Assert.state(attemptTimeLimiter == null, "attempt time limiter is not supported by AsyncRetryer");
+        StopStrategy theStopStrategy = stopStrategy == null ? StopStrategies.neverStop() : stopStrategy;
+        WaitStrategy theWaitStrategy = waitStrategy == null ? WaitStrategies.noWait() : waitStrategy;
+
+        return new AsyncRetryer<>(theStopStrategy, theWaitStrategy, rejectionPredicate, new ArrayList<>(listeners),
+                isFirstAttemptFastPath());
+    }
+
+    /**
+     * Successful first attempt can skip building {@link Attempt} only if
+     * nobody observes it: rejection predicate never rejects results, and
+     * there is no listener or attempt time limiter.
+     */
+    private boolean isFirstAttemptFastPath() {
+        return !rejectResult && listeners.isEmpty() && attemptTimeLimiter == null;
     }
 
     private static final class ExceptionClassPredicate<V> implements Predicate<Attempt<V>> {
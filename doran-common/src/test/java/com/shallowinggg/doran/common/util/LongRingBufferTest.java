@@ -0,0 +1,80 @@
+package com.shallowinggg.doran.common.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LongRingBufferTest {
+
+    @Test
+    public void testAddAndRemove() {
+        LongRingBuffer<String> buffer = new LongRingBuffer<>(4);
+        for (long i = 1; i <= 10; ++i) {
+            buffer.add(i, String.valueOf(i));
+        }
+        assertEquals(10, buffer.size());
+        assertEquals(11, buffer.nextKey());
+        assertEquals("7", buffer.get(7));
+        assertNull(buffer.get(11));
+
+        assertEquals("1", buffer.remove(1));
+        assertEquals("5", buffer.remove(5));
+        assertNull(buffer.remove(5));
+        assertFalse(buffer.contains(5));
+        assertEquals(8, buffer.size());
+    }
+
+    @Test
+    public void testRemoveUntil() {
+        LongRingBuffer<String> buffer = new LongRingBuffer<>();
+        for (long i = 1; i <= 100; ++i) {
+            buffer.add(i, String.valueOf(i));
+        }
+        buffer.remove(50);
+        assertEquals(49, buffer.removeUntil(50));
+        assertEquals(50, buffer.size());
+        assertNull(buffer.get(30));
+        assertEquals("51", buffer.get(51));
+
+        List<Long> removed = new ArrayList<>();
+        assertEquals(3, buffer.removeUntil(53, (key, value) -> removed.add(key)));
+        assertEquals(Arrays.asList(51L, 52L, 53L), removed);
+
+        assertEquals(47, buffer.removeUntil(1000));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testForEachAndDrain() {
+        LongRingBuffer<String> buffer = new LongRingBuffer<>(2);
+        for (long i = 0; i < 5; ++i) {
+            buffer.add(i, String.valueOf(i));
+        }
+        List<Long> visited = new ArrayList<>();
+        buffer.forEach((key, value) -> {
+            visited.add(key);
+            if (key % 2 == 0) {
+                buffer.remove(key);
+                buffer.add(buffer.nextKey(), value);
+            }
+        });
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), visited);
+        assertEquals(Arrays.asList("1", "3", "0", "2", "4"), buffer.drain());
+        assertTrue(buffer.isEmpty());
+
+        // empty buffer accepts smaller key, e.g. sequence restarts
+        buffer.add(1, "1");
+        assertEquals("1", buffer.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddSmallerKey() {
+        LongRingBuffer<String> buffer = new LongRingBuffer<>();
+        buffer.add(10, "10");
+        buffer.add(9, "9");
+    }
+}
@@ -0,0 +1,109 @@
+package com.shallowinggg.doran.common.util;
+
+import com.shallowinggg.doran.common.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MQConfigCodecTest {
+
+    @Test
+    public void testRabbitMQConfig() {
+        RabbitMQConfig config = new RabbitMQConfig();
+        fillCommonFields(config);
+        config.setExchangeName("exchange");
+        config.setRoutingKey("key");
+        config.setQueueName("队列");
+        config.setBatchSize(32);
+        config.setBatchLingerMicros(500);
+        config.setMaxInFlightBatches(8);
+
+        RabbitMQConfig decoded = (RabbitMQConfig) MQConfigCodec.decode(MQConfigCodec.encode(config));
+        assertTrue(config.equalsIgnoreThreadNum(decoded));
+        assertEquals(config.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    public void testActiveMQConfig() {
+        ActiveMQConfig config = new ActiveMQConfig();
+        fillCommonFields(config);
+        config.setUsername("user");
+        config.setPassword("password");
+        config.setDestinationName("destination");
+        config.setDestinationType(ActiveMQConfig.DestinationType.TOPIC);
+        config.setSelector("id > 1");
+
+        ActiveMQConfig decoded = (ActiveMQConfig) MQConfigCodec.decode(MQConfigCodec.encode(config));
+        assertTrue(config.equalsIgnoreThreadNum(decoded));
+        assertNull(decoded.getClientId());
+    }
+
+    @Test
+    public void testList() {
+        InMemoryConfig inMemoryConfig = new InMemoryConfig();
+        fillCommonFields(inMemoryConfig);
+        inMemoryConfig.setQueueName("queue");
+        inMemoryConfig.setNackRate(0.25);
+        EmptyMQConfig emptyConfig = new EmptyMQConfig();
+        emptyConfig.setName("empty");
+
+        List<MQConfig> decoded = MQConfigCodec.decodeList(
+                MQConfigCodec.encodeList(Arrays.asList(emptyConfig, inMemoryConfig)));
+        assertEquals(1, decoded.size());
+        assertTrue(inMemoryConfig.equalsIgnoreThreadNum(decoded.get(0)));
+    }
+
+    @Test
+    public void testAbsentNames() {
+        InMemoryConfig config = new InMemoryConfig();
+        fillCommonFields(config);
+        config.setQueueName("queue");
+
+        ByteBuf buf = Unpooled.wrappedBuffer(MQConfigCodec.encodeList(
+                Collections.singletonList(config), Arrays.asList("a", "b")));
+        List<MQConfig> configs = MQConfigCodec.decodeList(buf);
+        assertEquals(1, configs.size());
+        assertTrue(config.equalsIgnoreThreadNum(configs.get(0)));
+        assertEquals(Arrays.asList("a", "b"), MQConfigCodec.decodeNames(buf));
+        assertFalse(buf.isReadable());
+    }
+
+    @Test
+    public void testUnknownType() {
+        MQConfig config = MQConfigCodec.decode(MQConfigCodec.encode(new EmptyMQConfig()));
+        assertEquals(MQType.UNKNOWN, config.getType());
+    }
+
+    @Test
+    public void testSkipNewerFields() {
+        InMemoryConfig config = new InMemoryConfig();
+        fillCommonFields(config);
+        config.setQueueName("queue");
+        ByteBuf buf = Unpooled.buffer();
+        MQConfigCodec.encode(config, buf);
+        // pretend a newer peer appends a field
+        buf.writeLong(1L);
+        buf.setInt(2, buf.getInt(2) + 8);
+        buf.writeByte(42);
+
+        MQConfig decoded = MQConfigCodec.decode(buf);
+        assertTrue(config.equalsIgnoreThreadNum(decoded));
+        assertEquals(42, buf.readByte());
+    }
+
+    private static void fillCommonFields(MQConfig config) {
+        config.setName("test");
+        config.setUri("amqp://localhost:5672");
+        config.setThreadNum(4);
+        config.setTimestamp(System.currentTimeMillis());
+        config.setMaxInFlightMessages(1024);
+        config.setBackpressurePolicy(BackpressurePolicy.CALLER_RUNS);
+        config.setBlockTimeoutMillis(100);
+    }
+}
@@ -0,0 +1,41 @@
+package com.shallowinggg.doran.common.util;
+
+import com.shallowinggg.doran.common.MetricData;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricDataCodecTest {
+
+    @Test
+    public void testEncodeDecode() {
+        MetricData producer = new MetricData();
+        producer.setConfigName("生产者");
+        producer.setSendCount(1L << 40);
+        producer.setSendInc(300);
+        producer.setSendLatencyP50(3);
+        producer.setSendLatencyP99(47);
+        producer.setSendLatencyMax(1000);
+        MetricData consumer = new MetricData();
+        consumer.setConfigName("consumer");
+        consumer.setReceiveCount(10);
+        consumer.setReceiveInc(1);
+
+        List<MetricData> decoded = MetricDataCodec.decode(
+                MetricDataCodec.encode(Arrays.asList(producer, consumer)));
+        assertEquals(2, decoded.size());
+        assertEquals(producer.toString(), decoded.get(0).toString());
+        assertEquals(consumer.toString(), decoded.get(1).toString());
+    }
+
+    @Test
+    public void testEmpty() {
+        byte[] data = MetricDataCodec.encode(Collections.emptyList());
+        assertEquals(2, data.length);
+        assertTrue(MetricDataCodec.decode(data).isEmpty());
+    }
+}
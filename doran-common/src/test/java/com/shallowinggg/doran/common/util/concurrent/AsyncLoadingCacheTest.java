@@ -0,0 +1,102 @@
+package com.shallowinggg.doran.common.util.concurrent;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncLoadingCacheTest {
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> first = executor.submit(() -> cache.get("key", k -> {
+                loading.countDown();
+                release.await();
+                return loads.incrementAndGet();
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Integer> second = executor.submit(() -> cache.get("key", k -> loads.incrementAndGet()));
+            // other keys are not blocked by the load in progress
+            assertEquals(100, (int) executor.submit(() -> cache.get("other", k -> 100)).get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, (int) second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+            assertEquals(1, (int) cache.getIfPresent("key"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testJoinerTimeout() throws Exception {
+        AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> first = executor.submit(() -> cache.get("key", k -> {
+                loading.countDown();
+                release.await();
+                return 1;
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // joiner waits for its own timeout instead of the loader's
+            try {
+                cache.get("key", k -> 2, 50, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (UncheckedTimeoutException e) {
+                // expected
+            }
+
+            release.countDown();
+            assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, (int) cache.get("key", k -> 2, 50, TimeUnit.MILLISECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        AsyncLoadingCache<String, String> cache = new AsyncLoadingCache<>();
+        try {
+            cache.get("key", k -> {
+                throw new IOException();
+            });
+            fail();
+        } catch (UncheckedExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertFalse(cache.containsKey("key"));
+        assertEquals("value", cache.get("key", k -> "value"));
+    }
+
+    @Test
+    public void testAsyncLoad() {
+        AsyncLoadingCache<String, String> cache = new AsyncLoadingCache<>();
+        CompletableFuture<String> stage = new CompletableFuture<>();
+        CompletableFuture<String> future = cache.getAsync("key", k -> stage);
+        assertSame(future, cache.getAsync("key", k -> CompletableFuture.completedFuture("other")));
+        assertNull(cache.getIfPresent("key"));
+
+        stage.complete("value");
+        assertEquals("value", future.join());
+        cache.forEach((k, v) -> assertEquals("value", v));
+    }
+}
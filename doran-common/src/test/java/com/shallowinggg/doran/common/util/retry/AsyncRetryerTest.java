@@ -0,0 +1,121 @@
+package com.shallowinggg.doran.common.util.retry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncRetryerTest {
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRetryUntilSuccess() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        AtomicInteger listened = new AtomicInteger();
+        AsyncRetryer<Integer> retryer = RetryerBuilder.<Integer>newBuilder()
+                .retryIfException()
+                .withWaitStrategy(WaitStrategies.fixedWait(10, TimeUnit.MILLISECONDS))
+                .withRetryListener(attempt -> listened.incrementAndGet())
+                .buildAsync();
+
+        CompletableFuture<Integer> future = retryer.call(() -> {
+            if (count.incrementAndGet() < 3) {
+                throw new IOException();
+            }
+            return count.get();
+        }, executor);
+        // retries are scheduled, caller is not blocked
+        assertFalse(future.isDone());
+        assertEquals(3, (int) future.get(5, TimeUnit.SECONDS));
+        assertEquals(3, listened.get());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        AsyncRetryer<Void> retryer = RetryerBuilder.<Void>newBuilder()
+                .retryIfException()
+                .withStopStrategy(StopStrategies.stopAfterAttempt(2))
+                .buildAsync();
+
+        CompletableFuture<Void> future = retryer.callAsync(() -> {
+            CompletableFuture<Void> stage = new CompletableFuture<>();
+            stage.completeExceptionally(new IOException());
+            return stage;
+        }, executor);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            RetryException cause = (RetryException) e.getCause();
+            assertEquals(2, cause.getNumberOfFailedAttempts());
+            assertTrue(cause.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testNotRetryableException() throws Exception {
+        AsyncRetryer<Void> retryer = RetryerBuilder.<Void>newBuilder()
+                .retryIfExceptionOfType(IOException.class)
+                .buildAsync();
+
+        CompletableFuture<Void> future = retryer.call(() -> {
+            throw new IllegalStateException();
+        }, executor);
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ExecutionException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testFunctionFastPath() throws Exception {
+        AsyncRetryer<String> retryer = RetryerBuilder.<String>newBuilder()
+                .retryIfException()
+                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
+                .buildAsync();
+        AtomicInteger count = new AtomicInteger();
+        CompletableFuture<String> success = new CompletableFuture<>();
+        retryer.call(arg -> arg, "msg", executor, (arg, result, cause) -> success.complete(result));
+        // first attempt succeeds, callback is invoked in place
+        assertEquals("msg", success.getNow(null));
+
+        CompletableFuture<Long> retried = new CompletableFuture<>();
+        retryer.call(arg -> {
+            if (count.incrementAndGet() < 3) {
+                throw new IOException();
+            }
+            return arg;
+        }, "msg", executor, (arg, result, cause) -> retried.complete((long) count.get()));
+        assertEquals(3L, (long) retried.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBlockStrategyNotSupported() {
+        RetryerBuilder.newBuilder()
+                .withBlockStrategy(BlockStrategies.threadSleepStrategy())
+                .buildAsync();
+    }
+}
@@ -0,0 +1,39 @@
+package com.shallowinggg.doran.common.util.retry;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.*;
+
+public class AttemptTimeLimitersTest {
+
+    @Test
+    public void testTimerTimeLimit() throws Exception {
+        AttemptTimeLimiter<String> limiter = AttemptTimeLimiters.timerTimeLimit(50, TimeUnit.MILLISECONDS);
+        assertEquals("ok", limiter.call(() -> "ok"));
+
+        try {
+            limiter.call(() -> {
+                Thread.sleep(10_000);
+                return "late";
+            });
+            fail();
+        } catch (TimeoutException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        // interrupt set by limiter doesn't leak
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testFinishedAttemptNotInterrupted() throws Exception {
+        AttemptTimeLimiter<String> limiter = AttemptTimeLimiters.timerTimeLimit(20, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 100; ++i) {
+            assertEquals("ok", limiter.call(() -> "ok"));
+        }
+        Thread.sleep(100);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
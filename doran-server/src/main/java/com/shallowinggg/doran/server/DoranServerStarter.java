@@ -1,7 +1,6 @@
 package com.shallowinggg.doran.server;
 
 import com.shallowinggg.doran.server.transport.ServerConfig;
-import com.shallowinggg.doran.transport.netty.NettyClientConfig;
 import com.shallowinggg.doran.transport.netty.NettyServerConfig;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -26,10 +25,4 @@ public class DoranServerStarter {
     public NettyServerConfig nettyServerConfig() {
         return new NettyServerConfig();
     }
-
-    @Bean
-    @ConditionalOnMissingBean
-    public NettyClientConfig nettyClientConfig() {
-        return new NettyClientConfig();
-    }
 }
@@ -4,4 +4,46 @@ package com.shallowinggg.doran.server.transport;
  * @author shallowinggg
  */
 public class ServerConfig {
+
+    /**
+     * Time in milliseconds that config updates for a client are
+     * held before pushed, updates in this window are sent in one
+     * request and only the latest one of a config is kept.
+     */
+    private int pushConfigLingerMillis = 100;
+
+    /**
+     * Delay in milliseconds before config updates that fail to
+     * push are pushed again.
+     */
+    private int pushConfigRetryMillis = 1000;
+
+    /**
+     * Timeout in milliseconds for a config push.
+     */
+    private int pushConfigTimeoutMillis = 3000;
+
+    public int getPushConfigLingerMillis() {
+        return pushConfigLingerMillis;
+    }
+
+    public void setPushConfigLingerMillis(int pushConfigLingerMillis) {
+        this.pushConfigLingerMillis = pushConfigLingerMillis;
+    }
+
+    public int getPushConfigRetryMillis() {
+        return pushConfigRetryMillis;
+    }
+
+    public void setPushConfigRetryMillis(int pushConfigRetryMillis) {
+        this.pushConfigRetryMillis = pushConfigRetryMillis;
+    }
+
+    public int getPushConfigTimeoutMillis() {
+        return pushConfigTimeoutMillis;
+    }
+
+    public void setPushConfigTimeoutMillis(int pushConfigTimeoutMillis) {
+        this.pushConfigTimeoutMillis = pushConfigTimeoutMillis;
+    }
 }
@@ -4,7 +4,7 @@ import com.shallowinggg.doran.common.RequestCode;
 import com.shallowinggg.doran.common.ThreadFactoryImpl;
 import com.shallowinggg.doran.server.web.service.ClientService;
 import com.shallowinggg.doran.server.web.service.MQConfigService;
-import com.shallowinggg.doran.transport.netty.NettyClientConfig;
+import com.shallowinggg.doran.server.web.service.MetricService;
 import com.shallowinggg.doran.transport.netty.NettyRemotingServer;
 import com.shallowinggg.doran.transport.netty.NettyServerConfig;
 import org.slf4j.Logger;
@@ -44,24 +44,31 @@ public class ServerController {
      */
     private final MQConfigService mqConfigService;
 
+    /**
+     * Aggregate metrics reported by client heartbeats
+     */
+    private final MetricService metricService;
+
     private final ScheduledExecutorService scheduledExecutorService;
 
     public ServerController(final ServerConfig serverConfig,
                             final NettyServerConfig nettyServerConfig,
-                            final NettyClientConfig nettyClientConfig,
                             final MQConfigService mqConfigService,
-                            final ClientService clientService) {
+                            final ClientService clientService,
+                            final MetricService metricService) {
         this.serverConfig = serverConfig;
         this.server = new NettyRemotingServer(nettyServerConfig);
-        this.serverOuterApi = new ServerOuterApi(this, nettyClientConfig);
+        this.serverOuterApi = new ServerOuterApi(this, this.server, serverConfig);
         this.clientService = clientService;
         this.mqConfigService = mqConfigService;
+        this.metricService = metricService;
         this.scheduledExecutorService = new ScheduledThreadPoolExecutor(1,
                 new ThreadFactoryImpl("serverScheduledThread_"));
     }
 
     public void init() {
         this.registerProcessors();
+        this.mqConfigService.addUpdateListener(this.serverOuterApi::pushMqConfig);
     }
 
     private void registerProcessors() {
@@ -69,6 +76,7 @@ public class ServerController {
         this.server.registerProcessor(RequestCode.HEART_BEAT, serverCoreProcessor, null);
         this.server.registerProcessor(RequestCode.REGISTER_CLIENT, serverCoreProcessor, null);
         this.server.registerProcessor(RequestCode.REQUEST_CONFIG, serverCoreProcessor, null);
+        this.server.registerProcessor(RequestCode.REQUEST_CONFIGS, serverCoreProcessor, null);
     }
 
     public void start() {
@@ -84,4 +92,8 @@ public class ServerController {
     public MQConfigService getMqConfigService() {
         return mqConfigService;
     }
+
+    public MetricService getMetricService() {
+        return metricService;
+    }
 }
@@ -1,22 +1,28 @@
 package com.shallowinggg.doran.server.transport;
 
 import com.shallowinggg.doran.common.*;
-import com.shallowinggg.doran.common.util.PojoHeaderConverter;
+import com.shallowinggg.doran.common.util.MQConfigCodec;
+import com.shallowinggg.doran.common.util.MetricDataCodec;
 import com.shallowinggg.doran.server.web.entity.ClientMetadata;
 import com.shallowinggg.doran.server.web.service.ClientService;
 import com.shallowinggg.doran.server.web.service.MQConfigService;
 import com.shallowinggg.doran.transport.exception.RemotingCommandException;
 import com.shallowinggg.doran.transport.netty.NettyRequestProcessor;
 import com.shallowinggg.doran.transport.protocol.RemotingCommand;
-import com.shallowinggg.doran.transport.protocol.RemotingSerializable;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * @author shallowinggg
  */
 public class ServerCoreProcessor implements NettyRequestProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerCoreProcessor.class);
     private final ServerController controller;
 
     public ServerCoreProcessor(final ServerController controller) {
@@ -29,9 +35,11 @@ public class ServerCoreProcessor implements NettyRequestProcessor {
             case RequestCode.REGISTER_CLIENT:
                 return registerClient(ctx, request);
             case RequestCode.HEART_BEAT:
-                break;
+                return heartBeat(ctx, request);
             case RequestCode.REQUEST_CONFIG:
-                return requestMqConfig(request);
+                return requestMqConfig(ctx, request);
+            case RequestCode.REQUEST_CONFIGS:
+                return requestMqConfigs(ctx, request);
             default:
         }
         return null;
@@ -42,13 +50,44 @@ public class ServerCoreProcessor implements NettyRequestProcessor {
         return false;
     }
 
+    /**
+     * Handle client's request {@link RequestCode#HEART_BEAT}. Keep
+     * client alive and record metrics carried in its body.
+     * Heartbeat is sent oneway, so no response is returned.
+     *
+     * @param request request to handle
+     * @return {@code null}
+     * @throws RemotingCommandException if read request's header fail
+     */
+    public RemotingCommand heartBeat(final ChannelHandlerContext context,
+                                     final RemotingCommand request) throws RemotingCommandException {
+        final HeartBeatRequestHeader header = request.decodeCommandCustomHeader(HeartBeatRequestHeader.class);
+        final String clientId = header.getClientId();
+        if (!this.controller.getClientService().heartBeat(clientId)) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Receive heartbeat from unregistered client {}, addr: {}", clientId,
+                        context.channel().remoteAddress());
+            }
+            return null;
+        }
+
+        final ByteBuf body = request.getBodyBuf();
+        if (body != null) {
+            final List<MetricData> metrics = MetricDataCodec.decode(body);
+            this.controller.getMetricService().recordMetrics(clientId, System.currentTimeMillis(), metrics);
+        }
+        return null;
+    }
+
     /**
      * Handle client's request {@link RequestCode#REGISTER_CLIENT}.
      * If the client is registered for the first time, it will be
      * recorded and response normally.
-     * If the client is downtime and restart quickly (server has
-     * not removed inactive client yet), this method will return
-     * MQ Configs it requests before, and this can help it recover.
+     * If the client is downtime and restart quickly, or reconnects
+     * (server has not removed inactive client yet), it will be bound
+     * to the new channel and this method will return the latest
+     * version of MQ Configs it requests before, and this can help
+     * it recover.
      *
      * @param request request to handle
      * @return handle result
@@ -71,13 +110,13 @@ public class ServerCoreProcessor implements NettyRequestProcessor {
             responseHeader.setHoldingMqConfigNums(0);
         } else {
             ClientMetadata clientMetadata = manager.getClientMetaInfo(clientId);
-            final Collection<MQConfig> mqConfigs = clientMetadata.holdingConfigs();
+            manager.registerClient(clientMetadata, context.channel());
+            final List<MQConfig> mqConfigs = latestHoldingConfigs(context, clientMetadata);
             if (mqConfigs.isEmpty()) {
                 responseHeader.setHoldingMqConfigNums(0);
             } else {
                 responseHeader.setHoldingMqConfigNums(mqConfigs.size());
-                byte[] json = RemotingSerializable.encode(mqConfigs);
-                response.setBody(json);
+                response.setBody(MQConfigCodec.encodeList(mqConfigs));
             }
         }
 
@@ -86,18 +125,39 @@ public class ServerCoreProcessor implements NettyRequestProcessor {
         return response;
     }
 
+    /**
+     * Return the latest version of configs the client holds, pushes
+     * that are dropped while the client is disconnected are made up
+     * by them.
+     */
+    private List<MQConfig> latestHoldingConfigs(ChannelHandlerContext context, ClientMetadata clientMetadata) {
+        final MQConfigService mqConfigService = this.controller.getMqConfigService();
+        final Collection<MQConfig> holdingConfigs = clientMetadata.holdingConfigs();
+        final List<MQConfig> mqConfigs = new ArrayList<>(holdingConfigs.size());
+        for (MQConfig holding : holdingConfigs) {
+            MQConfig config = mqConfigService.selectMQConfig(holding.getName());
+            if (config.getType() != MQType.UNKNOWN) {
+                this.controller.getClientService().holdMqConfig(context.channel(), config);
+                mqConfigs.add(config);
+            }
+        }
+        return mqConfigs;
+    }
+
     /**
      * Handle client's request {@link RequestCode#REQUEST_CONFIG}.
-     * If the config requested exist, it will be returned normally.
+     * If the config requested exist, it will be returned normally
+     * in the body of response, see {@link MQConfigCodec}.
      * Otherwise, this method will return {@link ResponseCode#CONFIG_NOT_EXIST}.
      *
+     * @param context context of channel that request comes from
      * @param request request to handle
      * @return handle result
      * @throws RemotingCommandException if read request's header fail
      */
-    public RemotingCommand requestMqConfig(final RemotingCommand request) throws RemotingCommandException {
-        final RemotingCommand response = RemotingCommand.createResponseCommand(RequestMQConfigResponseHeader.class);
-        final RequestMQConfigResponseHeader responseHeader = (RequestMQConfigResponseHeader) response.readCustomHeader();
+    public RemotingCommand requestMqConfig(final ChannelHandlerContext context,
+                                           final RemotingCommand request) throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(ResponseCode.SYSTEM_ERROR, null);
         final RequestMQConfigRequestHeader requestHeader = request.decodeCommandCustomHeader(RequestMQConfigRequestHeader.class);
 
         String configName = requestHeader.getConfigName();
@@ -105,7 +165,8 @@ public class ServerCoreProcessor implements NettyRequestProcessor {
 
         MQConfig config = mqConfigService.selectMQConfig(configName);
         if (config.getType() != MQType.UNKNOWN) {
-            PojoHeaderConverter.mqConfig2ResponseHeader(config, responseHeader);
+            response.setBody(MQConfigCodec.encode(config));
+            this.controller.getClientService().holdMqConfig(context.channel(), config);
             response.setCode(ResponseCode.SUCCESS);
         } else {
             response.setCode(ResponseCode.CONFIG_NOT_EXIST);
@@ -114,4 +175,42 @@ public class ServerCoreProcessor implements NettyRequestProcessor {
         response.setRemark(null);
         return response;
     }
+
+    /**
+     * Handle client's request {@link RequestCode#REQUEST_CONFIGS}.
+     * The configs requested that exist and the names of the others
+     * will be returned together in the body of response, see
+     * {@link MQConfigCodec#encodeList(Collection, Collection)}.
+     *
+     * @param context context of channel that request comes from
+     * @param request request to handle
+     * @return handle result
+     * @throws RemotingCommandException if request has no config names
+     */
+    public RemotingCommand requestMqConfigs(final ChannelHandlerContext context,
+                                            final RemotingCommand request) throws RemotingCommandException {
+        final ByteBuf body = request.getBodyBuf();
+        if (body == null) {
+            throw new RemotingCommandException("config names must not be null");
+        }
+        final List<String> configNames = MQConfigCodec.decodeNames(body);
+        final MQConfigService mqConfigService = this.controller.getMqConfigService();
+        final ClientService clientService = this.controller.getClientService();
+
+        List<MQConfig> configs = new ArrayList<>(configNames.size());
+        List<String> absentNames = new ArrayList<>();
+        for (String configName : configNames) {
+            MQConfig config = mqConfigService.selectMQConfig(configName);
+            if (config.getType() != MQType.UNKNOWN) {
+                configs.add(config);
+                clientService.holdMqConfig(context.channel(), config);
+            } else {
+                absentNames.add(configName);
+            }
+        }
+
+        final RemotingCommand response = RemotingCommand.createResponseCommand(ResponseCode.SUCCESS, null);
+        response.setBody(MQConfigCodec.encodeList(configs, absentNames));
+        return response;
+    }
 }
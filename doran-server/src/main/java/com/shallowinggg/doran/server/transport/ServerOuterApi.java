@@ -1,18 +1,177 @@
 package com.shallowinggg.doran.server.transport;
 
-import com.shallowinggg.doran.transport.netty.NettyClientConfig;
-import com.shallowinggg.doran.transport.netty.NettyRemotingClient;
+import com.shallowinggg.doran.common.*;
+import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.common.util.MQConfigCodec;
+import com.shallowinggg.doran.server.web.service.ClientService;
+import com.shallowinggg.doran.transport.RemotingServer;
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import io.netty.channel.Channel;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Send requests to clients over the channels they registered with.
+ * <p>
+ * Config updates are pushed by {@link RequestCode#UPDATE_MQ_CONFIG}.
+ * Updates for a client are held for {@link ServerConfig#getPushConfigLingerMillis()}
+ * and sent in one request, only the latest one of a config is kept.
+ * Requests are sent asynchronously by one thread, updates that fail
+ * to push are merged back and pushed again later.
+ *
  * @author shallowinggg
  */
 public class ServerOuterApi {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerOuterApi.class);
+
     private final ServerController controller;
-    private final NettyRemotingClient client;
+    private final RemotingServer server;
+    private final ServerConfig serverConfig;
+
+    /**
+     * clientId -> updates that wait for push
+     */
+    private final ConcurrentMap<String, PendingUpdates> pendingUpdatesMap;
+    private final ScheduledExecutorService pushExecutor;
 
     public ServerOuterApi(final ServerController controller,
-                          final NettyClientConfig config) {
+                          final RemotingServer server,
+                          final ServerConfig serverConfig) {
         this.controller = controller;
-        this.client = new NettyRemotingClient(config);
+        this.server = server;
+        this.serverConfig = serverConfig;
+        this.pendingUpdatesMap = new ConcurrentHashMap<>(16);
+        this.pushExecutor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryImpl("pushConfigThread_", true));
+    }
+
+    /**
+     * Push the given config to all clients which hold it.
+     *
+     * @param config the config that has updated
+     */
+    public void pushMqConfig(@NotNull MQConfig config) {
+        Assert.notNull(config, "'config' must not be null");
+        final ClientService clientService = this.controller.getClientService();
+        for (String clientId : clientService.clientsHoldingMqConfig(config.getName())) {
+            PendingUpdates pendingUpdates = pendingUpdatesMap.computeIfAbsent(clientId, k -> new PendingUpdates());
+            if (pendingUpdates.add(config)) {
+                schedulePush(clientId, pendingUpdates, serverConfig.getPushConfigLingerMillis());
+            }
+        }
+    }
+
+    private void schedulePush(String clientId, PendingUpdates pendingUpdates, long delayMillis) {
+        this.pushExecutor.schedule(() -> push(clientId, pendingUpdates), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void push(String clientId, PendingUpdates pendingUpdates) {
+        final List<MQConfig> configs = pendingUpdates.drain();
+        if (configs.isEmpty()) {
+            return;
+        }
+        final ClientService clientService = this.controller.getClientService();
+        final Channel channel = clientService.getClientChannel(clientId);
+        final long dataVersion = clientService.nextDataVersion(clientId);
+        if (channel == null || !channel.isActive() || dataVersion < 0) {
+            // client will retrieve its configs when it registers again
+            pendingUpdatesMap.remove(clientId, pendingUpdates);
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Client {} is inactive, drop config updates {}", clientId, configs);
+            }
+            return;
+        }
+        for (MQConfig config : configs) {
+            clientService.holdMqConfig(channel, config);
+        }
+
+        final UpdateMQConfigRequestHeader header = new UpdateMQConfigRequestHeader();
+        header.setDataVersion(dataVersion);
+        final RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.UPDATE_MQ_CONFIG, header);
+        request.setBody(MQConfigCodec.encodeList(configs));
+        try {
+            this.server.invokeAsync(channel, request, serverConfig.getPushConfigTimeoutMillis(), responseFuture -> {
+                RemotingCommand response = responseFuture.getResponseCommand();
+                if (response != null && response.getCode() == ResponseCode.SUCCESS) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Push configs {} to client {} success, version {}", configs, clientId, dataVersion);
+                    }
+                } else {
+                    retryPush(clientId, pendingUpdates, configs, responseFuture.getCause());
+                }
+            });
+        } catch (Exception e) {
+            retryPush(clientId, pendingUpdates, configs, e);
+        }
+    }
+
+    private void retryPush(String clientId, PendingUpdates pendingUpdates, List<MQConfig> configs, Throwable cause) {
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Push configs {} to client {} fail, retry after {} ms", configs, clientId,
+                    serverConfig.getPushConfigRetryMillis(), cause);
+        }
+        if (pendingUpdates.merge(configs)) {
+            schedulePush(clientId, pendingUpdates, serverConfig.getPushConfigRetryMillis());
+        }
+    }
+
+    /**
+     * Config updates of a client that wait for push.
+     */
+    private static class PendingUpdates {
+        /**
+         * configName -> latest config
+         */
+        private final Map<String, MQConfig> configs = new HashMap<>(8);
+        private boolean scheduled;
+
+        /**
+         * Add config, replace the old one with the same name.
+         *
+         * @return {@code true} if push should be scheduled
+         */
+        synchronized boolean add(MQConfig config) {
+            configs.put(config.getName(), config);
+            return schedule();
+        }
+
+        /**
+         * Add configs that fail to push, newer ones added during
+         * push are kept.
+         *
+         * @return {@code true} if push should be scheduled
+         */
+        synchronized boolean merge(List<MQConfig> failed) {
+            for (MQConfig config : failed) {
+                configs.putIfAbsent(config.getName(), config);
+            }
+            return schedule();
+        }
+
+        synchronized List<MQConfig> drain() {
+            List<MQConfig> drained = new ArrayList<>(configs.values());
+            configs.clear();
+            scheduled = false;
+            return drained;
+        }
+
+        private boolean schedule() {
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
     }
 }
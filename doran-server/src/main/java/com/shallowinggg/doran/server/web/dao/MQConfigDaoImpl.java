@@ -3,6 +3,7 @@ package com.shallowinggg.doran.server.web.dao;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shallowinggg.doran.common.ActiveMQConfig;
+import com.shallowinggg.doran.common.InMemoryConfig;
 import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.MQType;
 import com.shallowinggg.doran.common.RabbitMQConfig;
@@ -100,6 +101,8 @@ public class MQConfigDaoImpl implements MQConfigDao {
                     return MAPPER.readValue(json, RabbitMQConfig.class);
                 case ActiveMQ:
                     return MAPPER.readValue(json, ActiveMQConfig.class);
+                case InMemory:
+                    return MAPPER.readValue(json, InMemoryConfig.class);
                 default:
                     throw new IllegalArgumentException(type);
             }
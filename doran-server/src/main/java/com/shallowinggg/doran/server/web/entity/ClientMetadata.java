@@ -5,8 +5,8 @@ import com.shallowinggg.doran.common.util.Assert;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author shallowinggg
@@ -22,11 +22,17 @@ public class ClientMetadata {
 
         this.clientId = clientId;
         this.clientName = clientName;
-        this.holdingMqConfigs = new HashMap<>(16);
+        this.holdingMqConfigs = new ConcurrentHashMap<>(16);
     }
 
+    /**
+     * Record config that the client holds, the old one with
+     * the same name will be replaced.
+     *
+     * @param config the config client holds
+     */
     public void addMqConfig(MQConfig config) {
-        this.holdingMqConfigs.putIfAbsent(config.getName(), config);
+        this.holdingMqConfigs.put(config.getName(), config);
     }
 
     public boolean hasMqConfig(String configName) {
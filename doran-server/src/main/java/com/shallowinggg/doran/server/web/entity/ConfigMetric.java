@@ -0,0 +1,98 @@
+package com.shallowinggg.doran.server.web.entity;
+
+import java.util.Map;
+
+/**
+ * Metrics of a MQ config aggregated from heartbeats of all
+ * clients in a time bucket.
+ *
+ * @author shallowinggg
+ */
+public class ConfigMetric {
+    private final String configName;
+
+    /**
+     * Start time of the bucket in milliseconds
+     */
+    private final long startTimestamp;
+
+    private final long sendInc;
+
+    private final long receiveInc;
+
+    /**
+     * Max 99th percentile of confirm latencies reported by clients
+     */
+    private final long maxSendLatencyP99;
+
+    private final long maxSendLatency;
+
+    /**
+     * clientId -> messages sent by client in the bucket
+     */
+    private final Map<String, Long> clientSendInc;
+
+    /**
+     * clientId -> messages received by client in the bucket
+     */
+    private final Map<String, Long> clientReceiveInc;
+
+    public ConfigMetric(String configName, long startTimestamp, long sendInc, long receiveInc,
+                        long maxSendLatencyP99, long maxSendLatency,
+                        Map<String, Long> clientSendInc, Map<String, Long> clientReceiveInc) {
+        this.configName = configName;
+        this.startTimestamp = startTimestamp;
+        this.sendInc = sendInc;
+        this.receiveInc = receiveInc;
+        this.maxSendLatencyP99 = maxSendLatencyP99;
+        this.maxSendLatency = maxSendLatency;
+        this.clientSendInc = clientSendInc;
+        this.clientReceiveInc = clientReceiveInc;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    public long getSendInc() {
+        return sendInc;
+    }
+
+    public long getReceiveInc() {
+        return receiveInc;
+    }
+
+    public long getMaxSendLatencyP99() {
+        return maxSendLatencyP99;
+    }
+
+    public long getMaxSendLatency() {
+        return maxSendLatency;
+    }
+
+    public Map<String, Long> getClientSendInc() {
+        return clientSendInc;
+    }
+
+    public Map<String, Long> getClientReceiveInc() {
+        return clientReceiveInc;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigMetric{" +
+                "configName='" + configName + '\'' +
+                ", startTimestamp=" + startTimestamp +
+                ", sendInc=" + sendInc +
+                ", receiveInc=" + receiveInc +
+                ", maxSendLatencyP99=" + maxSendLatencyP99 +
+                ", maxSendLatency=" + maxSendLatency +
+                ", clientSendInc=" + clientSendInc +
+                ", clientReceiveInc=" + clientReceiveInc +
+                '}';
+    }
+}
@@ -1,8 +1,12 @@
 package com.shallowinggg.doran.server.web.service;
 
 import com.shallowinggg.doran.server.web.entity.ClientMetadata;
+import com.shallowinggg.doran.common.DataVersion;
+import com.shallowinggg.doran.common.MQConfig;
 import io.netty.channel.Channel;
 
+import java.util.List;
+
 /**
  * @author shallowinggg
  */
@@ -26,13 +30,59 @@ public interface ClientService {
 
     /**
      * Register client with its base metadata and {@link Channel} that
-     * communicates with server.
+     * communicates with server. If the client has registered, it
+     * is bound to the given channel, since it registers again
+     * after reconnect.
      *
      * @param clientMetadata base metadata for client
      * @param channel channel that client communicates with server
      */
     void registerClient(ClientMetadata clientMetadata, Channel channel);
 
+    /**
+     * Record config that the client which communicates with
+     * server by the given channel holds. Configs held by
+     * clients that are not registered are ignored.
+     *
+     * @param channel channel that client communicates with server
+     * @param config  the config client holds
+     */
+    void holdMqConfig(Channel channel, MQConfig config);
+
+    /**
+     * Get the ids of clients which hold the given config.
+     *
+     * @param configName the name of config
+     * @return ids of clients
+     */
+    List<String> clientsHoldingMqConfig(String configName);
+
+    /**
+     * Get the {@link Channel} that client communicates with server.
+     *
+     * @param clientId the id of client
+     * @return channel, or {@code null} if client is not registered
+     */
+    Channel getClientChannel(String clientId);
+
+    /**
+     * Move the {@link DataVersion} of configs that client holds
+     * to the next one.
+     *
+     * @param clientId the id of client
+     * @return the counter of new version, or -1 if client is not
+     * registered
+     */
+    long nextDataVersion(String clientId);
+
+    /**
+     * Refresh the last active time of client.
+     *
+     * @param clientId the id of client
+     * @return {@code true} if client is registered
+     */
+    boolean heartBeat(String clientId);
+
     /**
      * Scan inactive clients and remove them.
      */
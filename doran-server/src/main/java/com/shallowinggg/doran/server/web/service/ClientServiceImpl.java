@@ -1,6 +1,7 @@
 package com.shallowinggg.doran.server.web.service;
 
 import com.shallowinggg.doran.common.DataVersion;
+import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.util.Assert;
 import com.shallowinggg.doran.server.web.entity.ClientMetadata;
 import com.shallowinggg.doran.transport.common.RemotingUtil;
@@ -10,6 +11,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,6 +28,7 @@ public class ClientServiceImpl implements ClientService {
 
     private final Map<String, ClientMetadata> clientMetaInfoMap;
     private final Map<String, ClientLiveInfo> clientLiveInfoMap;
+    private final Map<Channel, String> channelClientMap;
 
     static {
         CLIENT_EXPIRED_MILLIS = SystemPropertyUtil.getLong(CLIENT_EXPIRED_MILLIS_PROPERTY,
@@ -38,6 +42,7 @@ public class ClientServiceImpl implements ClientService {
     public ClientServiceImpl() {
         this.clientMetaInfoMap = new ConcurrentHashMap<>(16);
         this.clientLiveInfoMap = new ConcurrentHashMap<>(16);
+        this.channelClientMap = new ConcurrentHashMap<>(16);
     }
 
     @Override
@@ -54,13 +59,24 @@ public class ClientServiceImpl implements ClientService {
             clientLiveInfo.setDataVersion(new DataVersion());
             clientLiveInfo.setChannel(channel);
             clientLiveInfoMap.put(clientId, clientLiveInfo);
+            channelClientMap.put(channel, clientId);
 
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("The client {} register success", clientId);
             }
         } else {
-            if (LOGGER.isWarnEnabled()) {
-                LOGGER.warn("The client {} has registered", clientId);
+            // client registers again after reconnect, pushes go to the new channel
+            ClientLiveInfo clientLiveInfo = clientLiveInfoMap.get(clientId);
+            Channel oldChannel = clientLiveInfo.getChannel();
+            if (oldChannel != channel) {
+                clientLiveInfo.setChannel(channel);
+                channelClientMap.put(channel, clientId);
+                channelClientMap.remove(oldChannel, clientId);
+            }
+            clientLiveInfo.setLastUpdateTimestamp(System.currentTimeMillis());
+
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("The client {} register again, channel: {}", clientId, channel);
             }
         }
     }
@@ -77,6 +93,64 @@ public class ClientServiceImpl implements ClientService {
         return this.clientMetaInfoMap.get(clientId);
     }
 
+    @Override
+    public void holdMqConfig(Channel channel, MQConfig config) {
+        Assert.notNull(channel, "'channel' must not be null");
+        Assert.notNull(config, "'config' must not be null");
+        String clientId = this.channelClientMap.get(channel);
+        if (clientId == null) {
+            return;
+        }
+        ClientMetadata clientMetadata = this.clientMetaInfoMap.get(clientId);
+        if (clientMetadata != null) {
+            clientMetadata.addMqConfig(config);
+        }
+    }
+
+    @Override
+    public List<String> clientsHoldingMqConfig(String configName) {
+        Assert.hasText(configName);
+        List<String> clientIds = new ArrayList<>();
+        for (ClientMetadata clientMetadata : this.clientMetaInfoMap.values()) {
+            if (clientMetadata.hasMqConfig(configName)) {
+                clientIds.add(clientMetadata.getClientId());
+            }
+        }
+        return clientIds;
+    }
+
+    @Override
+    public Channel getClientChannel(String clientId) {
+        Assert.hasText(clientId);
+        ClientLiveInfo clientLiveInfo = this.clientLiveInfoMap.get(clientId);
+        return clientLiveInfo != null ? clientLiveInfo.getChannel() : null;
+    }
+
+    @Override
+    public long nextDataVersion(String clientId) {
+        Assert.hasText(clientId);
+        ClientLiveInfo clientLiveInfo = this.clientLiveInfoMap.get(clientId);
+        if (clientLiveInfo == null) {
+            return -1;
+        }
+        DataVersion dataVersion = clientLiveInfo.getDataVersion();
+        synchronized (dataVersion) {
+            dataVersion.nextVersion();
+            return dataVersion.getCounter().get();
+        }
+    }
+
+    @Override
+    public boolean heartBeat(String clientId) {
+        Assert.hasText(clientId);
+        ClientLiveInfo clientLiveInfo = this.clientLiveInfoMap.get(clientId);
+        if (clientLiveInfo == null) {
+            return false;
+        }
+        clientLiveInfo.setLastUpdateTimestamp(System.currentTimeMillis());
+        return true;
+    }
+
     @Override
     public void scanInactiveClient() {
         for (Map.Entry<String, ClientLiveInfo> entry : this.clientLiveInfoMap.entrySet()) {
@@ -98,6 +172,7 @@ public class ClientServiceImpl implements ClientService {
         RemotingUtil.closeChannel(channel);
         this.clientLiveInfoMap.remove(clintId);
         this.clientMetaInfoMap.remove(clintId);
+        this.channelClientMap.remove(channel);
 
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("The client {} lost connection, close its channel and remove its structure at once",
@@ -112,13 +187,13 @@ public class ClientServiceImpl implements ClientService {
         /**
          * Last time that the client sent heartbeat
          */
-        private long lastUpdateTimestamp;
+        private volatile long lastUpdateTimestamp;
         private DataVersion dataVersion;
 
         /**
          * Netty channel that the client uses
          */
-        private Channel channel;
+        private volatile Channel channel;
 
         public long getLastUpdateTimestamp() {
             return lastUpdateTimestamp;
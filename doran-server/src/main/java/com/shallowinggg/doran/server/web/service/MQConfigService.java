@@ -4,6 +4,8 @@ import com.shallowinggg.doran.common.MQConfig;
 import com.shallowinggg.doran.common.MQType;
 import com.shallowinggg.doran.server.web.dao.JsonSerializeException;
 
+import java.util.function.Consumer;
+
 /**
  * @author shallowinggg
  */
@@ -45,5 +47,12 @@ public interface MQConfigService {
 
     void activateMQConfig(String configName, MQType mqType);
 
+    /**
+     * Add listener that will be invoked with the new config
+     * when a config is updated or activated.
+     *
+     * @param listener the listener to add
+     */
+    void addUpdateListener(Consumer<MQConfig> listener);
 
 }
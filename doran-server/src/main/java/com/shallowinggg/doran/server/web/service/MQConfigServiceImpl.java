@@ -13,11 +13,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -39,6 +43,14 @@ public class MQConfigServiceImpl implements MQConfigService {
     private final MQConfigDao mqConfigDao;
     private final ActiveConfigDao activeConfigDao;
 
+    private final List<Consumer<MQConfig>> updateListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The last timestamp stamped on updated configs, clients only
+     * apply a config whose timestamp is newer than the one held.
+     */
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
     @Autowired
     public MQConfigServiceImpl(MQConfigDao mqConfigDao,
                                ActiveConfigDao activeConfigDao) {
@@ -69,6 +81,7 @@ public class MQConfigServiceImpl implements MQConfigService {
     public void updateMQConfig(MQConfig config) {
         Assert.notNull(config, "'config' must not be null");
         final String configName = config.getName();
+        config.setTimestamp(nextTimestamp(selectMQConfig(configName)));
         mqConfigDao.updateMQConfig(config);
         MQConfig oldConfig = mqConfigCache.remove(configName);
 
@@ -77,6 +90,7 @@ public class MQConfigServiceImpl implements MQConfigService {
                     configName, oldConfig, config);
         }
         compensateExecutor.schedule(() -> mqConfigCache.remove(configName), 3, TimeUnit.SECONDS);
+        fireUpdate(config);
     }
 
     @Override
@@ -111,12 +125,45 @@ public class MQConfigServiceImpl implements MQConfigService {
             return;
         }
 
+        // clients hold the config of old mq type, which may be newer
+        config.setTimestamp(nextTimestamp(selectMQConfig(configName)));
+        mqConfigDao.updateMQConfig(config);
         ActiveConfig activeConfig = new ActiveConfig(configName, mqType);
         activeConfigDao.updateActiveConfig(activeConfig);
         mqConfigCache.put(configName, config);
         if(LOGGER.isInfoEnabled()) {
             LOGGER.info("Active config {}, mq: {}", configName, mqType);
         }
+        fireUpdate(config);
+    }
+
+    @Override
+    public void addUpdateListener(Consumer<MQConfig> listener) {
+        Assert.notNull(listener, "'listener' must not be null");
+        this.updateListeners.add(listener);
+    }
+
+    /**
+     * Generate a timestamp that is newer than both the given config
+     * and all the timestamps generated before, even if system clock
+     * goes back.
+     */
+    private long nextTimestamp(MQConfig oldConfig) {
+        final long oldTimestamp = oldConfig.getTimestamp();
+        return lastTimestamp.updateAndGet(last ->
+                Math.max(System.currentTimeMillis(), Math.max(last, oldTimestamp) + 1));
+    }
+
+    private void fireUpdate(MQConfig config) {
+        for (Consumer<MQConfig> listener : updateListeners) {
+            try {
+                listener.accept(config);
+            } catch (Throwable t) {
+                if (LOGGER.isErrorEnabled()) {
+                    LOGGER.error("Notify update of config {} fail", config.getName(), t);
+                }
+            }
+        }
     }
 
 }
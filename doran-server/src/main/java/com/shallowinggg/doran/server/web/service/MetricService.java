@@ -0,0 +1,33 @@
+package com.shallowinggg.doran.server.web.service;
+
+import com.shallowinggg.doran.common.MetricData;
+import com.shallowinggg.doran.server.web.entity.ConfigMetric;
+
+import java.util.List;
+
+/**
+ * Aggregate metrics reported by client heartbeats into
+ * in-memory time buckets.
+ *
+ * @author shallowinggg
+ */
+public interface MetricService {
+
+    /**
+     * Record metrics reported by a client.
+     *
+     * @param clientId  the id of client
+     * @param timestamp the time that metrics are received
+     * @param metrics   the metrics of every config in client
+     */
+    void recordMetrics(String clientId, long timestamp, List<MetricData> metrics);
+
+    /**
+     * Select metrics of the given config in time buckets that
+     * are retained, sorted by time.
+     *
+     * @param configName the name of config
+     * @return metrics of config
+     */
+    List<ConfigMetric> selectMetrics(String configName);
+}
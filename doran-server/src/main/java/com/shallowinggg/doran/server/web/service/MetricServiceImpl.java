@@ -0,0 +1,128 @@
+package com.shallowinggg.doran.server.web.service;
+
+import com.shallowinggg.doran.common.MetricData;
+import com.shallowinggg.doran.common.util.Assert;
+import com.shallowinggg.doran.server.web.entity.ConfigMetric;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keep metrics of every config in a ring of {@link #BUCKET_NUM} buckets,
+ * every bucket covers {@link #BUCKET_MILLIS} milliseconds. Heartbeats
+ * are added to the bucket of the time they are received, and buckets
+ * out of date are reused.
+ *
+ * @author shallowinggg
+ */
+@Service
+public class MetricServiceImpl implements MetricService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricServiceImpl.class);
+    private static final String BUCKET_MILLIS_PROPERTY = "com.shallowinggg.doran.server.metricBucketMillis";
+    private static final String BUCKET_NUM_PROPERTY = "com.shallowinggg.doran.server.metricBucketNum";
+    private static final long BUCKET_MILLIS;
+    private static final int BUCKET_NUM;
+
+    /**
+     * configName -> buckets
+     */
+    private final Map<String, Buckets> bucketsMap;
+
+    static {
+        BUCKET_MILLIS = Math.max(1, SystemPropertyUtil.getLong(BUCKET_MILLIS_PROPERTY, 1000 * 60));
+        BUCKET_NUM = Math.max(1, SystemPropertyUtil.getInt(BUCKET_NUM_PROPERTY, 60));
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("-D{}: {} ", BUCKET_MILLIS_PROPERTY, BUCKET_MILLIS);
+            LOGGER.debug("-D{}: {} ", BUCKET_NUM_PROPERTY, BUCKET_NUM);
+        }
+    }
+
+    public MetricServiceImpl() {
+        this.bucketsMap = new ConcurrentHashMap<>(32);
+    }
+
+    @Override
+    public void recordMetrics(String clientId, long timestamp, List<MetricData> metrics) {
+        Assert.hasText(clientId);
+        Assert.notNull(metrics, "'metrics' must not be null");
+        for (MetricData metric : metrics) {
+            Buckets buckets = bucketsMap.computeIfAbsent(metric.getConfigName(), k -> new Buckets());
+            buckets.record(clientId, timestamp, metric);
+        }
+    }
+
+    @Override
+    public List<ConfigMetric> selectMetrics(String configName) {
+        Assert.hasText(configName);
+        Buckets buckets = bucketsMap.get(configName);
+        if (buckets == null) {
+            return Collections.emptyList();
+        }
+        return buckets.snapshot(configName, System.currentTimeMillis());
+    }
+
+    private static class Buckets {
+        private final Bucket[] buckets = new Bucket[BUCKET_NUM];
+
+        synchronized void record(String clientId, long timestamp, MetricData metric) {
+            final long start = timestamp - timestamp % BUCKET_MILLIS;
+            final int index = (int) ((timestamp / BUCKET_MILLIS) % BUCKET_NUM);
+            Bucket bucket = buckets[index];
+            if (bucket == null || bucket.startTimestamp != start) {
+                bucket = new Bucket(start);
+                buckets[index] = bucket;
+            }
+            bucket.add(clientId, metric);
+        }
+
+        synchronized List<ConfigMetric> snapshot(String configName, long now) {
+            final long oldest = now - now % BUCKET_MILLIS - (BUCKET_NUM - 1) * BUCKET_MILLIS;
+            List<ConfigMetric> metrics = new ArrayList<>(BUCKET_NUM);
+            for (Bucket bucket : buckets) {
+                if (bucket != null && bucket.startTimestamp >= oldest) {
+                    metrics.add(bucket.toMetric(configName));
+                }
+            }
+            metrics.sort(Comparator.comparingLong(ConfigMetric::getStartTimestamp));
+            return metrics;
+        }
+    }
+
+    private static class Bucket {
+        private final long startTimestamp;
+        private long sendInc;
+        private long receiveInc;
+        private long maxSendLatencyP99;
+        private long maxSendLatency;
+        private final Map<String, Long> clientSendInc = new HashMap<>(8);
+        private final Map<String, Long> clientReceiveInc = new HashMap<>(8);
+
+        Bucket(long startTimestamp) {
+            this.startTimestamp = startTimestamp;
+        }
+
+        void add(String clientId, MetricData metric) {
+            sendInc += metric.getSendInc();
+            receiveInc += metric.getReceiveInc();
+            maxSendLatencyP99 = Math.max(maxSendLatencyP99, metric.getSendLatencyP99());
+            maxSendLatency = Math.max(maxSendLatency, metric.getSendLatencyMax());
+            if (metric.getSendInc() != 0) {
+                clientSendInc.merge(clientId, metric.getSendInc(), Long::sum);
+            }
+            if (metric.getReceiveInc() != 0) {
+                clientReceiveInc.merge(clientId, metric.getReceiveInc(), Long::sum);
+            }
+        }
+
+        ConfigMetric toMetric(String configName) {
+            return new ConfigMetric(configName, startTimestamp, sendInc, receiveInc,
+                    maxSendLatencyP99, maxSendLatency,
+                    new HashMap<>(clientSendInc), new HashMap<>(clientReceiveInc));
+        }
+    }
+}
@@ -40,6 +40,25 @@ public class NettyClientConfig {
 
     private boolean useTLS;
 
+    /**
+     * Use native transport if it is available, see {@link NettyTransport#select(NettyClientConfig)}
+     */
+    private boolean useNativeTransport = false;
+    private boolean useIoUring = false;
+
+    /**
+     * Native socket options, they are only applied on native transports
+     */
+    private boolean clientTcpQuickAck = false;
+    private int clientBusyPollMicros = 0;
+
+    /**
+     * Coalesce flushes of requests written concurrently into one
+     * syscall, see {@link WriteCoalescingHandler}
+     */
+    private boolean clientWriteCoalescingEnable = true;
+    private int clientWriteCoalescingMaxBytes = 64 * 1024;
+
     public boolean isClientCloseSocketIfTimeout() {
         return clientCloseSocketIfTimeout;
     }
@@ -135,4 +154,52 @@ public class NettyClientConfig {
     public void setUseTLS(boolean useTLS) {
         this.useTLS = useTLS;
     }
+
+    public boolean isClientWriteCoalescingEnable() {
+        return clientWriteCoalescingEnable;
+    }
+
+    public void setClientWriteCoalescingEnable(boolean clientWriteCoalescingEnable) {
+        this.clientWriteCoalescingEnable = clientWriteCoalescingEnable;
+    }
+
+    public int getClientWriteCoalescingMaxBytes() {
+        return clientWriteCoalescingMaxBytes;
+    }
+
+    public void setClientWriteCoalescingMaxBytes(int clientWriteCoalescingMaxBytes) {
+        this.clientWriteCoalescingMaxBytes = clientWriteCoalescingMaxBytes;
+    }
+
+    public boolean isUseNativeTransport() {
+        return useNativeTransport;
+    }
+
+    public void setUseNativeTransport(boolean useNativeTransport) {
+        this.useNativeTransport = useNativeTransport;
+    }
+
+    public boolean isUseIoUring() {
+        return useIoUring;
+    }
+
+    public void setUseIoUring(boolean useIoUring) {
+        this.useIoUring = useIoUring;
+    }
+
+    public boolean isClientTcpQuickAck() {
+        return clientTcpQuickAck;
+    }
+
+    public void setClientTcpQuickAck(boolean clientTcpQuickAck) {
+        this.clientTcpQuickAck = clientTcpQuickAck;
+    }
+
+    public int getClientBusyPollMicros() {
+        return clientBusyPollMicros;
+    }
+
+    public void setClientBusyPollMicros(int clientBusyPollMicros) {
+        this.clientBusyPollMicros = clientBusyPollMicros;
+    }
 }
@@ -20,29 +20,49 @@ import com.shallowinggg.doran.transport.common.RemotingHelper;
 import com.shallowinggg.doran.transport.common.RemotingUtil;
 import com.shallowinggg.doran.transport.protocol.RemotingCommand;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
+import java.util.List;
 
+/**
+ * Encode {@link RemotingCommand} into a buffer from channel's
+ * allocator. Header is written into the buffer directly, small
+ * body is copied after it, and large body is attached as a
+ * wrapped buffer so that it is never copied on encode path.
+ */
 @ChannelHandler.Sharable
-public class NettyEncoder extends MessageToByteEncoder<RemotingCommand> {
+public class NettyEncoder extends MessageToMessageEncoder<RemotingCommand> {
     private static final Logger LOGGER = LoggerFactory.getLogger(RemotingHelper.DORAN_REMOTING);
 
     @Override
-    public void encode(ChannelHandlerContext ctx, RemotingCommand remotingCommand, ByteBuf out)
+    public void encode(ChannelHandlerContext ctx, RemotingCommand remotingCommand, List<Object> out)
             throws Exception {
+        ByteBuf header = null;
         try {
-            ByteBuffer header = remotingCommand.encodeHeader();
-            out.writeBytes(header);
-            byte[] body = remotingCommand.getBody();
-            if (body != null) {
-                out.writeBytes(body);
+            final byte[] body = remotingCommand.getBody();
+            final int bodyLength = body != null ? body.length : 0;
+            final boolean copyBody = bodyLength <= NettySystemConfig.ENCODE_BODY_COPY_THRESHOLD;
+
+            header = ctx.alloc().ioBuffer(
+                    remotingCommand.estimatedHeaderLength() + (copyBody ? bodyLength : 0));
+            remotingCommand.encodeHeader(header, bodyLength);
+            if (body != null && copyBody) {
+                header.writeBytes(body);
+            }
+            out.add(header);
+            header = null;
+            if (body != null && !copyBody) {
+                out.add(Unpooled.wrappedBuffer(body));
             }
         } catch (Exception e) {
+            if (header != null) {
+                header.release();
+            }
             if (LOGGER.isErrorEnabled()) {
                 LOGGER.error("encode exception, " + RemotingHelper.parseChannelRemoteAddr(ctx.channel()), e);
             }
@@ -52,6 +72,10 @@ public class NettyEncoder extends MessageToByteEncoder<RemotingCommand> {
                 }
             }
             RemotingUtil.closeChannel(ctx.channel());
+            if (out.isEmpty()) {
+                // encoder must produce at least one message
+                out.add(Unpooled.EMPTY_BUFFER);
+            }
         }
     }
 }
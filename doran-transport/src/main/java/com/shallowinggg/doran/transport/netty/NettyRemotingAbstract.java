@@ -33,12 +33,15 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
-import java.util.*;
-import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.*;
 
 public abstract class NettyRemotingAbstract {
@@ -61,8 +64,16 @@ public abstract class NettyRemotingAbstract {
     /**
      * This map caches all on-going requests.
      */
-    protected final ConcurrentMap<Integer /* opaque */, ResponseFuture> responseTable =
-            new ConcurrentHashMap<>(256);
+    protected final ResponseTable responseTable = new ResponseTable(256);
+
+    /**
+     * Timer to expire asynchronous requests whose response doesn't arrive in time.
+     * It is shared by all clients and servers and never stopped, its worker is a
+     * daemon thread.
+     */
+    protected static final HashedWheelTimer RESPONSE_TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("ResponseTimeoutTimer", true),
+            NettySystemConfig.RESPONSE_TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS, 512);
 
     /**
      * This container holds all processors per request code, aka, for each incoming request, we may look up the
@@ -138,6 +149,8 @@ public abstract class NettyRemotingAbstract {
         if (msg != null) {
             switch (msg.getType()) {
                 case REQUEST_COMMAND:
+                    // request holds the frame it is decoded from,
+                    // it is released when request is processed
                     processRequestCommand(ctx, msg);
                     break;
                 case RESPONSE_COMMAND:
@@ -210,6 +223,8 @@ public abstract class NettyRemotingAbstract {
                         response.setOpaque(opaque);
                         ctx.writeAndFlush(response);
                     }
+                } finally {
+                    cmd.release();
                 }
             };
 
@@ -219,6 +234,7 @@ public abstract class NettyRemotingAbstract {
                         "[REJECT_REQUEST]system busy, start flow control for a while");
                 response.setOpaque(opaque);
                 ctx.writeAndFlush(response);
+                cmd.release();
                 return;
             }
 
@@ -227,6 +243,7 @@ public abstract class NettyRemotingAbstract {
                 final RequestTask requestTask = new RequestTask(run, ctx.channel(), cmd);
                 pair.getObject2().submit(requestTask);
             } catch (RejectedExecutionException e) {
+                cmd.release();
                 if ((System.currentTimeMillis() % 10000) == 0) {
                     LOGGER.warn(RemotingHelper.parseChannelRemoteAddr(ctx.channel())
                             + ", too many requests and system thread pool busy, RejectedExecutionException "
@@ -247,6 +264,7 @@ public abstract class NettyRemotingAbstract {
                     RemotingCommand.createResponseCommand(RemotingSysResponseCode.REQUEST_CODE_NOT_SUPPORTED, error);
             response.setOpaque(opaque);
             ctx.writeAndFlush(response);
+            cmd.release();
             LOGGER.error(RemotingHelper.parseChannelRemoteAddr(ctx.channel()) + error);
         }
     }
@@ -259,12 +277,11 @@ public abstract class NettyRemotingAbstract {
      */
     public void processResponseCommand(ChannelHandlerContext ctx, RemotingCommand cmd) {
         final int opaque = cmd.getOpaque();
-        final ResponseFuture responseFuture = responseTable.get(opaque);
+        final ResponseFuture responseFuture = responseTable.remove(opaque);
         if (responseFuture != null) {
+            responseFuture.cancelTimeout();
             responseFuture.setResponseCommand(cmd);
 
-            responseTable.remove(opaque);
-
             if (responseFuture.getInvokeCallback() != null) {
                 executeInvokeCallback(responseFuture);
             } else {
@@ -347,31 +364,19 @@ public abstract class NettyRemotingAbstract {
     public abstract ExecutorService getCallbackExecutor();
 
     /**
-     * <p>
-     * This method is periodically invoked to scan and expire deprecated request.
-     * </p>
+     * Expire the asynchronous request if it is still on-going.
+     *
+     * @param responseFuture the request to expire
      */
-    public void scanResponseTable() {
-        final List<ResponseFuture> rfList = new LinkedList<>();
-        Iterator<Entry<Integer, ResponseFuture>> it = this.responseTable.entrySet().iterator();
-        while (it.hasNext()) {
-            Entry<Integer, ResponseFuture> next = it.next();
-            ResponseFuture rep = next.getValue();
-
-            if ((rep.getBeginTimestamp() + rep.getTimeoutMillis() + 1000) <= System.currentTimeMillis()) {
-                rep.release();
-                it.remove();
-                rfList.add(rep);
-                LOGGER.warn("remove timeout request, " + rep);
-            }
+    private void expireRequest(final ResponseFuture responseFuture) {
+        if (!responseTable.remove(responseFuture.getOpaque(), responseFuture)) {
+            return;
         }
-
-        for (ResponseFuture rf : rfList) {
-            try {
-                executeInvokeCallback(rf);
-            } catch (Throwable e) {
-                LOGGER.warn("scanResponseTable, operationComplete Exception", e);
-            }
+        LOGGER.warn("remove timeout request, " + responseFuture);
+        try {
+            executeInvokeCallback(responseFuture);
+        } catch (Throwable e) {
+            LOGGER.warn("expireRequest, operationComplete Exception", e);
         }
     }
 
@@ -432,8 +437,12 @@ public abstract class NettyRemotingAbstract {
                 throw new RemotingTimeoutException("invokeAsyncImpl call timeout");
             }
 
-            final ResponseFuture responseFuture = new ResponseFuture(channel, opaque, timeoutMillis - costTime, invokeCallback, once);
+            final long remainingMillis = timeoutMillis - costTime;
+            final ResponseFuture responseFuture = new ResponseFuture(channel, opaque, remainingMillis, invokeCallback, once);
             this.responseTable.put(opaque, responseFuture);
+            // a response arriving before the timeout is set only leaves a no-op timeout behind
+            responseFuture.setTimeout(RESPONSE_TIMER.newTimeout(timeout -> expireRequest(responseFuture),
+                    remainingMillis + NettySystemConfig.RESPONSE_TIMEOUT_GRACE_MILLIS, TimeUnit.MILLISECONDS));
             try {
                 channel.writeAndFlush(request).addListener((ChannelFutureListener) f -> {
                     if (f.isSuccess()) {
@@ -467,15 +476,20 @@ public abstract class NettyRemotingAbstract {
     private void requestFail(final int opaque) {
         ResponseFuture responseFuture = responseTable.remove(opaque);
         if (responseFuture != null) {
-            responseFuture.setSendRequestOK(false);
-            responseFuture.putResponse(null);
-            try {
-                executeInvokeCallback(responseFuture);
-            } catch (Throwable e) {
-                LOGGER.warn("execute callback in requestFail, and callback throw", e);
-            } finally {
-                responseFuture.release();
-            }
+            failRequest(responseFuture);
+        }
+    }
+
+    private void failRequest(final ResponseFuture responseFuture) {
+        responseFuture.cancelTimeout();
+        responseFuture.setSendRequestOK(false);
+        responseFuture.putResponse(null);
+        try {
+            executeInvokeCallback(responseFuture);
+        } catch (Throwable e) {
+            LOGGER.warn("execute callback in requestFail, and callback throw", e);
+        } finally {
+            responseFuture.release();
         }
     }
 
@@ -485,13 +499,8 @@ public abstract class NettyRemotingAbstract {
      * @param channel the channel which is close already
      */
     protected void failFast(final Channel channel) {
-        for (Entry<Integer, ResponseFuture> entry : responseTable.entrySet()) {
-            if (entry.getValue().getProcessChannel() == channel) {
-                Integer opaque = entry.getKey();
-                if (opaque != null) {
-                    requestFail(opaque);
-                }
-            }
+        for (ResponseFuture responseFuture : responseTable.removeIf(rf -> rf.getProcessChannel() == channel)) {
+            failRequest(responseFuture);
         }
     }
 
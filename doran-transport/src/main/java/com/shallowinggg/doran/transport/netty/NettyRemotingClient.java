@@ -30,9 +30,7 @@ import com.shallowinggg.doran.transport.exception.RemotingTooMuchRequestExceptio
 import com.shallowinggg.doran.transport.protocol.RemotingCommand;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
@@ -61,16 +59,11 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
 
     private final NettyClientConfig nettyClientConfig;
     private final Bootstrap bootstrap = new Bootstrap();
+    private final NettyTransport transport;
     private final EventLoopGroup eventLoopGroupWorker;
     private final Lock lockChannelTables = new ReentrantLock();
     private final ConcurrentMap<String /* addr */, ChannelWrapper> channelTables = new ConcurrentHashMap<>();
 
-    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(1,
-            r -> {
-                Thread t = new Thread("ClientHouseKeepingService");
-                t.setDaemon(true);
-                return t;
-            });
 
     private final AtomicReference<List<String>> namesrvAddrList = new AtomicReference<>();
     private final AtomicReference<String> namesrvAddrChoosed = new AtomicReference<>();
@@ -110,7 +103,8 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
             }
         });
 
-        this.eventLoopGroupWorker = new NioEventLoopGroup(1, new ThreadFactory() {
+        this.transport = NettyTransport.select(nettyClientConfig);
+        this.eventLoopGroupWorker = this.transport.newEventLoopGroup(1, new ThreadFactory() {
             private final AtomicInteger threadIndex = new AtomicInteger(0);
 
             @Override
@@ -158,7 +152,7 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                     }
                 });
 
-        this.bootstrap.group(this.eventLoopGroupWorker).channel(NioSocketChannel.class)
+        this.bootstrap.group(this.eventLoopGroupWorker).channel(transport.socketChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.SO_KEEPALIVE, false)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, nettyClientConfig.getConnectTimeoutMillis())
@@ -180,9 +174,13 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                                 }
                             }
                         }
+                        pipeline.addLast(defaultEventExecutorGroup, new NettyEncoder());
+                        if (nettyClientConfig.isClientWriteCoalescingEnable()) {
+                            pipeline.addLast(defaultEventExecutorGroup,
+                                    new WriteCoalescingHandler(nettyClientConfig.getClientWriteCoalescingMaxBytes()));
+                        }
                         pipeline.addLast(
                                 defaultEventExecutorGroup,
-                                new NettyEncoder(),
                                 new NettyDecoder(),
                                 new IdleStateHandler(0, 0, nettyClientConfig.getClientChannelMaxIdleTimeSeconds()),
                                 new NettyConnectManageHandler(),
@@ -190,15 +188,10 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                     }
                 });
 
-        this.timer.scheduleAtFixedRate(() -> {
-            try {
-                NettyRemotingClient.this.scanResponseTable();
-            } catch (Throwable e) {
-                if (LOGGER.isErrorEnabled()) {
-                    LOGGER.error("scanResponseTable exception", e);
-                }
-            }
-        }, 1000 * 3, 1000, TimeUnit.MILLISECONDS);
+        this.transport.applyNativeOptions(this.bootstrap, nettyClientConfig);
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("Client uses {} transport", this.transport);
+        }
 
         if (this.channelEventListener != null) {
             this.nettyEventExecutor.start();
@@ -208,8 +201,6 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     @Override
     public void shutdown() {
         try {
-            this.timer.shutdown();
-
             for (ChannelWrapper cw : this.channelTables.values()) {
                 this.closeChannel(null, cw.getChannel());
             }
@@ -63,12 +63,6 @@ public class NettyRemotingServer extends NettyRemotingAbstract implements Remoti
     private final ExecutorService publicExecutor;
     private final ChannelEventListener channelEventListener;
 
-    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(1,
-            r -> {
-                Thread t = new Thread("ServerHouseKeepingService");
-                t.setDaemon(true);
-                return t;
-            });
     private DefaultEventExecutorGroup defaultEventExecutorGroup;
 
 
@@ -237,22 +231,11 @@ public class NettyRemotingServer extends NettyRemotingAbstract implements Remoti
         if (this.channelEventListener != null) {
             this.nettyEventExecutor.start();
         }
-
-        // 定期扫描回复表，执行回调方法
-        this.timer.scheduleAtFixedRate(() -> {
-            try {
-                NettyRemotingServer.this.scanResponseTable();
-            } catch (Throwable e) {
-                LOGGER.error("scanResponseTable exception", e);
-            }
-        }, 1000 * 3, 1000, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void shutdown() {
         try {
-            this.timer.shutdown();
-
             this.eventLoopGroupBoss.shutdownGracefully();
 
             this.eventLoopGroupSelector.shutdownGracefully();
@@ -28,6 +28,12 @@ public class NettySystemConfig {
             "com.rocketmq.remoting.clientAsyncSemaphoreValue";
     public static final String COM_ROCKETMQ_REMOTING_CLIENT_ONEWAY_SEMAPHORE_VALUE =
             "com.rocketmq.remoting.clientOnewaySemaphoreValue";
+    public static final String COM_DORAN_TRANSPORT_ENCODE_BODY_COPY_THRESHOLD =
+            "com.doran.transport.encodeBodyCopyThreshold";
+    public static final String COM_DORAN_TRANSPORT_RESPONSE_TIMEOUT_TICK_MILLIS =
+            "com.doran.transport.responseTimeoutTickMillis";
+    public static final String COM_DORAN_TRANSPORT_RESPONSE_TIMEOUT_GRACE_MILLIS =
+            "com.doran.transport.responseTimeoutGraceMillis";
 
     public static final boolean NETTY_POOLED_BYTE_BUF_ALLOCATOR_ENABLE =
             Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_NETTY_POOLED_BYTE_BUF_ALLOCATOR_ENABLE, "false"));
@@ -35,6 +41,24 @@ public class NettySystemConfig {
             Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_ASYNC_SEMAPHORE_VALUE, "65535"));
     public static final int CLIENT_ONEWAY_SEMAPHORE_VALUE =
             Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_ONEWAY_SEMAPHORE_VALUE, "65535"));
+    /**
+     * Bodies not larger than this are copied into the header buffer
+     * when encoding, larger ones are sent as wrapped buffers
+     */
+    public static final int ENCODE_BODY_COPY_THRESHOLD =
+            Integer.parseInt(System.getProperty(COM_DORAN_TRANSPORT_ENCODE_BODY_COPY_THRESHOLD, "1024"));
+    /**
+     * Tick of the timer that expires asynchronous requests, requests
+     * expire at most one tick later than their timeout
+     */
+    public static final long RESPONSE_TIMEOUT_TICK_MILLIS =
+            Long.parseLong(System.getProperty(COM_DORAN_TRANSPORT_RESPONSE_TIMEOUT_TICK_MILLIS, "10"));
+    /**
+     * Extra time given to asynchronous requests before they are
+     * expired, so that a response arriving late is still handled
+     */
+    public static final long RESPONSE_TIMEOUT_GRACE_MILLIS =
+            Long.parseLong(System.getProperty(COM_DORAN_TRANSPORT_RESPONSE_TIMEOUT_GRACE_MILLIS, "1000"));
     public static int socketSndbufSize =
             Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_SOCKET_SNDBUF_SIZE, "65535"));
     public static int socketRcvbufSize =
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shallowinggg.doran.transport.netty;
+
+import com.shallowinggg.doran.transport.common.RemotingHelper;
+import com.shallowinggg.doran.transport.common.RemotingUtil;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Socket transports that client can run on.
+ * <p>
+ * {@link #EPOLL} needs the native library of netty-transport-native-epoll,
+ * {@link #IO_URING} needs netty-incubator-transport-native-io_uring on
+ * classpath, it is loaded by reflection so that it stays optional.
+ * {@link #select(NettyClientConfig)} falls back to the next transport
+ * when the preferred one is unavailable, and {@link #NIO} always works.
+ *
+ * @author shallowinggg
+ */
+public enum NettyTransport {
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        void applyNativeOptions(Bootstrap bootstrap, NettyClientConfig config) {
+        }
+    },
+
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            return RemotingUtil.isLinuxPlatform() && Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> socketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        void applyNativeOptions(Bootstrap bootstrap, NettyClientConfig config) {
+            if (config.isClientTcpQuickAck()) {
+                bootstrap.option(EpollChannelOption.TCP_QUICKACK, true);
+            }
+            if (config.getClientBusyPollMicros() > 0) {
+                bootstrap.option(EpollChannelOption.SO_BUSY_POLL, config.getClientBusyPollMicros());
+            }
+        }
+    },
+
+    IO_URING {
+        private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+        @Override
+        public boolean isAvailable() {
+            if (!RemotingUtil.isLinuxPlatform()) {
+                return false;
+            }
+            try {
+                return (Boolean) Class.forName(PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return false;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            try {
+                return (EventLoopGroup) Class.forName(PACKAGE + "IOUringEventLoopGroup")
+                        .getConstructor(int.class, ThreadFactory.class)
+                        .newInstance(threads, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Create io_uring event loop group fail", e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<? extends SocketChannel> socketChannelClass() {
+            try {
+                return (Class<? extends SocketChannel>) Class.forName(PACKAGE + "IOUringSocketChannel");
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("io_uring socket channel is not found", e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void applyNativeOptions(Bootstrap bootstrap, NettyClientConfig config) {
+            if (config.isClientTcpQuickAck()) {
+                try {
+                    ChannelOption<Boolean> option = (ChannelOption<Boolean>) Class.forName(PACKAGE + "IOUringChannelOption")
+                            .getField("TCP_QUICKACK").get(null);
+                    bootstrap.option(option, true);
+                } catch (ReflectiveOperationException e) {
+                    LOGGER.warn("TCP_QUICKACK is not supported by io_uring transport", e);
+                }
+            }
+            if (config.getClientBusyPollMicros() > 0) {
+                LOGGER.warn("SO_BUSY_POLL is not supported by io_uring transport, ignore it");
+            }
+        }
+    };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemotingHelper.DORAN_REMOTING);
+
+    /**
+     * Return whether this transport can be used in current environment.
+     *
+     * @return {@code true} if available
+     */
+    public abstract boolean isAvailable();
+
+    public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    public abstract Class<? extends SocketChannel> socketChannelClass();
+
+    /**
+     * Apply native socket options in config, they are ignored
+     * by {@link #NIO}.
+     */
+    abstract void applyNativeOptions(Bootstrap bootstrap, NettyClientConfig config);
+
+    /**
+     * Select the transport that client should use. If native transport
+     * is enabled, io_uring is preferred when it is enabled too, then
+     * epoll, and nio is used if neither of them is available.
+     *
+     * @param config client config
+     * @return the transport to use
+     */
+    public static NettyTransport select(NettyClientConfig config) {
+        if (!config.isUseNativeTransport()) {
+            return NIO;
+        }
+        if (config.isUseIoUring()) {
+            if (IO_URING.isAvailable()) {
+                return IO_URING;
+            }
+            LOGGER.info("io_uring transport is unavailable, fall back to epoll");
+        }
+        if (EPOLL.isAvailable()) {
+            return EPOLL;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("epoll transport is unavailable, fall back to nio", Epoll.unavailabilityCause());
+        }
+        return NIO;
+    }
+}
@@ -84,6 +84,8 @@ public class RequestTask implements Runnable {
     public void run() {
         if (!this.stopRun) {
             this.runnable.run();
+        } else {
+            this.request.release();
         }
     }
 
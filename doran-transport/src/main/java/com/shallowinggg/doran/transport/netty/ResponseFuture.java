@@ -20,6 +20,7 @@ import com.shallowinggg.doran.transport.InvokeCallback;
 import com.shallowinggg.doran.transport.common.SemaphoreReleaseOnlyOnce;
 import com.shallowinggg.doran.transport.protocol.RemotingCommand;
 import io.netty.channel.Channel;
+import io.netty.util.Timeout;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -39,6 +40,7 @@ public class ResponseFuture {
     private volatile RemotingCommand responseCommand;
     private volatile boolean sendRequestOK = true;
     private volatile Throwable cause;
+    private volatile Timeout timeout;
 
     public ResponseFuture(Channel channel, int opaque, long timeoutMillis, InvokeCallback invokeCallback,
                           SemaphoreReleaseOnlyOnce once) {
@@ -63,6 +65,25 @@ public class ResponseFuture {
         }
     }
 
+    /**
+     * Cancel the timeout of this request, it is invoked when
+     * request is completed before it expires.
+     */
+    public void cancelTimeout() {
+        final Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    public Timeout getTimeout() {
+        return timeout;
+    }
+
     public boolean isTimeout() {
         long diff = System.currentTimeMillis() - this.beginTimestamp;
         return diff > this.timeoutMillis;
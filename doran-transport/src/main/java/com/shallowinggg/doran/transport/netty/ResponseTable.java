@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shallowinggg.doran.transport.netty;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.internal.MathUtil;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Table of on-going requests keyed by opaque.
+ * <p>
+ * Opaques are allocated sequentially, so they are spread over
+ * {@link #SHARD_NUM} shards by their low bits. Every shard is a
+ * primitive int-keyed {@link IntObjectHashMap} guarded by its own
+ * lock, neither key boxing nor entry allocation happens for an
+ * invocation.
+ *
+ * @author shallowinggg
+ */
+public final class ResponseTable {
+    private static final int SHARD_NUM = MathUtil.findNextPositivePowerOfTwo(
+            Math.max(16, Runtime.getRuntime().availableProcessors() * 2));
+    private static final int SHARD_MASK = SHARD_NUM - 1;
+
+    private final IntObjectHashMap<ResponseFuture>[] shards;
+
+    @SuppressWarnings("unchecked")
+    public ResponseTable(int initialCapacity) {
+        this.shards = new IntObjectHashMap[SHARD_NUM];
+        final int shardCapacity = Math.max(8, initialCapacity / SHARD_NUM);
+        for (int i = 0; i < SHARD_NUM; ++i) {
+            this.shards[i] = new IntObjectHashMap<>(shardCapacity);
+        }
+    }
+
+    private IntObjectHashMap<ResponseFuture> shard(int opaque) {
+        return shards[opaque & SHARD_MASK];
+    }
+
+    public void put(int opaque, ResponseFuture responseFuture) {
+        final IntObjectHashMap<ResponseFuture> shard = shard(opaque);
+        synchronized (shard) {
+            shard.put(opaque, responseFuture);
+        }
+    }
+
+    public ResponseFuture get(int opaque) {
+        final IntObjectHashMap<ResponseFuture> shard = shard(opaque);
+        synchronized (shard) {
+            return shard.get(opaque);
+        }
+    }
+
+    /**
+     * Remove the request of the given opaque.
+     *
+     * @param opaque the opaque of request
+     * @return the removed future, or {@code null} if it is absent
+     */
+    public ResponseFuture remove(int opaque) {
+        final IntObjectHashMap<ResponseFuture> shard = shard(opaque);
+        synchronized (shard) {
+            return shard.remove(opaque);
+        }
+    }
+
+    /**
+     * Remove the request of the given opaque only if it is mapped
+     * to the given future.
+     *
+     * @param opaque         the opaque of request
+     * @param responseFuture the expected future
+     * @return {@code true} if it is removed
+     */
+    public boolean remove(int opaque, ResponseFuture responseFuture) {
+        final IntObjectHashMap<ResponseFuture> shard = shard(opaque);
+        synchronized (shard) {
+            if (shard.get(opaque) != responseFuture) {
+                return false;
+            }
+            shard.remove(opaque);
+            return true;
+        }
+    }
+
+    /**
+     * Remove all requests that match the given predicate.
+     *
+     * @param predicate the predicate to test futures
+     * @return the removed futures
+     */
+    public List<ResponseFuture> removeIf(Predicate<ResponseFuture> predicate) {
+        List<ResponseFuture> removed = new ArrayList<>();
+        for (IntObjectHashMap<ResponseFuture> shard : shards) {
+            synchronized (shard) {
+                Iterator<ResponseFuture> it = shard.values().iterator();
+                while (it.hasNext()) {
+                    ResponseFuture responseFuture = it.next();
+                    if (predicate.test(responseFuture)) {
+                        it.remove();
+                        removed.add(responseFuture);
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (IntObjectHashMap<ResponseFuture> shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shallowinggg.doran.transport.netty;
+
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * Coalesce flushes of {@link RemotingCommand}s written in one run of
+ * the executor of this handler, like {@link FlushConsolidationHandler}.
+ * <p>
+ * Every invocation issued out of the executor arrives as a write and
+ * a flush task. Flushes are deferred to a task that is queued after
+ * them, so commands written by concurrent callers are written to the
+ * socket by one syscall. Pending commands are flushed at once when
+ * their estimated encoded size reaches {@link #maxPendingBytes}, or
+ * channel becomes unwritable, or it is closing.
+ * <p>
+ * This handler must be placed at the tail side of {@link NettyEncoder}
+ * so that it sees {@link RemotingCommand}s.
+ *
+ * @author shallowinggg
+ */
+public class WriteCoalescingHandler extends ChannelDuplexHandler {
+    private final int maxPendingBytes;
+    private final Runnable flushTask;
+    private ChannelHandlerContext ctx;
+    private int pendingBytes;
+    private boolean flushPending;
+    private boolean flushScheduled;
+
+    public WriteCoalescingHandler(int maxPendingBytes) {
+        if (maxPendingBytes <= 0) {
+            throw new IllegalArgumentException("maxPendingBytes: " + maxPendingBytes + " (expected: > 0)");
+        }
+        this.maxPendingBytes = maxPendingBytes;
+        this.flushTask = () -> {
+            flushScheduled = false;
+            if (flushPending) {
+                flushNow(ctx);
+            }
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        pendingBytes += estimateSize(msg);
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (pendingBytes >= maxPendingBytes || !ctx.channel().isWritable()) {
+            flushNow(ctx);
+            return;
+        }
+        flushPending = true;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.executor().execute(flushTask);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel().isWritable() && flushPending) {
+            flushNow(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfPending(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushIfPending(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushIfPending(ctx);
+    }
+
+    private void flushIfPending(ChannelHandlerContext ctx) {
+        if (flushPending) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        pendingBytes = 0;
+        flushPending = false;
+        ctx.flush();
+    }
+
+    private static int estimateSize(Object msg) {
+        if (msg instanceof RemotingCommand) {
+            RemotingCommand command = (RemotingCommand) msg;
+            byte[] body = command.getBody();
+            return command.estimatedHeaderLength() + (body != null ? body.length : 0);
+        }
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+}
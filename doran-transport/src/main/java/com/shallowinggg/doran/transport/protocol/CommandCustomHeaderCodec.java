@@ -0,0 +1,76 @@
+package com.shallowinggg.doran.transport.protocol;
+
+import com.shallowinggg.doran.transport.CommandCustomHeader;
+import com.shallowinggg.doran.transport.exception.RemotingCommandException;
+import io.netty.buffer.ByteBuf;
+
+import java.util.Map;
+
+/**
+ * Codec for a kind of {@link CommandCustomHeader}.
+ * <p>
+ * {@link SerializeType#DORAN} commands carry custom header as typed
+ * binary fields in their header, while {@link SerializeType#JSON}
+ * commands still carry it as strings in
+ * {@link RemotingCommand#getExtFields()}.
+ * <p>
+ * Codecs are obtained from {@link CommandCustomHeaderCodecs}, which
+ * generates them for header classes by default.
+ *
+ * @param <T> the type of custom header
+ * @author shallowinggg
+ */
+public interface CommandCustomHeaderCodec<T extends CommandCustomHeader> {
+
+    /**
+     * Create an empty header.
+     *
+     * @return new header
+     */
+    T newInstance();
+
+    /**
+     * Return the number of bytes that {@link #encode(CommandCustomHeader, ByteBuf)}
+     * will write for the given header.
+     *
+     * @param header the header to encode
+     * @return encoded length
+     */
+    int encodedLength(T header);
+
+    /**
+     * Write the fields of header into the given buffer.
+     *
+     * @param header the header to encode
+     * @param out    the buffer to write
+     */
+    void encode(T header, ByteBuf out);
+
+    /**
+     * Read a header from the readable bytes of the given buffer.
+     *
+     * @param in the buffer to read
+     * @return decoded header
+     * @throws RemotingCommandException if bytes are corrupted or a
+     *                                  not null field is absent
+     */
+    T decode(ByteBuf in) throws RemotingCommandException;
+
+    /**
+     * Write non null fields of header into the given map as strings.
+     *
+     * @param header    the header to encode
+     * @param extFields the map to write
+     */
+    void encode(T header, Map<String, String> extFields);
+
+    /**
+     * Read a header from the given map.
+     *
+     * @param extFields the map to read
+     * @return decoded header
+     * @throws RemotingCommandException if a field can't be parsed or
+     *                                  a not null field is absent
+     */
+    T decode(Map<String, String> extFields) throws RemotingCommandException;
+}
@@ -0,0 +1,65 @@
+package com.shallowinggg.doran.transport.protocol;
+
+import com.shallowinggg.doran.transport.CommandCustomHeader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link CommandCustomHeaderCodec}s.
+ * <p>
+ * A codec is generated once for every header class when it is used
+ * first time, see {@link GeneratedHeaderCodec}. Hand-written codecs
+ * can be registered by {@link #register(Class, CommandCustomHeaderCodec)}.
+ *
+ * @author shallowinggg
+ */
+public final class CommandCustomHeaderCodecs {
+    private static final Map<Class<?>, CommandCustomHeaderCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    private CommandCustomHeaderCodecs() {
+    }
+
+    /**
+     * Return the codec for the given header class, generate it
+     * if absent.
+     *
+     * @param headerClass header class
+     * @param <T>         the type of header
+     * @return codec
+     * @throws IllegalArgumentException if codec can't be generated
+     *                                  for header class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends CommandCustomHeader> CommandCustomHeaderCodec<T> getCodec(Class<T> headerClass) {
+        CommandCustomHeaderCodec<?> codec = CODECS.get(headerClass);
+        if (codec == null) {
+            codec = CODECS.computeIfAbsent(headerClass, k -> new GeneratedHeaderCodec<>(headerClass));
+        }
+        return (CommandCustomHeaderCodec<T>) codec;
+    }
+
+    /**
+     * Return the codec for the class of the given header.
+     *
+     * @param header header
+     * @return codec
+     */
+    @SuppressWarnings("unchecked")
+    public static CommandCustomHeaderCodec<CommandCustomHeader> getCodec(CommandCustomHeader header) {
+        return (CommandCustomHeaderCodec<CommandCustomHeader>) getCodec(header.getClass());
+    }
+
+    /**
+     * Register codec for the given header class, the old one
+     * will be replaced.
+     *
+     * @param headerClass header class
+     * @param codec       codec
+     * @param <T>         the type of header
+     */
+    public static <T extends CommandCustomHeader> void register(Class<T> headerClass,
+                                                                CommandCustomHeaderCodec<T> codec) {
+        CODECS.put(headerClass, codec);
+    }
+}
@@ -16,62 +16,68 @@
  */
 package com.shallowinggg.doran.transport.protocol;
 
+import com.shallowinggg.doran.transport.CommandCustomHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 public class DoranSerializable {
     private static final Charset CHARSET_UTF8 = StandardCharsets.UTF_8;
 
-    public static byte[] doranProtocolEncode(RemotingCommand cmd) {
-        // String remark
-        byte[] remarkBytes = null;
-        int remarkLen = 0;
-        if (cmd.getRemark() != null && cmd.getRemark().length() > 0) {
-            remarkBytes = cmd.getRemark().getBytes(CHARSET_UTF8);
-            remarkLen = remarkBytes.length;
-        }
-
-        // HashMap<String, String> extFields
-        byte[] extFieldsBytes = null;
-        int extLen = 0;
-        if (cmd.getExtFields() != null && !cmd.getExtFields().isEmpty()) {
-            extFieldsBytes = mapSerialize(cmd.getExtFields());
-            extLen = extFieldsBytes.length;
-        }
-
-        int totalLen = calTotalLen(remarkLen, extLen);
-
-        ByteBuffer headerBuffer = ByteBuffer.allocate(totalLen);
+    /**
+     * Write header of the given command into buffer directly. Length
+     * of remark, extFields and custom header is reserved and written
+     * back after they are encoded, so every field is encoded once.
+     *
+     * @param cmd the command to encode
+     * @param out the buffer to write
+     * @return the number of bytes written
+     */
+    public static int doranProtocolEncode(RemotingCommand cmd, ByteBuf out) {
+        final int start = out.writerIndex();
         // int code(~32767)
-        headerBuffer.putShort((short) cmd.getCode());
+        out.writeShort((short) cmd.getCode());
         // LanguageCode language
-        headerBuffer.put(cmd.getLanguage().getCode());
+        out.writeByte(cmd.getLanguage().getCode());
         // int version(~32767)
-        headerBuffer.putShort((short) cmd.getVersion());
+        out.writeShort((short) cmd.getVersion());
         // int opaque
-        headerBuffer.putInt(cmd.getOpaque());
+        out.writeInt(cmd.getOpaque());
         // int flag
-        headerBuffer.putInt(cmd.getFlag());
+        out.writeInt(cmd.getFlag());
+
         // String remark
-        if (remarkBytes != null) {
-            headerBuffer.putInt(remarkBytes.length);
-            headerBuffer.put(remarkBytes);
-        } else {
-            headerBuffer.putInt(0);
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        final String remark = cmd.getRemark();
+        if (remark != null && remark.length() > 0) {
+            out.setInt(lengthIndex, ByteBufUtil.writeUtf8(out, remark));
+        }
+
+        // HashMap<String, String> extFields
+        lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        if (cmd.getExtFields() != null && !cmd.getExtFields().isEmpty()) {
+            mapSerialize(cmd.getExtFields(), out);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
         }
-        // HashMap<String, String> extFields;
-        if (extFieldsBytes != null) {
-            headerBuffer.putInt(extFieldsBytes.length);
-            headerBuffer.put(extFieldsBytes);
-        } else {
-            headerBuffer.putInt(0);
+
+        // CommandCustomHeader customHeader
+        lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        final CommandCustomHeader customHeader = cmd.readCustomHeader();
+        if (customHeader != null) {
+            CommandCustomHeaderCodecs.getCodec(customHeader).encode(customHeader, out);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
         }
 
-        return headerBuffer.array();
+        return out.writerIndex() - start;
     }
 
     public static byte[] mapSerialize(Map<String, String> map) {
@@ -80,86 +86,121 @@ public class DoranSerializable {
             return null;
         }
 
+        byte[] content = new byte[mapSerializedLength(map)];
+        ByteBuf buf = Unpooled.wrappedBuffer(content);
+        buf.writerIndex(0);
+        mapSerialize(map, buf);
+        return content;
+    }
+
+    /**
+     * Calculate the length of serialized map without encoding
+     * its keys and values.
+     *
+     * @param map the map to serialize
+     * @return serialized length
+     */
+    public static int mapSerializedLength(Map<String, String> map) {
+        if (null == map || map.isEmpty()) {
+            return 0;
+        }
+
         int totalLength = 0;
-        int kvLength;
-        Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, String> entry = it.next();
+        for (Map.Entry<String, String> entry : map.entrySet()) {
             if (entry.getKey() != null && entry.getValue() != null) {
-                kvLength =
+                totalLength +=
                         // keySize + Key
-                        2 + entry.getKey().getBytes(CHARSET_UTF8).length
+                        2 + ByteBufUtil.utf8Bytes(entry.getKey())
                                 // valSize + val
-                                + 4 + entry.getValue().getBytes(CHARSET_UTF8).length;
-                totalLength += kvLength;
+                                + 4 + ByteBufUtil.utf8Bytes(entry.getValue());
             }
         }
+        return totalLength;
+    }
 
-        ByteBuffer content = ByteBuffer.allocate(totalLength);
-        byte[] key;
-        byte[] val;
-        it = map.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<String, String> entry = it.next();
-            if (entry.getKey() != null && entry.getValue() != null) {
-                key = entry.getKey().getBytes(CHARSET_UTF8);
-                val = entry.getValue().getBytes(CHARSET_UTF8);
+    /**
+     * Serialize map into the given buffer directly, the buffer
+     * should have {@link #mapSerializedLength(Map)} writable bytes
+     * at least.
+     *
+     * @param map the map to serialize
+     * @param out the buffer to write
+     */
+    public static void mapSerialize(Map<String, String> map, ByteBuf out) {
+        if (null == map || map.isEmpty()) {
+            return;
+        }
 
-                content.putShort((short) key.length);
-                content.put(key);
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                // reserve exact bytes, buffer may be allocated with
+                // mapSerializedLength as its max capacity
+                String key = entry.getKey();
+                int keySize = ByteBufUtil.utf8Bytes(key);
+                out.writeShort(keySize);
+                ByteBufUtil.reserveAndWriteUtf8(out, key, keySize);
 
-                content.putInt(val.length);
-                content.put(val);
+                String val = entry.getValue();
+                int valSize = ByteBufUtil.utf8Bytes(val);
+                out.writeInt(valSize);
+                ByteBufUtil.reserveAndWriteUtf8(out, val, valSize);
             }
         }
-
-        return content.array();
     }
 
-    private static int calTotalLen(int remark, int ext) {
-        // int code(~32767)
-        return 2
-                // LanguageCode language
-                + 1
-                // int version(~32767)
-                + 2
-                // int opaque
-                + 4
-                // int flag
-                + 4
-                // String remark
-                + 4 + remark
-                // HashMap<String, String> extFields
-                + 4 + ext;
+    public static RemotingCommand doranProtocolDecode(final byte[] headerArray) {
+        return doranProtocolDecode(Unpooled.wrappedBuffer(headerArray));
     }
 
-    public static RemotingCommand doranProtocolDecode(final byte[] headerArray) {
+    /**
+     * Decode header from the readable bytes of the given buffer in
+     * place, buffer's reader index is not changed. Binary custom
+     * header is kept as a slice of buffer, so caller should copy it
+     * if buffer will be released before command is processed.
+     *
+     * @param header the buffer to read
+     * @return command decoded
+     */
+    public static RemotingCommand doranProtocolDecode(final ByteBuf header) {
         RemotingCommand cmd = new RemotingCommand();
-        ByteBuffer headerBuffer = ByteBuffer.wrap(headerArray);
+        int index = header.readerIndex();
+        final int end = header.writerIndex();
         // int code(~32767)
-        cmd.setCode(headerBuffer.getShort());
+        cmd.setCode(header.getShort(index));
         // LanguageCode language
-        cmd.setLanguage(LanguageCode.valueOf(headerBuffer.get()));
+        cmd.setLanguage(LanguageCode.valueOf(header.getByte(index + 2)));
         // int version(~32767)
-        cmd.setVersion(headerBuffer.getShort());
+        cmd.setVersion(header.getShort(index + 3));
         // int opaque
-        cmd.setOpaque(headerBuffer.getInt());
+        cmd.setOpaque(header.getInt(index + 5));
         // int flag
-        cmd.setFlag(headerBuffer.getInt());
+        cmd.setFlag(header.getInt(index + 9));
+        index += 13;
+
         // String remark
-        int remarkLength = headerBuffer.getInt();
+        int remarkLength = header.getInt(index);
+        index += 4;
         if (remarkLength > 0) {
-            byte[] remarkContent = new byte[remarkLength];
-            headerBuffer.get(remarkContent);
-            cmd.setRemark(new String(remarkContent, CHARSET_UTF8));
+            cmd.setRemark(header.toString(index, remarkLength, CHARSET_UTF8));
+            index += remarkLength;
         }
 
         // HashMap<String, String> extFields
-        int extFieldsLength = headerBuffer.getInt();
+        int extFieldsLength = header.getInt(index);
+        index += 4;
         if (extFieldsLength > 0) {
-            byte[] extFieldsBytes = new byte[extFieldsLength];
-            headerBuffer.get(extFieldsBytes);
-            cmd.setExtFields(mapDeserialize(extFieldsBytes));
+            cmd.setExtFields(mapDeserialize(header, index, index + extFieldsLength));
+            index += extFieldsLength;
+        }
+
+        // CommandCustomHeader customHeader, absent if command is
+        // sent by old version
+        if (end - index >= 4) {
+            int customHeaderLength = header.getInt(index);
+            index += 4;
+            if (customHeaderLength > 0) {
+                cmd.setCustomHeaderData(header.slice(index, customHeaderLength));
+            }
         }
         return cmd;
     }
@@ -190,4 +231,36 @@ public class DoranSerializable {
         return map;
     }
 
+    /**
+     * Deserialize map from the readable bytes of the given buffer.
+     * This method won't change buffer's reader index.
+     *
+     * @param buf the buffer to read
+     * @return map, or {@code null} if buffer is not readable
+     */
+    public static HashMap<String, String> mapDeserialize(ByteBuf buf) {
+        if (buf == null || !buf.isReadable()) {
+            return null;
+        }
+        return mapDeserialize(buf, buf.readerIndex(), buf.writerIndex());
+    }
+
+    private static HashMap<String, String> mapDeserialize(ByteBuf buf, int index, final int end) {
+        HashMap<String, String> map = new HashMap<>(8);
+        int keySize;
+        String key;
+        int valSize;
+        while (index < end) {
+            keySize = buf.getShort(index);
+            index += 2;
+            key = buf.toString(index, keySize, CHARSET_UTF8);
+            index += keySize;
+
+            valSize = buf.getInt(index);
+            index += 4;
+            map.put(key, buf.toString(index, valSize, CHARSET_UTF8));
+            index += valSize;
+        }
+        return map;
+    }
 }
@@ -0,0 +1,807 @@
+package com.shallowinggg.doran.transport.protocol;
+
+import com.shallowinggg.doran.transport.CommandCustomHeader;
+import com.shallowinggg.doran.transport.annotation.CFNotNull;
+import com.shallowinggg.doran.transport.exception.RemotingCommandException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * {@link CommandCustomHeaderCodec} generated from the non-static fields
+ * declared by a header class.
+ * <p>
+ * All reflective work is done when codec is created. Public bean
+ * getters and setters of fields are bound to functional interfaces
+ * by {@link LambdaMetafactory}, so that encoding and decoding are
+ * plain interface calls and primitive fields are never boxed. Fields
+ * without public accessors fall back to field {@link MethodHandle}s.
+ * <p>
+ * Fields are written in the order of their names, so binary layout
+ * doesn't depend on the order of {@link Class#getDeclaredFields()}:
+ * <pre>
+ * int, long, double: fixed size big endian
+ * boolean: 1 byte
+ * String, Integer, Long, Boolean, Double: 1 byte presence flag,
+ *                  followed by value if present, string value
+ *                  is prefixed with its utf-8 length
+ * </pre>
+ * Fields without {@link CFNotNull} may be absent.
+ *
+ * @param <T> the type of custom header
+ * @author shallowinggg
+ */
+final class GeneratedHeaderCodec<T extends CommandCustomHeader> implements CommandCustomHeaderCodec<T> {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> headerClass;
+    private final Supplier<T> constructor;
+    private final FieldCodec[] fields;
+
+    GeneratedHeaderCodec(Class<T> headerClass) {
+        this.headerClass = headerClass;
+        this.constructor = bindConstructor(headerClass);
+
+        List<FieldCodec> fields = new ArrayList<>();
+        for (Field field : headerClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.getName().startsWith("this")) {
+                continue;
+            }
+            fields.add(newFieldCodec(headerClass, field));
+        }
+        fields.sort(Comparator.comparing(field -> field.name));
+        this.fields = fields.toArray(new FieldCodec[0]);
+    }
+
+    @Override
+    public T newInstance() {
+        return constructor.get();
+    }
+
+    @Override
+    public int encodedLength(T header) {
+        int length = 0;
+        for (FieldCodec field : fields) {
+            length += field.encodedLength(header);
+        }
+        return length;
+    }
+
+    @Override
+    public void encode(T header, ByteBuf out) {
+        for (FieldCodec field : fields) {
+            field.encode(header, out);
+        }
+    }
+
+    @Override
+    public T decode(ByteBuf in) throws RemotingCommandException {
+        final T header = constructor.get();
+        try {
+            for (FieldCodec field : fields) {
+                field.decode(header, in);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new RemotingCommandException("the custom header <" + headerClass.getName() + "> is truncated", e);
+        }
+        return header;
+    }
+
+    @Override
+    public void encode(T header, Map<String, String> extFields) {
+        for (FieldCodec field : fields) {
+            field.write(header, extFields);
+        }
+    }
+
+    @Override
+    public T decode(Map<String, String> extFields) throws RemotingCommandException {
+        final T header = constructor.get();
+        for (FieldCodec field : fields) {
+            String value = extFields.get(field.name);
+            if (value == null) {
+                if (!field.nullable) {
+                    throw new RemotingCommandException("the custom field <" + field.name + "> is null");
+                }
+                continue;
+            }
+            try {
+                field.read(header, value);
+            } catch (NumberFormatException e) {
+                throw new RemotingCommandException("the custom field <" + field.name + "> is invalid: " + value, e);
+            }
+        }
+        return header;
+    }
+
+    private static FieldCodec newFieldCodec(Class<?> headerClass, Field field) {
+        final String name = field.getName();
+        final boolean nullable = field.getAnnotation(CFNotNull.class) == null;
+        final Class<?> type = field.getType();
+        final MethodHandle getter = getter(headerClass, field);
+        final MethodHandle setter = setter(headerClass, field);
+
+        if (type == int.class) {
+            return new IntFieldCodec(name, nullable, intGetter(getter), intSetter(setter));
+        } else if (type == long.class) {
+            return new LongFieldCodec(name, nullable, longGetter(getter), longSetter(setter));
+        } else if (type == boolean.class) {
+            return new BooleanFieldCodec(name, nullable, booleanGetter(getter), booleanSetter(setter));
+        } else if (type == double.class) {
+            return new DoubleFieldCodec(name, nullable, doubleGetter(getter), doubleSetter(setter));
+        }
+
+        final ValueType valueType = ValueType.of(type);
+        if (valueType == null) {
+            throw new IllegalArgumentException("the custom field <" + name + "> type is not supported");
+        }
+        return new ReferenceFieldCodec(name, nullable, valueType, objectGetter(getter), objectSetter(setter));
+    }
+
+    // ---------------------------------------------------------------- accessors
+
+    /**
+     * Return public getter of the field if it exists, or a getter
+     * of field itself.
+     */
+    private static MethodHandle getter(Class<?> headerClass, Field field) {
+        final String suffix = capitalize(field.getName());
+        Method method = findPublicMethod(headerClass, "get" + suffix);
+        if (method == null && field.getType() == boolean.class) {
+            method = findPublicMethod(headerClass, "is" + suffix);
+        }
+        try {
+            if (method != null && method.getReturnType() == field.getType()) {
+                return LOOKUP.unreflect(method);
+            }
+            field.setAccessible(true);
+            return LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Failed to access field [" + field.getName() + "]", e);
+        }
+    }
+
+    /**
+     * Return public setter of the field if it exists, or a setter
+     * of field itself.
+     */
+    private static MethodHandle setter(Class<?> headerClass, Field field) {
+        Method method = findPublicMethod(headerClass, "set" + capitalize(field.getName()), field.getType());
+        try {
+            if (method != null) {
+                return LOOKUP.unreflect(method);
+            }
+            field.setAccessible(true);
+            return LOOKUP.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Failed to access field [" + field.getName() + "]", e);
+        }
+    }
+
+    private static Method findPublicMethod(Class<?> headerClass, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = headerClass.getMethod(name, parameterTypes);
+            return isPublic(method) ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean isPublic(Member member) {
+        return Modifier.isPublic(member.getModifiers())
+                && Modifier.isPublic(member.getDeclaringClass().getModifiers());
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Whether the handle can be bound by {@link LambdaMetafactory},
+     * i.e. it is a public method. Lambdas are spun in this package,
+     * so they can't call non-public members of header classes.
+     */
+    private static boolean bindable(MethodHandle handle) {
+        try {
+            Member member = LOOKUP.revealDirect(handle).reflectAs(Member.class, LOOKUP);
+            return !(member instanceof Field) && isPublic(member);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <F> F bind(Class<F> functionalInterface, String methodName,
+                              MethodType methodType, MethodHandle handle) {
+        MethodType instantiatedType = handle.type();
+        if (methodType.returnType() == void.class) {
+            // setters may return this
+            instantiatedType = instantiatedType.changeReturnType(void.class);
+        }
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName, methodType(functionalInterface),
+                    methodType, handle, instantiatedType);
+            return (F) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Failed to bind " + handle, e);
+        }
+    }
+
+    private static RuntimeException propagate(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return t instanceof RuntimeException ? (RuntimeException) t : new IllegalStateException(t);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> bindConstructor(Class<T> headerClass) {
+        if (Modifier.isAbstract(headerClass.getModifiers())) {
+            throw new IllegalArgumentException("Is it an abstract class?");
+        }
+        final Constructor<T> constructor;
+        final MethodHandle handle;
+        try {
+            constructor = headerClass.getDeclaredConstructor();
+            if (!isPublic(constructor)) {
+                constructor.setAccessible(true);
+            }
+            handle = LOOKUP.unreflectConstructor(constructor);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No default constructor found", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Is the constructor accessible?", e);
+        }
+
+        if (isPublic(constructor)) {
+            return bind(Supplier.class, "get", methodType(Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(Object.class));
+        return () -> {
+            try {
+                return (T) h.invokeExact();
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToIntFunction<Object> intGetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ToIntFunction.class, "applyAsInt", methodType(int.class, Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(int.class, Object.class));
+        return header -> {
+            try {
+                return (int) h.invokeExact(header);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjIntConsumer<Object> intSetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ObjIntConsumer.class, "accept", methodType(void.class, Object.class, int.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(void.class, Object.class, int.class));
+        return (header, value) -> {
+            try {
+                h.invokeExact(header, value);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToLongFunction<Object> longGetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ToLongFunction.class, "applyAsLong", methodType(long.class, Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(long.class, Object.class));
+        return header -> {
+            try {
+                return (long) h.invokeExact(header);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjLongConsumer<Object> longSetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ObjLongConsumer.class, "accept", methodType(void.class, Object.class, long.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(void.class, Object.class, long.class));
+        return (header, value) -> {
+            try {
+                h.invokeExact(header, value);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate<Object> booleanGetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(Predicate.class, "test", methodType(boolean.class, Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(boolean.class, Object.class));
+        return header -> {
+            try {
+                return (boolean) h.invokeExact(header);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjBooleanConsumer<Object> booleanSetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ObjBooleanConsumer.class, "accept", methodType(void.class, Object.class, boolean.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(void.class, Object.class, boolean.class));
+        return (header, value) -> {
+            try {
+                h.invokeExact(header, value);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToDoubleFunction<Object> doubleGetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ToDoubleFunction.class, "applyAsDouble", methodType(double.class, Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(double.class, Object.class));
+        return header -> {
+            try {
+                return (double) h.invokeExact(header);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjDoubleConsumer<Object> doubleSetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(ObjDoubleConsumer.class, "accept", methodType(void.class, Object.class, double.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(void.class, Object.class, double.class));
+        return (header, value) -> {
+            try {
+                h.invokeExact(header, value);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> objectGetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(Function.class, "apply", methodType(Object.class, Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(Object.class, Object.class));
+        return header -> {
+            try {
+                return (Object) h.invokeExact(header);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> objectSetter(MethodHandle handle) {
+        if (bindable(handle)) {
+            return bind(BiConsumer.class, "accept", methodType(void.class, Object.class, Object.class), handle);
+        }
+        final MethodHandle h = handle.asType(methodType(void.class, Object.class, Object.class));
+        return (header, value) -> {
+            try {
+                h.invokeExact(header, value);
+            } catch (Throwable e) {
+                throw propagate(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface ObjBooleanConsumer<T> {
+        void accept(T t, boolean value);
+    }
+
+    // ---------------------------------------------------------------- field codecs
+
+    abstract static class FieldCodec {
+        final String name;
+        final boolean nullable;
+
+        FieldCodec(String name, boolean nullable) {
+            this.name = name;
+            this.nullable = nullable;
+        }
+
+        abstract int encodedLength(Object header);
+
+        abstract void encode(Object header, ByteBuf out);
+
+        abstract void decode(Object header, ByteBuf in) throws RemotingCommandException;
+
+        abstract void write(Object header, Map<String, String> extFields);
+
+        abstract void read(Object header, String value);
+    }
+
+    static final class IntFieldCodec extends FieldCodec {
+        private final ToIntFunction<Object> getter;
+        private final ObjIntConsumer<Object> setter;
+
+        IntFieldCodec(String name, boolean nullable, ToIntFunction<Object> getter, ObjIntConsumer<Object> setter) {
+            super(name, nullable);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        int encodedLength(Object header) {
+            return 4;
+        }
+
+        @Override
+        void encode(Object header, ByteBuf out) {
+            out.writeInt(getter.applyAsInt(header));
+        }
+
+        @Override
+        void decode(Object header, ByteBuf in) {
+            setter.accept(header, in.readInt());
+        }
+
+        @Override
+        void write(Object header, Map<String, String> extFields) {
+            extFields.put(name, Integer.toString(getter.applyAsInt(header)));
+        }
+
+        @Override
+        void read(Object header, String value) {
+            setter.accept(header, Integer.parseInt(value));
+        }
+    }
+
+    static final class LongFieldCodec extends FieldCodec {
+        private final ToLongFunction<Object> getter;
+        private final ObjLongConsumer<Object> setter;
+
+        LongFieldCodec(String name, boolean nullable, ToLongFunction<Object> getter, ObjLongConsumer<Object> setter) {
+            super(name, nullable);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        int encodedLength(Object header) {
+            return 8;
+        }
+
+        @Override
+        void encode(Object header, ByteBuf out) {
+            out.writeLong(getter.applyAsLong(header));
+        }
+
+        @Override
+        void decode(Object header, ByteBuf in) {
+            setter.accept(header, in.readLong());
+        }
+
+        @Override
+        void write(Object header, Map<String, String> extFields) {
+            extFields.put(name, Long.toString(getter.applyAsLong(header)));
+        }
+
+        @Override
+        void read(Object header, String value) {
+            setter.accept(header, Long.parseLong(value));
+        }
+    }
+
+    static final class BooleanFieldCodec extends FieldCodec {
+        private final Predicate<Object> getter;
+        private final ObjBooleanConsumer<Object> setter;
+
+        BooleanFieldCodec(String name, boolean nullable, Predicate<Object> getter, ObjBooleanConsumer<Object> setter) {
+            super(name, nullable);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        int encodedLength(Object header) {
+            return 1;
+        }
+
+        @Override
+        void encode(Object header, ByteBuf out) {
+            out.writeBoolean(getter.test(header));
+        }
+
+        @Override
+        void decode(Object header, ByteBuf in) {
+            setter.accept(header, in.readBoolean());
+        }
+
+        @Override
+        void write(Object header, Map<String, String> extFields) {
+            extFields.put(name, Boolean.toString(getter.test(header)));
+        }
+
+        @Override
+        void read(Object header, String value) {
+            setter.accept(header, Boolean.parseBoolean(value));
+        }
+    }
+
+    static final class DoubleFieldCodec extends FieldCodec {
+        private final ToDoubleFunction<Object> getter;
+        private final ObjDoubleConsumer<Object> setter;
+
+        DoubleFieldCodec(String name, boolean nullable, ToDoubleFunction<Object> getter,
+                         ObjDoubleConsumer<Object> setter) {
+            super(name, nullable);
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        int encodedLength(Object header) {
+            return 8;
+        }
+
+        @Override
+        void encode(Object header, ByteBuf out) {
+            out.writeDouble(getter.applyAsDouble(header));
+        }
+
+        @Override
+        void decode(Object header, ByteBuf in) {
+            setter.accept(header, in.readDouble());
+        }
+
+        @Override
+        void write(Object header, Map<String, String> extFields) {
+            extFields.put(name, Double.toString(getter.applyAsDouble(header)));
+        }
+
+        @Override
+        void read(Object header, String value) {
+            setter.accept(header, Double.parseDouble(value));
+        }
+    }
+
+    static final class ReferenceFieldCodec extends FieldCodec {
+        private final ValueType type;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+
+        ReferenceFieldCodec(String name, boolean nullable, ValueType type,
+                            Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+            super(name, nullable);
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        @Override
+        int encodedLength(Object header) {
+            Object value = getter.apply(header);
+            return value == null ? 1 : 1 + type.encodedLength(value);
+        }
+
+        @Override
+        void encode(Object header, ByteBuf out) {
+            Object value = getter.apply(header);
+            if (value == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                type.encode(value, out);
+            }
+        }
+
+        @Override
+        void decode(Object header, ByteBuf in) throws RemotingCommandException {
+            if (in.readBoolean()) {
+                setter.accept(header, type.decode(in));
+            } else if (!nullable) {
+                throw new RemotingCommandException("the custom field <" + name + "> is null");
+            }
+        }
+
+        @Override
+        void write(Object header, Map<String, String> extFields) {
+            Object value = getter.apply(header);
+            if (value != null) {
+                extFields.put(name, value.toString());
+            }
+        }
+
+        @Override
+        void read(Object header, String value) {
+            setter.accept(header, type.parse(value));
+        }
+    }
+
+    enum ValueType {
+        STRING {
+            @Override
+            int encodedLength(Object value) {
+                return 4 + ByteBufUtil.utf8Bytes((String) value);
+            }
+
+            @Override
+            void encode(Object value, ByteBuf out) {
+                String str = (String) value;
+                int length = ByteBufUtil.utf8Bytes(str);
+                out.writeInt(length);
+                ByteBufUtil.reserveAndWriteUtf8(out, str, length);
+            }
+
+            @Override
+            Object decode(ByteBuf in) {
+                int length = in.readInt();
+                String str = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+                in.skipBytes(length);
+                return str;
+            }
+
+            @Override
+            Object parse(String value) {
+                return value;
+            }
+        },
+        INTEGER {
+            @Override
+            int encodedLength(Object value) {
+                return 4;
+            }
+
+            @Override
+            void encode(Object value, ByteBuf out) {
+                out.writeInt((Integer) value);
+            }
+
+            @Override
+            Object decode(ByteBuf in) {
+                return in.readInt();
+            }
+
+            @Override
+            Object parse(String value) {
+                return Integer.parseInt(value);
+            }
+        },
+        LONG {
+            @Override
+            int encodedLength(Object value) {
+                return 8;
+            }
+
+            @Override
+            void encode(Object value, ByteBuf out) {
+                out.writeLong((Long) value);
+            }
+
+            @Override
+            Object decode(ByteBuf in) {
+                return in.readLong();
+            }
+
+            @Override
+            Object parse(String value) {
+                return Long.parseLong(value);
+            }
+        },
+        BOOLEAN {
+            @Override
+            int encodedLength(Object value) {
+                return 1;
+            }
+
+            @Override
+            void encode(Object value, ByteBuf out) {
+                out.writeBoolean((Boolean) value);
+            }
+
+            @Override
+            Object decode(ByteBuf in) {
+                return in.readBoolean();
+            }
+
+            @Override
+            Object parse(String value) {
+                return Boolean.parseBoolean(value);
+            }
+        },
+        DOUBLE {
+            @Override
+            int encodedLength(Object value) {
+                return 8;
+            }
+
+            @Override
+            void encode(Object value, ByteBuf out) {
+                out.writeDouble((Double) value);
+            }
+
+            @Override
+            Object decode(ByteBuf in) {
+                return in.readDouble();
+            }
+
+            @Override
+            Object parse(String value) {
+                return Double.parseDouble(value);
+            }
+        };
+
+        static ValueType of(Class<?> type) {
+            if (type == String.class) {
+                return STRING;
+            } else if (type == Integer.class) {
+                return INTEGER;
+            } else if (type == Long.class) {
+                return LONG;
+            } else if (type == Boolean.class) {
+                return BOOLEAN;
+            } else if (type == Double.class) {
+                return DOUBLE;
+            }
+            return null;
+        }
+
+        abstract int encodedLength(Object value);
+
+        abstract void encode(Object value, ByteBuf out);
+
+        abstract Object decode(ByteBuf in);
+
+        abstract Object parse(String value);
+    }
+}
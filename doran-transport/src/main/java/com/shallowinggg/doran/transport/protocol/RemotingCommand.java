@@ -18,43 +18,24 @@ package com.shallowinggg.doran.transport.protocol;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.shallowinggg.doran.transport.CommandCustomHeader;
-import com.shallowinggg.doran.transport.annotation.CFNotNull;
-import com.shallowinggg.doran.transport.common.RemotingHelper;
 import com.shallowinggg.doran.transport.exception.RemotingCommandException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class RemotingCommand {
     public static final String SERIALIZE_TYPE_PROPERTY = "doran.serialize.type";
     public static final String SERIALIZE_TYPE_ENV = "DORAN_SERIALIZE_TYPE";
     public static final String REMOTING_VERSION_KEY = "doran.version";
-    private static final Logger LOGGER = LoggerFactory.getLogger(RemotingHelper.DORAN_REMOTING);
     private static final int RPC_TYPE = 0; // 0, REQUEST_COMMAND
     private static final int RPC_ONEWAY = 1; // 0, RPC
-    private static final Map<Class<? extends CommandCustomHeader>, Field[]> CLASS_HASH_MAP =
-            new HashMap<>();
-    private static final Map<Class<?>, String> CANONICAL_NAME_CACHE = new HashMap<>();
-
-    private static final Map<Field, Boolean> NULLABLE_FIELD_CACHE = new HashMap<>();
-    private static final String STRING_CANONICAL_NAME = String.class.getCanonicalName();
-    private static final String DOUBLE_CANONICAL_NAME_1 = Double.class.getCanonicalName();
-    private static final String DOUBLE_CANONICAL_NAME_2 = double.class.getCanonicalName();
-    private static final String INTEGER_CANONICAL_NAME_1 = Integer.class.getCanonicalName();
-    private static final String INTEGER_CANONICAL_NAME_2 = int.class.getCanonicalName();
-    private static final String LONG_CANONICAL_NAME_1 = Long.class.getCanonicalName();
-    private static final String LONG_CANONICAL_NAME_2 = long.class.getCanonicalName();
-    private static final String BOOLEAN_CANONICAL_NAME_1 = Boolean.class.getCanonicalName();
-    private static final String BOOLEAN_CANONICAL_NAME_2 = boolean.class.getCanonicalName();
+    private static final int ESTIMATED_DORAN_HEADER_LENGTH = 128;
+    private static final int ESTIMATED_JSON_HEADER_LENGTH = 256;
     private static volatile int configVersion = -1;
     private static final AtomicInteger REQUEST_ID = new AtomicInteger(0);
 
@@ -79,6 +60,17 @@ public class RemotingCommand {
     private String remark;
     private HashMap<String, String> extFields;
     private transient CommandCustomHeader customHeader;
+    /**
+     * Binary custom header of {@link SerializeType#DORAN} command,
+     * decoded lazily by {@link #decodeCommandCustomHeader(Class)}
+     */
+    private transient ByteBuf customHeaderData;
+    /**
+     * Frame that request is decoded from, body and custom header
+     * are slices of it, released by {@link #release()}
+     */
+    private transient ByteBuf frame;
+    private transient ByteBuf bodyData;
 
     private SerializeType serializeTypeCurrentRPC = serializeTypeConfigInThisServer;
 
@@ -121,21 +113,7 @@ public class RemotingCommand {
         setCmdVersion(cmd);
 
         if (classHeader != null) {
-            try {
-                Constructor<? extends CommandCustomHeader> defaultConstructor = classHeader.getDeclaredConstructor();
-                defaultConstructor.setAccessible(true);
-                cmd.customHeader = defaultConstructor.newInstance();
-            } catch (NoSuchMethodException e) {
-                throw new RuntimeException("No default constructor found", e);
-            } catch (LinkageError e) {
-                throw new RuntimeException("Unresolvable class definition", e);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Is the constructor accessible?", e);
-            } catch (InstantiationException e) {
-                throw new RuntimeException("Is it an abstract class?", e);
-            } catch (InvocationTargetException e) {
-                throw new RuntimeException("Constructor threw exception", e);
-            }
+            cmd.customHeader = CommandCustomHeaderCodecs.getCodec(classHeader).newInstance();
         }
 
         return cmd;
@@ -173,6 +151,73 @@ public class RemotingCommand {
         return cmd;
     }
 
+    /**
+     * Decode command from a frame without length field, header is
+     * parsed in place.
+     * <p>
+     * Request retains the frame and its body and custom header are
+     * slices of it, so {@link #release()} must be invoked when request
+     * is processed. Response copies them instead, since it is handed
+     * to invokers whose lifecycle can't be tracked.
+     *
+     * @param frame the frame to decode
+     * @return command decoded, or {@code null} if serialize type is unknown
+     */
+    public static RemotingCommand decode(final ByteBuf frame) {
+        final int index = frame.readerIndex();
+        final int length = frame.readableBytes();
+        final int oriHeaderLen = frame.getInt(index);
+        final int headerLength = getHeaderLength(oriHeaderLen);
+        final SerializeType type = getProtocolType(oriHeaderLen);
+
+        final RemotingCommand cmd;
+        switch (type) {
+            case JSON:
+                cmd = RemotingSerializable.fromJson(
+                        frame.toString(index + 4, headerLength, StandardCharsets.UTF_8), RemotingCommand.class);
+                break;
+            case DORAN:
+                cmd = DoranSerializable.doranProtocolDecode(frame.slice(index + 4, headerLength));
+                break;
+            default:
+                return null;
+        }
+        cmd.setSerializeTypeCurrentRPC(type);
+
+        final int bodyIndex = index + 4 + headerLength;
+        final int bodyLength = length - 4 - headerLength;
+        if (cmd.isResponseType()) {
+            if (bodyLength > 0) {
+                cmd.body = ByteBufUtil.getBytes(frame, bodyIndex, bodyLength);
+            }
+            if (cmd.customHeaderData != null) {
+                cmd.customHeaderData = Unpooled.copiedBuffer(cmd.customHeaderData);
+            }
+        } else {
+            cmd.frame = frame.retain();
+            if (bodyLength > 0) {
+                cmd.bodyData = frame.slice(bodyIndex, bodyLength);
+            }
+        }
+        return cmd;
+    }
+
+    /**
+     * Release the frame that this command is decoded from. Body and
+     * custom header which are not read before are lost. It's safe to
+     * invoke this method more than once, or on commands not decoded
+     * from frames.
+     */
+    public void release() {
+        final ByteBuf frame = this.frame;
+        if (frame != null) {
+            this.frame = null;
+            this.bodyData = null;
+            this.customHeaderData = null;
+            frame.release();
+        }
+    }
+
     public static int getHeaderLength(int length) {
         return length & 0xFFFFFF;
     }
@@ -244,198 +289,97 @@ public class RemotingCommand {
 
     public <T extends CommandCustomHeader> T decodeCommandCustomHeader(Class<T> classHeader)
             throws RemotingCommandException {
-        CommandCustomHeader objectHeader;
-        try {
-            objectHeader = classHeader.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            return null;
-        }
-
-        if (this.extFields != null) {
-
-            Field[] fields = getClazzFields(classHeader);
-            for (Field field : fields) {
-                if (!Modifier.isStatic(field.getModifiers())) {
-                    String fieldName = field.getName();
-                    if (!fieldName.startsWith("this")) {
-                        try {
-                            String value = this.extFields.get(fieldName);
-                            if (null == value) {
-                                if (!isFieldNullable(field)) {
-                                    throw new RemotingCommandException("the custom field <" + fieldName + "> is null");
-                                }
-                                continue;
-                            }
-
-                            field.setAccessible(true);
-                            String type = getCanonicalName(field.getType());
-                            Object valueParsed;
-
-                            if (type.equals(STRING_CANONICAL_NAME)) {
-                                valueParsed = value;
-                            } else if (type.equals(INTEGER_CANONICAL_NAME_1) || type.equals(INTEGER_CANONICAL_NAME_2)) {
-                                valueParsed = Integer.parseInt(value);
-                            } else if (type.equals(LONG_CANONICAL_NAME_1) || type.equals(LONG_CANONICAL_NAME_2)) {
-                                valueParsed = Long.parseLong(value);
-                            } else if (type.equals(BOOLEAN_CANONICAL_NAME_1) || type.equals(BOOLEAN_CANONICAL_NAME_2)) {
-                                valueParsed = Boolean.parseBoolean(value);
-                            } else if (type.equals(DOUBLE_CANONICAL_NAME_1) || type.equals(DOUBLE_CANONICAL_NAME_2)) {
-                                valueParsed = Double.parseDouble(value);
-                            } else {
-                                throw new RemotingCommandException("the custom field <" + fieldName + "> type is not supported");
-                            }
-
-                            field.set(objectHeader, valueParsed);
-
-                        } catch (Throwable e) {
-                            LOGGER.error("Failed field [{}] decoding", fieldName, e);
-                        }
-                    }
-                }
-            }
-
-            objectHeader.checkFields();
-        }
-
-        return classHeader.cast(objectHeader);
-    }
-
-    private Field[] getClazzFields(Class<? extends CommandCustomHeader> classHeader) {
-        Field[] field = CLASS_HASH_MAP.get(classHeader);
-
-        if (field == null) {
-            field = classHeader.getDeclaredFields();
-            synchronized (CLASS_HASH_MAP) {
-                CLASS_HASH_MAP.put(classHeader, field);
-            }
+        final CommandCustomHeaderCodec<T> codec = CommandCustomHeaderCodecs.getCodec(classHeader);
+        final T objectHeader;
+        if (this.customHeaderData != null) {
+            objectHeader = codec.decode(this.customHeaderData.duplicate());
+        } else if (this.extFields != null) {
+            objectHeader = codec.decode(this.extFields);
+        } else {
+            return codec.newInstance();
         }
-        return field;
-    }
 
-    private boolean isFieldNullable(Field field) {
-        if (!NULLABLE_FIELD_CACHE.containsKey(field)) {
-            Annotation annotation = field.getAnnotation(CFNotNull.class);
-            synchronized (NULLABLE_FIELD_CACHE) {
-                NULLABLE_FIELD_CACHE.put(field, annotation == null);
-            }
-        }
-        return NULLABLE_FIELD_CACHE.get(field);
+        objectHeader.checkFields();
+        return objectHeader;
     }
 
-    private String getCanonicalName(Class<?> clazz) {
-        String name = CANONICAL_NAME_CACHE.get(clazz);
-
-        if (name == null) {
-            name = clazz.getCanonicalName();
-            synchronized (CANONICAL_NAME_CACHE) {
-                CANONICAL_NAME_CACHE.put(clazz, name);
-            }
-        }
-        return name;
+    void setCustomHeaderData(ByteBuf customHeaderData) {
+        this.customHeaderData = customHeaderData;
     }
 
     public ByteBuffer encode() {
-        // 1> header length size
-        int length = 4;
-
-        // 2> header data length
-        byte[] headerData = this.headerEncode();
-        length += headerData.length;
-
-        // 3> body data length
-        if (this.body != null) {
-            length += body.length;
-        }
-
-        ByteBuffer result = ByteBuffer.allocate(4 + length);
-
-        // length
-        result.putInt(length);
-
-        // header length
-        result.put(markProtocolType(headerData.length, serializeTypeCurrentRPC));
-
-        // header data
-        result.put(headerData);
-
-        // body data;
-        if (this.body != null) {
-            result.put(this.body);
-        }
-
-        result.flip();
-
-        return result;
-    }
-
-    private byte[] headerEncode() {
-        this.makeCustomHeaderToNet();
-        if (SerializeType.DORAN == serializeTypeCurrentRPC) {
-            return DoranSerializable.doranProtocolEncode(this);
-        } else {
-            return RemotingSerializable.encode(this);
+        final byte[] body = getBody();
+        final int bodyLength = body != null ? body.length : 0;
+        ByteBuf out = Unpooled.buffer(estimatedHeaderLength() + bodyLength);
+        encodeHeader(out, bodyLength);
+
+        // body data
+        if (body != null) {
+            out.writeBytes(body);
         }
+        return out.nioBuffer();
     }
 
     public void makeCustomHeaderToNet() {
         if (this.customHeader != null) {
-            Field[] fields = getClazzFields(customHeader.getClass());
             if (null == this.extFields) {
                 this.extFields = new HashMap<>();
             }
-
-            for (Field field : fields) {
-                if (!Modifier.isStatic(field.getModifiers())) {
-                    String name = field.getName();
-                    if (!name.startsWith("this")) {
-                        Object value = null;
-                        try {
-                            field.setAccessible(true);
-                            value = field.get(this.customHeader);
-                        } catch (Exception e) {
-                            LOGGER.error("Failed to access field [{}]", name, e);
-                        }
-
-                        if (value != null) {
-                            this.extFields.put(name, value.toString());
-                        }
-                    }
-                }
-            }
+            CommandCustomHeaderCodecs.getCodec(this.customHeader).encode(this.customHeader, this.extFields);
         }
     }
 
     public ByteBuffer encodeHeader() {
-        return encodeHeader(this.body != null ? this.body.length : 0);
+        final byte[] body = getBody();
+        return encodeHeader(body != null ? body.length : 0);
     }
 
     public ByteBuffer encodeHeader(final int bodyLength) {
-        // 1> header length size
-        int length = 4;
-
-        // 2> header data length
-        byte[] headerData;
-        headerData = this.headerEncode();
-
-        length += headerData.length;
-
-        // 3> body data length
-        length += bodyLength;
-
-        ByteBuffer result = ByteBuffer.allocate(4 + length - bodyLength);
-
-        // length
-        result.putInt(length);
-
-        // header length
-        result.put(markProtocolType(headerData.length, serializeTypeCurrentRPC));
-
-        // header data
-        result.put(headerData);
-
-        result.flip();
+        ByteBuf out = Unpooled.buffer(estimatedHeaderLength());
+        encodeHeader(out, bodyLength);
+        return out.nioBuffer();
+    }
+
+    /**
+     * Return estimated length of frame length, header length and
+     * header data, which can be used as initial capacity of buffer
+     * to avoid expanding it in most cases.
+     *
+     * @return estimated length
+     */
+    public int estimatedHeaderLength() {
+        return SerializeType.DORAN == serializeTypeCurrentRPC
+                ? ESTIMATED_DORAN_HEADER_LENGTH : ESTIMATED_JSON_HEADER_LENGTH;
+    }
+
+    /**
+     * Write frame length, header length and header data into the
+     * given buffer in a single pass, body is left to caller.
+     * Lengths are reserved first and written back after header is
+     * encoded.
+     *
+     * @param out        the buffer to write
+     * @param bodyLength the length of body that caller will write
+     */
+    public void encodeHeader(ByteBuf out, final int bodyLength) {
+        final int start = out.writerIndex();
+        // 1> total length and 2> header length
+        out.writeLong(0);
+
+        // 3> header data
+        int headerLength;
+        if (SerializeType.DORAN == serializeTypeCurrentRPC) {
+            // custom header is written as binary fields
+            headerLength = DoranSerializable.doranProtocolEncode(this, out);
+        } else {
+            this.makeCustomHeaderToNet();
+            byte[] headerData = RemotingSerializable.encode(this);
+            out.writeBytes(headerData);
+            headerLength = headerData.length;
+        }
 
-        return result;
+        out.setInt(start, 4 + headerLength + bodyLength);
+        out.setInt(start + 4, (serializeTypeCurrentRPC.getCode() << 24) | (headerLength & 0xFFFFFF));
     }
 
     public void markOnewayRPC() {
@@ -512,12 +456,38 @@ public class RemotingCommand {
         this.remark = remark;
     }
 
+    /**
+     * Return body of command. If command is decoded from frame,
+     * body is copied at first call.
+     *
+     * @return body
+     */
+    @JsonIgnore
     public byte[] getBody() {
+        if (body == null && bodyData != null) {
+            body = ByteBufUtil.getBytes(bodyData);
+        }
         return body;
     }
 
+    @JsonIgnore
     public void setBody(byte[] body) {
         this.body = body;
+        this.bodyData = null;
+    }
+
+    /**
+     * Return body of command without copy. The buffer is only valid
+     * before {@link #release()} is invoked.
+     *
+     * @return body, or {@code null} if command has no body
+     */
+    @JsonIgnore
+    public ByteBuf getBodyBuf() {
+        if (bodyData != null) {
+            return bodyData.duplicate();
+        }
+        return body != null ? Unpooled.wrappedBuffer(body) : null;
     }
 
     public HashMap<String, String> getExtFields() {
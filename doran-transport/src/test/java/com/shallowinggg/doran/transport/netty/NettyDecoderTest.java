@@ -0,0 +1,70 @@
+package com.shallowinggg.doran.transport.netty;
+
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import com.shallowinggg.doran.transport.protocol.SerializeType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class NettyDecoderTest {
+
+    @Test
+    public void testRequestHoldsFrame() {
+        for (SerializeType type : SerializeType.values()) {
+            RemotingCommand request = newCommand(type);
+            ByteBuf in = toDirectBuffer(request);
+
+            EmbeddedChannel channel = new EmbeddedChannel(new NettyDecoder());
+            assertTrue(channel.writeInbound(in));
+            RemotingCommand decoded = channel.readInbound();
+            // frame is retained by request
+            assertEquals(1, in.refCnt());
+            assertEquals(3, decoded.getBodyBuf().readableBytes());
+            assertArrayEquals(new byte[]{1, 2, 3}, decoded.getBody());
+
+            decoded.release();
+            assertEquals(0, in.refCnt());
+            // safe to release again
+            decoded.release();
+            assertArrayEquals(new byte[]{1, 2, 3}, decoded.getBody());
+            assertFalse(channel.finish());
+        }
+    }
+
+    @Test
+    public void testResponseCopiesFrame() {
+        for (SerializeType type : SerializeType.values()) {
+            RemotingCommand response = newCommand(type);
+            response.markResponseType();
+            ByteBuf in = toDirectBuffer(response);
+
+            EmbeddedChannel channel = new EmbeddedChannel(new NettyDecoder());
+            assertTrue(channel.writeInbound(in));
+            RemotingCommand decoded = channel.readInbound();
+            assertEquals(0, in.refCnt());
+            assertArrayEquals(new byte[]{1, 2, 3}, decoded.getBody());
+            assertEquals("remark", decoded.getRemark());
+            assertFalse(channel.finish());
+        }
+    }
+
+    private static RemotingCommand newCommand(SerializeType type) {
+        RemotingCommand command = RemotingCommand.createRequestCommand(1, null);
+        command.setSerializeTypeCurrentRPC(type);
+        command.setRemark("remark");
+        command.setBody(new byte[]{1, 2, 3});
+        return command;
+    }
+
+    private static ByteBuf toDirectBuffer(RemotingCommand command) {
+        ByteBuffer encoded = command.encode();
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(encoded.remaining());
+        buf.writeBytes(encoded);
+        return buf;
+    }
+}
@@ -0,0 +1,64 @@
+package com.shallowinggg.doran.transport.netty;
+
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import com.shallowinggg.doran.transport.protocol.SerializeType;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NettyEncoderTest {
+
+    @Test
+    public void testSmallBody() {
+        byte[] body = new byte[16];
+        new Random().nextBytes(body);
+        for (SerializeType type : SerializeType.values()) {
+            EmbeddedChannel channel = new EmbeddedChannel(new NettyEncoder());
+            assertTrue(channel.writeOutbound(newCommand(type, body)));
+            // body is copied into header buffer
+            assertEquals(1, channel.outboundMessages().size());
+            assertDecoded(channel, body);
+        }
+    }
+
+    @Test
+    public void testLargeBody() {
+        byte[] body = new byte[NettySystemConfig.ENCODE_BODY_COPY_THRESHOLD + 1];
+        new Random().nextBytes(body);
+        for (SerializeType type : SerializeType.values()) {
+            EmbeddedChannel channel = new EmbeddedChannel(new NettyEncoder());
+            assertTrue(channel.writeOutbound(newCommand(type, body)));
+            // body is attached as wrapped buffer
+            assertEquals(2, channel.outboundMessages().size());
+            assertDecoded(channel, body);
+        }
+    }
+
+    private static RemotingCommand newCommand(SerializeType type, byte[] body) {
+        RemotingCommand command = RemotingCommand.createRequestCommand(1, null);
+        command.setSerializeTypeCurrentRPC(type);
+        command.setRemark("remark");
+        command.addExtField("key", "value");
+        command.setBody(body);
+        return command;
+    }
+
+    private static void assertDecoded(EmbeddedChannel channel, byte[] body) {
+        EmbeddedChannel decoder = new EmbeddedChannel(new NettyDecoder());
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            decoder.writeInbound(buf);
+        }
+        RemotingCommand decoded = decoder.readInbound();
+        assertNotNull(decoded);
+        assertEquals("remark", decoded.getRemark());
+        assertEquals("value", decoded.getExtFields().get("key"));
+        assertArrayEquals(body, decoded.getBody());
+        assertFalse(channel.finish());
+        assertFalse(decoder.finish());
+    }
+}
@@ -0,0 +1,23 @@
+package com.shallowinggg.doran.transport.netty;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NettyTransportTest {
+
+    @Test
+    public void testSelect() {
+        NettyClientConfig config = new NettyClientConfig();
+        assertEquals(NettyTransport.NIO, NettyTransport.select(config));
+
+        config.setUseNativeTransport(true);
+        config.setUseIoUring(true);
+        NettyTransport transport = NettyTransport.select(config);
+        // falls back to an available one
+        assertTrue(transport.isAvailable());
+        if (transport == NettyTransport.NIO) {
+            assertFalse(NettyTransport.EPOLL.isAvailable());
+        }
+    }
+}
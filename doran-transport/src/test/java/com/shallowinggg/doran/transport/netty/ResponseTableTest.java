@@ -0,0 +1,98 @@
+package com.shallowinggg.doran.transport.netty;
+
+import com.shallowinggg.doran.transport.ChannelEventListener;
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ResponseTableTest {
+
+    @Test
+    public void testPutRemove() {
+        ResponseTable table = new ResponseTable(16);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        EmbeddedChannel other = new EmbeddedChannel();
+        for (int i = 0; i < 100; ++i) {
+            table.put(i, new ResponseFuture(i % 2 == 0 ? channel : other, i, 1000, null, null));
+        }
+        assertEquals(100, table.size());
+
+        ResponseFuture responseFuture = table.get(1);
+        assertFalse(table.remove(1, table.get(3)));
+        assertTrue(table.remove(1, responseFuture));
+        assertNull(table.remove(1));
+
+        List<ResponseFuture> removed = table.removeIf(rf -> rf.getProcessChannel() == channel);
+        assertEquals(50, removed.size());
+        assertEquals(49, table.size());
+    }
+
+    @Test
+    public void testExpireAsyncRequest() throws Exception {
+        TestRemoting remoting = new TestRemoting();
+        EmbeddedChannel channel = new EmbeddedChannel();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ResponseFuture> completed = new AtomicReference<>();
+
+        RemotingCommand request = RemotingCommand.createRequestCommand(1, null);
+        remoting.invokeAsyncImpl(channel, request, 50, responseFuture -> {
+            completed.set(responseFuture);
+            latch.countDown();
+        });
+        assertEquals(1, remoting.responseTable.size());
+        // request is not expired until the grace period passes
+        assertFalse(latch.await(NettySystemConfig.RESPONSE_TIMEOUT_GRACE_MILLIS / 2, TimeUnit.MILLISECONDS));
+        assertEquals(1, remoting.responseTable.size());
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertNull(completed.get().getResponseCommand());
+        assertEquals(0, remoting.responseTable.size());
+        // permit is released after callback returns
+        for (int i = 0; i < 100 && remoting.semaphoreAsync.availablePermits() != TestRemoting.PERMITS; ++i) {
+            Thread.sleep(10);
+        }
+        assertEquals(TestRemoting.PERMITS, remoting.semaphoreAsync.availablePermits());
+    }
+
+    @Test
+    public void testResponseCancelsTimeout() throws Exception {
+        TestRemoting remoting = new TestRemoting();
+        EmbeddedChannel channel = new EmbeddedChannel();
+        AtomicReference<ResponseFuture> completed = new AtomicReference<>();
+
+        RemotingCommand request = RemotingCommand.createRequestCommand(1, null);
+        remoting.invokeAsyncImpl(channel, request, 100, completed::set);
+        RemotingCommand response = RemotingCommand.createResponseCommand(0, null);
+        response.setOpaque(request.getOpaque());
+        remoting.processResponseCommand(channel.pipeline().firstContext(), response);
+
+        assertSame(response, completed.get().getResponseCommand());
+        assertEquals(0, remoting.responseTable.size());
+        assertTrue(completed.get().getTimeout().isCancelled());
+    }
+
+    private static class TestRemoting extends NettyRemotingAbstract {
+        static final int PERMITS = 16;
+
+        TestRemoting() {
+            super(PERMITS, PERMITS);
+        }
+
+        @Override
+        public ChannelEventListener getChannelEventListener() {
+            return null;
+        }
+
+        @Override
+        public ExecutorService getCallbackExecutor() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.shallowinggg.doran.transport.netty;
+
+import com.shallowinggg.doran.transport.protocol.RemotingCommand;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.*;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WriteCoalescingHandlerTest {
+
+    @Test
+    public void testCoalesceFlush() throws Exception {
+        final int requestNum = 10;
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        try {
+            LocalAddress address = new LocalAddress("WriteCoalescingHandlerTest");
+            Channel server = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bind(address).sync().channel();
+            AtomicInteger flushes = new AtomicInteger();
+            Channel client = new Bootstrap().group(group).channel(LocalChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                                @Override
+                                public void flush(ChannelHandlerContext ctx) {
+                                    flushes.incrementAndGet();
+                                    ctx.flush();
+                                }
+                            }, new NettyEncoder(), new WriteCoalescingHandler(64 * 1024));
+                        }
+                    })
+                    .connect(address).sync().channel();
+
+            // hold event loop so that requests are queued like concurrent callers
+            CountDownLatch hold = new CountDownLatch(1);
+            client.eventLoop().execute(() -> {
+                try {
+                    hold.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            ChannelFuture last = null;
+            for (int i = 0; i < requestNum; ++i) {
+                last = client.writeAndFlush(newRequest(16));
+            }
+            hold.countDown();
+            assertTrue(last.await(3, TimeUnit.SECONDS));
+            assertTrue(last.isSuccess());
+            assertEquals(1, flushes.get());
+
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testFlushWhenExceedMaxBytes() {
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyEncoder(), new WriteCoalescingHandler(256));
+        channel.pipeline().writeAndFlush(newRequest(512));
+        assertEquals(1, channel.outboundMessages().size());
+        releaseOutbound(channel);
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFlushOnClose() {
+        EmbeddedChannel channel = new EmbeddedChannel(new NettyEncoder(), new WriteCoalescingHandler(64 * 1024));
+        channel.pipeline().writeAndFlush(newRequest(16));
+        assertTrue(channel.outboundMessages().isEmpty());
+        channel.pipeline().close();
+        assertEquals(1, channel.outboundMessages().size());
+        releaseOutbound(channel);
+    }
+
+    private static RemotingCommand newRequest(int bodyLength) {
+        RemotingCommand request = RemotingCommand.createRequestCommand(1, null);
+        request.setBody(new byte[bodyLength]);
+        return request;
+    }
+
+    private static void releaseOutbound(EmbeddedChannel channel) {
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ((ByteBuf) msg).release();
+        }
+    }
+}
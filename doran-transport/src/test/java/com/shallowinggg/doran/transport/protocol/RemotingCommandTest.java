@@ -0,0 +1,174 @@
+package com.shallowinggg.doran.transport.protocol;
+
+import com.shallowinggg.doran.transport.CommandCustomHeader;
+import com.shallowinggg.doran.transport.annotation.CFNotNull;
+import com.shallowinggg.doran.transport.exception.RemotingCommandException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class RemotingCommandTest {
+
+    @Test
+    public void testDoranCustomHeader() throws RemotingCommandException {
+        TestHeader decoded = encodeAndDecode(newHeader(), SerializeType.DORAN);
+        assertHeader(decoded);
+    }
+
+    @Test
+    public void testJsonCustomHeader() throws RemotingCommandException {
+        TestHeader decoded = encodeAndDecode(newHeader(), SerializeType.JSON);
+        assertHeader(decoded);
+    }
+
+    @Test
+    public void testNullableField() throws RemotingCommandException {
+        for (SerializeType type : SerializeType.values()) {
+            TestHeader header = newHeader();
+            header.setNullableCount(null);
+            header.setRemark(null);
+            TestHeader decoded = encodeAndDecode(header, type);
+            assertNull(decoded.getNullableCount());
+            assertNull(decoded.getRemark());
+            assertEquals("name", decoded.getName());
+        }
+    }
+
+    @Test
+    public void testNotNullField() {
+        for (SerializeType type : SerializeType.values()) {
+            TestHeader header = newHeader();
+            header.setName(null);
+            try {
+                encodeAndDecode(header, type);
+                fail();
+            } catch (RemotingCommandException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testCreateResponseCommand() {
+        RemotingCommand response = RemotingCommand.createResponseCommand(TestHeader.class);
+        assertTrue(response.readCustomHeader() instanceof TestHeader);
+    }
+
+    private static TestHeader newHeader() {
+        TestHeader header = new TestHeader();
+        header.setName("name");
+        header.setRemark("备注");
+        header.setCount(-1);
+        header.setNullableCount(7);
+        header.setTimestamp(Long.MAX_VALUE);
+        header.setRate(0.5);
+        header.setEnable(true);
+        header.setPrivateField(42);
+        return header;
+    }
+
+    private static void assertHeader(TestHeader header) {
+        assertEquals("name", header.getName());
+        assertEquals("备注", header.getRemark());
+        assertEquals(-1, header.getCount());
+        assertEquals(Integer.valueOf(7), header.getNullableCount());
+        assertEquals(Long.MAX_VALUE, header.getTimestamp());
+        assertEquals(0.5, header.getRate(), 0);
+        assertTrue(header.isEnable());
+        assertEquals(42, header.privateField);
+    }
+
+    private static TestHeader encodeAndDecode(TestHeader header, SerializeType type) throws RemotingCommandException {
+        RemotingCommand request = RemotingCommand.createRequestCommand(1, header);
+        request.setSerializeTypeCurrentRPC(type);
+        request.setBody(new byte[]{1, 2, 3});
+        ByteBuffer encoded = request.encode();
+        // frame decoder strips total length
+        encoded.position(4);
+        RemotingCommand decoded = RemotingCommand.decode(encoded.slice());
+        assertEquals(request.getOpaque(), decoded.getOpaque());
+        assertArrayEquals(new byte[]{1, 2, 3}, decoded.getBody());
+        return decoded.decodeCommandCustomHeader(TestHeader.class);
+    }
+
+    public static class TestHeader implements CommandCustomHeader {
+        @CFNotNull
+        private String name;
+        private String remark;
+        private int count;
+        private Integer nullableCount;
+        private long timestamp;
+        private double rate;
+        private boolean enable;
+        /**
+         * no accessors
+         */
+        private int privateField;
+
+        @Override
+        public void checkFields() {
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+
+        public void setRemark(String remark) {
+            this.remark = remark;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Integer getNullableCount() {
+            return nullableCount;
+        }
+
+        public void setNullableCount(Integer nullableCount) {
+            this.nullableCount = nullableCount;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public void setTimestamp(long timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public boolean isEnable() {
+            return enable;
+        }
+
+        public void setEnable(boolean enable) {
+            this.enable = enable;
+        }
+
+        void setPrivateField(int privateField) {
+            this.privateField = privateField;
+        }
+    }
+}